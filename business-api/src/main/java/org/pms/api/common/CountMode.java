@@ -0,0 +1,26 @@
+package org.pms.api.common;
+
+/**
+ * @author alcsyooterranf
+ * @program PressureMonitorSys-business
+ * @description 分页查询的总数统计方式
+ * @create 2026/10/18
+ */
+public enum CountMode {
+	
+	/**
+	 * 精确统计, 执行count(*)
+	 */
+	EXACT,
+	
+	/**
+	 * 不统计, PageResponse.count为空, 通过hasMore判断是否还有下一页
+	 */
+	NONE,
+	
+	/**
+	 * 估算, 大表使用执行计划中的预估行数, 其他表等同于EXACT
+	 */
+	APPROX
+	
+}
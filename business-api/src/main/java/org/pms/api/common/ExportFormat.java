@@ -0,0 +1,21 @@
+package org.pms.api.common;
+
+/**
+ * @author alcsyooterranf
+ * @program PressureMonitorSys-business
+ * @description 数据导出格式
+ * @create 2026/10/18
+ */
+public enum ExportFormat {
+	
+	/**
+	 * CSV, 首行为列名
+	 */
+	CSV,
+	
+	/**
+	 * Parquet列式文件, 体积小, 适合交给数据分析工具
+	 */
+	PARQUET
+	
+}
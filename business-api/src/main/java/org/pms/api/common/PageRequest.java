@@ -1,12 +1,19 @@
 package org.pms.api.common;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
+import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.experimental.SuperBuilder;
 
+import java.util.Date;
+
 /**
  * @description: 分页类
+ * 支持两种分页方式:
+ * 1. 偏移分页: limit pageBegin, pageEnd, 适用于小表
+ * 2. 游标分页: 传入上一页返回的nextCursorCreateTime和nextCursorId, 按(create_time, id)定位, 翻页深度不影响性能
  * @author: alcsyooterranf
  */
 @Data
@@ -35,6 +42,49 @@ public class PageRequest {
 	 */
 	private int rows;
 	
+	/**
+	 * 游标: 上一页最后一条记录的创建时间, 与cursorId同时传入时使用游标分页, 忽略pageBegin
+	 */
+	private Date cursorCreateTime;
+	
+	/**
+	 * 游标: 上一页最后一条记录的id
+	 */
+	private Long cursorId;
+	
+	/**
+	 * 总数统计方式
+	 */
+	@Builder.Default
+	private CountMode countMode = CountMode.EXACT;
+	
+	/**
+	 * 是否使用游标分页
+	 */
+	@JsonIgnore
+	public boolean isCursorMode() {
+		return cursorCreateTime != null && cursorId != null;
+	}
+	
+	/**
+	 * 每页条数, 优先取pageEnd, 其次rows, 默认10
+	 */
+	@JsonIgnore
+	public int getPageSize() {
+		if (pageEnd > 0) {
+			return pageEnd;
+		}
+		return rows > 0 ? rows : 10;
+	}
+	
+	/**
+	 * 实际查询条数, 多查一条用于判断是否还有下一页
+	 */
+	@JsonIgnore
+	public int getFetchSize() {
+		return getPageSize() + 1;
+	}
+	
 	public void setPage(String page, String rows) {
 		this.page = null == page ? 1 : Integer.parseInt(page);
 		this.rows = null == page ? 10 : Integer.parseInt(rows);
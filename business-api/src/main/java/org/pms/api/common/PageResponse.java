@@ -5,6 +5,7 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.Date;
 import java.util.List;
 
 /**
@@ -20,7 +21,7 @@ import java.util.List;
 public class PageResponse<T> {
 	
 	/**
-	 * 总记录数
+	 * 总记录数, countMode为NONE时为空, APPROX时为估算值
 	 */
 	
 	private Long count;
@@ -30,4 +31,22 @@ public class PageResponse<T> {
 	 */
 	private List<T> data;
 	
+	/**
+	 * 是否还有下一页
+	 */
+	private Boolean hasMore;
+	
+	/**
+	 * 下一页游标: 本页最后一条记录的创建时间和id, 原样回传即可查询下一页
+	 */
+	private Date nextCursorCreateTime;
+	
+	private Long nextCursorId;
+	
+	/**
+	 * 实际使用的数据源, 只有可能路由到多个数据源的查询才会填写
+	 * 游标翻页时与nextCursorCreateTime/nextCursorId一起回传(cursorBackend), 保证翻页不切换数据源
+	 */
+	private QueryBackend backend;
+	
 }
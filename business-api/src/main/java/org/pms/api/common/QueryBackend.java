@@ -0,0 +1,21 @@
+package org.pms.api.common;
+
+/**
+ * @author alcsyooterranf
+ * @program PressureMonitorSys-business
+ * @description 查询实际使用的数据源
+ * @create 2026/10/18
+ */
+public enum QueryBackend {
+	
+	/**
+	 * MySQL业务库, 近期数据和小范围查询
+	 */
+	MYSQL,
+	
+	/**
+	 * ClickHouse, 历史数据和大范围查询
+	 */
+	CLICKHOUSE
+	
+}
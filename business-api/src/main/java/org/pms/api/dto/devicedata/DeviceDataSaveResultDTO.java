@@ -0,0 +1,49 @@
+package org.pms.api.dto.devicedata;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * 设备数据保存结果DTO（RPC通信）
+ * <p>
+ * 用途：批量保存设备数据时逐条返回处理结果，网关据此只重试失败的记录
+ *
+ * @author alcsyooterranf
+ * @version 1.0
+ * @since 2026/10/18
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeviceDataSaveResultDTO implements Serializable {
+
+	@Serial
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * 在请求列表中的下标
+	 */
+	private Integer index;
+
+	/**
+	 * 设备ID
+	 */
+	private String deviceId;
+
+	/**
+	 * 是否保存成功
+	 */
+	private Boolean success;
+
+	/**
+	 * 失败原因
+	 */
+	private String message;
+
+}
@@ -0,0 +1,37 @@
+package org.pms.api.dto.req;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * @author alcsyooterranf
+ * @program PressureMonitorSys-business
+ * @description 批量下发请求, pipelineId和deviceIds至少指定一个, 指定deviceIds时只下发这些设备
+ * @create 2026/10/18
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CommandFanOutReq {
+	
+	/**
+	 * 指令任务ID
+	 */
+	private Long taskId;
+	
+	/**
+	 * 管道ID (下发到管道下所有已绑定的设备, 必须与指令任务的管道一致)
+	 */
+	private Long pipelineId;
+	
+	/**
+	 * 设备ID列表
+	 */
+	private List<Long> deviceIds;
+	
+}
@@ -0,0 +1,42 @@
+package org.pms.api.dto.req;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+/**
+ * @author alcsyooterranf
+ * @program PressureMonitorSys-business
+ * @description 设备数据曲线查询请求
+ * @create 2026/10/18
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeviceDataChartReq {
+	
+	/**
+	 * 设备SN
+	 */
+	private String deviceSN;
+	
+	/**
+	 * 开始时间
+	 */
+	private Date startTime;
+	
+	/**
+	 * 结束时间
+	 */
+	private Date endTime;
+	
+	/**
+	 * 期望的数据点数, 时间范围按此均分为若干区间, 默认500
+	 */
+	private Integer points;
+	
+}
@@ -0,0 +1,48 @@
+package org.pms.api.dto.req;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.pms.api.common.ExportFormat;
+
+import java.util.Date;
+
+/**
+ * @author alcsyooterranf
+ * @program PressureMonitorSys-business
+ * @description 设备数据导出请求, 不限制条数
+ * @create 2026/10/18
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeviceDataExportReq {
+	
+	/**
+	 * 管道ID(可选)
+	 */
+	private Long pipelineId;
+	
+	/**
+	 * 设备SN(可选)
+	 */
+	private String deviceSN;
+	
+	/**
+	 * 开始时间
+	 */
+	private Date startTime;
+	
+	/**
+	 * 结束时间
+	 */
+	private Date endTime;
+	
+	/**
+	 * 导出格式, 默认CSV
+	 */
+	private ExportFormat format;
+	
+}
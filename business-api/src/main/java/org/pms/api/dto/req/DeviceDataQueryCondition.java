@@ -3,6 +3,7 @@ package org.pms.api.dto.req;
 import lombok.*;
 import lombok.experimental.SuperBuilder;
 import org.pms.api.common.PageRequest;
+import org.pms.api.common.QueryBackend;
 
 import java.util.Date;
 
@@ -18,4 +19,9 @@ public class DeviceDataQueryCondition extends PageRequest {
     private Date startTime;
     private Date endTime;
 
+    /**
+     * 游标: 上一页返回的backend, 与游标一起回传, 翻页过程中始终使用第一页的数据源
+     */
+    private QueryBackend cursorBackend;
+
 }
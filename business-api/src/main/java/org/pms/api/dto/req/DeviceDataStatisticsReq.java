@@ -0,0 +1,43 @@
+package org.pms.api.dto.req;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * @author alcsyooterranf
+ * @program PressureMonitorSys-business
+ * @description 设备数据批量统计请求, deviceSNList和pipelineId二选一, 同时传入时以deviceSNList为准
+ * @create 2026/10/18
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeviceDataStatisticsReq {
+	
+	/**
+	 * 设备SN列表
+	 */
+	private List<String> deviceSNList;
+	
+	/**
+	 * 管道ID, 统计管道下所有已绑定的设备
+	 */
+	private Long pipelineId;
+	
+	/**
+	 * 开始时间
+	 */
+	private Date startTime;
+	
+	/**
+	 * 结束时间
+	 */
+	private Date endTime;
+	
+}
@@ -0,0 +1,91 @@
+package org.pms.api.dto.resp;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * @author alcsyooterranf
+ * @program PressureMonitorSys-business
+ * @description 批量下发作业进度视图
+ * @create 2026/10/18
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CommandFanOutJobView {
+	
+	/**
+	 * 作业ID
+	 */
+	private String jobId;
+	
+	/**
+	 * 指令任务ID
+	 */
+	private Long taskId;
+	
+	/**
+	 * 管道ID
+	 */
+	private Long pipelineId;
+	
+	/**
+	 * 作业状态 (RUNNING/COMPLETED/INTERRUPTED/FAILED), 后两者表示作业未下发完所有设备就结束了
+	 */
+	private String status;
+	
+	/**
+	 * 作业状态描述
+	 */
+	private String statusDesc;
+	
+	/**
+	 * 目标设备数
+	 */
+	private Integer total;
+	
+	/**
+	 * 已提交到AEP的设备数
+	 */
+	private Integer submitted;
+	
+	/**
+	 * AEP受理成功的设备数
+	 */
+	private Integer succeeded;
+	
+	/**
+	 * 下发失败的设备数
+	 */
+	private Integer failed;
+	
+	/**
+	 * 已写入执行记录的设备数
+	 */
+	private Integer recorded;
+	
+	/**
+	 * 部分失败原因
+	 */
+	private List<String> failures;
+	
+	/**
+	 * 创建时间
+	 */
+	@JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss", timezone = "GMT+8")
+	private Date createTime;
+	
+	/**
+	 * 结束时间
+	 */
+	@JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss", timezone = "GMT+8")
+	private Date finishTime;
+	
+}
@@ -0,0 +1,51 @@
+package org.pms.api.dto.resp;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+/**
+ * @author alcsyooterranf
+ * @program PressureMonitorSys-business
+ * @description 设备数据曲线的一个数据点, 即一个时间区间内的统计值
+ * @create 2026/10/18
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeviceDataChartPointView {
+	
+	/**
+	 * 区间开始时间
+	 */
+	@JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss", timezone = "GMT+8")
+	private Date time;
+	
+	/**
+	 * 区间内的上报条数
+	 */
+	private Long count;
+	
+	/**
+	 * 区间内的异常条数
+	 */
+	private Long abnormalCount;
+	
+	private Integer minPressure;
+	private Double avgPressure;
+	private Integer maxPressure;
+	
+	private Integer minTemperature;
+	private Double avgTemperature;
+	private Integer maxTemperature;
+	
+	private Integer minVoltage;
+	private Double avgVoltage;
+	private Integer maxVoltage;
+	
+}
@@ -0,0 +1,34 @@
+package org.pms.api.dto.resp;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * @author alcsyooterranf
+ * @program PressureMonitorSys-business
+ * @description 设备数据曲线查询返回类
+ * @create 2026/10/18
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeviceDataChartView {
+	
+	private String deviceSN;
+	
+	/**
+	 * 区间长度(秒)
+	 */
+	private Long intervalSeconds;
+	
+	/**
+	 * 按时间升序的数据点, 没有上报数据的区间不返回
+	 */
+	private List<DeviceDataChartPointView> points;
+	
+}
@@ -0,0 +1,44 @@
+package org.pms.api.dto.resp;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * @author alcsyooterranf
+ * @program PressureMonitorSys-business
+ * @description 单个设备在一段时间内的统计数据
+ * @create 2026/10/18
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeviceDataStatisticsView {
+	
+	private String deviceSN;
+	
+	/**
+	 * 上报条数
+	 */
+	private Long totalCount;
+	
+	/**
+	 * 异常条数
+	 */
+	private Long abnormalCount;
+	
+	private Double avgTemperature;
+	private Integer maxTemperature;
+	private Integer minTemperature;
+	
+	private Double avgVoltage;
+	private Integer maxVoltage;
+	private Integer minVoltage;
+	
+	private Double avgPressure;
+	private Integer maxPressure;
+	private Integer minPressure;
+	
+}
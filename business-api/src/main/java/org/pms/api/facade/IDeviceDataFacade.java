@@ -1,6 +1,7 @@
 package org.pms.api.facade;
 
 import org.pms.api.dto.devicedata.DeviceDataDTO;
+import org.pms.api.dto.devicedata.DeviceDataSaveResultDTO;
 import org.pms.types.Response;
 
 import java.util.List;
@@ -19,9 +20,9 @@ public interface IDeviceDataFacade {
 	 * 网关异步消费队列中的设备数据，批量发送给后端
 	 *
 	 * @param dataList 设备数据列表
-	 * @return 响应结果
+	 * @return 响应结果, data为逐条处理结果, 网关只需重试success为false的记录
 	 */
-	Response<Boolean> batchHandleDeviceData(List<DeviceDataDTO> dataList);
+	Response<List<DeviceDataSaveResultDTO>> batchHandleDeviceData(List<DeviceDataDTO> dataList);
 	
 	/**
 	 * 单条处理设备数据（用于重试）
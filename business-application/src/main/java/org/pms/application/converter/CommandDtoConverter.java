@@ -1,13 +1,17 @@
 package org.pms.application.converter;
 
+import org.pms.api.dto.req.CommandFanOutReq;
 import org.pms.api.dto.req.CommandMetaInsertReq;
 import org.pms.api.dto.req.CommandMetaUpdateReq;
 import org.pms.api.dto.req.CommandTaskCreateReq;
 import org.pms.api.dto.req.CommandTaskSendReq;
+import org.pms.api.dto.resp.CommandFanOutJobView;
 import org.pms.domain.command.model.command.CreateCommandMetaCommand;
 import org.pms.domain.command.model.command.CreateCommandTaskCommand;
+import org.pms.domain.command.model.command.FanOutCommandCommand;
 import org.pms.domain.command.model.command.SendCommandCommand;
 import org.pms.domain.command.model.command.UpdateCommandMetaCommand;
+import org.pms.domain.command.model.entity.CommandFanOutJobEntity;
 import org.springframework.stereotype.Component;
 
 /**
@@ -20,6 +24,8 @@ import org.springframework.stereotype.Component;
  * - CommandMetaUpdateReq → UpdateCommandMetaCommand
  * - CommandTaskCreateReq → CreateCommandTaskCommand
  * - CommandTaskSendReq → SendCommandCommand
+ * - CommandFanOutReq → FanOutCommandCommand
+ * - CommandFanOutJobEntity → CommandFanOutJobView
  *
  * @author refactor
  * @date 2025-12-18
@@ -100,5 +106,47 @@ public class CommandDtoConverter {
 				.build();
 	}
 	
+	/**
+	 * 转换：API DTO → Domain Command
+	 * CommandFanOutReq → FanOutCommandCommand
+	 */
+	public FanOutCommandCommand toFanOutCommand(CommandFanOutReq req) {
+		if (req == null) {
+			return null;
+		}
+		
+		return FanOutCommandCommand.builder()
+				.taskId(req.getTaskId())
+				.pipelineId(req.getPipelineId())
+				.deviceIds(req.getDeviceIds())
+				.build();
+	}
+	
+	/**
+	 * 转换：Domain Entity → API View
+	 * CommandFanOutJobEntity → CommandFanOutJobView
+	 */
+	public CommandFanOutJobView toFanOutJobView(CommandFanOutJobEntity entity) {
+		if (entity == null) {
+			return null;
+		}
+		
+		return CommandFanOutJobView.builder()
+				.jobId(entity.getJobId())
+				.taskId(entity.getTaskId())
+				.pipelineId(entity.getPipelineId())
+				.status(entity.getStatus() == null ? null : entity.getStatus().name())
+				.statusDesc(entity.getStatus() == null ? null : entity.getStatus().getDesc())
+				.total(entity.getTotal())
+				.submitted(entity.getSubmitted())
+				.succeeded(entity.getSucceeded())
+				.failed(entity.getFailed())
+				.recorded(entity.getRecorded())
+				.failures(entity.getFailures())
+				.createTime(entity.getCreateTime())
+				.finishTime(entity.getFinishTime())
+				.build();
+	}
+	
 }
 
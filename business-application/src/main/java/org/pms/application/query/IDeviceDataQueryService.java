@@ -1,9 +1,18 @@
 package org.pms.application.query;
 
+import org.pms.api.dto.req.DeviceDataChartReq;
+import org.pms.api.dto.req.DeviceDataExportReq;
 import org.pms.api.dto.req.DeviceDataQueryCondition;
+import org.pms.api.dto.req.DeviceDataStatisticsReq;
+import org.pms.api.dto.resp.DeviceDataChartView;
 import org.pms.api.dto.resp.DeviceDataQueryView;
+import org.pms.api.dto.resp.DeviceDataStatisticsView;
 import org.pms.api.common.PageResponse;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
 /**
  * @author alcsyooterranf
  * @program PressureMonitorSys-business
@@ -20,4 +29,48 @@ public interface IDeviceDataQueryService {
 	 */
 	PageResponse<DeviceDataQueryView> queryDeviceDataPage(DeviceDataQueryCondition queryCondition);
 	
+	/**
+	 * 查询异常数据列表(最近10000条), 供控制台轮询; 结果短时间缓存, 处理或删除后立即失效
+	 *
+	 * @param queryCondition 查询条件, 分页参数不生效
+	 * @return 设备数据视图对象
+	 */
+	List<DeviceDataQueryView> queryAbnormalDataList(DeviceDataQueryCondition queryCondition);
+	
+	/**
+	 * 查询单个设备的数据曲线, 时间范围均分为若干区间, 每个区间返回min/avg/max
+	 *
+	 * @param chartReq 设备SN、时间范围和期望的数据点数
+	 * @return 降采样后的曲线数据
+	 */
+	DeviceDataChartView queryDeviceDataChart(DeviceDataChartReq chartReq);
+	
+	/**
+	 * 批量统计多个设备的数据, 一次查询返回所有设备
+	 *
+	 * @param statisticsReq 设备SN列表或管道ID, 以及时间范围
+	 * @return 每个设备一条统计数据, 时间范围内没有数据的设备不返回
+	 */
+	List<DeviceDataStatisticsView> queryDeviceDataStatistics(DeviceDataStatisticsReq statisticsReq);
+	
+	/**
+	 * 导出设备数据, 边查询边写入输出流, 不限制条数
+	 * 查询失败时在打开输出流之前抛出BizException, 调用方还没有设置导出文件的响应头
+	 *
+	 * @param exportReq 导出条件和格式, 开始时间和结束时间必填
+	 * @param output    输出流, 确认查询成功后才打开
+	 * @throws IOException 输出中断
+	 */
+	void exportDeviceData(DeviceDataExportReq exportReq, ExportOutput output) throws IOException;
+	
+	/**
+	 * 导出目标, 调用方在open中设置响应头并返回输出流
+	 */
+	@FunctionalInterface
+	interface ExportOutput {
+		
+		OutputStream open() throws IOException;
+		
+	}
+	
 }
@@ -9,6 +9,8 @@ import org.pms.domain.command.service.stateflow.IStateHandler;
 import org.pms.types.Result;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+
 /**
  * @author alcsyooterranf
  * @program PressureMonitorSys-business
@@ -61,4 +63,21 @@ public class CommandRespHandler {
 		}
 	}
 	
+	/**
+	 * 批量处理指令响应
+	 * <p>
+	 * 同一条执行记录的多条回调合并处理, 当前状态批量查询, 更新批量提交, 见IStateHandler#onBatch
+	 *
+	 * @param callbacks 回调列表, status为目标指令状态, 按到达顺序
+	 */
+	public void handleCommandResponses(List<CommandExecutionEntity> callbacks) {
+		log.info("开始批量处理指令响应, 数量: {}", callbacks.size());
+		Result result = stateHandler.onBatch(callbacks);
+		if (result.isSuccess()) {
+			log.info("批量指令响应处理成功, 数量: {}", callbacks.size());
+		} else {
+			log.error("批量指令响应处理失败, 数量: {}", callbacks.size());
+		}
+	}
+	
 }
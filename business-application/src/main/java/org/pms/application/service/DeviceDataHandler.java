@@ -2,14 +2,19 @@ package org.pms.application.service;
 
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
-import org.pms.domain.alert.port.IAlertPushPort;
+import org.pms.domain.alert.service.AlertAggregateService;
 import org.pms.domain.devicedata.model.entity.DeviceDataEntity;
+import org.pms.domain.devicedata.model.vo.DeviceDataSaveResultVO;
 import org.pms.domain.devicedata.service.IDeviceDataService;
 import org.pms.domain.terminal.model.entity.DeviceEntity;
 import org.pms.domain.terminal.service.IDeviceService;
 import org.springframework.stereotype.Service;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.function.Function;
 
 /**
  * @author alcsyooterranf
@@ -26,27 +31,59 @@ public class DeviceDataHandler {
 	@Resource
 	private IDeviceService deviceService;
 	@Resource
-	private IAlertPushPort alertPushPort;
+	private AlertAggregateService alertAggregateService;
 	
 	public void saveDeviceData(DeviceDataEntity deviceDataEntity) {
 		// 1. 保存设备数据
 		// TODO: 改为先落库, 然后发布应用事件, 确保落库成功后再推送异常数据
 		deviceDataService.addDeviceData(deviceDataEntity);
 		
-		// 2. 主动推送异常数据
-		if (deviceDataEntity.hasAbnormal()) {
-			log.info("检测到设备异常, deviceSN={}, abnormalDesc={}", deviceDataEntity.getDeviceSN(), deviceDataEntity.getAbnormalDesc());
-			// 查询设备信息（用于推送）
-			DeviceEntity deviceEntity = deviceService.queryParameterLimitsBySN(deviceDataEntity.getDeviceSN());
-			if (Objects.isNull(deviceEntity)) {
-				log.warn("设备不存在，无法推送告警, deviceSN={}", deviceDataEntity.getDeviceSN());
-				return;
+		// 2. 告警聚合, 由聚合服务决定是否推送
+		aggregateAlert(deviceDataEntity, deviceService::queryParameterLimitsBySN);
+	}
+	
+	/**
+	 * 批量保存设备上报的数据
+	 * <p>
+	 * 整批数据一次落库, 落库成功的数据按上报顺序交给告警聚合; 同一批次内同一设备只查询一次设备信息
+	 *
+	 * @param deviceDataEntities 设备数据列表
+	 * @return 与入参顺序一一对应的处理结果
+	 */
+	public List<DeviceDataSaveResultVO> batchSaveDeviceData(List<DeviceDataEntity> deviceDataEntities) {
+		// 1. 批量保存设备数据
+		List<DeviceDataSaveResultVO> results = deviceDataService.batchAddDeviceData(deviceDataEntities);
+		
+		// 2. 落库成功的数据进行告警聚合
+		Map<String, DeviceEntity> deviceCache = new HashMap<>();
+		for (int i = 0; i < deviceDataEntities.size(); i++) {
+			if (!results.get(i).isSuccess()) {
+				continue;
 			}
-			
-			// 推送异常告警
-			alertPushPort.pushToWebSocket(deviceDataEntity, deviceEntity);
-//			alertPushPort.pushToWeChat(deviceDataEntity, deviceEntity);
+			aggregateAlert(deviceDataEntities.get(i),
+					deviceSN -> deviceCache.computeIfAbsent(deviceSN, deviceService::queryParameterLimitsBySN));
+		}
+		return results;
+	}
+	
+	/**
+	 * 告警聚合
+	 * <p>
+	 * 正常数据也要交给聚合服务, 用于判断已开启的告警是否恢复; 只有异常数据才需要查询设备信息
+	 */
+	private void aggregateAlert(DeviceDataEntity deviceDataEntity, Function<String, DeviceEntity> deviceLoader) {
+		if (!deviceDataEntity.hasAbnormal()) {
+			alertAggregateService.onReading(deviceDataEntity, null);
+			return;
+		}
+		log.info("检测到设备异常, deviceSN={}, abnormalDesc={}", deviceDataEntity.getDeviceSN(), deviceDataEntity.getAbnormalDesc());
+		// 查询设备信息（用于推送）
+		DeviceEntity deviceEntity = deviceLoader.apply(deviceDataEntity.getDeviceSN());
+		if (Objects.isNull(deviceEntity)) {
+			log.warn("设备不存在，无法推送告警, deviceSN={}", deviceDataEntity.getDeviceSN());
+			return;
 		}
+		alertAggregateService.onReading(deviceDataEntity, deviceEntity);
 	}
 	
 }
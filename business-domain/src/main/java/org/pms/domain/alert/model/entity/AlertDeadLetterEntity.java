@@ -0,0 +1,35 @@
+package org.pms.domain.alert.model.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.pms.domain.alert.model.vo.AlertChannelVO;
+
+import java.util.Date;
+
+/**
+ * @author alcsyooterranf
+ * @program PressureMonitorSys-business
+ * @description 死信告警, 重试耗尽或队列已满而未能推送的告警
+ * @create 2026/10/18
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AlertDeadLetterEntity {
+	
+	private AlertChannelVO channel;
+	private AlertNotificationEntity notification;
+	/**
+	 * 已尝试次数
+	 */
+	private int attempts;
+	/**
+	 * 最后一次失败原因
+	 */
+	private String reason;
+	private Date createTime;
+	
+}
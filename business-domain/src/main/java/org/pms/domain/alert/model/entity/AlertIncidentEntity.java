@@ -0,0 +1,43 @@
+package org.pms.domain.alert.model.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.pms.domain.alert.model.vo.AlertEventTypeVO;
+import org.pms.domain.devicedata.model.vo.AbnormalFlagVO;
+
+import java.util.Date;
+
+/**
+ * @author alcsyooterranf
+ * @program PressureMonitorSys-business
+ * @description 单个异常类型的告警事件(某设备某异常类型从首次越限到恢复期间的一次告警)
+ * @create 2026/10/18
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AlertIncidentEntity {
+	
+	private AbnormalFlagVO abnormalFlag;
+	private AlertEventTypeVO eventType;
+	/**
+	 * 首次越限时间
+	 */
+	private Date firstTime;
+	/**
+	 * 最近一次越限时间
+	 */
+	private Date lastTime;
+	/**
+	 * 告警开启以来的越限次数
+	 */
+	private long occurrences;
+	/**
+	 * 上次通知以来被抑制的次数
+	 */
+	private long suppressed;
+	
+}
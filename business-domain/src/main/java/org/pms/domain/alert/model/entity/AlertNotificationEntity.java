@@ -0,0 +1,48 @@
+package org.pms.domain.alert.model.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.pms.domain.devicedata.model.entity.DeviceDataEntity;
+import org.pms.domain.terminal.model.entity.DeviceEntity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * @author alcsyooterranf
+ * @program PressureMonitorSys-business
+ * @description 告警通知, 同一设备同一时刻的多个异常类型合并为一条通知
+ * @create 2026/10/18
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AlertNotificationEntity {
+	
+	private String deviceSN;
+	/**
+	 * 触发通知的最近一次上报数据
+	 */
+	private DeviceDataEntity deviceData;
+	private DeviceEntity device;
+	@Builder.Default
+	private List<AlertIncidentEntity> incidents = new ArrayList<>();
+	
+	/**
+	 * 通知摘要, 例如: "告警: 超压, 超温; 恢复: 欠压"
+	 */
+	public String getSummary() {
+		return incidents.stream()
+				.collect(Collectors.groupingBy(AlertIncidentEntity::getEventType, TreeMap::new,
+						Collectors.mapping(incident -> incident.getAbnormalFlag().getDesc(), Collectors.joining(", "))))
+				.entrySet().stream()
+				.map(entry -> entry.getKey().getDesc() + ": " + entry.getValue())
+				.collect(Collectors.joining("; "));
+	}
+	
+}
@@ -0,0 +1,21 @@
+package org.pms.domain.alert.model.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * @author alcsyooterranf
+ * @program PressureMonitorSys-business
+ * @description 告警推送渠道
+ * @create 2026/10/18
+ */
+@Getter
+@AllArgsConstructor
+public enum AlertChannelVO {
+	
+	WEBSOCKET("WebSocket"),
+	WECHAT("微信公众号");
+	
+	private final String desc;
+	
+}
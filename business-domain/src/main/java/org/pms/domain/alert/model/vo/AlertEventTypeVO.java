@@ -0,0 +1,31 @@
+package org.pms.domain.alert.model.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * @author alcsyooterranf
+ * @program PressureMonitorSys-business
+ * @description 告警事件类型
+ * @create 2026/10/18
+ */
+@Getter
+@AllArgsConstructor
+public enum AlertEventTypeVO {
+	
+	/**
+	 * 首次越限, 开启告警
+	 */
+	OPEN("告警"),
+	/**
+	 * 持续越限, 抑制窗口结束后的汇总通知
+	 */
+	DIGEST("持续告警"),
+	/**
+	 * 恢复正常, 关闭告警
+	 */
+	RECOVERY("恢复");
+	
+	private final String desc;
+	
+}
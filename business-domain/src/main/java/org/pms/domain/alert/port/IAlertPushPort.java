@@ -1,7 +1,8 @@
 package org.pms.domain.alert.port;
 
-import org.pms.domain.devicedata.model.entity.DeviceDataEntity;
-import org.pms.domain.terminal.model.entity.DeviceEntity;
+import org.pms.domain.alert.model.entity.AlertNotificationEntity;
+
+import java.util.concurrent.CompletableFuture;
 
 /**
  * @author alcsyooterranf
@@ -11,8 +12,14 @@ import org.pms.domain.terminal.model.entity.DeviceEntity;
  */
 public interface IAlertPushPort {
 	
-	void pushToWebSocket(DeviceDataEntity deviceData, DeviceEntity device);
+	/**
+	 * 异步推送, 可能与其他告警合并为一次调用; 推送失败时返回的Future异常完成, 由AlertDispatchService重试
+	 */
+	CompletableFuture<Void> pushToWebSocket(AlertNotificationEntity notification);
 	
-	void pushToWeChat(DeviceDataEntity deviceData, DeviceEntity device);
+	/**
+	 * 推送失败时抛出异常, 由AlertDispatchService重试
+	 */
+	void pushToWeChat(AlertNotificationEntity notification);
 	
 }
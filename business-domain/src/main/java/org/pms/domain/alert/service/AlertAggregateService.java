@@ -0,0 +1,271 @@
+package org.pms.domain.alert.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.pms.domain.alert.model.entity.AlertIncidentEntity;
+import org.pms.domain.alert.model.entity.AlertNotificationEntity;
+import org.pms.domain.alert.model.vo.AlertEventTypeVO;
+import org.pms.domain.devicedata.model.entity.DeviceDataEntity;
+import org.pms.domain.devicedata.model.vo.AbnormalFlagVO;
+import org.pms.domain.terminal.model.entity.DeviceEntity;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 告警聚合服务
+ * <p>
+ * 为什么需要聚合?
+ * - 设备持续越限时每次上报都会产生告警, 一个卡死的传感器每几秒就推送一次, 很快触发微信模板消息的频率限制
+ * - 按(设备SN, 异常类型)维护告警状态, 只在状态变化时通知, 持续越限期间定期汇总
+ * <p>
+ * 状态流转(每个设备每个异常类型独立):
+ * 1. 首次越限: 开启告警, 立即通知(OPEN)
+ * 2. 持续越限: 抑制窗口(alert.aggregate.window-ms)内不再通知, 只累计次数;
+ * 窗口结束后若仍有越限, 发送一次汇总(DIGEST)并开始下一个窗口
+ * 3. 恢复正常: 上报数据中该异常消失, 关闭告警并通知(RECOVERY)
+ * 4. 长时间未上报(alert.aggregate.stale-ms): 清理状态, 不再通知
+ * <p>
+ * 同一设备同一次上报产生的多个事件合并为一条通知, 交给AlertDispatchService异步推送
+ *
+ * @author alcsyooterranf
+ * @program PressureMonitorSys-business
+ * @create 2026/10/18
+ */
+@Slf4j
+@Service
+public class AlertAggregateService {
+
+	@Resource
+	private AlertDispatchService alertDispatchService;
+
+	/**
+	 * 抑制窗口(毫秒)
+	 */
+	@Value("${alert.aggregate.window-ms:300000}")
+	private long windowMillis;
+
+	/**
+	 * 多久未收到越限数据视为设备离线, 清理告警状态(毫秒)
+	 */
+	@Value("${alert.aggregate.stale-ms:1800000}")
+	private long staleMillis;
+
+	/**
+	 * 后台检查间隔(毫秒), 用于发送到期的汇总和清理过期状态
+	 */
+	@Value("${alert.aggregate.sweep-interval-ms:30000}")
+	private long sweepIntervalMillis;
+
+	/**
+	 * 有未关闭告警的设备, key为设备SN; 所有告警关闭后移除
+	 */
+	private final ConcurrentHashMap<String, DeviceAlertState> states = new ConcurrentHashMap<>();
+
+	private ScheduledExecutorService sweeper;
+
+	/**
+	 * 单个设备的告警状态
+	 */
+	private static final class DeviceAlertState {
+
+		private final EnumMap<AbnormalFlagVO, Incident> incidents = new EnumMap<>(AbnormalFlagVO.class);
+		private DeviceEntity device;
+		private DeviceDataEntity lastData;
+
+	}
+
+	/**
+	 * 单个异常类型的告警
+	 */
+	private static final class Incident {
+
+		private final AbnormalFlagVO abnormalFlag;
+		private final Date firstTime;
+		private Date lastTime;
+		private long lastSeenMillis;
+		private long lastNotifyMillis;
+		private long occurrences;
+		private long suppressed;
+
+		private Incident(AbnormalFlagVO abnormalFlag, Date time, long now) {
+			this.abnormalFlag = abnormalFlag;
+			this.firstTime = time;
+			this.lastTime = time;
+			this.lastSeenMillis = now;
+			this.lastNotifyMillis = now;
+			this.occurrences = 1;
+		}
+
+		private AlertIncidentEntity snapshot(AlertEventTypeVO eventType) {
+			return AlertIncidentEntity.builder()
+					.abnormalFlag(abnormalFlag)
+					.eventType(eventType)
+					.firstTime(firstTime)
+					.lastTime(lastTime)
+					.occurrences(occurrences)
+					.suppressed(suppressed)
+					.build();
+		}
+
+	}
+
+	@PostConstruct
+	public void init() {
+		sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "Alert-Aggregate-Sweeper");
+			t.setDaemon(true);
+			return t;
+		});
+		sweeper.scheduleWithFixedDelay(this::sweep, sweepIntervalMillis, sweepIntervalMillis, TimeUnit.MILLISECONDS);
+		log.info("告警聚合服务初始化完成: window={}ms, stale={}ms", windowMillis, staleMillis);
+	}
+
+	@PreDestroy
+	public void destroy() {
+		sweeper.shutdownNow();
+	}
+
+	/**
+	 * 处理一条已落库的上报数据
+	 * <p>
+	 * 正常数据也需要经过这里, 用于判断告警恢复; 设备没有未关闭的告警时直接返回
+	 *
+	 * @param deviceData 上报数据
+	 * @param device     设备信息, 正常数据可传null
+	 */
+	public void onReading(DeviceDataEntity deviceData, DeviceEntity device) {
+		String deviceSN = deviceData.getDeviceSN();
+		int current = deviceData.getAbnormalMask();
+		if (current == 0 && !states.containsKey(deviceSN)) {
+			return;
+		}
+
+		long now = System.currentTimeMillis();
+		Date time = deviceData.getCreateTime() == null ? new Date(now) : deviceData.getCreateTime();
+		List<AlertIncidentEntity> events = new ArrayList<>();
+		DeviceAlertState[] holder = new DeviceAlertState[1];
+		states.compute(deviceSN, (sn, state) -> {
+			if (state == null) {
+				if (current == 0) {
+					return null;
+				}
+				state = new DeviceAlertState();
+			}
+			if (device != null) {
+				state.device = device;
+			}
+			state.lastData = deviceData;
+
+			// 1. 已恢复的异常
+			Iterator<Incident> iterator = state.incidents.values().iterator();
+			while (iterator.hasNext()) {
+				Incident incident = iterator.next();
+				if (!incident.abnormalFlag.in(current)) {
+					events.add(incident.snapshot(AlertEventTypeVO.RECOVERY));
+					iterator.remove();
+				}
+			}
+
+			// 2. 新开启或持续的异常
+			for (AbnormalFlagVO flag : AbnormalFlagVO.fromMask(current)) {
+				if (!flag.isAbnormal()) {
+					continue;
+				}
+				Incident incident = state.incidents.get(flag);
+				if (incident == null) {
+					incident = new Incident(flag, time, now);
+					state.incidents.put(flag, incident);
+					events.add(incident.snapshot(AlertEventTypeVO.OPEN));
+					continue;
+				}
+				incident.occurrences++;
+				incident.suppressed++;
+				incident.lastTime = time;
+				incident.lastSeenMillis = now;
+				if (now - incident.lastNotifyMillis >= windowMillis) {
+					events.add(incident.snapshot(AlertEventTypeVO.DIGEST));
+					incident.lastNotifyMillis = now;
+					incident.suppressed = 0;
+				}
+			}
+			holder[0] = state;
+			return state.incidents.isEmpty() ? null : state;
+		});
+
+		if (!events.isEmpty()) {
+			notify(deviceSN, holder[0], deviceData, events);
+		}
+	}
+
+	/**
+	 * 定期检查: 抑制窗口已结束但设备之后不再上报的告警, 补发汇总; 长时间未上报的告警直接清理
+	 */
+	private void sweep() {
+		try {
+			long now = System.currentTimeMillis();
+			for (String deviceSN : states.keySet()) {
+				List<AlertIncidentEntity> events = new ArrayList<>();
+				DeviceAlertState[] holder = new DeviceAlertState[1];
+				states.computeIfPresent(deviceSN, (sn, state) -> {
+					Iterator<Incident> iterator = state.incidents.values().iterator();
+					while (iterator.hasNext()) {
+						Incident incident = iterator.next();
+						if (incident.suppressed > 0 && now - incident.lastNotifyMillis >= windowMillis) {
+							events.add(incident.snapshot(AlertEventTypeVO.DIGEST));
+							incident.lastNotifyMillis = now;
+							incident.suppressed = 0;
+						}
+						if (now - incident.lastSeenMillis >= staleMillis) {
+							log.info("设备长时间未上报越限数据, 清理告警状态, deviceSN={}, abnormalFlag={}",
+									sn, incident.abnormalFlag.getDesc());
+							iterator.remove();
+						}
+					}
+					holder[0] = state;
+					return state.incidents.isEmpty() ? null : state;
+				});
+				if (!events.isEmpty()) {
+					notify(deviceSN, holder[0], holder[0].lastData, events);
+				}
+			}
+		} catch (Exception e) {
+			log.error("告警聚合状态检查异常", e);
+		}
+	}
+
+	private void notify(String deviceSN, DeviceAlertState state, DeviceDataEntity deviceData,
+	                    List<AlertIncidentEntity> events) {
+		if (state.device == null) {
+			log.warn("设备信息缺失，无法推送告警, deviceSN={}", deviceSN);
+			return;
+		}
+		AlertNotificationEntity notification = AlertNotificationEntity.builder()
+				.deviceSN(deviceSN)
+				.deviceData(deviceData)
+				.device(state.device)
+				.incidents(events)
+				.build();
+		log.info("设备告警通知, deviceSN={}, summary={}", deviceSN, notification.getSummary());
+		alertDispatchService.dispatch(notification);
+	}
+
+	/**
+	 * 当前有未关闭告警的设备数
+	 */
+	public int getOpenDeviceCount() {
+		return states.size();
+	}
+
+}
@@ -0,0 +1,292 @@
+package org.pms.domain.alert.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.pms.domain.alert.model.entity.AlertDeadLetterEntity;
+import org.pms.domain.alert.model.entity.AlertNotificationEntity;
+import org.pms.domain.alert.model.vo.AlertChannelVO;
+import org.pms.domain.alert.port.IAlertPushPort;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 告警异步分发服务
+ * <p>
+ * 为什么要异步?
+ * - 推送告警需要调用ws-service(Feign)和微信API, 下游一慢, 上报线程就跟着被拖住, 整批上报超时
+ * - 上报线程只负责把告警放入队列, 推送由各渠道的工作线程完成
+ * <p>
+ * 工作原理:
+ * 1. 每个渠道一个独立的有界线程池, 线程数即该渠道的并发上限, 微信慢不会占用WebSocket的线程;
+ * WebSocket推送是异步的(由推送端合并批量发送), 工作线程只负责提交, 结果通过Future回调
+ * 2. 推送失败按指数退避(带随机抖动)重新入队, 超过最大次数后进入死信
+ * 3. 队列已满时告警直接进入死信, 不阻塞上报线程
+ * 4. 死信保存在内存中(有界, 超出后淘汰最旧的), 并记录error日志, 可通过getDeadLetters查看
+ *
+ * @author alcsyooterranf
+ * @program PressureMonitorSys-business
+ * @create 2026/10/18
+ */
+@Slf4j
+@Service
+public class AlertDispatchService {
+
+	@Resource
+	private IAlertPushPort alertPushPort;
+
+	/**
+	 * 每个渠道的待推送队列容量
+	 */
+	@Value("${alert.dispatch.queue-capacity:10000}")
+	private int queueCapacity;
+
+	/**
+	 * WebSocket推送并发数
+	 */
+	@Value("${alert.dispatch.websocket-concurrency:4}")
+	private int websocketConcurrency;
+
+	/**
+	 * 微信推送并发数(微信模板消息有频率限制, 并发不宜过高)
+	 */
+	@Value("${alert.dispatch.wechat-concurrency:2}")
+	private int wechatConcurrency;
+
+	/**
+	 * 是否启用微信推送
+	 */
+	@Value("${alert.dispatch.wechat-enabled:false}")
+	private boolean wechatEnabled;
+
+	/**
+	 * 最大尝试次数(含首次)
+	 */
+	@Value("${alert.dispatch.max-attempts:5}")
+	private int maxAttempts;
+
+	/**
+	 * 首次重试间隔(毫秒), 之后每次翻倍
+	 */
+	@Value("${alert.dispatch.initial-backoff:500}")
+	private long initialBackoff;
+
+	/**
+	 * 最大重试间隔(毫秒)
+	 */
+	@Value("${alert.dispatch.max-backoff:30000}")
+	private long maxBackoff;
+
+	/**
+	 * 死信容量
+	 */
+	@Value("${alert.dispatch.dead-letter-capacity:1000}")
+	private int deadLetterCapacity;
+
+	private final Map<AlertChannelVO, ThreadPoolExecutor> channelExecutors = new EnumMap<>(AlertChannelVO.class);
+
+	/**
+	 * 重试调度线程, 只负责到期后把任务重新放回渠道队列
+	 */
+	private ScheduledExecutorService retryScheduler;
+
+	private final ConcurrentLinkedDeque<AlertDeadLetterEntity> deadLetters = new ConcurrentLinkedDeque<>();
+	private final AtomicInteger deadLetterSize = new AtomicInteger();
+
+	private final LongAdder dispatchedCount = new LongAdder();
+	private final LongAdder deliveredCount = new LongAdder();
+	private final LongAdder retriedCount = new LongAdder();
+	private final LongAdder deadLetterCount = new LongAdder();
+
+	/**
+	 * 单个渠道的一次推送任务
+	 */
+	private record AlertTask(AlertChannelVO channel, AlertNotificationEntity notification, int attempt) {
+
+		AlertTask next() {
+			return new AlertTask(channel, notification, attempt + 1);
+		}
+
+	}
+
+	@PostConstruct
+	public void init() {
+		channelExecutors.put(AlertChannelVO.WEBSOCKET, newChannelExecutor(AlertChannelVO.WEBSOCKET, websocketConcurrency));
+		if (wechatEnabled) {
+			channelExecutors.put(AlertChannelVO.WECHAT, newChannelExecutor(AlertChannelVO.WECHAT, wechatConcurrency));
+		}
+		retryScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "Alert-Retry-Scheduler");
+			t.setDaemon(true);
+			return t;
+		});
+		log.info("告警分发服务初始化完成: channels={}, queueCapacity={}, maxAttempts={}",
+				channelExecutors.keySet(), queueCapacity, maxAttempts);
+	}
+
+	@PreDestroy
+	public void destroy() {
+		retryScheduler.shutdownNow();
+		for (ThreadPoolExecutor executor : channelExecutors.values()) {
+			executor.shutdown();
+		}
+		try {
+			long deadline = System.currentTimeMillis() + 5000;
+			for (ThreadPoolExecutor executor : channelExecutors.values()) {
+				long remaining = deadline - System.currentTimeMillis();
+				if (remaining <= 0 || !executor.awaitTermination(remaining, TimeUnit.MILLISECONDS)) {
+					log.warn("告警分发服务关闭超时, 未推送的告警将被丢弃: {}", executor.getQueue().size());
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		log.info("告警分发服务已关闭: dispatched={}, delivered={}, retried={}, deadLetter={}",
+				getDispatchedCount(), getDeliveredCount(), getRetriedCount(), getDeadLetterCount());
+	}
+
+	/**
+	 * 分发告警通知到所有已启用的渠道, 立即返回, 不等待推送结果
+	 *
+	 * @param notification 告警通知
+	 */
+	public void dispatch(AlertNotificationEntity notification) {
+		for (AlertChannelVO channel : channelExecutors.keySet()) {
+			dispatchedCount.increment();
+			submit(new AlertTask(channel, notification, 1));
+		}
+	}
+
+	private void submit(AlertTask task) {
+		try {
+			channelExecutors.get(task.channel()).execute(() -> deliver(task));
+		} catch (RejectedExecutionException e) {
+			deadLetter(task, "告警队列已满");
+		}
+	}
+
+	private void deliver(AlertTask task) {
+		try {
+			switch (task.channel()) {
+				case WEBSOCKET -> alertPushPort.pushToWebSocket(task.notification()).whenComplete((result, e) -> {
+					if (e == null) {
+						deliveredCount.increment();
+					} else {
+						onFailure(task, e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+					}
+				});
+				case WECHAT -> {
+					alertPushPort.pushToWeChat(task.notification());
+					deliveredCount.increment();
+				}
+			}
+		} catch (Exception e) {
+			onFailure(task, e);
+		}
+	}
+
+	private void onFailure(AlertTask task, Throwable e) {
+		if (task.attempt() >= maxAttempts) {
+			deadLetter(task, e.getMessage());
+			return;
+		}
+		long delay = backoff(task.attempt());
+		log.warn("{}告警推送失败, {}ms后第{}次重试, deviceSN={}, error={}",
+				task.channel().getDesc(), delay, task.attempt() + 1, task.notification().getDeviceSN(), e.getMessage());
+		retriedCount.increment();
+		try {
+			retryScheduler.schedule(() -> submit(task.next()), delay, TimeUnit.MILLISECONDS);
+		} catch (RejectedExecutionException rejected) {
+			// 服务关闭中
+			deadLetter(task, e.getMessage());
+		}
+	}
+
+	/**
+	 * 指数退避, 叠加0~50%的随机抖动, 避免下游恢复时所有重试同时涌入
+	 */
+	private long backoff(int attempt) {
+		long delay = Math.min(maxBackoff, initialBackoff << Math.min(attempt - 1, 20));
+		return delay + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+	}
+
+	private void deadLetter(AlertTask task, String reason) {
+		deadLetterCount.increment();
+		log.error("{}告警推送最终失败, 进入死信, deviceSN={}, summary={}, attempts={}, reason={}",
+				task.channel().getDesc(), task.notification().getDeviceSN(), task.notification().getSummary(),
+				task.attempt(), reason);
+		deadLetters.offerLast(AlertDeadLetterEntity.builder()
+				.channel(task.channel())
+				.notification(task.notification())
+				.attempts(task.attempt())
+				.reason(reason)
+				.createTime(new Date())
+				.build());
+		if (deadLetterSize.incrementAndGet() > deadLetterCapacity && deadLetters.pollFirst() != null) {
+			deadLetterSize.decrementAndGet();
+		}
+	}
+
+	private ThreadPoolExecutor newChannelExecutor(AlertChannelVO channel, int concurrency) {
+		AtomicInteger index = new AtomicInteger();
+		return new ThreadPoolExecutor(concurrency, concurrency, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(queueCapacity),
+				r -> {
+					Thread t = new Thread(r, "Alert-" + channel.name() + "-" + index.getAndIncrement());
+					t.setDaemon(true);
+					return t;
+				},
+				new ThreadPoolExecutor.AbortPolicy());
+	}
+
+	/**
+	 * 死信快照, 按进入死信的先后排序
+	 */
+	public List<AlertDeadLetterEntity> getDeadLetters() {
+		return new ArrayList<>(deadLetters);
+	}
+
+	/**
+	 * 各渠道待推送的告警数
+	 */
+	public Map<AlertChannelVO, Integer> getPendingCounts() {
+		Map<AlertChannelVO, Integer> pending = new EnumMap<>(AlertChannelVO.class);
+		channelExecutors.forEach((channel, executor) -> pending.put(channel, executor.getQueue().size()));
+		return pending;
+	}
+
+	public long getDispatchedCount() {
+		return dispatchedCount.sum();
+	}
+
+	public long getDeliveredCount() {
+		return deliveredCount.sum();
+	}
+
+	public long getRetriedCount() {
+		return retriedCount.sum();
+	}
+
+	public long getDeadLetterCount() {
+		return deadLetterCount.sum();
+	}
+
+}
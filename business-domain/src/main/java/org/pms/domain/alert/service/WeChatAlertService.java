@@ -6,8 +6,12 @@ import me.chanjar.weixin.common.error.WxErrorException;
 import me.chanjar.weixin.mp.api.WxMpService;
 import me.chanjar.weixin.mp.bean.template.WxMpTemplateData;
 import me.chanjar.weixin.mp.bean.template.WxMpTemplateMessage;
+import org.pms.domain.alert.model.entity.AlertIncidentEntity;
+import org.pms.domain.alert.model.entity.AlertNotificationEntity;
 import org.pms.domain.devicedata.model.entity.DeviceDataEntity;
 import org.pms.domain.terminal.model.entity.DeviceEntity;
+import org.pms.types.BizCode;
+import org.pms.types.BizException;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
@@ -68,6 +72,7 @@ public class WeChatAlertService {
 	 * 发送压力告警消息
 	 * <p>
 	 * 这个方法会被告警服务调用,当检测到压力异常时发送微信消息
+	 * 微信API调用失败时抛出BizException, 由AlertDispatchService重试
 	 *
 	 * @param data   监控数据(包含压力、温度、电压等)
 	 * @param device 设备信息(包含设备编号、阈值等)
@@ -101,10 +106,9 @@ public class WeChatAlertService {
 			// 40003: OpenID错误
 			// 43004: 用户未关注公众号
 			// 45047: 模板消息发送次数超限
-			log.error("微信告警推送失败: deviceSN={}, errorCode={}, errorMsg={}",
-					device.getDeviceSN(), e.getError().getErrorCode(), e.getError().getErrorMsg(), e);
-		} catch (Exception e) {
-			log.error("微信告警推送异常: deviceSN={}", device.getDeviceSN(), e);
+			// 抛出异常, 由AlertDispatchService按退避策略重试
+			throw new BizException(BizCode.UN_ERROR, "微信告警推送失败: errorCode=" + e.getError().getErrorCode()
+					+ ", errorMsg=" + e.getError().getErrorMsg());
 		}
 	}
 	
@@ -217,8 +221,9 @@ public class WeChatAlertService {
 			String msgId = wxMpService.getTemplateMsgService().sendTemplateMsg(templateMessage);
 			log.info("微信温度告警推送成功: deviceSN={}, msgId={}", device.getDeviceSN(), msgId);
 			
-		} catch (Exception e) {
-			log.error("微信温度告警推送失败: deviceSN={}", device.getDeviceSN(), e);
+		} catch (WxErrorException e) {
+			throw new BizException(BizCode.UN_ERROR, "微信温度告警推送失败: errorCode=" + e.getError().getErrorCode()
+					+ ", errorMsg=" + e.getError().getErrorMsg());
 		}
 	}
 	
@@ -269,10 +274,79 @@ public class WeChatAlertService {
 			String msgId = wxMpService.getTemplateMsgService().sendTemplateMsg(templateMessage);
 			log.info("微信电压告警推送成功: deviceSN={}, msgId={}", device.getDeviceSN(), msgId);
 			
-		} catch (Exception e) {
-			log.error("微信电压告警推送失败: deviceSN={}", device.getDeviceSN(), e);
+		} catch (WxErrorException e) {
+			throw new BizException(BizCode.UN_ERROR, "微信电压告警推送失败: errorCode=" + e.getError().getErrorCode()
+					+ ", errorMsg=" + e.getError().getErrorMsg());
+		}
+	}
+	
+	/**
+	 * 发送合并后的告警通知
+	 * <p>
+	 * 同一设备同一时刻的多个异常(开启、持续、恢复)合并为一条模板消息, 避免每个异常类型各发一条
+	 *
+	 * @param notification 告警通知
+	 */
+	public void sendAlertNotification(AlertNotificationEntity notification) {
+		DeviceDataEntity data = notification.getDeviceData();
+		DeviceEntity device = notification.getDevice();
+		String openId = device.getCustomerAccount();
+		if (openId == null || openId.isEmpty()) {
+			log.warn("设备未绑定用户,无法发送微信告警: deviceSN={}", device.getDeviceSN());
+			return;
+		}
+		
+		try {
+			WxMpTemplateMessage templateMessage = WxMpTemplateMessage.builder()
+					.toUser(openId)
+					.templateId(alertTemplateId)
+					.url("https://your-domain.com/alert/" + data.getId())
+					.build();
+			
+			templateMessage.addData(new WxMpTemplateData("first",
+					"【设备告警】" + notification.getSummary(),
+					"#FF0000"));
+			
+			templateMessage.addData(new WxMpTemplateData("keyword1",
+					device.getDeviceSN().toString(),
+					"#173177"));
+			
+			templateMessage.addData(new WxMpTemplateData("keyword2",
+					String.format("压力: %d Pa, 温度: %.2f ℃, 电压: %d mV",
+							data.getPressure(), data.getTemperature() / 100.0, data.getVoltage()),
+					"#FF0000"));
+			
+			// 每个异常类型一行: 超压(持续告警, 累计12次)
+			StringBuilder detail = new StringBuilder();
+			for (AlertIncidentEntity incident : notification.getIncidents()) {
+				if (!detail.isEmpty()) {
+					detail.append("\n");
+				}
+				detail.append(incident.getAbnormalFlag().getDesc())
+						.append("(").append(incident.getEventType().getDesc())
+						.append(", 累计").append(incident.getOccurrences()).append("次)");
+			}
+			templateMessage.addData(new WxMpTemplateData("keyword3",
+					detail.toString(),
+					"#173177"));
+			
+			SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+			templateMessage.addData(new WxMpTemplateData("keyword4",
+					sdf.format(data.getCreateTime()),
+					"#173177"));
+			
+			templateMessage.addData(new WxMpTemplateData("remark",
+					"请及时处理!",
+					"#173177"));
+			
+			String msgId = wxMpService.getTemplateMsgService().sendTemplateMsg(templateMessage);
+			log.info("微信告警推送成功: deviceSN={}, summary={}, msgId={}",
+					device.getDeviceSN(), notification.getSummary(), msgId);
+			
+		} catch (WxErrorException e) {
+			throw new BizException(BizCode.UN_ERROR, "微信告警推送失败: errorCode=" + e.getError().getErrorCode()
+					+ ", errorMsg=" + e.getError().getErrorMsg());
 		}
 	}
 	
 }
-
@@ -0,0 +1,36 @@
+package org.pms.domain.command.model.command;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * 批量下发指令命令对象
+ * <p>
+ * 用途：封装批量下发的参数，替代API层的CommandFanOutReq
+ *
+ * @author alcsyooterranf
+ * @program PressureMonitorSys-business
+ * @create 2026/10/18
+ */
+@Value
+@Builder
+public class FanOutCommandCommand {
+
+	/**
+	 * 指令任务ID
+	 */
+	Long taskId;
+
+	/**
+	 * 管道ID, 下发到管道下所有已绑定的设备; 与deviceIds二选一
+	 */
+	Long pipelineId;
+
+	/**
+	 * 设备ID列表, 只下发到这些设备
+	 */
+	List<Long> deviceIds;
+
+}
@@ -0,0 +1,55 @@
+package org.pms.domain.command.model.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.pms.domain.command.model.valobj.CommandFanOutStatusVO;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * @author alcsyooterranf
+ * @program PressureMonitorSys-business
+ * @description 批量下发作业实体(进度快照)
+ * @create 2026/10/18
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CommandFanOutJobEntity {
+	
+	private String jobId;
+	private Long taskId;
+	private Long pipelineId;
+	private CommandFanOutStatusVO status;
+	/**
+	 * 目标设备数
+	 */
+	private Integer total;
+	/**
+	 * 已提交到AEP的设备数
+	 */
+	private Integer submitted;
+	/**
+	 * AEP受理成功的设备数
+	 */
+	private Integer succeeded;
+	/**
+	 * 下发失败的设备数(含不属于任务管道的设备)
+	 */
+	private Integer failed;
+	/**
+	 * 已写入t_command_execution的记录数
+	 */
+	private Integer recorded;
+	/**
+	 * 部分失败原因, 格式为"设备SN: 原因", 最多保留若干条
+	 */
+	private List<String> failures;
+	private Date createTime;
+	private Date finishTime;
+	
+}
@@ -0,0 +1,25 @@
+package org.pms.domain.command.model.valobj;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * @author alcsyooterranf
+ * @program PressureMonitorSys-business
+ * @description 批量下发作业状态枚举
+ * @create 2026/10/18
+ */
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+public enum CommandFanOutStatusVO {
+	
+	RUNNING("下发中"),
+	COMPLETED("已完成"),
+	INTERRUPTED("已中断"),
+	FAILED("执行异常");
+	
+	private String desc;
+	
+}
@@ -1,6 +1,9 @@
 package org.pms.domain.command.repository;
 
 import org.pms.domain.command.model.entity.CommandExecutionEntity;
+import org.pms.domain.command.service.stateflow.CommandTransitionCtx;
+
+import java.util.List;
 
 /**
  * @author alcsyooterranf
@@ -18,6 +21,14 @@ public interface ICommandExecutionRepository {
 	 */
 	Long createCommandExecution(CommandExecutionEntity commandExecutionEntity);
 	
+	/**
+	 * 批量创建指令执行记录, 多行INSERT
+	 *
+	 * @param commandExecutionEntities 指令执行实体列表
+	 * @return 写入行数
+	 */
+	int createCommandExecutions(List<CommandExecutionEntity> commandExecutionEntities);
+	
 	/**
 	 * 根据aepTaskId和deviceId查询
 	 *
@@ -27,6 +38,14 @@ public interface ICommandExecutionRepository {
 	 */
 	CommandExecutionEntity selectByAepTaskIdAndDeviceId(Long aepTaskId, Long deviceId);
 	
+	/**
+	 * 根据(aepTaskId, deviceId)批量查询, 一条IN查询
+	 *
+	 * @param keys 只需要aepTaskId和deviceId
+	 * @return 存在的指令执行实体, 顺序不保证
+	 */
+	List<CommandExecutionEntity> selectByAepTaskIdAndDeviceIds(List<CommandExecutionEntity> keys);
+	
 	/**
 	 * 更新状态
 	 *
@@ -45,5 +64,15 @@ public interface ICommandExecutionRepository {
 	 */
 	boolean updateTrace(CommandExecutionEntity commandExecutionEntity);
 	
+	/**
+	 * 批量应用状态迁移, 通过JDBC批量提交
+	 * <p>
+	 * targetStatus不为null时做CAS更新(status = expectedStatus才更新), 否则只更新Trace
+	 *
+	 * @param transitions 状态迁移列表
+	 * @return 与transitions一一对应的结果, true表示更新生效; 驱动未返回影响行数时为false, 按CAS未命中处理
+	 */
+	boolean[] batchApplyTransitions(List<CommandTransitionCtx> transitions);
+	
 }
 
@@ -2,6 +2,7 @@ package org.pms.domain.command.repository;
 
 import org.pms.domain.command.model.command.CreateCommandMetaCommand;
 import org.pms.domain.command.model.command.UpdateCommandMetaCommand;
+import org.pms.domain.command.model.entity.CommandMetaEntity;
 
 /**
  * 指令元数据仓储接口
@@ -54,5 +55,14 @@ public interface ICommandMetaRepository {
 	 */
 	String getPayloadSchemaByPipelineAndService(Long pipelineId, String serviceIdentifier);
 
+	/**
+	 * 根据pipelineId和serviceIdentifier查询指令元数据
+	 *
+	 * @param pipelineId        管道ID
+	 * @param serviceIdentifier 服务标识符
+	 * @return 指令元数据，不存在返回null
+	 */
+	CommandMetaEntity queryCommandMetaByPipelineAndService(Long pipelineId, String serviceIdentifier);
+
 }
 
@@ -6,6 +6,7 @@ import com.ctg.ag.sdk.biz.AepDeviceCommandClient;
 import com.ctg.ag.sdk.biz.aep_device_command.CreateCommandRequest;
 import com.ctg.ag.sdk.biz.aep_device_command.CreateCommandResponse;
 import com.ctg.ag.sdk.core.model.ApiCallBack;
+import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
@@ -25,11 +26,11 @@ public class AepCommandClient {
 	@Value("${app.sdk.master-key}")
 	private String MASTER_KEY;
 	
-	@Value("${app.sdk.app-key}")
-	private String APP_KEY;
-	
-	@Value("${app.sdk.app-secret}")
-	private String APP_SECRET;
+	/**
+	 * 共享的AEP客户端, 随Spring容器创建和关闭, 不再每条指令新建
+	 */
+	@Resource
+	private AepCommandClientPool aepCommandClientPool;
 	
 	/**
 	 * 同步发送指令到AEP平台
@@ -56,11 +57,8 @@ public class AepCommandClient {
 		log.info("准备发送指令到AEP平台, deviceSN={}, pipelineId={}, serviceIdentifier={}, params={}",
 				deviceSN, pipelineId, serviceIdentifier, params);
 		
-		// 创建AEP客户端
-		AepDeviceCommandClient client = AepDeviceCommandClient.newClient()
-				.appKey(APP_KEY)
-				.appSecret(APP_SECRET)
-				.build();
+		// 从客户端池获取AEP客户端
+		AepDeviceCommandClient client = aepCommandClientPool.acquire();
 		
 		try {
 			// 创建请求
@@ -80,7 +78,7 @@ public class AepCommandClient {
 			log.error("指令下发异常", e);
 			throw new RuntimeException("指令下发异常: " + e.getMessage(), e);
 		} finally {
-			client.shutdown();
+			aepCommandClientPool.release();
 		}
 	}
 	
@@ -88,6 +86,8 @@ public class AepCommandClient {
 	 * 异步发送指令到AEP平台（使用CompletableFuture封装）
 	 * SDK的CreateCommand方法签名：
 	 * Future<CreateCommandResponse> CreateCommand(CreateCommandRequest request, ApiCallBack<CreateCommandRequest, CreateCommandResponse> callback)
+	 * <p>
+	 * 不阻塞调用线程: 在途请求已达上限时在客户端池中排队, 等待超过acquire-timeout或SDK超过request-timeout未回调时以失败完成
 	 *
 	 * @param deviceSN          设备SN
 	 * @param pipelineId        管道ID
@@ -109,23 +109,30 @@ public class AepCommandClient {
 		log.info("准备异步发送指令到AEP平台, deviceSN={}, pipelineId={}, serviceIdentifier={}, params={}",
 				deviceSN, pipelineId, serviceIdentifier, params);
 		
-		// 创建AEP客户端
-		AepDeviceCommandClient client = AepDeviceCommandClient.newClient()
-				.appKey(APP_KEY)
-				.appSecret(APP_SECRET)
-				.build();
-		
 		// 创建请求
 		CreateCommandRequest request = new CreateCommandRequest();
 		request.setParamMasterKey(MASTER_KEY);
 		request.setBody(requestBody.toJSONString().getBytes());
 		
+		// 从客户端池异步获取AEP客户端, 拿到名额后再发送
+		return aepCommandClientPool.acquireAsync()
+				.thenCompose(client -> send(client, request, deviceSN, pipelineId, serviceIdentifier));
+	}
+	
+	/**
+	 * 用已占用名额的客户端发送异步请求
+	 * Future完成(成功、失败、超时或创建请求异常)时归还名额, 只会执行一次
+	 */
+	private CompletableFuture<Long> send(AepDeviceCommandClient client, CreateCommandRequest request,
+										 Long deviceSN, Long pipelineId, String serviceIdentifier) {
 		// 创建CompletableFuture用于异步处理
 		CompletableFuture<Long> completableFuture = new CompletableFuture<>();
+		completableFuture.whenComplete((commandId, e) -> aepCommandClientPool.release());
+		// SDK迟迟不回调时由客户端池按超时结束, 名额不会泄漏
+		aepCommandClientPool.watch(completableFuture, "deviceSN=" + deviceSN + ", serviceIdentifier=" + serviceIdentifier);
 		
 		try {
 			// 调用SDK的异步方法，传入request和ApiCallBack
-			// SDK方法签名：Future<CreateCommandResponse> CreateCommand(CreateCommandRequest request, ApiCallBack<CreateCommandRequest, CreateCommandResponse> callback)
 			client.CreateCommand(request, new ApiCallBack<CreateCommandRequest, CreateCommandResponse>() {
 				
 				@Override
@@ -134,9 +141,6 @@ public class AepCommandClient {
 					log.error("AEP SDK异步调用失败, deviceSN={}, pipelineId={}, serviceIdentifier={}",
 							deviceSN, pipelineId, serviceIdentifier, exception);
 					
-					// 关闭客户端
-					client.shutdown();
-					
 					// 完成CompletableFuture并传递异常
 					completableFuture.completeExceptionally(
 							new RuntimeException("异步指令下发失败: " + exception.getMessage(), exception)
@@ -161,23 +165,17 @@ public class AepCommandClient {
 						completableFuture.completeExceptionally(
 								new RuntimeException("解析AEP响应失败: " + e.getMessage(), e)
 						);
-					} finally {
-						// 关闭客户端
-						client.shutdown();
 					}
 				}
 			});
 			
-			return completableFuture;
-			
 		} catch (Exception e) {
 			log.error("创建异步请求失败", e);
-			client.shutdown();
 			completableFuture.completeExceptionally(
 					new RuntimeException("创建异步请求失败: " + e.getMessage(), e)
 			);
-			return completableFuture;
 		}
+		return completableFuture;
 	}
 	
 	/**
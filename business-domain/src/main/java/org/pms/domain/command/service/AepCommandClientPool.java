@@ -0,0 +1,305 @@
+package org.pms.domain.command.service;
+
+import com.ctg.ag.sdk.biz.AepDeviceCommandClient;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * AEP指令客户端池
+ * <p>
+ * 为什么需要池化?
+ * - 每条指令都新建AepDeviceCommandClient再shutdown, 每次都要初始化客户端、新建HTTP连接并完成TLS握手;
+ * 批量重新配置一条管道要下发成千上万条指令, 大部分时间花在建连上
+ * - 客户端随Spring容器创建和关闭, 在应用运行期间一直复用, 底层连接保持keep-alive
+ * <p>
+ * 工作原理:
+ * 1. 启动时创建pool-size个客户端, 按轮询方式分配给调用方(SDK客户端可并发使用, 多个客户端用于分散连接)
+ * 2. 同时在途的请求数不超过max-in-flight, 超出时调用方最多等待acquire-timeout, 仍无空位则失败, 避免AEP变慢时请求无限堆积
+ * - 同步调用(acquire)在调用线程上等待
+ * - 异步调用(acquireAsync)不阻塞调用线程, 进入等待队列, 有名额归还时按先后顺序交给等待者
+ * 3. 调用方在请求结束后(同步返回或异步回调完成)必须调用release归还名额
+ * 4. 异步请求交给watch看护, 超过request-timeout仍未收到SDK回调时按失败结束, 保证名额一定归还
+ * 5. 每隔stats-interval输出一次使用情况(在途数、峰值、等待数、超时数、平均等待时间), 空闲时不输出
+ *
+ * @author alcsyooterranf
+ * @program PressureMonitorSys-business
+ * @create 2026/10/18
+ */
+@Slf4j
+@Component
+public class AepCommandClientPool {
+
+	@Value("${app.sdk.app-key}")
+	private String APP_KEY;
+
+	@Value("${app.sdk.app-secret}")
+	private String APP_SECRET;
+
+	/**
+	 * 客户端数量
+	 */
+	@Value("${app.sdk.command.pool-size:4}")
+	private int poolSize;
+
+	/**
+	 * 最大在途请求数
+	 */
+	@Value("${app.sdk.command.max-in-flight:64}")
+	private int maxInFlight;
+
+	/**
+	 * 获取名额的最长等待时间(毫秒)
+	 */
+	@Value("${app.sdk.command.acquire-timeout:5000}")
+	private long acquireTimeout;
+
+	/**
+	 * 异步请求等待SDK回调的最长时间(毫秒), 超时后按失败结束并归还名额
+	 */
+	@Value("${app.sdk.command.request-timeout:30000}")
+	private long requestTimeout;
+
+	/**
+	 * 使用情况日志的输出间隔(毫秒)
+	 */
+	@Value("${app.sdk.command.stats-interval:60000}")
+	private long statsInterval;
+
+	private AepDeviceCommandClient[] clients;
+
+	private final AtomicInteger next = new AtomicInteger();
+
+	private Semaphore permits;
+
+	/**
+	 * 异步获取名额的等待队列
+	 */
+	private final ConcurrentLinkedQueue<CompletableFuture<AepDeviceCommandClient>> waiters = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * 等待超时、请求超时、名额交接和使用情况日志共用的调度线程
+	 */
+	private ScheduledThreadPoolExecutor scheduler;
+
+	/**
+	 * 监控计数: 获取成功、获取超时、请求超时、累计等待时间、在途峰值
+	 */
+	private final LongAdder acquiredCount = new LongAdder();
+	private final LongAdder timeoutCount = new LongAdder();
+	private final LongAdder requestTimeoutCount = new LongAdder();
+	private final LongAdder waitNanos = new LongAdder();
+	private final AtomicInteger peakInFlight = new AtomicInteger();
+
+	/**
+	 * 上一次输出使用情况时的获取成功数, 期间没有请求时不输出
+	 */
+	private long lastLoggedAcquired;
+
+	@PostConstruct
+	public void init() {
+		clients = new AepDeviceCommandClient[poolSize];
+		for (int i = 0; i < poolSize; i++) {
+			clients[i] = AepDeviceCommandClient.newClient()
+					.appKey(APP_KEY)
+					.appSecret(APP_SECRET)
+					.build();
+		}
+		permits = new Semaphore(maxInFlight, true);
+		scheduler = new ScheduledThreadPoolExecutor(1, r -> {
+			Thread t = new Thread(r, "AEP-Command-Pool");
+			t.setDaemon(true);
+			return t;
+		});
+		// 请求正常结束时取消对应的超时任务, 不在队列中堆积
+		scheduler.setRemoveOnCancelPolicy(true);
+		scheduler.scheduleWithFixedDelay(this::logStats, statsInterval, statsInterval, TimeUnit.MILLISECONDS);
+		log.info("AEP指令客户端池初始化完成: poolSize={}, maxInFlight={}, acquireTimeout={}ms, requestTimeout={}ms",
+				poolSize, maxInFlight, acquireTimeout, requestTimeout);
+	}
+
+	@PreDestroy
+	public void destroy() {
+		scheduler.shutdownNow();
+		for (AepDeviceCommandClient client : clients) {
+			try {
+				client.shutdown();
+			} catch (Exception e) {
+				log.warn("AEP指令客户端关闭失败", e);
+			}
+		}
+		log.info("AEP指令客户端池已关闭: acquired={}, timeout={}, requestTimeout={}, peakInFlight={}, avgWait={}ms",
+				getAcquiredCount(), getTimeoutCount(), getRequestTimeoutCount(), getPeakInFlight(), getAverageWaitMillis());
+	}
+
+	/**
+	 * 获取一个客户端并占用一个在途名额, 在调用线程上最多等待acquire-timeout, 请求结束后必须调用release
+	 *
+	 * @return 共享的客户端, 调用方不能shutdown
+	 */
+	public AepDeviceCommandClient acquire() {
+		long start = System.nanoTime();
+		boolean acquired;
+		try {
+			acquired = permits.tryAcquire(acquireTimeout, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("等待AEP指令客户端被中断", e);
+		}
+		waitNanos.add(System.nanoTime() - start);
+		if (!acquired) {
+			timeoutCount.increment();
+			throw new RuntimeException("AEP指令下发繁忙, 在途请求已达上限: " + maxInFlight);
+		}
+		acquiredCount.increment();
+		peakInFlight.accumulateAndGet(getInFlight(), Math::max);
+		return nextClient();
+	}
+
+	/**
+	 * 异步获取一个客户端并占用一个在途名额, 不阻塞调用线程
+	 * <p>
+	 * 有空位时返回已完成的Future; 否则进入等待队列, 名额归还时在调度线程上完成, 等待超过acquire-timeout时以失败完成
+	 * Future以客户端完成后, 请求结束时必须调用release
+	 *
+	 * @return 共享的客户端, 调用方不能shutdown
+	 */
+	public CompletableFuture<AepDeviceCommandClient> acquireAsync() {
+		if (waiters.isEmpty() && permits.tryAcquire()) {
+			acquiredCount.increment();
+			peakInFlight.accumulateAndGet(getInFlight(), Math::max);
+			return CompletableFuture.completedFuture(nextClient());
+		}
+		long start = System.nanoTime();
+		CompletableFuture<AepDeviceCommandClient> waiter = new CompletableFuture<>();
+		ScheduledFuture<?> timeout = scheduler.schedule(() -> {
+			if (waiter.completeExceptionally(new RuntimeException("AEP指令下发繁忙, 在途请求已达上限: " + maxInFlight))) {
+				waiters.remove(waiter);
+				timeoutCount.increment();
+			}
+		}, acquireTimeout, TimeUnit.MILLISECONDS);
+		waiter.whenComplete((client, e) -> {
+			timeout.cancel(false);
+			waitNanos.add(System.nanoTime() - start);
+		});
+		waiters.add(waiter);
+		// 入队后再尝试一次: 与release的先归还再检查队列配合, 入队前归还的名额不会被遗漏
+		handOff();
+		// 名额归还方的线程上可能正在回调其他请求, 交给调度线程继续, 避免在归还方的调用栈上层层嵌套
+		return waiter.thenApplyAsync(client -> client, scheduler);
+	}
+
+	/**
+	 * 归还在途名额, 有异步等待者时交给等待者
+	 */
+	public void release() {
+		permits.release();
+		handOff();
+	}
+
+	/**
+	 * 看护一个异步请求: 超过request-timeout仍未结束时以失败结束, 使调用方挂在Future上的release得以执行
+	 * SDK之后再回调时Future已结束, 回调结果被忽略
+	 *
+	 * @param request     异步请求
+	 * @param description 请求描述, 用于日志
+	 */
+	public void watch(CompletableFuture<?> request, String description) {
+		ScheduledFuture<?> timeout = scheduler.schedule(() -> {
+			if (request.completeExceptionally(new RuntimeException("AEP指令下发超时, " + requestTimeout + "ms内未收到响应"))) {
+				requestTimeoutCount.increment();
+				log.warn("AEP指令下发超时, 已归还在途名额: {}, requestTimeout={}ms", description, requestTimeout);
+			}
+		}, requestTimeout, TimeUnit.MILLISECONDS);
+		request.whenComplete((result, e) -> timeout.cancel(false));
+	}
+
+	/**
+	 * 把空闲名额按先后顺序交给等待者, 已超时的等待者跳过
+	 */
+	private void handOff() {
+		while (!waiters.isEmpty() && permits.tryAcquire()) {
+			CompletableFuture<AepDeviceCommandClient> waiter = waiters.poll();
+			if (waiter != null && waiter.complete(nextClient())) {
+				acquiredCount.increment();
+				peakInFlight.accumulateAndGet(getInFlight(), Math::max);
+				continue;
+			}
+			permits.release();
+			if (waiter == null) {
+				return;
+			}
+		}
+	}
+
+	private AepDeviceCommandClient nextClient() {
+		return clients[Math.floorMod(next.getAndIncrement(), clients.length)];
+	}
+
+	/**
+	 * 定期输出使用情况, 期间没有新请求且没有在途和等待时不输出
+	 */
+	private void logStats() {
+		long acquired = getAcquiredCount();
+		int inFlight = getInFlight();
+		int waiting = getWaiting();
+		if (acquired == lastLoggedAcquired && inFlight == 0 && waiting == 0) {
+			return;
+		}
+		lastLoggedAcquired = acquired;
+		log.info("AEP指令客户端池使用情况: inFlight={}/{}, peakInFlight={}, waiting={}, acquired={}, timeout={}, "
+						+ "requestTimeout={}, avgWait={}ms",
+				inFlight, maxInFlight, getPeakInFlight(), waiting, acquired, getTimeoutCount(),
+				getRequestTimeoutCount(), String.format("%.2f", getAverageWaitMillis()));
+	}
+
+	/**
+	 * 当前在途请求数
+	 */
+	public int getInFlight() {
+		return maxInFlight - permits.availablePermits();
+	}
+
+	public int getPeakInFlight() {
+		return peakInFlight.get();
+	}
+
+	public long getAcquiredCount() {
+		return acquiredCount.sum();
+	}
+
+	public long getTimeoutCount() {
+		return timeoutCount.sum();
+	}
+
+	public long getRequestTimeoutCount() {
+		return requestTimeoutCount.sum();
+	}
+
+	/**
+	 * 当前异步等待名额的请求数
+	 */
+	public int getWaiting() {
+		return waiters.size();
+	}
+
+	/**
+	 * 平均等待名额的时间(毫秒), 持续升高说明max-in-flight不够或AEP响应变慢
+	 */
+	public double getAverageWaitMillis() {
+		long count = acquiredCount.sum() + timeoutCount.sum();
+		return count == 0 ? 0 : waitNanos.sum() / 1_000_000.0 / count;
+	}
+
+}
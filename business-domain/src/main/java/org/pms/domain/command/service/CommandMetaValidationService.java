@@ -35,6 +35,51 @@ public class CommandMetaValidationService {
 	// JSON Schema Factory
 	private static final JsonSchemaFactory SCHEMA_FACTORY = JsonSchemaFactory.getInstance(SpecVersion.VersionFlag.V7);
 	
+	// inputSchema的元Schema（meta-schema）
+	private static final String INPUT_META_SCHEMA_JSON = """
+			{
+			  "$schema": "http://json-schema.org/draft-07/schema#",
+			  "type": "object",
+			  "required": ["type", "properties", "additionalProperties"],
+			  "properties": {
+			    "type": {
+			      "type": "string",
+			      "const": "object"
+			    },
+			    "properties": {
+			      "type": "object",
+			      "minProperties": 1,
+			      "patternProperties": {
+			        ".*": {
+			          "type": "object",
+			          "required": ["type"],
+			          "properties": {
+			            "type": {
+			              "type": "string",
+			              "enum": ["string", "integer", "boolean", "object", "array", "double"]
+			            }
+			          }
+			        }
+			      }
+			    },
+			    "required": {
+			      "type": "array",
+			      "items": {
+			        "type": "string"
+			      }
+			    },
+			    "additionalProperties": {
+			      "type": "boolean",
+			      "const": false
+			    }
+			  },
+			  "additionalProperties": true
+			}
+			""";
+	
+	// 元Schema只编译一次, JsonSchema编译后线程安全, 可以共享
+	private static final JsonSchema INPUT_META_SCHEMA = SCHEMA_FACTORY.getSchema(INPUT_META_SCHEMA_JSON);
+	
 	/**
 	 * 校验payload_schema字段
 	 *
@@ -89,55 +134,9 @@ public class CommandMetaValidationService {
 	 * @param inputSchema inputSchema JSON对象
 	 */
 	private void validateInputSchema(JsonNode inputSchema) {
-		// 定义inputSchema的元Schema（meta-schema）
-		String metaSchemaJson = """
-				{
-				  "$schema": "http://json-schema.org/draft-07/schema#",
-				  "type": "object",
-				  "required": ["type", "properties", "additionalProperties"],
-				  "properties": {
-				    "type": {
-				      "type": "string",
-				      "const": "object"
-				    },
-				    "properties": {
-				      "type": "object",
-				      "minProperties": 1,
-				      "patternProperties": {
-				        ".*": {
-				          "type": "object",
-				          "required": ["type"],
-				          "properties": {
-				            "type": {
-				              "type": "string",
-				              "enum": ["string", "integer", "boolean", "object", "array", "double"]
-				            }
-				          }
-				        }
-				      }
-				    },
-				    "required": {
-				      "type": "array",
-				      "items": {
-				        "type": "string"
-				      }
-				    },
-				    "additionalProperties": {
-				      "type": "boolean",
-				      "const": false
-				    }
-				  },
-				  "additionalProperties": true
-				}
-				""";
-		
 		try {
-			// 创建元Schema
-			JsonNode metaSchemaNode = OBJECT_MAPPER.readTree(metaSchemaJson);
-			JsonSchema metaSchema = SCHEMA_FACTORY.getSchema(metaSchemaNode);
-
 			// 校验inputSchema
-			Set<ValidationMessage> errors = metaSchema.validate(inputSchema);
+			Set<ValidationMessage> errors = INPUT_META_SCHEMA.validate(inputSchema);
 			if (!errors.isEmpty()) {
 				String errorMsg = errors.stream()
 						.map(ValidationMessage::getMessage)
@@ -207,6 +206,29 @@ public class CommandMetaValidationService {
 		return variables;
 	}
 	
+	/**
+	 * 从payload_schema中取出inputSchema并编译为JsonSchema
+	 * <p>
+	 * 编译结果线程安全, 可以缓存复用, 见CommandSchemaCache
+	 *
+	 * @param payloadSchemaJson payload schema JSON字符串
+	 * @return 编译后的inputSchema
+	 */
+	public JsonSchema compileInputSchema(String payloadSchemaJson) {
+		try {
+			JsonNode inputSchemaNode = OBJECT_MAPPER.readTree(payloadSchemaJson).get("inputSchema");
+			if (inputSchemaNode == null || !inputSchemaNode.isObject()) {
+				throw new BizException(BizCode.COMMAND_META_PAYLOAD_SCHEMA_MISSING_FIELD, "inputSchema必须是JSON对象");
+			}
+			return SCHEMA_FACTORY.getSchema(inputSchemaNode);
+		} catch (BizException e) {
+			throw e;
+		} catch (Exception e) {
+			log.error("解析payload_schema异常", e);
+			throw new BizException(BizCode.COMMAND_META_PAYLOAD_SCHEMA_PARSE_ERROR, "解析payload_schema异常: " + e.getMessage());
+		}
+	}
+	
 	/**
 	 * 校验args参数是否符合inputSchema定义
 	 *
@@ -214,14 +236,27 @@ public class CommandMetaValidationService {
 	 * @param inputSchemaJson inputSchema JSON字符串
 	 */
 	public void validateArgs(String argsJson, String inputSchemaJson) {
+		JsonSchema schema;
+		try {
+			schema = SCHEMA_FACTORY.getSchema(inputSchemaJson);
+		} catch (Exception e) {
+			log.error("校验args参数异常", e);
+			throw new BizException(BizCode.COMMAND_META_ARGS_VALIDATE_ERROR, "args参数格式错误: " + e.getMessage());
+		}
+		validateArgs(argsJson, schema);
+	}
+	
+	/**
+	 * 校验args参数是否符合已编译的inputSchema
+	 *
+	 * @param argsJson    args JSON字符串
+	 * @param inputSchema 编译后的inputSchema
+	 */
+	public void validateArgs(String argsJson, JsonSchema inputSchema) {
 		try {
-			// 解析args和inputSchema
-			JsonNode argsNode = OBJECT_MAPPER.readTree(argsJson);
-			JsonNode inputSchemaNode = OBJECT_MAPPER.readTree(inputSchemaJson);
-
 			// 使用JSON Schema Validator校验args
-			JsonSchema schema = SCHEMA_FACTORY.getSchema(inputSchemaNode);
-			Set<ValidationMessage> errors = schema.validate(argsNode);
+			JsonNode argsNode = OBJECT_MAPPER.readTree(argsJson);
+			Set<ValidationMessage> errors = inputSchema.validate(argsNode);
 
 			if (!errors.isEmpty()) {
 				String errorMsg = errors.stream()
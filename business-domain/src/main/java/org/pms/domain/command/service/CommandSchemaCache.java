@@ -0,0 +1,146 @@
+package org.pms.domain.command.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.networknt.schema.JsonSchema;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.pms.domain.command.model.entity.CommandMetaEntity;
+import org.pms.types.BizCode;
+import org.pms.types.BizException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 指令参数Schema缓存
+ * <p>
+ * 为什么需要缓存?
+ * - 创建指令任务时要按t_command_meta.payload_schema校验args, 每次都查库、解析payload_schema、编译inputSchema,
+ * 编译JsonSchema是整个流程中最慢的一步, 而同一个(pipelineId, serviceIdentifier)的schema很少变化
+ * - 编译后的JsonSchema线程安全, 可以在请求之间共享
+ * <p>
+ * 缓存策略:
+ * 1. key为(pipelineId, serviceIdentifier), value为编译后的inputSchema及其来源元数据的id和version
+ * 2. 未命中时由调用方提供的loader查询元数据并编译, 同一个key并发未命中时只编译一次
+ * 3. 元数据创建(覆盖)、更新、废弃后由CommandMetaRepository主动失效;
+ * 更新和废弃按元数据id失效, 即使更新修改了pipelineId或serviceIdentifier也不会残留旧条目
+ * 4. 多实例部署时其他实例的修改无法通知到本实例, expire-minutes作为兜底过期时间
+ *
+ * @author alcsyooterranf
+ * @program PressureMonitorSys-business
+ * @create 2026/10/18
+ */
+@Slf4j
+@Component
+public class CommandSchemaCache {
+
+	@Resource
+	private CommandMetaValidationService validationService;
+
+	@Value("${command.schema-cache.enabled:true}")
+	private boolean enabled;
+
+	/**
+	 * 写入后过期时间(分钟)
+	 */
+	@Value("${command.schema-cache.expire-minutes:10}")
+	private long expireMinutes;
+
+	@Value("${command.schema-cache.maximum-size:1000}")
+	private long maximumSize;
+
+	private Cache<SchemaKey, CompiledSchema> cache;
+
+	private record SchemaKey(Long pipelineId, String serviceIdentifier) {
+	}
+
+	private record CompiledSchema(Long metaId, Integer version, JsonSchema inputSchema) {
+	}
+
+	@PostConstruct
+	public void init() {
+		cache = CacheBuilder.newBuilder()
+				.maximumSize(maximumSize)
+				.expireAfterWrite(expireMinutes, TimeUnit.MINUTES)
+				.recordStats()
+				.build();
+		log.info("指令参数Schema缓存初始化完成: enabled={}, expire={}min, maximumSize={}", enabled, expireMinutes, maximumSize);
+	}
+
+	/**
+	 * 获取编译后的inputSchema, 优先读取缓存
+	 *
+	 * @param pipelineId        管道ID
+	 * @param serviceIdentifier 服务标识符
+	 * @param metaLoader        未命中时查询指令元数据, 不存在时返回null
+	 * @return 编译后的inputSchema
+	 */
+	public JsonSchema getInputSchema(Long pipelineId, String serviceIdentifier, Supplier<CommandMetaEntity> metaLoader) {
+		if (!enabled) {
+			return compile(pipelineId, serviceIdentifier, metaLoader).inputSchema();
+		}
+		try {
+			return cache.get(new SchemaKey(pipelineId, serviceIdentifier),
+					() -> compile(pipelineId, serviceIdentifier, metaLoader)).inputSchema();
+		} catch (ExecutionException | UncheckedExecutionException | ExecutionError e) {
+			// 元数据不存在或编译失败不缓存, 原样抛出
+			if (e.getCause() instanceof RuntimeException cause) {
+				throw cause;
+			}
+			throw new IllegalStateException("编译指令参数Schema失败", e.getCause());
+		}
+	}
+
+	/**
+	 * 按(pipelineId, serviceIdentifier)失效, 用于创建(覆盖)元数据后
+	 *
+	 * @param pipelineId        管道ID
+	 * @param serviceIdentifier 服务标识符
+	 */
+	public void invalidate(Long pipelineId, String serviceIdentifier) {
+		cache.invalidate(new SchemaKey(pipelineId, serviceIdentifier));
+	}
+
+	/**
+	 * 按元数据id失效, 用于更新和废弃元数据后
+	 *
+	 * @param metaId 元数据ID
+	 */
+	public void invalidateByMetaId(Long metaId) {
+		cache.asMap().values().removeIf(schema -> Objects.equals(schema.metaId(), metaId));
+	}
+
+	public void invalidateAll() {
+		cache.invalidateAll();
+	}
+
+	public double getHitRate() {
+		return cache.stats().hitRate();
+	}
+
+	public long getSize() {
+		return cache.size();
+	}
+
+	private CompiledSchema compile(Long pipelineId, String serviceIdentifier, Supplier<CommandMetaEntity> metaLoader) {
+		CommandMetaEntity commandMeta = metaLoader.get();
+		if (commandMeta == null || commandMeta.getPayloadSchema() == null) {
+			log.error("指令元数据不存在, pipelineId={}, serviceIdentifier={}", pipelineId, serviceIdentifier);
+			throw new BizException(BizCode.COMMAND_META_NOT_EXIST, "指令元数据不存在: pipelineId=" + pipelineId +
+					", serviceIdentifier=" + serviceIdentifier);
+		}
+		JsonSchema inputSchema = validationService.compileInputSchema(commandMeta.getPayloadSchema());
+		log.debug("指令参数Schema已编译, pipelineId={}, serviceIdentifier={}, version={}",
+				pipelineId, serviceIdentifier, commandMeta.getVersion());
+		return new CompiledSchema(commandMeta.getId(), commandMeta.getVersion(), inputSchema);
+	}
+
+}
@@ -0,0 +1,42 @@
+package org.pms.domain.command.service;
+
+import org.pms.domain.command.model.command.FanOutCommandCommand;
+import org.pms.domain.command.model.entity.CommandFanOutJobEntity;
+
+import java.util.List;
+
+/**
+ * 批量下发服务接口
+ * <p>
+ * 一次请求把同一个指令任务下发到一条管道的所有设备或一组设备, 后台异步执行, 通过作业ID查询进度
+ *
+ * @author alcsyooterranf
+ * @program PressureMonitorSys-business
+ * @create 2026/10/18
+ */
+public interface ICommandFanOutService {
+
+	/**
+	 * 提交批量下发作业, 立即返回
+	 *
+	 * @param command 批量下发命令对象
+	 * @return 作业初始进度(包含作业ID和目标设备数)
+	 */
+	CommandFanOutJobEntity submit(FanOutCommandCommand command);
+
+	/**
+	 * 查询作业进度
+	 *
+	 * @param jobId 作业ID
+	 * @return 进度快照
+	 */
+	CommandFanOutJobEntity queryJob(String jobId);
+
+	/**
+	 * 查询保留期内的所有作业, 按创建时间倒序
+	 *
+	 * @return 进度快照列表
+	 */
+	List<CommandFanOutJobEntity> queryJobs();
+
+}
@@ -0,0 +1,475 @@
+package org.pms.domain.command.service.impl;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import com.google.common.util.concurrent.RateLimiter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.pms.domain.command.model.command.FanOutCommandCommand;
+import org.pms.domain.command.model.entity.CommandExecutionEntity;
+import org.pms.domain.command.model.entity.CommandFanOutJobEntity;
+import org.pms.domain.command.model.entity.CommandTaskEntity;
+import org.pms.domain.command.model.valobj.CommandExecutionStatusVO;
+import org.pms.domain.command.model.valobj.CommandFanOutStatusVO;
+import org.pms.domain.command.repository.ICommandExecutionRepository;
+import org.pms.domain.command.repository.ICommandTaskRepository;
+import org.pms.domain.command.service.AepCommandClient;
+import org.pms.domain.command.service.ICommandFanOutService;
+import org.pms.domain.terminal.model.entity.DeviceEntity;
+import org.pms.domain.terminal.repository.IDeviceRepository;
+import org.pms.types.BizCode;
+import org.pms.types.BizException;
+import org.pms.types.TooManyRequestsException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 批量下发服务实现
+ * <p>
+ * 为什么需要批量下发?
+ * - 单条下发接口一次只能发一个设备, 给一条管道的5000个设备推送参数变更需要5000次串行的同步HTTP调用
+ * - 批量下发在服务端并发调用AEP异步接口, 执行记录多行批量写入, 调用方只需要轮询作业进度
+ * <p>
+ * 工作原理:
+ * 1. 提交时校验指令任务和目标设备, 登记作业后立即返回作业ID
+ * 2. 作业线程按顺序遍历设备: 先从全局限流器取令牌(rate-per-second, 所有作业共享, 保护AEP),
+ * 再占用作业内的并发名额(concurrency), 然后异步下发
+ * 3. AEP受理成功的设备生成执行记录放入待写队列, 攒满insert-batch-size或距上次写入超过insert-linger-ms后,
+ * 一条多行INSERT写入t_command_execution; 执行记录越早落库, AEP回调越不容易因为查不到记录而被丢弃
+ * 4. 所有下发回调完成后写入剩余记录, 作业结束; 进度计数随时可查
+ * 作业线程被中断(服务关闭)或异常退出时, 状态为INTERRUPTED/FAILED, 而不是COMPLETED;
+ * 退出前有限等待在途的下发(drain-timeout-ms), 之后才完成的下发由回调线程直接写入执行记录, 已受理的指令都有执行记录
+ * <p>
+ * 作业只保存在内存中, 结束后保留job-retention-minutes, 服务重启后作业进度丢失(已写入的执行记录不受影响)
+ *
+ * @author alcsyooterranf
+ * @program PressureMonitorSys-business
+ * @create 2026/10/18
+ */
+@Slf4j
+@Service
+public class CommandFanOutService implements ICommandFanOutService {
+
+	/**
+	 * 每个作业最多保留的失败原因条数
+	 */
+	private static final int MAX_FAILURE_MESSAGES = 100;
+
+	@Resource
+	private ICommandTaskRepository commandTaskRepository;
+	@Resource
+	private ICommandExecutionRepository commandExecutionRepository;
+	@Resource
+	private IDeviceRepository deviceRepository;
+	@Resource
+	private AepCommandClient aepCommandClient;
+
+	/**
+	 * 单个作业同时在途的下发请求数
+	 */
+	@Value("${command.fan-out.concurrency:16}")
+	private int concurrency;
+
+	/**
+	 * 所有作业合计每秒最多下发的指令数
+	 */
+	@Value("${command.fan-out.rate-per-second:50}")
+	private double ratePerSecond;
+
+	/**
+	 * 执行记录每批写入的行数
+	 */
+	@Value("${command.fan-out.insert-batch-size:200}")
+	private int insertBatchSize;
+
+	/**
+	 * 待写执行记录的最长等待时间(毫秒), 未攒满一批也按此间隔写入
+	 */
+	@Value("${command.fan-out.insert-linger-ms:100}")
+	private long insertLingerMs;
+
+	/**
+	 * 作业中断或异常退出时等待在途下发完成的最长时间(毫秒), 应小于服务关闭时等待作业线程的时间
+	 */
+	@Value("${command.fan-out.drain-timeout-ms:5000}")
+	private long drainTimeoutMs;
+
+	/**
+	 * 单个作业最多设备数
+	 */
+	@Value("${command.fan-out.max-devices:10000}")
+	private int maxDevices;
+
+	/**
+	 * 同时运行的作业数上限
+	 */
+	@Value("${command.fan-out.max-running-jobs:4}")
+	private int maxRunningJobs;
+
+	/**
+	 * 作业结束后保留多久(分钟)
+	 */
+	@Value("${command.fan-out.job-retention-minutes:60}")
+	private long jobRetentionMinutes;
+
+	private final Map<String, FanOutJob> jobs = new ConcurrentHashMap<>();
+
+	private Semaphore runningJobs;
+
+	private RateLimiter rateLimiter;
+
+	private ExecutorService jobExecutor;
+
+	/**
+	 * 作业进度, 计数可被作业线程和AEP回调线程并发修改
+	 */
+	private static final class FanOutJob {
+
+		private final String jobId = UUID.randomUUID().toString().replace("-", "");
+		private final Long taskId;
+		private final Long pipelineId;
+		private final int total;
+		private final Date createTime = new Date();
+		private final AtomicInteger submitted = new AtomicInteger();
+		private final AtomicInteger succeeded = new AtomicInteger();
+		private final AtomicInteger failed = new AtomicInteger();
+		private final AtomicInteger recorded = new AtomicInteger();
+		private final AtomicInteger failureMessageCount = new AtomicInteger();
+		private final ConcurrentLinkedQueue<String> failureMessages = new ConcurrentLinkedQueue<>();
+		private volatile CommandFanOutStatusVO status = CommandFanOutStatusVO.RUNNING;
+		private volatile Date finishTime;
+		/**
+		 * 作业线程已做完最后一次写入, 之后完成的下发由回调线程自己写入执行记录
+		 */
+		private volatile boolean recordsClosed;
+
+		private FanOutJob(Long taskId, Long pipelineId, int total) {
+			this.taskId = taskId;
+			this.pipelineId = pipelineId;
+			this.total = total;
+		}
+
+		private void fail(Object deviceSN, String reason) {
+			failed.incrementAndGet();
+			if (failureMessageCount.incrementAndGet() <= MAX_FAILURE_MESSAGES) {
+				failureMessages.add(deviceSN + ": " + reason);
+			}
+		}
+
+		private CommandFanOutJobEntity snapshot() {
+			return CommandFanOutJobEntity.builder()
+					.jobId(jobId)
+					.taskId(taskId)
+					.pipelineId(pipelineId)
+					.status(status)
+					.total(total)
+					.submitted(submitted.get())
+					.succeeded(succeeded.get())
+					.failed(failed.get())
+					.recorded(recorded.get())
+					.failures(new ArrayList<>(failureMessages))
+					.createTime(createTime)
+					.finishTime(finishTime)
+					.build();
+		}
+
+	}
+
+	@PostConstruct
+	public void init() {
+		runningJobs = new Semaphore(maxRunningJobs);
+		rateLimiter = RateLimiter.create(ratePerSecond);
+		AtomicInteger index = new AtomicInteger();
+		jobExecutor = Executors.newFixedThreadPool(maxRunningJobs, r -> {
+			Thread t = new Thread(r, "Command-FanOut-" + index.getAndIncrement());
+			t.setDaemon(true);
+			return t;
+		});
+		log.info("批量下发服务初始化完成: concurrency={}, ratePerSecond={}, insertBatchSize={}, insertLinger={}ms, maxRunningJobs={}",
+				concurrency, ratePerSecond, insertBatchSize, insertLingerMs, maxRunningJobs);
+	}
+
+	@PreDestroy
+	public void destroy() {
+		// 中断作业线程; 作业线程有限等待在途的下发, 之后才完成的下发由回调线程写入执行记录
+		jobExecutor.shutdownNow();
+		try {
+			if (!jobExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+				log.warn("批量下发作业未能按时结束");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Override
+	public CommandFanOutJobEntity submit(FanOutCommandCommand command) {
+		// 1. 查询指令任务
+		CommandTaskEntity commandTask = commandTaskRepository.selectById(command.getTaskId());
+		if (commandTask == null) {
+			log.error("指令任务不存在, taskId={}", command.getTaskId());
+			throw new BizException(BizCode.COMMAND_TASK_NOT_EXIST);
+		}
+
+		// 2. 确定目标设备: 指定了设备列表时只发这些设备, 否则发任务所属管道的所有设备
+		boolean byDeviceIds = command.getDeviceIds() != null && !command.getDeviceIds().isEmpty();
+		if (!byDeviceIds && command.getPipelineId() == null) {
+			throw new BizException(BizCode.PARAMETER_IS_NULL, "管道ID和设备ID列表不能同时为空");
+		}
+		if (command.getPipelineId() != null && !command.getPipelineId().equals(commandTask.getPipelineId())) {
+			throw new BizException(BizCode.ILLEGAL_PARAMETER, "管道ID与指令任务的管道不一致");
+		}
+		List<Long> deviceIds = byDeviceIds ? new ArrayList<>(new LinkedHashSet<>(command.getDeviceIds())) : null;
+		if (deviceIds != null && deviceIds.size() > maxDevices) {
+			throw new BizException(BizCode.ILLEGAL_PARAMETER, "设备数超过上限: " + maxDevices);
+		}
+		List<DeviceEntity> devices = byDeviceIds
+				? deviceRepository.queryBindedDevicesByIdList(deviceIds)
+				: deviceRepository.queryBindedDevicesByPipelineId(commandTask.getPipelineId());
+		if (devices.size() > maxDevices) {
+			throw new BizException(BizCode.ILLEGAL_PARAMETER, "设备数超过上限: " + maxDevices);
+		}
+		int total = byDeviceIds ? deviceIds.size() : devices.size();
+		if (total == 0) {
+			throw new BizException(BizCode.ILLEGAL_PARAMETER, "管道下没有已绑定的设备");
+		}
+
+		// 3. 登记作业
+		removeExpiredJobs();
+		if (!runningJobs.tryAcquire()) {
+			throw new TooManyRequestsException("正在运行的批量下发作业已达上限: " + maxRunningJobs);
+		}
+		FanOutJob job = new FanOutJob(commandTask.getId(), commandTask.getPipelineId(), total);
+		jobs.put(job.jobId, job);
+
+		// 指定的设备不存在、未绑定或不属于任务的管道, 直接记为失败
+		List<DeviceEntity> targets = devices;
+		if (byDeviceIds) {
+			Map<Long, DeviceEntity> deviceById = devices.stream()
+					.collect(Collectors.toMap(DeviceEntity::getId, Function.identity(), (a, b) -> a));
+			targets = new ArrayList<>(devices.size());
+			for (Long deviceId : deviceIds) {
+				DeviceEntity device = deviceById.get(deviceId);
+				if (device == null) {
+					job.fail("deviceId=" + deviceId, "设备不存在或未绑定");
+				} else if (!Objects.equals(device.getPipelineId(), commandTask.getPipelineId())) {
+					job.fail(device.getDeviceSN(), "设备不属于指令任务的管道");
+				} else {
+					targets.add(device);
+				}
+			}
+		}
+
+		List<DeviceEntity> finalTargets = targets;
+		try {
+			jobExecutor.execute(() -> run(job, commandTask, finalTargets));
+		} catch (RuntimeException e) {
+			jobs.remove(job.jobId);
+			runningJobs.release();
+			throw e;
+		}
+		log.info("批量下发作业已提交, jobId={}, taskId={}, total={}, targets={}",
+				job.jobId, commandTask.getId(), total, finalTargets.size());
+		return job.snapshot();
+	}
+
+	@Override
+	public CommandFanOutJobEntity queryJob(String jobId) {
+		FanOutJob job = jobs.get(jobId);
+		if (job == null) {
+			throw new BizException(BizCode.ILLEGAL_PARAMETER, "批量下发作业不存在或已过期: " + jobId);
+		}
+		return job.snapshot();
+	}
+
+	@Override
+	public List<CommandFanOutJobEntity> queryJobs() {
+		removeExpiredJobs();
+		return jobs.values().stream()
+				.map(FanOutJob::snapshot)
+				.sorted(Comparator.comparing(CommandFanOutJobEntity::getCreateTime).reversed())
+				.toList();
+	}
+
+	private void run(FanOutJob job, CommandTaskEntity commandTask, List<DeviceEntity> devices) {
+		JSONObject params = JSON.parseObject(commandTask.getArgs());
+		Semaphore inFlight = new Semaphore(concurrency);
+		BlockingQueue<CommandExecutionEntity> pendingRecords = new LinkedBlockingQueue<>();
+		long lastFlushNanos = System.nanoTime();
+		CommandFanOutStatusVO finalStatus = CommandFanOutStatusVO.COMPLETED;
+		try {
+			for (DeviceEntity device : devices) {
+				rateLimiter.acquire();
+				// 等待并发名额期间也按linger间隔写入已受理的执行记录
+				while (!inFlight.tryAcquire(insertLingerMs, TimeUnit.MILLISECONDS)) {
+					lastFlushNanos = flushIfDue(job, pendingRecords, lastFlushNanos);
+				}
+				job.submitted.incrementAndGet();
+				CompletableFuture<Long> future;
+				try {
+					future = aepCommandClient.sendCommandAsync(device.getDeviceSN(), commandTask.getPipelineId(),
+							commandTask.getServiceIdentifier(), params);
+				} catch (RuntimeException e) {
+					job.fail(device.getDeviceSN(), e.getMessage());
+					inFlight.release();
+					continue;
+				}
+				future.whenComplete((aepTaskId, e) -> {
+					try {
+						if (e == null) {
+							job.succeeded.incrementAndGet();
+							pendingRecords.add(buildExecution(commandTask, device, aepTaskId));
+							// 先入队再检查: 作业线程要么在最后一次写入中取到这条记录, 要么由这里写入
+							if (job.recordsClosed) {
+								flushRecords(job, pendingRecords);
+							}
+						} else {
+							Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+							job.fail(device.getDeviceSN(), cause.getMessage());
+						}
+					} finally {
+						inFlight.release();
+					}
+				});
+				lastFlushNanos = flushIfDue(job, pendingRecords, lastFlushNanos);
+			}
+			// 等待所有在途的下发回调完成
+			while (!inFlight.tryAcquire(concurrency, insertLingerMs, TimeUnit.MILLISECONDS)) {
+				lastFlushNanos = flushIfDue(job, pendingRecords, lastFlushNanos);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			finalStatus = CommandFanOutStatusVO.INTERRUPTED;
+			log.warn("批量下发作业被中断, jobId={}, submitted={}/{}", job.jobId, job.submitted.get(), job.total);
+		} catch (Exception e) {
+			finalStatus = CommandFanOutStatusVO.FAILED;
+			log.error("批量下发作业异常, jobId={}, submitted={}/{}", job.jobId, job.submitted.get(), job.total, e);
+		} finally {
+			if (finalStatus != CommandFanOutStatusVO.COMPLETED) {
+				awaitInFlight(job, inFlight, pendingRecords);
+			}
+			job.recordsClosed = true;
+			flushRecords(job, pendingRecords);
+			job.finishTime = new Date();
+			job.status = finalStatus;
+			runningJobs.release();
+			log.info("批量下发作业结束, jobId={}, status={}, total={}, succeeded={}, failed={}, recorded={}",
+					job.jobId, finalStatus, job.total, job.succeeded.get(), job.failed.get(), job.recorded.get());
+		}
+	}
+	
+	/**
+	 * 作业中断或异常退出时有限等待在途的下发, 期间照常按linger间隔写入执行记录
+	 * 作业线程带着中断标记进入, 等待期间清除标记, 结束后恢复
+	 */
+	private void awaitInFlight(FanOutJob job, Semaphore inFlight, BlockingQueue<CommandExecutionEntity> pendingRecords) {
+		boolean interrupted = Thread.interrupted();
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(drainTimeoutMs);
+		long lastFlushNanos = System.nanoTime();
+		try {
+			while (true) {
+				long remaining = deadline - System.nanoTime();
+				if (remaining <= 0) {
+					log.warn("等待在途下发超时, 剩余的下发完成后由回调写入执行记录, jobId={}, inFlight={}",
+							job.jobId, concurrency - inFlight.availablePermits());
+					return;
+				}
+				long wait = Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(insertLingerMs));
+				if (inFlight.tryAcquire(concurrency, wait, TimeUnit.NANOSECONDS)) {
+					return;
+				}
+				lastFlushNanos = flushIfDue(job, pendingRecords, lastFlushNanos);
+			}
+		} catch (InterruptedException e) {
+			interrupted = true;
+		} finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * 待写记录攒满一批, 或距上次写入超过insert-linger-ms时写入
+	 *
+	 * @return 上次写入的时间(System.nanoTime)
+	 */
+	private long flushIfDue(FanOutJob job, BlockingQueue<CommandExecutionEntity> pendingRecords, long lastFlushNanos) {
+		if (pendingRecords.isEmpty()) {
+			return System.nanoTime();
+		}
+		if (pendingRecords.size() < insertBatchSize
+				&& System.nanoTime() - lastFlushNanos < TimeUnit.MILLISECONDS.toNanos(insertLingerMs)) {
+			return lastFlushNanos;
+		}
+		flushRecords(job, pendingRecords);
+		return System.nanoTime();
+	}
+
+	/**
+	 * 把待写队列中的执行记录一次性批量写入
+	 */
+	private void flushRecords(FanOutJob job, BlockingQueue<CommandExecutionEntity> pendingRecords) {
+		List<CommandExecutionEntity> records = new ArrayList<>(pendingRecords.size());
+		pendingRecords.drainTo(records);
+		if (records.isEmpty()) {
+			return;
+		}
+		try {
+			job.recorded.addAndGet(commandExecutionRepository.createCommandExecutions(records));
+		} catch (Exception e) {
+			// 指令已被AEP受理, 只是执行记录没有落库; 记录aepTaskId便于人工补录
+			log.error("批量写入指令执行记录失败, jobId={}, aepTaskIds={}", job.jobId,
+					records.stream().map(CommandExecutionEntity::getAepTaskId).toList(), e);
+			for (CommandExecutionEntity record : records) {
+				if (job.failureMessageCount.incrementAndGet() <= MAX_FAILURE_MESSAGES) {
+					job.failureMessages.add(record.getDeviceSN() + ": 执行记录写入失败, aepTaskId=" + record.getAepTaskId());
+				}
+			}
+		}
+	}
+
+	private CommandExecutionEntity buildExecution(CommandTaskEntity commandTask, DeviceEntity device, Long aepTaskId) {
+		return CommandExecutionEntity.builder()
+				.commandTaskId(commandTask.getId())
+				.tenantId(commandTask.getTenantId())
+				.pipelineId(commandTask.getPipelineId())
+				.deviceId(device.getId())
+				.deviceSN(device.getDeviceSN())
+				.serviceIdentifier(commandTask.getServiceIdentifier())
+				.aepTaskId(aepTaskId)
+				.status(CommandExecutionStatusVO.SAVED)
+				.requestPayload(commandTask.getArgs())
+				.build();
+	}
+
+	private void removeExpiredJobs() {
+		long expireBefore = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(jobRetentionMinutes);
+		jobs.values().removeIf(job -> job.finishTime != null && job.finishTime.getTime() < expireBefore);
+	}
+
+}
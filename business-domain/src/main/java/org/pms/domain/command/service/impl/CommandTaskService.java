@@ -2,8 +2,7 @@ package org.pms.domain.command.service.impl;
 
 import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONObject;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.networknt.schema.JsonSchema;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.pms.domain.command.model.command.CreateCommandTaskCommand;
@@ -16,6 +15,7 @@ import org.pms.domain.command.repository.ICommandMetaRepository;
 import org.pms.domain.command.repository.ICommandTaskRepository;
 import org.pms.domain.command.service.AepCommandClient;
 import org.pms.domain.command.service.CommandMetaValidationService;
+import org.pms.domain.command.service.CommandSchemaCache;
 import org.pms.domain.command.service.ICommandTaskService;
 import org.pms.types.BizCode;
 import org.pms.types.BizException;
@@ -39,7 +39,6 @@ import java.util.concurrent.CompletableFuture;
 @Service
 public class CommandTaskService implements ICommandTaskService {
 
-	private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
 	@Resource
 	private ICommandTaskRepository commandTaskRepository;
 	@Resource
@@ -49,37 +48,22 @@ public class CommandTaskService implements ICommandTaskService {
 	@Resource
 	private CommandMetaValidationService validationService;
 	@Resource
+	private CommandSchemaCache commandSchemaCache;
+	@Resource
 	private AepCommandClient aepCommandClient;
 	
 	@Override
 	public Long createCommandTask(CreateCommandTaskCommand command) {
-		// 1. 校验(pipelineId, serviceIdentifier)在t_command_meta中的存在性
-		String payloadSchema = commandMetaRepository.getPayloadSchemaByPipelineAndService(
+		// 1. 取(pipelineId, serviceIdentifier)对应的已编译inputSchema, 元数据不存在时抛出COMMAND_META_NOT_EXIST
+		JsonSchema inputSchema = commandSchemaCache.getInputSchema(
 				command.getPipelineId(),
-				command.getServiceIdentifier()
+				command.getServiceIdentifier(),
+				() -> commandMetaRepository.queryCommandMetaByPipelineAndService(
+						command.getPipelineId(), command.getServiceIdentifier())
 		);
 
-		if (payloadSchema == null) {
-			log.error("指令元数据不存在, pipelineId={}, serviceIdentifier={}",
-					command.getPipelineId(), command.getServiceIdentifier());
-			throw new BizException(BizCode.COMMAND_META_NOT_EXIST, "指令元数据不存在: pipelineId=" + command.getPipelineId() +
-					", serviceIdentifier=" + command.getServiceIdentifier());
-		}
-
 		// 2. 按照payload_schema对args做参数校验
-		try {
-			JsonNode schemaNode = OBJECT_MAPPER.readTree(payloadSchema);
-			JsonNode inputSchemaNode = schemaNode.get("inputSchema");
-			String inputSchemaJson = OBJECT_MAPPER.writeValueAsString(inputSchemaNode);
-
-			validationService.validateArgs(command.getArgs(), inputSchemaJson);
-
-		} catch (BizException e) {
-			throw e;
-		} catch (Exception e) {
-			log.error("解析payload_schema异常", e);
-			throw new BizException(BizCode.COMMAND_META_PAYLOAD_SCHEMA_PARSE_ERROR, "解析payload_schema异常: " + e.getMessage());
-		}
+		validationService.validateArgs(command.getArgs(), inputSchema);
 
 		// 3. 创建指令任务
 		Long taskId = commandTaskRepository.createCommandTask(command);
@@ -17,12 +17,25 @@ public abstract class AbstractState {
 	
 	@Resource
 	protected ICommandExecutionRepository commandExecutionRepository;
+	@Resource
+	protected CommandExecutionStateCache commandExecutionStateCache;
 	
 	/**
 	 * 获取当前状态
 	 */
 	public abstract CommandExecutionStatusVO current();
 	
+	/**
+	 * 判断能否迁移到目标状态, 规则与apply一致: 终态锁死, 单调递进(允许跳跃和原地更新, 不允许回退)
+	 *
+	 * @param target 目标状态
+	 * @return 是否允许迁移
+	 */
+	public boolean canTransitTo(CommandExecutionStatusVO target) {
+		CommandExecutionStatusVO current = current();
+		return !current.isFinalState() && target.getCode() >= current.getCode();
+	}
+	
 	/**
 	 * 处理状态迁移
 	 *
@@ -35,18 +48,25 @@ public abstract class AbstractState {
 		
 		// 1. 终态锁死: 终态不允许迁移（但允许记录 raw/time）
 		if (current.isFinalState()) {
+			commandExecutionStateCache.put(ctx.getAepTaskId(), ctx.getDeviceId(), current);
 			commandExecutionRepository.updateTrace(ctx);
 			return Result.buildResult(BizCode.SUCCESS, "已是终态，忽略状态更新，仅记录回调");
 		}
 		
 		// 2. 单调递进：允许跳跃, 但不允许回退
 		if (target.getCode() < current.getCode()) {
+			commandExecutionStateCache.put(ctx.getAepTaskId(), ctx.getDeviceId(), current);
 			commandExecutionRepository.updateTrace(ctx);
 			return Result.buildResult(BizCode.SUCCESS, "回调乱序/回退，忽略状态更新，仅记录回调");
 		}
 		
 		// 3. 做一次 CAS 更新（核心！）
 		boolean ok = commandExecutionRepository.updateStatus(current.getCode(), target.getCode(), ctx);
+		if (ok) {
+			commandExecutionStateCache.put(ctx.getAepTaskId(), ctx.getDeviceId(), target);
+		} else {
+			commandExecutionStateCache.invalidate(ctx.getAepTaskId(), ctx.getDeviceId());
+		}
 		
 		return ok
 				? Result.buildResult(BizCode.SUCCESS, "状态更新成功：" + current + " -> " + target)
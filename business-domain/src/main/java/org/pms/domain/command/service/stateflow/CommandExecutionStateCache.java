@@ -0,0 +1,157 @@
+package org.pms.domain.command.service.stateflow;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.pms.domain.command.model.valobj.CommandExecutionStatusVO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 在途指令执行状态缓存
+ * <p>
+ * 为什么需要缓存?
+ * - 每条回调都要先查MySQL拿到当前状态才能判断迁移是否合法, 而大部分回调的判断结果在内存中就能得出:
+ * 已是终态的重复回调、乱序到达的旧状态回调都只会被忽略
+ * <p>
+ * 缓存策略:
+ * 1. key为(aepTaskId, deviceId), 创建执行记录时写入初始状态, CAS更新成功后写入新状态(write-through)
+ * 2. 到达终态后从在途缓存移除, 转为墓碑(tombstone)保留tombstone-minutes, 迟到的回调直接判定为忽略
+ * 3. 缓存中的状态只会落后于数据库, 不会超前: 只在数据库确认后写入, 同一个key只增不减, CAS未命中时失效
+ * 由于状态单调递进且终态锁死, 按落后的状态判定"忽略"一定也是数据库的判定结果, 多节点部署时同样成立
+ * 4. 判定为合法迁移时仍以缓存状态为期望值做数据库CAS, 未命中(其他节点已推进)则失效并回退到查库流程
+ *
+ * @author alcsyooterranf
+ * @program PressureMonitorSys-business
+ * @create 2026/10/18
+ */
+@Slf4j
+@Component
+public class CommandExecutionStateCache {
+
+	@Value("${command.state-cache.enabled:true}")
+	private boolean enabled;
+
+	/**
+	 * 在途执行记录的最大缓存数
+	 */
+	@Value("${command.state-cache.maximum-size:100000}")
+	private long maximumSize;
+
+	/**
+	 * 在途执行记录的过期时间(小时), 超过时间仍未到达终态的记录交给查库流程处理
+	 */
+	@Value("${command.state-cache.in-flight-expire-hours:24}")
+	private long inFlightExpireHours;
+
+	/**
+	 * 终态墓碑的保留时间(分钟)
+	 */
+	@Value("${command.state-cache.tombstone-minutes:30}")
+	private long tombstoneMinutes;
+
+	private Cache<ExecutionKey, CommandExecutionStatusVO> inFlight;
+
+	private Cache<ExecutionKey, CommandExecutionStatusVO> tombstones;
+
+	private final LongAdder hitCount = new LongAdder();
+	private final LongAdder missCount = new LongAdder();
+
+	private record ExecutionKey(Long aepTaskId, Long deviceId) {
+	}
+
+	@PostConstruct
+	public void init() {
+		inFlight = CacheBuilder.newBuilder()
+				.maximumSize(maximumSize)
+				.expireAfterWrite(inFlightExpireHours, TimeUnit.HOURS)
+				.build();
+		tombstones = CacheBuilder.newBuilder()
+				.maximumSize(maximumSize)
+				.expireAfterWrite(tombstoneMinutes, TimeUnit.MINUTES)
+				.build();
+		log.info("在途指令状态缓存初始化完成: enabled={}, maximumSize={}, inFlightExpire={}h, tombstone={}min",
+				enabled, maximumSize, inFlightExpireHours, tombstoneMinutes);
+	}
+
+	/**
+	 * 获取缓存的状态
+	 *
+	 * @param aepTaskId AEP任务ID
+	 * @param deviceId  设备ID
+	 * @return 缓存的状态, 未命中返回null
+	 */
+	public CommandExecutionStatusVO get(Long aepTaskId, Long deviceId) {
+		if (!enabled || aepTaskId == null || deviceId == null) {
+			return null;
+		}
+		ExecutionKey key = new ExecutionKey(aepTaskId, deviceId);
+		CommandExecutionStatusVO status = tombstones.getIfPresent(key);
+		if (status == null) {
+			status = inFlight.getIfPresent(key);
+		}
+		if (status == null) {
+			missCount.increment();
+		} else {
+			hitCount.increment();
+		}
+		return status;
+	}
+
+	/**
+	 * 写入数据库已确认的状态, 同一个key只保留更靠后的状态, 终态转为墓碑
+	 *
+	 * @param aepTaskId AEP任务ID
+	 * @param deviceId  设备ID
+	 * @param status    数据库已确认的状态
+	 */
+	public void put(Long aepTaskId, Long deviceId, CommandExecutionStatusVO status) {
+		if (!enabled || aepTaskId == null || deviceId == null || status == null) {
+			return;
+		}
+		ExecutionKey key = new ExecutionKey(aepTaskId, deviceId);
+		if (status.isFinalState()) {
+			inFlight.invalidate(key);
+			tombstones.asMap().putIfAbsent(key, status);
+			return;
+		}
+		if (tombstones.getIfPresent(key) != null) {
+			return;
+		}
+		inFlight.asMap().merge(key, status, (old, now) -> now.getCode() > old.getCode() ? now : old);
+	}
+
+	/**
+	 * CAS未命中等无法确认当前状态时失效
+	 *
+	 * @param aepTaskId AEP任务ID
+	 * @param deviceId  设备ID
+	 */
+	public void invalidate(Long aepTaskId, Long deviceId) {
+		if (aepTaskId == null || deviceId == null) {
+			return;
+		}
+		ExecutionKey key = new ExecutionKey(aepTaskId, deviceId);
+		inFlight.invalidate(key);
+		tombstones.invalidate(key);
+	}
+
+	public long getInFlightSize() {
+		return inFlight.size();
+	}
+
+	public long getTombstoneSize() {
+		return tombstones.size();
+	}
+
+	public double getHitRate() {
+		long hits = hitCount.sum();
+		long total = hits + missCount.sum();
+		return total == 0 ? 0 : (double) hits / total;
+	}
+
+}
@@ -4,6 +4,7 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.pms.domain.command.model.valobj.CommandExecutionStatusVO;
 
 /**
  * @author alcsyooterranf
@@ -22,5 +23,13 @@ public class CommandTransitionCtx {
 	private Long callbackTimestamp;
 	private String lastRawCallback;
 	private String resultDetail;
+	/**
+	 * CAS期望的当前状态(数据库中读到的状态)
+	 */
+	private CommandExecutionStatusVO expectedStatus;
+	/**
+	 * 目标状态, 为null时只记录回调(last_raw_callback/last_callback_time)
+	 */
+	private CommandExecutionStatusVO targetStatus;
 	
 }
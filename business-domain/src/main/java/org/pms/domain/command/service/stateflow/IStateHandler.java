@@ -3,6 +3,8 @@ package org.pms.domain.command.service.stateflow;
 import org.pms.domain.command.model.entity.CommandExecutionEntity;
 import org.pms.types.Result;
 
+import java.util.List;
+
 /**
  * @author alcsyooterranf
  * @program PressureMonitorSys-business
@@ -23,4 +25,14 @@ public interface IStateHandler {
 	
 	Result onTimeout(CommandExecutionEntity ctx);
 	
+	/**
+	 * 批量处理指令响应回调
+	 * <p>
+	 * 同一条执行记录(aepTaskId, deviceId)的多条回调按到达顺序依次套用迁移规则, 合并为一次更新
+	 *
+	 * @param ctxs 回调列表, status为目标状态
+	 * @return 执行结果
+	 */
+	Result onBatch(List<CommandExecutionEntity> ctxs);
+	
 }
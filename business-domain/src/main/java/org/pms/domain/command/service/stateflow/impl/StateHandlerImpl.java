@@ -1,33 +1,83 @@
 package org.pms.domain.command.service.stateflow.impl;
 
 import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
 import org.pms.domain.command.model.entity.CommandExecutionEntity;
 import org.pms.domain.command.model.valobj.CommandExecutionStatusVO;
 import org.pms.domain.command.repository.ICommandExecutionRepository;
 import org.pms.domain.command.service.stateflow.AbstractState;
+import org.pms.domain.command.service.stateflow.CommandExecutionStateCache;
 import org.pms.domain.command.service.stateflow.CommandTransitionCtx;
 import org.pms.domain.command.service.stateflow.IStateHandler;
 import org.pms.domain.command.service.stateflow.StateConfig;
 import org.pms.types.BizCode;
 import org.pms.types.Result;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * @author alcsyooterranf
  * @program PressureMonitorSys-business
  * @description 状态流转处理实现类
  * @create 2025/12/16
  */
+@Slf4j
 @Service
 public class StateHandlerImpl extends StateConfig implements IStateHandler {
 	
 	@Resource
 	protected ICommandExecutionRepository commandExecutionRepository;
+	@Resource
+	private CommandExecutionStateCache commandExecutionStateCache;
+	
+	/**
+	 * 批量处理时每批查询和更新的最大执行记录数
+	 */
+	@Value("${command.callback.batch-size:500}")
+	private int callbackBatchSize;
+	
+	/**
+	 * 执行记录的唯一标识
+	 */
+	private record ExecutionKey(Long aepTaskId, Long deviceId) {
+	}
+	
+	/**
+	 * 批量处理的统计计数
+	 */
+	private static final class BatchStats {
+		private int transited;
+		private int traced;
+		private int skipped;
+		private int missed;
+		private int notFound;
+	}
 	
 	private Result dispatch(CommandExecutionStatusVO target, CommandExecutionEntity ctx) {
-		// currentStatus 由 DB 决定, 为了幂等和防乱序
-		CommandExecutionStatusVO current = commandExecutionRepository.selectByAepTaskIdAndDeviceId(ctx.getAepTaskId(), ctx.getDeviceId()).getStatus();
-		AbstractState state = stateGroup.get(current);
+		// 1. 先按缓存状态在内存中判定, 缓存状态只会落后于数据库, 判定为忽略时数据库的判定也一定是忽略
+		CommandExecutionStatusVO cached = commandExecutionStateCache.get(ctx.getAepTaskId(), ctx.getDeviceId());
+		AbstractState cachedState = cached == null ? null : stateGroup.get(cached);
+		if (cachedState != null) {
+			if (!cachedState.canTransitTo(target)) {
+				return Result.buildResult(BizCode.SUCCESS, "已是终态或回调乱序(内存判定)，忽略状态更新：" + cached + " -> " + target);
+			}
+			// 合法迁移仍以数据库CAS为准, 期望值取缓存状态, 省去一次查询
+			if (commandExecutionRepository.updateStatus(cached.getCode(), target.getCode(), ctx)) {
+				commandExecutionStateCache.put(ctx.getAepTaskId(), ctx.getDeviceId(), target);
+				return Result.buildResult(BizCode.SUCCESS, "状态更新成功：" + cached + " -> " + target);
+			}
+			// 其他节点已推进状态, 缓存失效后回退到查库流程
+			commandExecutionStateCache.invalidate(ctx.getAepTaskId(), ctx.getDeviceId());
+		}
+		
+		// 2. currentStatus 由 DB 决定, 为了幂等和防乱序
+		CommandExecutionEntity execution = commandExecutionRepository.selectByAepTaskIdAndDeviceId(ctx.getAepTaskId(), ctx.getDeviceId());
+		AbstractState state = execution == null || execution.getStatus() == null ? null : stateGroup.get(execution.getStatus());
 		
 		if (state == null) {
 			return Result.buildResult(BizCode.COMMAND_STATE_UNKNOWN);
@@ -65,4 +115,140 @@ public class StateHandlerImpl extends StateConfig implements IStateHandler {
 		return dispatch(CommandExecutionStatusVO.TIMEOUT, ctx);
 	}
 	
+	/**
+	 * 批量处理回调
+	 * <p>
+	 * 逐条处理时每条回调要一次查询加一次更新, 下发风暴之后的回调风暴会把网关堵住。批量处理时:
+	 * 1. 按(aepTaskId, deviceId)分组, 当前状态优先取在途状态缓存, 未命中的执行记录用一条IN查询读出
+	 * 2. 同一条执行记录的回调按到达顺序依次套用迁移规则(终态锁死、不允许回退), 得到最终可达的目标状态,
+	 * 合并为一次CAS更新; 没有合法迁移时只记录最后一条回调, 若当前状态来自缓存则直接忽略, 不访问数据库
+	 * 3. 所有更新通过JDBC批量提交; 以缓存状态为期望值的CAS未命中时, 失效缓存并按数据库状态重新处理一次
+	 * <p>
+	 * 结果与逐条处理一致: 按数据库状态的CAS未命中(并发修改)同样按已幂等处理
+	 */
+	@Override
+	public Result onBatch(List<CommandExecutionEntity> ctxs) {
+		Map<ExecutionKey, List<CommandExecutionEntity>> groups = new LinkedHashMap<>();
+		for (CommandExecutionEntity ctx : ctxs) {
+			groups.computeIfAbsent(new ExecutionKey(ctx.getAepTaskId(), ctx.getDeviceId()), k -> new ArrayList<>()).add(ctx);
+		}
+		
+		BatchStats stats = new BatchStats();
+		List<Map.Entry<ExecutionKey, List<CommandExecutionEntity>>> entries = new ArrayList<>(groups.entrySet());
+		for (int from = 0; from < entries.size(); from += callbackBatchSize) {
+			processBatch(entries.subList(from, Math.min(from + callbackBatchSize, entries.size())), true, stats);
+		}
+		
+		String message = String.format("批量回调处理完成: callbacks=%d, executions=%d, transited=%d, traced=%d, skipped=%d, casMissed=%d, notFound=%d",
+				ctxs.size(), groups.size(), stats.transited, stats.traced, stats.skipped, stats.missed, stats.notFound);
+		log.info(message);
+		return Result.buildResult(BizCode.SUCCESS, message);
+	}
+	
+	/**
+	 * 处理一批执行记录的回调
+	 *
+	 * @param chunk    按执行记录分组的回调
+	 * @param useCache 是否优先使用缓存状态, 回退重试时为false
+	 * @param stats    统计计数
+	 */
+	private void processBatch(List<Map.Entry<ExecutionKey, List<CommandExecutionEntity>>> chunk, boolean useCache,
+							  BatchStats stats) {
+		// 1. 当前状态: 优先取缓存, 未命中的用一条IN查询读出, currentStatus 由 DB 决定, 为了幂等和防乱序
+		Map<ExecutionKey, CommandExecutionStatusVO> currents = new LinkedHashMap<>();
+		List<CommandExecutionEntity> missKeys = new ArrayList<>();
+		for (Map.Entry<ExecutionKey, List<CommandExecutionEntity>> entry : chunk) {
+			ExecutionKey key = entry.getKey();
+			CommandExecutionStatusVO cached = useCache ? commandExecutionStateCache.get(key.aepTaskId(), key.deviceId()) : null;
+			if (cached != null && stateGroup.get(cached) != null) {
+				currents.put(key, cached);
+			} else {
+				missKeys.add(CommandExecutionEntity.builder().aepTaskId(key.aepTaskId()).deviceId(key.deviceId()).build());
+			}
+		}
+		Map<ExecutionKey, CommandExecutionStatusVO> loaded = new LinkedHashMap<>();
+		for (CommandExecutionEntity execution : commandExecutionRepository.selectByAepTaskIdAndDeviceIds(missKeys)) {
+			loaded.put(new ExecutionKey(execution.getAepTaskId(), execution.getDeviceId()), execution.getStatus());
+		}
+		
+		// 2. 合并同一条执行记录的回调
+		List<CommandTransitionCtx> transitions = new ArrayList<>(chunk.size());
+		List<Boolean> fromCache = new ArrayList<>(chunk.size());
+		List<Map.Entry<ExecutionKey, List<CommandExecutionEntity>>> transitionEntries = new ArrayList<>(chunk.size());
+		for (Map.Entry<ExecutionKey, List<CommandExecutionEntity>> entry : chunk) {
+			ExecutionKey key = entry.getKey();
+			boolean cached = currents.containsKey(key);
+			CommandExecutionStatusVO current = cached ? currents.get(key) : loaded.get(key);
+			if (current == null || stateGroup.get(current) == null) {
+				stats.notFound++;
+				log.warn("指令执行记录不存在或状态未知, 忽略回调, aepTaskId={}, deviceId={}, callbacks={}",
+						key.aepTaskId(), key.deviceId(), entry.getValue().size());
+				continue;
+			}
+			CommandTransitionCtx transition = fold(current, entry.getValue());
+			if (cached && transition.getTargetStatus() == null) {
+				// 内存判定为终态或乱序, 不访问数据库
+				stats.skipped++;
+				continue;
+			}
+			transitions.add(transition);
+			fromCache.add(cached);
+			transitionEntries.add(entry);
+		}
+		
+		// 3. 批量提交, 并按结果维护缓存
+		boolean[] applied = commandExecutionRepository.batchApplyTransitions(transitions);
+		List<Map.Entry<ExecutionKey, List<CommandExecutionEntity>>> retries = new ArrayList<>();
+		for (int i = 0; i < transitions.size(); i++) {
+			CommandTransitionCtx transition = transitions.get(i);
+			if (transition.getTargetStatus() == null) {
+				stats.traced++;
+				commandExecutionStateCache.put(transition.getAepTaskId(), transition.getDeviceId(), transition.getExpectedStatus());
+			} else if (applied[i]) {
+				stats.transited++;
+				commandExecutionStateCache.put(transition.getAepTaskId(), transition.getDeviceId(), transition.getTargetStatus());
+			} else {
+				commandExecutionStateCache.invalidate(transition.getAepTaskId(), transition.getDeviceId());
+				if (fromCache.get(i)) {
+					retries.add(transitionEntries.get(i));
+				} else {
+					stats.missed++;
+				}
+			}
+		}
+		
+		// 4. 缓存状态已过期(其他节点已推进)的执行记录按数据库状态重新处理
+		if (!retries.isEmpty()) {
+			processBatch(retries, false, stats);
+		}
+	}
+	
+	/**
+	 * 从当前状态(数据库或缓存)出发, 按到达顺序依次套用同一条执行记录的回调
+	 *
+	 * @param current   当前状态
+	 * @param callbacks 同一条执行记录的回调, 按到达顺序
+	 * @return 合并后的状态迁移, 没有合法迁移时targetStatus为null
+	 */
+	CommandTransitionCtx fold(CommandExecutionStatusVO current, List<CommandExecutionEntity> callbacks) {
+		CommandExecutionStatusVO state = current;
+		CommandExecutionEntity lastApplied = null;
+		for (CommandExecutionEntity callback : callbacks) {
+			if (callback.getStatus() != null && stateGroup.get(state).canTransitTo(callback.getStatus())) {
+				state = callback.getStatus();
+				lastApplied = callback;
+			}
+		}
+		CommandExecutionEntity last = callbacks.get(callbacks.size() - 1);
+		return CommandTransitionCtx.builder()
+				.aepTaskId(last.getAepTaskId())
+				.deviceId(last.getDeviceId())
+				.callbackTimestamp(last.getLastCallbackTime() == null ? null : last.getLastCallbackTime().getTime())
+				.lastRawCallback(last.getLastRawCallback())
+				.resultDetail(lastApplied == null ? null : lastApplied.getResultDetail())
+				.expectedStatus(current)
+				.targetStatus(lastApplied == null ? null : state)
+				.build();
+	}
+	
 }
@@ -6,7 +6,6 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.pms.domain.devicedata.model.vo.AbnormalFlagVO;
 
-import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
@@ -26,11 +25,10 @@ public class DeviceDataEntity {
     private Integer pressure;
 
     /**
-     * 异常标志列表（支持多个异常共存）
-     * 例如：设备可能同时存在超压和超温
+     * 异常标志掩码（支持多个异常共存），每个异常类型占一位，见AbnormalFlagVO.getMask
+     * 例如：设备同时存在超压和超温时为0b101
      */
-    @Builder.Default
-    private List<AbnormalFlagVO> abnormalFlags = new ArrayList<>();
+    private int abnormalMask;
 
     private Long deviceId;
     private String deviceSN;
@@ -48,9 +46,25 @@ public class DeviceDataEntity {
      * @return true-存在异常，false-正常
      */
     public boolean hasAbnormal() {
-        return abnormalFlags != null
-                && !abnormalFlags.isEmpty()
-                && abnormalFlags.stream().anyMatch(AbnormalFlagVO::isAbnormal);
+        return abnormalMask != 0;
+    }
+
+    /**
+     * 获取异常标志列表（不可变），正常时为[NORMAL]
+     *
+     * @return 异常标志列表
+     */
+    public List<AbnormalFlagVO> getAbnormalFlags() {
+        return AbnormalFlagVO.fromMask(abnormalMask);
+    }
+
+    /**
+     * 按异常标志列表设置掩码
+     *
+     * @param abnormalFlags 异常标志列表
+     */
+    public void setAbnormalFlags(List<AbnormalFlagVO> abnormalFlags) {
+        this.abnormalMask = AbnormalFlagVO.toMask(abnormalFlags);
     }
 
     /**
@@ -59,7 +73,7 @@ public class DeviceDataEntity {
      * @return 异常描述，例如："超压, 超温"
      */
     public String getAbnormalDesc() {
-        return AbnormalFlagVO.toDescString(abnormalFlags);
+        return AbnormalFlagVO.toDescString(abnormalMask);
     }
 
 }
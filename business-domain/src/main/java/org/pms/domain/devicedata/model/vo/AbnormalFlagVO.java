@@ -1,10 +1,10 @@
 package org.pms.domain.devicedata.model.vo;
 
-import lombok.AllArgsConstructor;
 import lombok.Getter;
 
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.stream.Collectors;
@@ -17,12 +17,14 @@ import java.util.stream.Collectors;
  * - 每个异常类型对应一个独立的十进制数
  * - 多个异常可以同时存在，使用List<AbnormalFlagVO>表示
  * - code值用于数据库存储和传输
+ * - 每个异常类型同时对应一个位掩码(1 << (code - 1)), 多个异常按位或组成int掩码,
+ *   作为内存和存储中的标准表示(与ClickHouse中abnormal_flag & 1的查询约定一致);
+ *   掩码到异常列表、code字符串、描述的转换均为预先计算的查表, 不产生对象分配
  *
  * @author refactor
  * @date 2025-12-17
  */
 @Getter
-@AllArgsConstructor
 public enum AbnormalFlagVO {
 
     NORMAL(0, "正常"),
@@ -35,6 +37,54 @@ public enum AbnormalFlagVO {
 
     private final Integer code;
     private final String desc;
+    /**
+     * 位掩码, NORMAL为0
+     */
+    private final int mask;
+
+    AbnormalFlagVO(Integer code, String desc) {
+        this.code = code;
+        this.desc = desc;
+        this.mask = code == 0 ? 0 : 1 << (code - 1);
+    }
+
+    /**
+     * 所有异常类型的掩码
+     */
+    public static final int ALL_MASK = (1 << 6) - 1;
+
+    private static final AbnormalFlagVO[] BY_CODE = new AbnormalFlagVO[7];
+    private static final List<AbnormalFlagVO>[] FLAGS_BY_MASK;
+    private static final List<Integer>[] CODES_BY_MASK;
+    private static final String[] CODE_STRING_BY_MASK = new String[ALL_MASK + 1];
+    private static final String[] DESC_BY_MASK = new String[ALL_MASK + 1];
+
+    static {
+        for (AbnormalFlagVO flag : values()) {
+            BY_CODE[flag.code] = flag;
+        }
+        @SuppressWarnings("unchecked")
+        List<AbnormalFlagVO>[] flagsByMask = new List[ALL_MASK + 1];
+        @SuppressWarnings("unchecked")
+        List<Integer>[] codesByMask = new List[ALL_MASK + 1];
+        for (int mask = 0; mask <= ALL_MASK; mask++) {
+            List<AbnormalFlagVO> flags = new ArrayList<>();
+            for (AbnormalFlagVO flag : values()) {
+                if ((mask & flag.mask) != 0) {
+                    flags.add(flag);
+                }
+            }
+            if (flags.isEmpty()) {
+                flags.add(NORMAL);
+            }
+            flagsByMask[mask] = List.copyOf(flags);
+            codesByMask[mask] = flags.stream().map(AbnormalFlagVO::getCode).toList();
+            CODE_STRING_BY_MASK[mask] = codesByMask[mask].stream().map(String::valueOf).collect(Collectors.joining(","));
+            DESC_BY_MASK[mask] = flags.stream().map(AbnormalFlagVO::getDesc).collect(Collectors.joining(", "));
+        }
+        FLAGS_BY_MASK = flagsByMask;
+        CODES_BY_MASK = codesByMask;
+    }
 
     /**
      * 根据枚举code获取枚举类对象
@@ -43,13 +93,10 @@ public enum AbnormalFlagVO {
      * @return 对应的枚举对象，如果不存在则返回NORMAL
      */
     public static AbnormalFlagVO getEnumByInteger(Integer value) {
-        if (value == null) {
+        if (value == null || value < 0 || value >= BY_CODE.length) {
             return NORMAL;
         }
-        return Arrays.stream(AbnormalFlagVO.values())
-                .filter(flag -> Objects.equals(value, flag.getCode()))
-                .findFirst()
-                .orElse(NORMAL);
+        return BY_CODE[value];
     }
 
     /**
@@ -111,4 +158,101 @@ public enum AbnormalFlagVO {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * 异常标志列表转换为掩码
+     * 例如：[OVER_PRESSURE, OVER_TEMPERATURE] -> 0b101
+     *
+     * @param abnormalFlags 异常标志列表
+     * @return 掩码
+     */
+    public static int toMask(Collection<AbnormalFlagVO> abnormalFlags) {
+        if (abnormalFlags == null) {
+            return 0;
+        }
+        int mask = 0;
+        for (AbnormalFlagVO flag : abnormalFlags) {
+            mask |= flag.mask;
+        }
+        return mask;
+    }
+
+    /**
+     * 掩码转换为异常标志列表(不可变, 预先计算), 掩码为0时返回[NORMAL]
+     */
+    public static List<AbnormalFlagVO> fromMask(int mask) {
+        return FLAGS_BY_MASK[mask & ALL_MASK];
+    }
+
+    /**
+     * 掩码转换为EnumSet, 掩码为0时返回空集合
+     */
+    public static EnumSet<AbnormalFlagVO> toEnumSet(int mask) {
+        EnumSet<AbnormalFlagVO> flags = EnumSet.noneOf(AbnormalFlagVO.class);
+        for (AbnormalFlagVO flag : values()) {
+            if ((mask & flag.mask) != 0) {
+                flags.add(flag);
+            }
+        }
+        return flags;
+    }
+
+    /**
+     * 掩码转换为code列表(不可变, 预先计算)
+     * 例如：0b101 -> [1, 3]
+     */
+    public static List<Integer> toCodes(int mask) {
+        return CODES_BY_MASK[mask & ALL_MASK];
+    }
+
+    /**
+     * 掩码转换为旧版逗号分隔的code字符串(预先计算)
+     * 例如：0b101 -> "1,3", 0 -> "0"
+     */
+    public static String toCodeString(int mask) {
+        return CODE_STRING_BY_MASK[mask & ALL_MASK];
+    }
+
+    /**
+     * 掩码转换为异常描述(预先计算)
+     * 例如：0b101 -> "超压, 超温"
+     */
+    public static String toDescString(int mask) {
+        return DESC_BY_MASK[mask & ALL_MASK];
+    }
+
+    /**
+     * 解析旧版逗号分隔的code字符串为掩码, 逐字符解析, 不拆分字符串
+     * 例如："1,3" -> 0b101; null、""、"0"以及无效的code均视为正常
+     *
+     * @param codeString 旧版code字符串
+     * @return 掩码
+     */
+    public static int parseCodeString(String codeString) {
+        if (codeString == null) {
+            return 0;
+        }
+        int mask = 0;
+        int code = 0;
+        for (int i = 0; i <= codeString.length(); i++) {
+            char c = i < codeString.length() ? codeString.charAt(i) : ',';
+            if (c >= '0' && c <= '9') {
+                // 超出范围后不再累加, 避免过长的数字溢出后落回有效code
+                code = Math.min(code * 10 + (c - '0'), BY_CODE.length);
+            } else if (c == ',') {
+                if (code > 0 && code < BY_CODE.length) {
+                    mask |= BY_CODE[code].mask;
+                }
+                code = 0;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * 判断掩码中是否包含该异常
+     */
+    public boolean in(int mask) {
+        return (mask & this.mask) != 0;
+    }
+
 }
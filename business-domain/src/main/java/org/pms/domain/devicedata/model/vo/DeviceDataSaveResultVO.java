@@ -0,0 +1,43 @@
+package org.pms.domain.devicedata.model.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * @author alcsyooterranf
+ * @program PressureMonitorSys-business
+ * @description 批量保存设备数据时单条记录的处理结果
+ * @create 2026/10/18
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeviceDataSaveResultVO {
+
+	/**
+	 * 设备SN
+	 */
+	private String deviceSN;
+
+	/**
+	 * 是否保存成功
+	 */
+	private boolean success;
+
+	/**
+	 * 失败原因, 成功时为空
+	 */
+	private String message;
+
+	public static DeviceDataSaveResultVO accepted(String deviceSN) {
+		return new DeviceDataSaveResultVO(deviceSN, true, null);
+	}
+
+	public static DeviceDataSaveResultVO rejected(String deviceSN, String message) {
+		return new DeviceDataSaveResultVO(deviceSN, false, message);
+	}
+
+}
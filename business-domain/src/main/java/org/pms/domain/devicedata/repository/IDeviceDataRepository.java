@@ -1,6 +1,9 @@
 package org.pms.domain.devicedata.repository;
 
 import org.pms.domain.devicedata.model.entity.DeviceDataEntity;
+import org.pms.domain.devicedata.model.vo.DeviceDataSaveResultVO;
+
+import java.util.List;
 
 public interface IDeviceDataRepository {
 	
@@ -27,4 +30,14 @@ public interface IDeviceDataRepository {
 	 */
 	void addDeviceData(DeviceDataEntity deviceDataEntity);
 	
+	/**
+	 * 批量插入监控器数据上报记录
+	 * <p>
+	 * 设备阈值一次IN查询获取, 数据以多行INSERT写入; 单条记录失败不影响同批其他记录
+	 *
+	 * @param deviceDataEntities 数据上报记录列表
+	 * @return 与入参顺序一一对应的处理结果
+	 */
+	List<DeviceDataSaveResultVO> batchAddDeviceData(List<DeviceDataEntity> deviceDataEntities);
+	
 }
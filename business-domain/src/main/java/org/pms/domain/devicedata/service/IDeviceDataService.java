@@ -2,6 +2,9 @@ package org.pms.domain.devicedata.service;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import org.pms.domain.devicedata.model.entity.DeviceDataEntity;
+import org.pms.domain.devicedata.model.vo.DeviceDataSaveResultVO;
+
+import java.util.List;
 
 public interface IDeviceDataService {
 	
@@ -28,4 +31,12 @@ public interface IDeviceDataService {
 	 */
 	void addDeviceData(DeviceDataEntity deviceDataEntity);
 	
+	/**
+	 * 批量插入监控器数据上报记录
+	 *
+	 * @param deviceDataEntities 数据上报记录列表
+	 * @return 与入参顺序一一对应的处理结果
+	 */
+	List<DeviceDataSaveResultVO> batchAddDeviceData(List<DeviceDataEntity> deviceDataEntities);
+	
 }
@@ -4,11 +4,14 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.pms.domain.devicedata.model.entity.DeviceDataEntity;
+import org.pms.domain.devicedata.model.vo.DeviceDataSaveResultVO;
 import org.pms.domain.devicedata.repository.IDeviceDataRepository;
 import org.pms.domain.devicedata.service.IDeviceDataService;
 import org.pms.domain.rbac.model.req.SecurityContextHeader;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+
 /**
  * 设备数据服务实现
  *
@@ -39,4 +42,9 @@ public class DeviceDataService implements IDeviceDataService {
 		deviceDataRepository.addDeviceData(deviceDataEntity);
 	}
 	
+	@Override
+	public List<DeviceDataSaveResultVO> batchAddDeviceData(List<DeviceDataEntity> deviceDataEntities) {
+		return deviceDataRepository.batchAddDeviceData(deviceDataEntities);
+	}
+	
 }
@@ -4,6 +4,8 @@ import org.pms.domain.terminal.model.command.CreateDeviceCommand;
 import org.pms.domain.terminal.model.command.UpdateDeviceCommand;
 import org.pms.domain.terminal.model.entity.DeviceEntity;
 
+import java.util.List;
+
 /**
  * 设备仓储接口
  * <p>
@@ -54,4 +56,20 @@ public interface IDeviceRepository {
 	 * @return 设备信息
 	 */
 	DeviceEntity queryParameterLimitsBySN(String deviceSN);
+	
+	/**
+	 * 查询管道下所有已绑定的设备
+	 *
+	 * @param pipelineId 管道ID
+	 * @return 设备列表
+	 */
+	List<DeviceEntity> queryBindedDevicesByPipelineId(Long pipelineId);
+	
+	/**
+	 * 按ID批量查询已绑定的设备
+	 *
+	 * @param ids 设备ID列表, 为空时返回空列表
+	 * @return 设备列表
+	 */
+	List<DeviceEntity> queryBindedDevicesByIdList(List<Long> ids);
 }
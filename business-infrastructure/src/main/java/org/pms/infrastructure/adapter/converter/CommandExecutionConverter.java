@@ -31,6 +31,11 @@ public abstract class CommandExecutionConverter {
 	 */
 	public abstract CommandExecutionPO entity2po(CommandExecutionEntity commandExecutionEntity);
 	
+	/**
+	 * Entity列表 -> PO列表
+	 */
+	public abstract List<CommandExecutionPO> entities2pos(List<CommandExecutionEntity> commandExecutionEntities);
+	
 	/**
 	 * CommandExecutionStatusVO -> Short
 	 */
@@ -43,14 +43,12 @@ public class FeignConfig {
 	
 	/**
 	 * Feign重试配置
-	 * period: 重试间隔
-	 * maxPeriod: 最大重试间隔
-	 * maxAttempts: 最大重试次数
+	 * 不在Feign层重试: 告警推送由AlertDispatchService在工作线程中按指数退避重试,
+	 * 在这里重试只会占住工作线程, 并与上层重试叠加
 	 */
 	@Bean
 	public Retryer retryer() {
-		// 重试间隔100ms，最大间隔1000ms，最多重试3次
-		return new Retryer.Default(100, 1000, 3);
+		return Retryer.NEVER_RETRY;
 	}
 	
 }
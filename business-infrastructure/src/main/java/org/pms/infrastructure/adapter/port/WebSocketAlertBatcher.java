@@ -0,0 +1,246 @@
+package org.pms.infrastructure.adapter.port;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.pms.infrastructure.mapper.IUserMapper;
+import org.pms.types.BizCode;
+import org.pms.types.BizException;
+import org.pms.types.Response;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * WebSocket告警批量推送器
+ * <p>
+ * 为什么要批量?
+ * - 每条告警一次broadcast调用, 整条管道同时超压时瞬间产生成千上万次HTTP调用
+ * - 短时间内的告警先攒起来, 按接收用户(customerAccount)分组, 每组只调用一次ws-service
+ * <p>
+ * 工作原理:
+ * 1. submit只把告警放入有界队列, 返回Future; 队列已满时Future直接异常完成, 由上层退避重试
+ * 2. 发送线程取到第一条告警后再等待linger时间(或攒满max-batch), 然后按customerAccount分组
+ * 3. 能查到用户ID的分组调用pushToUsers定向推送, 其余(未绑定用户或push-to-users关闭)合并为一次broadcast
+ * 4. 每组的调用结果回填到该组所有告警的Future
+ * <p>
+ * 批量消息格式: {"count": n, "alerts": [告警数据, ...]}, 单条告警数据的字段与原broadcast一致
+ *
+ * @author alcsyooterranf
+ * @program PressureMonitorSys-business
+ * @create 2026/10/18
+ */
+@Slf4j
+@Component
+public class WebSocketAlertBatcher {
+
+	private static final String BROADCAST_GROUP = "";
+
+	@Resource
+	private IAlterPushRpcClient alterPushRpcClient;
+	@Resource
+	private IUserMapper userMapper;
+
+	/**
+	 * 攒批等待时间(毫秒)
+	 */
+	@Value("${alert.websocket.linger-ms:100}")
+	private long lingerMillis;
+
+	/**
+	 * 单批最大告警数
+	 */
+	@Value("${alert.websocket.max-batch:1000}")
+	private int maxBatch;
+
+	@Value("${alert.websocket.queue-capacity:10000}")
+	private int queueCapacity;
+
+	/**
+	 * 是否按用户定向推送; 关闭时每批只做一次广播
+	 */
+	@Value("${alert.websocket.push-to-users:true}")
+	private boolean pushToUsers;
+
+	private BlockingQueue<PendingAlert> queue;
+
+	/**
+	 * 用户名 -> 用户ID, 用户不存在时缓存Optional.empty()
+	 */
+	private LoadingCache<String, Optional<Long>> userIdCache;
+
+	private Thread sender;
+
+	private volatile boolean running = true;
+
+	private record PendingAlert(String customerAccount, Map<String, Object> alertData, CompletableFuture<Void> future) {
+	}
+
+	@PostConstruct
+	public void init() {
+		queue = new ArrayBlockingQueue<>(queueCapacity);
+		userIdCache = CacheBuilder.newBuilder()
+				.maximumSize(10000)
+				.expireAfterWrite(10, TimeUnit.MINUTES)
+				.build(new CacheLoader<>() {
+					@Override
+					public Optional<Long> load(String username) {
+						return Optional.ofNullable(userMapper.selectUserIdByName(username));
+					}
+				});
+		sender = new Thread(this::runSender, "Alert-WebSocket-Batcher");
+		sender.setDaemon(true);
+		sender.start();
+		log.info("WebSocket告警批量推送器初始化完成: linger={}ms, maxBatch={}, pushToUsers={}",
+				lingerMillis, maxBatch, pushToUsers);
+	}
+
+	@PreDestroy
+	public void destroy() {
+		running = false;
+		sender.interrupt();
+		try {
+			sender.join(5000);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		PendingAlert pending;
+		while ((pending = queue.poll()) != null) {
+			pending.future().completeExceptionally(new BizException(BizCode.UN_ERROR, "WebSocket告警推送器已关闭"));
+		}
+	}
+
+	/**
+	 * 提交一条告警, 推送结果通过返回的Future通知
+	 *
+	 * @param customerAccount 接收用户
+	 * @param alertData       告警数据
+	 */
+	public CompletableFuture<Void> submit(String customerAccount, Map<String, Object> alertData) {
+		CompletableFuture<Void> future = new CompletableFuture<>();
+		String group = pushToUsers && customerAccount != null ? customerAccount : BROADCAST_GROUP;
+		if (!queue.offer(new PendingAlert(group, alertData, future))) {
+			future.completeExceptionally(new BizException(BizCode.UN_ERROR, "WebSocket告警队列已满"));
+		}
+		return future;
+	}
+
+	private void runSender() {
+		List<PendingAlert> batch = new ArrayList<>(maxBatch);
+		while (running) {
+			try {
+				PendingAlert first = queue.poll(1, TimeUnit.SECONDS);
+				if (first == null) {
+					continue;
+				}
+				batch.add(first);
+				long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+				while (batch.size() < maxBatch) {
+					long remaining = deadline - System.nanoTime();
+					if (remaining <= 0) {
+						break;
+					}
+					PendingAlert next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+					if (next == null) {
+						break;
+					}
+					batch.add(next);
+					queue.drainTo(batch, maxBatch - batch.size());
+				}
+				send(batch);
+			} catch (InterruptedException e) {
+				// 关闭中, 已取出但未发送的告警标记失败
+				for (PendingAlert pending : batch) {
+					pending.future().completeExceptionally(new BizException(BizCode.UN_ERROR, "WebSocket告警推送器已关闭"));
+				}
+				Thread.currentThread().interrupt();
+				break;
+			} catch (Exception e) {
+				// 已完成的Future不受影响, 只会把尚未回填结果的告警标记失败
+				log.error("WebSocket告警批量推送异常", e);
+				for (PendingAlert pending : batch) {
+					pending.future().completeExceptionally(e);
+				}
+			} finally {
+				batch.clear();
+			}
+		}
+	}
+
+	private void send(List<PendingAlert> batch) {
+		// 按接收用户分组, 保持组内告警的先后顺序
+		Map<String, List<PendingAlert>> groups = new LinkedHashMap<>();
+		for (PendingAlert pending : batch) {
+			groups.computeIfAbsent(pending.customerAccount(), k -> new ArrayList<>()).add(pending);
+		}
+
+		List<PendingAlert> broadcastGroup = groups.remove(BROADCAST_GROUP);
+		List<PendingAlert> unresolved = broadcastGroup == null ? new ArrayList<>() : broadcastGroup;
+		for (Map.Entry<String, List<PendingAlert>> entry : groups.entrySet()) {
+			Optional<Long> userId = userIdCache.getUnchecked(entry.getKey());
+			if (userId.isEmpty()) {
+				unresolved.addAll(entry.getValue());
+				continue;
+			}
+			sendGroup(entry.getValue(), entry.getKey(), userId.get());
+		}
+		if (!unresolved.isEmpty()) {
+			sendGroup(unresolved, null, null);
+		}
+	}
+
+	/**
+	 * 发送一组告警
+	 *
+	 * @param userId 为null时广播
+	 */
+	private void sendGroup(List<PendingAlert> group, String customerAccount, Long userId) {
+		List<Map<String, Object>> alerts = new ArrayList<>(group.size());
+		for (PendingAlert pending : group) {
+			alerts.add(pending.alertData());
+		}
+		Map<String, Object> payload = new HashMap<>(4);
+		payload.put("count", alerts.size());
+		payload.put("alerts", alerts);
+
+		try {
+			Response<Void> response = userId == null
+					? alterPushRpcClient.broadcast(payload)
+					: alterPushRpcClient.pushToUsers(new Long[]{userId}, payload);
+			if (response == null || !BizCode.SUCCESS.getCode().equals(response.getCode())) {
+				throw new BizException(BizCode.UN_ERROR,
+						"WebSocket告警推送失败: " + (response == null ? "无响应" : response.getMessage()));
+			}
+			log.info("WebSocket告警批量推送成功, target={}, count={}",
+					userId == null ? "broadcast" : customerAccount, alerts.size());
+			for (PendingAlert pending : group) {
+				pending.future().complete(null);
+			}
+		} catch (Exception e) {
+			log.warn("WebSocket告警批量推送失败, target={}, count={}, error={}",
+					userId == null ? "broadcast" : customerAccount, alerts.size(), e.getMessage());
+			for (PendingAlert pending : group) {
+				pending.future().completeExceptionally(e);
+			}
+		}
+	}
+
+	public int getPendingCount() {
+		return queue.size();
+	}
+
+}
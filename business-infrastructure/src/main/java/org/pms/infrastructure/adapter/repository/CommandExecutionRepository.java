@@ -2,13 +2,25 @@ package org.pms.infrastructure.adapter.repository;
 
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
 import org.pms.domain.command.model.entity.CommandExecutionEntity;
 import org.pms.domain.command.repository.ICommandExecutionRepository;
+import org.pms.domain.command.service.stateflow.CommandExecutionStateCache;
+import org.pms.domain.command.service.stateflow.CommandTransitionCtx;
 import org.pms.infrastructure.adapter.converter.CommandExecutionConverter;
 import org.pms.infrastructure.mapper.ICommandExecutionMapper;
 import org.pms.infrastructure.mapper.po.CommandExecutionPO;
 import org.springframework.stereotype.Repository;
 
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
 /**
  * @author alcsyooterranf
  * @program PressureMonitorSys-business
@@ -19,17 +31,31 @@ import org.springframework.stereotype.Repository;
 @Repository
 public class CommandExecutionRepository implements ICommandExecutionRepository {
 	
+	/**
+	 * 单条多行INSERT语句包含的最大行数, 避免语句超过max_allowed_packet
+	 */
+	private static final int BATCH_INSERT_CHUNK_SIZE = 500;
+	
 	@Resource
 	private ICommandExecutionMapper commandExecutionMapper;
 	
 	@Resource
 	private CommandExecutionConverter commandExecutionConverter;
 	
+	@Resource
+	private SqlSessionFactory sqlSessionFactory;
+	
+	@Resource
+	private CommandExecutionStateCache commandExecutionStateCache;
+	
 	@Override
 	public Long createCommandExecution(CommandExecutionEntity commandExecutionEntity) {
 		CommandExecutionPO commandExecutionPO = commandExecutionConverter.entity2po(commandExecutionEntity);
 		int rows = commandExecutionMapper.insert(commandExecutionPO);
 		if (rows > 0) {
+			// 写入在途状态缓存, 后续回调可以不查库判定迁移
+			commandExecutionStateCache.put(commandExecutionEntity.getAepTaskId(), commandExecutionEntity.getDeviceId(),
+					commandExecutionEntity.getStatus());
 			log.info("创建指令执行记录成功, executionId={}", commandExecutionPO.getId());
 			return commandExecutionPO.getId();
 		} else {
@@ -38,12 +64,39 @@ public class CommandExecutionRepository implements ICommandExecutionRepository {
 		}
 	}
 	
+	@Override
+	public int createCommandExecutions(List<CommandExecutionEntity> commandExecutionEntities) {
+		List<CommandExecutionPO> commandExecutionPOS = commandExecutionConverter.entities2pos(commandExecutionEntities);
+		int rows = 0;
+		for (int from = 0; from < commandExecutionPOS.size(); from += BATCH_INSERT_CHUNK_SIZE) {
+			List<CommandExecutionPO> chunk = commandExecutionPOS.subList(from,
+					Math.min(from + BATCH_INSERT_CHUNK_SIZE, commandExecutionPOS.size()));
+			rows += commandExecutionMapper.batchInsert(chunk);
+		}
+		for (CommandExecutionEntity commandExecutionEntity : commandExecutionEntities) {
+			commandExecutionStateCache.put(commandExecutionEntity.getAepTaskId(), commandExecutionEntity.getDeviceId(),
+					commandExecutionEntity.getStatus());
+		}
+		log.info("批量创建指令执行记录成功, rows={}", rows);
+		return rows;
+	}
+	
 	@Override
 	public CommandExecutionEntity selectByAepTaskIdAndDeviceId(Long aepTaskId, Long deviceId) {
 		CommandExecutionPO commandExecutionPO = commandExecutionMapper.selectByAepTaskIdAndDeviceId(aepTaskId, deviceId);
 		return commandExecutionConverter.po2entity(commandExecutionPO);
 	}
 	
+	@Override
+	public List<CommandExecutionEntity> selectByAepTaskIdAndDeviceIds(List<CommandExecutionEntity> keys) {
+		if (keys == null || keys.isEmpty()) {
+			return Collections.emptyList();
+		}
+		List<CommandExecutionPO> commandExecutionPOS = commandExecutionMapper.selectByAepTaskIdAndDeviceIdList(
+				commandExecutionConverter.entities2pos(keys));
+		return commandExecutionConverter.pos2entities(commandExecutionPOS);
+	}
+	
 	@Override
 	public boolean updateStatus(Short expectedCode, Short targetCode, CommandExecutionEntity commandExecutionEntity) {
 		CommandExecutionPO commandExecutionPO = commandExecutionConverter.entity2po(commandExecutionEntity);
@@ -74,5 +127,65 @@ public class CommandExecutionRepository implements ICommandExecutionRepository {
 		}
 	}
 	
+	@Override
+	public boolean[] batchApplyTransitions(List<CommandTransitionCtx> transitions) {
+		boolean[] applied = new boolean[transitions.size()];
+		if (transitions.isEmpty()) {
+			return applied;
+		}
+		// 同一语句连续执行时MyBatis合并为一个JDBC batch, 先执行所有CAS更新再执行所有Trace更新, 只产生两个batch
+		List<Integer> statusIndexes = new ArrayList<>();
+		List<Integer> traceIndexes = new ArrayList<>();
+		for (int i = 0; i < transitions.size(); i++) {
+			(transitions.get(i).getTargetStatus() != null ? statusIndexes : traceIndexes).add(i);
+		}
+		try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+			ICommandExecutionMapper batchMapper = sqlSession.getMapper(ICommandExecutionMapper.class);
+			for (int i : statusIndexes) {
+				CommandTransitionCtx transition = transitions.get(i);
+				batchMapper.updateStatus(transition.getExpectedStatus().getCode(),
+						transition.getTargetStatus().getCode(), transition2po(transition));
+			}
+			for (int i : traceIndexes) {
+				batchMapper.updateTrace(transition2po(transitions.get(i)));
+			}
+			List<BatchResult> results = sqlSession.flushStatements();
+			sqlSession.commit();
+			
+			// BatchResult按语句顺序返回, 每个的updateCounts与该语句的执行顺序一致
+			// 驱动返回SUCCESS_NO_INFO(如开启rewriteBatchedStatements)时无法确认CAS是否命中, 按未命中处理,
+			// 由调用方失效缓存并按数据库状态重新判定; 只会多一次查库, 不会让缓存超前于数据库
+			int batchIndex = 0;
+			int unknown = 0;
+			for (List<Integer> indexes : List.of(statusIndexes, traceIndexes)) {
+				if (indexes.isEmpty()) {
+					continue;
+				}
+				int[] updateCounts = results.get(batchIndex++).getUpdateCounts();
+				for (int j = 0; j < indexes.size(); j++) {
+					applied[indexes.get(j)] = updateCounts[j] > 0;
+					if (updateCounts[j] == Statement.SUCCESS_NO_INFO) {
+						unknown++;
+					}
+				}
+			}
+			if (unknown > 0) {
+				log.warn("批量更新未返回影响行数, 按CAS未命中处理, unknown={}; 请检查JDBC驱动是否开启了rewriteBatchedStatements", unknown);
+			}
+		}
+		log.info("批量更新指令状态完成, status={}, trace={}", statusIndexes.size(), traceIndexes.size());
+		return applied;
+	}
+	
+	private CommandExecutionPO transition2po(CommandTransitionCtx transition) {
+		return CommandExecutionPO.builder()
+				.aepTaskId(transition.getAepTaskId())
+				.deviceId(transition.getDeviceId())
+				.resultDetail(transition.getResultDetail())
+				.lastRawCallback(transition.getLastRawCallback())
+				.lastCallbackTime(transition.getCallbackTimestamp() == null ? null : new Date(transition.getCallbackTimestamp()))
+				.build();
+	}
+	
 }
 
@@ -0,0 +1,184 @@
+package org.pms.infrastructure.adapter.repository.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.pms.infrastructure.mapper.po.DeviceDataPO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+
+/**
+ * 异常数据列表查询缓存
+ * <p>
+ * 为什么需要缓存?
+ * - 每个打开的值班控制台都在轮询异常数据列表, 条件基本相同, 每次都查ClickHouse是重复劳动
+ * - 列表对几秒的延迟不敏感, 适合短TTL缓存
+ * <p>
+ * 缓存策略:
+ * 1. key为规范化后的查询条件: 数据来源、设备SN、处理状态、按bucket-seconds取整后的时间范围;
+ * 开始时间向下取整、结束时间向上取整, 实际查询也使用取整后的时间, 同一个key的结果对所有请求都成立;
+ * 返回前再按调用方的原始时间范围过滤, 取整只影响缓存命中, 不会多返回范围外的数据
+ * 查询带LIMIT且按时间倒序, 取整后的结果达到LIMIT时最早的数据被截断; 这时若过滤掉了范围外的数据,
+ * 过滤后的列表可能缺少原始范围内更早的数据, 改为按原始时间范围查询(单独的key, 同样合并并发查询),
+ * 保证结果与直接按原始范围查询一致
+ * 2. 同一个key并发查询时只有一个线程访问数据库, 其余线程等待并共享结果(请求合并)
+ * 3. 写入后ttl-seconds过期; 处理或删除异常数据时主动失效:
+ * 结果中包含该数据的条目, 以及带处理状态条件的条目(处理后数据可能进入或离开结果)
+ * 4. 缓存的列表和返回的列表都不可修改, 调用方不要修改其中的对象
+ *
+ * @author alcsyooterranf
+ * @program PressureMonitorSys-business
+ * @create 2026/10/18
+ */
+@Slf4j
+@Component
+public class AbnormalDataQueryCache {
+
+	@Value("${device-data.abnormal-cache.enabled:true}")
+	private boolean enabled;
+
+	/**
+	 * 写入后过期时间(秒)
+	 */
+	@Value("${device-data.abnormal-cache.ttl-seconds:10}")
+	private long ttlSeconds;
+
+	/**
+	 * 时间范围取整粒度(秒)
+	 */
+	@Value("${device-data.abnormal-cache.bucket-seconds:60}")
+	private long bucketSeconds;
+
+	@Value("${device-data.abnormal-cache.maximum-size:1000}")
+	private long maximumSize;
+
+	private Cache<QueryKey, List<DeviceDataPO>> cache;
+
+	/**
+	 * 规范化后的查询条件, 时间为毫秒数, 未指定时为null
+	 * exact为false时时间为取整后的值, 为true时为调用方的原始时间
+	 */
+	private record QueryKey(String source, String deviceSN, Boolean processState, Long startMillis, Long endMillis,
+							boolean exact) {
+	}
+
+	@PostConstruct
+	public void init() {
+		cache = CacheBuilder.newBuilder()
+				.maximumSize(maximumSize)
+				.expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+				.recordStats()
+				.build();
+		log.info("异常数据列表缓存初始化完成: enabled={}, ttl={}s, bucket={}s", enabled, ttlSeconds, bucketSeconds);
+	}
+
+	/**
+	 * 查询异常数据列表, 优先读取缓存
+	 *
+	 * @param source       数据来源, 区分不同的查询方法
+	 * @param deviceSN     设备SN(可选)
+	 * @param processState 处理状态(可选)
+	 * @param startTime    开始时间(可选)
+	 * @param endTime      结束时间(可选)
+	 * @param limit        查询SQL的LIMIT, 用于判断结果是否被截断
+	 * @param loader       实际查询, 参数为开始时间和结束时间, 按create_time倒序最多返回limit条
+	 * @return 不可修改的结果列表, 与按[startTime, endTime]直接查询的结果一致
+	 */
+	public List<DeviceDataPO> get(String source, String deviceSN, Boolean processState, Date startTime, Date endTime,
+								  int limit, BiFunction<Date, Date, List<DeviceDataPO>> loader) {
+		Long startMillis = startTime == null ? null : floor(startTime.getTime());
+		Long endMillis = endTime == null ? null : ceil(endTime.getTime());
+		Date start = startMillis == null ? null : new Date(startMillis);
+		Date end = endMillis == null ? null : new Date(endMillis);
+		String normalizedSN = deviceSN == null || deviceSN.isEmpty() ? null : deviceSN;
+
+		List<DeviceDataPO> result = load(new QueryKey(source, normalizedSN, processState, startMillis, endMillis, false),
+				() -> loader.apply(start, end));
+		List<DeviceDataPO> filtered = filterByTime(result, startTime, endTime);
+		if (result.size() < limit || filtered.size() == result.size()) {
+			return filtered;
+		}
+		// 取整后的结果被截断且过滤掉了范围外的数据, 按原始时间范围查询
+		return load(new QueryKey(source, normalizedSN, processState, startTime == null ? null : startTime.getTime(),
+						endTime == null ? null : endTime.getTime(), true),
+				() -> loader.apply(startTime, endTime));
+	}
+
+	/**
+	 * 异常数据被处理或删除后失效相关条目
+	 *
+	 * @param dataId 数据ID
+	 */
+	public void invalidateByDataId(Long dataId) {
+		cache.asMap().entrySet().removeIf(entry -> entry.getKey().processState() != null
+				|| entry.getValue().stream().anyMatch(po -> Objects.equals(po.getId(), dataId)));
+	}
+
+	public void invalidateAll() {
+		cache.invalidateAll();
+	}
+
+	public double getHitRate() {
+		return cache.stats().hitRate();
+	}
+
+	public long getSize() {
+		return cache.size();
+	}
+
+	/**
+	 * 读取缓存, 未命中时执行查询; 同一个key并发查询时只执行一次
+	 */
+	private List<DeviceDataPO> load(QueryKey key, Supplier<List<DeviceDataPO>> loader) {
+		if (!enabled) {
+			return loader.get();
+		}
+		try {
+			return cache.get(key, () -> Collections.unmodifiableList(loader.get()));
+		} catch (ExecutionException | UncheckedExecutionException | ExecutionError e) {
+			// 查询失败不缓存, 原样抛出查询异常
+			if (e.getCause() instanceof RuntimeException cause) {
+				throw cause;
+			}
+			throw new IllegalStateException("异常数据列表查询失败", e.getCause());
+		}
+	}
+
+	/**
+	 * 按调用方的原始时间范围过滤(两端都包含), 与查询SQL的条件一致; 没有被过滤掉的数据时直接返回原列表
+	 */
+	private List<DeviceDataPO> filterByTime(List<DeviceDataPO> list, Date startTime, Date endTime) {
+		if (startTime == null && endTime == null) {
+			return list;
+		}
+		List<DeviceDataPO> filtered = list.stream()
+				.filter(po -> po.getCreateTime() == null
+						|| (startTime == null || !po.getCreateTime().before(startTime))
+						&& (endTime == null || !po.getCreateTime().after(endTime)))
+				.toList();
+		return filtered.size() == list.size() ? list : filtered;
+	}
+
+	private long floor(long millis) {
+		long bucketMillis = TimeUnit.SECONDS.toMillis(bucketSeconds);
+		return Math.floorDiv(millis, bucketMillis) * bucketMillis;
+	}
+
+	private long ceil(long millis) {
+		long bucketMillis = TimeUnit.SECONDS.toMillis(bucketSeconds);
+		return -Math.floorDiv(-millis, bucketMillis) * bucketMillis;
+	}
+
+}
@@ -0,0 +1,201 @@
+package org.pms.infrastructure.adapter.repository.cache;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.pms.infrastructure.mapper.IDeviceMapper;
+import org.pms.infrastructure.mapper.po.DevicePO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 设备阈值缓存
+ * <p>
+ * 为什么需要缓存?
+ * - 每条上报数据都要按设备SN查询阈值来计算异常标志, 异常数据推送告警时还会再查一次
+ * - 设备阈值极少变更, 读多写少, 适合放在本地缓存中
+ * <p>
+ * 缓存策略:
+ * 1. 以设备SN为key, 只缓存阈值相关字段(id、管道、客户账号、上下限)
+ * 2. 写入后expire-after-write过期, 超过maximum-size按LRU淘汰
+ * 3. 设备不存在也会缓存(Optional.empty), 避免未知设备持续穿透到MySQL
+ * 4. 设备更新、删除、解绑、新增时主动失效; 多实例部署时其他实例依赖TTL兜底
+ *
+ * @author alcsyooterranf
+ * @program PressureMonitorSys-business
+ * @create 2026/10/18
+ */
+@Slf4j
+@Component
+public class DeviceThresholdCache {
+
+	@Resource
+	private IDeviceMapper deviceMapper;
+
+	/**
+	 * 最大缓存设备数
+	 */
+	@Value("${device.threshold-cache.maximum-size:100000}")
+	private long maximumSize;
+
+	/**
+	 * 写入后过期时间(秒)
+	 */
+	@Value("${device.threshold-cache.expire-after-write:600}")
+	private long expireAfterWrite;
+
+	private LoadingCache<String, Optional<DevicePO>> cache;
+
+	@PostConstruct
+	public void init() {
+		cache = CacheBuilder.newBuilder()
+				.maximumSize(maximumSize)
+				.expireAfterWrite(expireAfterWrite, TimeUnit.SECONDS)
+				.recordStats()
+				.build(new CacheLoader<>() {
+					@Override
+					public Optional<DevicePO> load(String deviceSN) {
+						return Optional.ofNullable(slim(deviceMapper.queryParameterLimitsBySN(deviceSN)));
+					}
+
+					@Override
+					public Map<String, Optional<DevicePO>> loadAll(Iterable<? extends String> deviceSNs) {
+						Map<String, Optional<DevicePO>> loaded = new HashMap<>();
+						for (DevicePO devicePO : deviceMapper.queryParameterLimitsBySNList(toList(deviceSNs))) {
+							loaded.put(String.valueOf(devicePO.getDeviceSN()), Optional.of(slim(devicePO)));
+						}
+						for (String deviceSN : deviceSNs) {
+							loaded.putIfAbsent(deviceSN, Optional.empty());
+						}
+						return loaded;
+					}
+				});
+		log.info("设备阈值缓存初始化完成: maximumSize={}, expireAfterWrite={}s", maximumSize, expireAfterWrite);
+	}
+
+	/**
+	 * 按设备SN获取阈值配置
+	 *
+	 * @param deviceSN 设备SN
+	 * @return 设备阈值配置, 设备不存在或未绑定时返回null
+	 */
+	public DevicePO get(String deviceSN) {
+		if (deviceSN == null) {
+			return null;
+		}
+		return cache.getUnchecked(deviceSN).orElse(null);
+	}
+
+	/**
+	 * 批量获取阈值配置, 未命中的设备SN通过一次IN查询加载
+	 *
+	 * @param deviceSNs 设备SN集合
+	 * @return 设备SN -> 阈值配置, 不存在的设备不在结果中
+	 */
+	public Map<String, DevicePO> getAll(Collection<String> deviceSNs) {
+		Map<String, DevicePO> result = new HashMap<>();
+		if (deviceSNs == null || deviceSNs.isEmpty()) {
+			return result;
+		}
+		LinkedHashSet<String> keys = new LinkedHashSet<>(deviceSNs);
+		keys.remove(null);
+		try {
+			cache.getAll(keys).forEach((deviceSN, devicePO) -> devicePO.ifPresent(po -> result.put(deviceSN, po)));
+		} catch (Exception e) {
+			throw new IllegalStateException("批量加载设备阈值失败", e);
+		}
+		return result;
+	}
+
+	/**
+	 * 按设备SN失效
+	 */
+	public void invalidate(Long deviceSN) {
+		if (deviceSN != null) {
+			cache.invalidate(String.valueOf(deviceSN));
+		}
+	}
+
+	/**
+	 * 按设备ID失效(更新、删除、解绑只携带设备ID)
+	 */
+	public void invalidateByDeviceId(Long deviceId) {
+		cache.asMap().values().removeIf(devicePO -> devicePO.isPresent()
+				&& Objects.equals(devicePO.get().getId(), deviceId));
+	}
+
+	/**
+	 * 按管道ID失效(删除管道时会解绑管道下所有设备)
+	 */
+	public void invalidateByPipelineId(Long pipelineId) {
+		cache.asMap().values().removeIf(devicePO -> devicePO.isPresent()
+				&& Objects.equals(devicePO.get().getPipelineId(), pipelineId));
+	}
+
+	public long getHitCount() {
+		return cache.stats().hitCount();
+	}
+
+	public long getMissCount() {
+		return cache.stats().missCount();
+	}
+
+	public long getEvictionCount() {
+		return cache.stats().evictionCount();
+	}
+
+	public double getHitRate() {
+		return cache.stats().hitRate();
+	}
+
+	public CacheStats getStats() {
+		return cache.stats();
+	}
+
+	public long getSize() {
+		return cache.size();
+	}
+
+	/**
+	 * 只保留计算异常标志和推送告警需要的字段, 降低缓存占用
+	 */
+	private static DevicePO slim(DevicePO devicePO) {
+		if (devicePO == null) {
+			return null;
+		}
+		return DevicePO.builder()
+				.id(devicePO.getId())
+				.pipelineId(devicePO.getPipelineId())
+				.pipelineSN(devicePO.getPipelineSN())
+				.deviceSN(devicePO.getDeviceSN())
+				.customerAccount(devicePO.getCustomerAccount())
+				.temperatureUpperBound(devicePO.getTemperatureUpperBound())
+				.temperatureLowerBound(devicePO.getTemperatureLowerBound())
+				.voltageUpperBound(devicePO.getVoltageUpperBound())
+				.voltageLowerBound(devicePO.getVoltageLowerBound())
+				.pressureUpperBound(devicePO.getPressureUpperBound())
+				.pressureLowerBound(devicePO.getPressureLowerBound())
+				.localAtmosphericPressure(devicePO.getLocalAtmosphericPressure())
+				.build();
+	}
+
+	private static ArrayList<String> toList(Iterable<? extends String> deviceSNs) {
+		ArrayList<String> list = new ArrayList<>();
+		deviceSNs.forEach(list::add);
+		return list;
+	}
+
+}
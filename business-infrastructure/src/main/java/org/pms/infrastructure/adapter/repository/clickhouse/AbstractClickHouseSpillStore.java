@@ -0,0 +1,324 @@
+package org.pms.infrastructure.adapter.repository.clickhouse;
+
+import com.alibaba.fastjson.JSON;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * ClickHouse写前溢写存储(本地WAL)的通用实现
+ * <p>
+ * 文件格式(每个段文件固定大小, 通过内存映射写入):
+ * <pre>
+ * [magic:int][version:int][replayOffset:long]  段头, replayOffset为已回放到的位置
+ * [length:int][crc32:int][payload:bytes] ...   记录, length为0表示段结束
+ * </pre>
+ * 工作原理:
+ * 1. append把记录写入当前活动段, 写满后封存并新建段
+ * 2. 回放线程按段序号依次回放已封存的段, 每批写入成功后推进段头的replayOffset
+ * 3. 段回放完成后删除; 进程重启后上次遗留的段全部视为已封存
+ * <p>
+ * 注意事项:
+ * - 内存映射写入进入页缓存即可在进程崩溃后保留, 封存段时调用force落盘
+ * - 回放为至少一次语义, 进程在批次写入成功但replayOffset未推进时崩溃会重复写入一批
+ * - 不同类型的记录使用不同的溢写目录, 子类负责配置并在启动时调用start
+ *
+ * @param <T> 记录类型, 以JSON格式写入
+ * @author alcsyooterranf
+ * @program PressureMonitorSys-business
+ * @create 2026/10/18
+ */
+@Slf4j
+public abstract class AbstractClickHouseSpillStore<T> {
+
+	private static final int MAGIC = 0x504D5353;
+	private static final int FORMAT_VERSION = 1;
+	private static final int HEADER_SIZE = 16;
+	private static final int REPLAY_OFFSET_POSITION = 8;
+	private static final int RECORD_HEADER_SIZE = 8;
+	private static final String SEGMENT_SUFFIX = ".spill";
+
+	private final Class<T> recordType;
+
+	/**
+	 * 存储名称, 用于日志
+	 */
+	private final String name;
+
+	/**
+	 * 回放线程名
+	 */
+	private final String replayerThreadName;
+
+	private int segmentSize;
+
+	private int replayBatchSize;
+
+	private Path directory;
+
+	private long nextSequence;
+
+	private Path activePath;
+
+	private FileChannel activeChannel;
+
+	private MappedByteBuffer activeBuffer;
+
+	private ScheduledExecutorService replayer;
+
+	protected AbstractClickHouseSpillStore(Class<T> recordType, String name, String replayerThreadName) {
+		this.recordType = recordType;
+		this.name = name;
+		this.replayerThreadName = replayerThreadName;
+	}
+
+	/**
+	 * 把一批记录写入ClickHouse, 失败时抛出异常, 回放暂停到下一次调度
+	 */
+	protected abstract void replayBatch(List<T> batch);
+
+	/**
+	 * 打开溢写目录并启动回放线程
+	 *
+	 * @param spillDir        溢写目录
+	 * @param segmentSize     单个段文件大小(字节)
+	 * @param replayInterval  回放间隔(毫秒)
+	 * @param replayBatchSize 回放时每批写入ClickHouse的条数
+	 */
+	protected void start(String spillDir, int segmentSize, long replayInterval, int replayBatchSize) throws IOException {
+		this.segmentSize = segmentSize;
+		this.replayBatchSize = replayBatchSize;
+		directory = Paths.get(spillDir).toAbsolutePath();
+		Files.createDirectories(directory);
+		List<Path> segments = listSegments();
+		nextSequence = segments.isEmpty() ? 0 : sequenceOf(segments.get(segments.size() - 1)) + 1;
+
+		replayer = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, replayerThreadName);
+			thread.setDaemon(true);
+			return thread;
+		});
+		replayer.scheduleWithFixedDelay(this::replay, replayInterval, replayInterval, TimeUnit.MILLISECONDS);
+
+		log.info("{}溢写存储启动成功: dir={}, segmentSize={}, 待回放段数={}", name, directory, segmentSize, segments.size());
+	}
+
+	@PreDestroy
+	public void destroy() {
+		if (replayer == null) {
+			return;
+		}
+		replayer.shutdown();
+		try {
+			if (!replayer.awaitTermination(10, TimeUnit.SECONDS)) {
+				replayer.shutdownNow();
+			}
+		} catch (InterruptedException e) {
+			replayer.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+		synchronized (this) {
+			sealActiveSegment();
+		}
+	}
+
+	/**
+	 * 追加单条记录
+	 *
+	 * @return true-已写入本地, false-本地磁盘不可用
+	 */
+	public boolean append(T record) {
+		return append(List.of(record));
+	}
+
+	/**
+	 * 追加一批记录
+	 *
+	 * @param batch 写入ClickHouse失败或无法进入缓冲队列的记录
+	 * @return true-已写入本地, false-本地磁盘不可用
+	 */
+	public synchronized boolean append(List<T> batch) {
+		try {
+			for (T record : batch) {
+				byte[] payload = JSON.toJSONBytes(record);
+				int recordSize = RECORD_HEADER_SIZE + payload.length;
+				// 预留4字节作为段结束标记
+				if (activeBuffer == null || activeBuffer.remaining() < recordSize + Integer.BYTES) {
+					sealActiveSegment();
+					openActiveSegment(recordSize + Integer.BYTES);
+				}
+				CRC32 crc32 = new CRC32();
+				crc32.update(payload);
+				activeBuffer.putInt(payload.length);
+				activeBuffer.putInt((int) crc32.getValue());
+				activeBuffer.put(payload);
+			}
+			log.warn("{}已溢写到本地: 数量={}, segment={}", name, batch.size(), activePath.getFileName());
+			return true;
+		} catch (IOException e) {
+			log.error("{}溢写失败, 数量={}", name, batch.size(), e);
+			return false;
+		}
+	}
+
+	/**
+	 * 回放溢写数据
+	 * 先回放已封存的段; 已封存的段全部回放成功后, 再封存活动段并回放
+	 * 任一批次写入失败即停止, 等待下一次调度
+	 */
+	void replay() {
+		try {
+			if (!replaySealedSegments()) {
+				return;
+			}
+			synchronized (this) {
+				if (activeBuffer == null || activeBuffer.position() == HEADER_SIZE) {
+					return;
+				}
+				sealActiveSegment();
+			}
+			replaySealedSegments();
+		} catch (Exception e) {
+			log.error("{}溢写数据回放异常", name, e);
+		}
+	}
+
+	private boolean replaySealedSegments() throws IOException {
+		for (Path segment : listSegments()) {
+			synchronized (this) {
+				if (segment.equals(activePath)) {
+					continue;
+				}
+			}
+			if (!replaySegment(segment)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * 回放单个段
+	 *
+	 * @return true-回放完成并已删除, false-写入ClickHouse失败
+	 */
+	private boolean replaySegment(Path segment) throws IOException {
+		try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+			if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+				log.error("无效的溢写段文件, 已跳过: {}", segment);
+				Files.move(segment, segment.resolveSibling(segment.getFileName() + ".corrupt"));
+				return true;
+			}
+			long replayOffset = buffer.getLong(REPLAY_OFFSET_POSITION);
+			buffer.position((int) Math.max(replayOffset, HEADER_SIZE));
+
+			int replayed = 0;
+			List<T> batch = new ArrayList<>(replayBatchSize);
+			while (true) {
+				T record = readRecord(buffer, segment);
+				if (record != null) {
+					batch.add(record);
+				}
+				if (batch.size() >= replayBatchSize || (record == null && !batch.isEmpty())) {
+					try {
+						replayBatch(batch);
+					} catch (Exception e) {
+						log.warn("ClickHouse仍不可用, 暂停回放{}: segment={}, error={}", name, segment.getFileName(), e.getMessage());
+						return false;
+					}
+					buffer.putLong(REPLAY_OFFSET_POSITION, buffer.position());
+					replayed += batch.size();
+					batch.clear();
+				}
+				if (record == null) {
+					break;
+				}
+			}
+			buffer.force();
+			log.info("{}溢写段回放完成: segment={}, 数量={}", name, segment.getFileName(), replayed);
+		}
+		Files.deleteIfExists(segment);
+		return true;
+	}
+
+	/**
+	 * 读取下一条记录, 到达段结束或遇到损坏的尾部记录时返回null
+	 */
+	private T readRecord(MappedByteBuffer buffer, Path segment) {
+		if (buffer.remaining() < RECORD_HEADER_SIZE) {
+			return null;
+		}
+		int start = buffer.position();
+		int length = buffer.getInt();
+		if (length <= 0 || length > buffer.remaining() - Integer.BYTES) {
+			buffer.position(start);
+			return null;
+		}
+		int crc = buffer.getInt();
+		byte[] payload = new byte[length];
+		buffer.get(payload);
+		CRC32 crc32 = new CRC32();
+		crc32.update(payload);
+		if ((int) crc32.getValue() != crc) {
+			// 进程在写入记录过程中崩溃会留下不完整的尾部记录
+			log.error("溢写记录校验失败, 丢弃该段剩余数据: segment={}, position={}", segment.getFileName(), start);
+			buffer.position(start);
+			return null;
+		}
+		return JSON.parseObject(payload, recordType);
+	}
+
+	private void openActiveSegment(int minSize) throws IOException {
+		activePath = directory.resolve(String.format("segment-%020d%s", nextSequence++, SEGMENT_SUFFIX));
+		activeChannel = FileChannel.open(activePath, StandardOpenOption.CREATE_NEW,
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+		activeBuffer = activeChannel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(segmentSize, HEADER_SIZE + minSize));
+		activeBuffer.putInt(MAGIC);
+		activeBuffer.putInt(FORMAT_VERSION);
+		activeBuffer.putLong(HEADER_SIZE);
+	}
+
+	private void sealActiveSegment() {
+		if (activeBuffer == null) {
+			return;
+		}
+		try {
+			activeBuffer.force();
+			activeChannel.close();
+		} catch (IOException e) {
+			log.error("封存溢写段失败: {}", activePath, e);
+		}
+		activeBuffer = null;
+		activeChannel = null;
+		activePath = null;
+	}
+
+	private List<Path> listSegments() throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+					.sorted()
+					.toList();
+		}
+	}
+
+	private static long sequenceOf(Path segment) {
+		String name = segment.getFileName().toString();
+		return Long.parseLong(name.substring("segment-".length(), name.length() - SEGMENT_SUFFIX.length()));
+	}
+
+}
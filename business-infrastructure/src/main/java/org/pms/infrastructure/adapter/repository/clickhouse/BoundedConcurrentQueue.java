@@ -0,0 +1,118 @@
+package org.pms.infrastructure.adapter.repository.clickhouse;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 有界无锁多生产者队列
+ * <p>
+ * 为什么不用LinkedBlockingQueue?
+ * - LinkedBlockingQueue的put/offer需要获取putLock, 上报线程多时在锁上排队
+ * - ConcurrentLinkedQueue基于CAS, 入队不加锁; 这里再用一个原子计数器实现容量上限
+ * <p>
+ * 容量计数与实际元素数之间存在短暂的不一致(先计数后入队), 只用于限流, 不影响正确性
+ * <p>
+ * 单消费者等待: 消费者队列为空时挂起, 入队时只有在消费者已挂起的情况下才唤醒(一次volatile读),
+ * 空闲的消费者不占CPU, 入队也不必每次都调用unpark
+ *
+ * @author alcsyooterranf
+ * @program PressureMonitorSys-business
+ * @create 2026/10/18
+ */
+class BoundedConcurrentQueue<E> {
+
+	private final ConcurrentLinkedQueue<E> queue = new ConcurrentLinkedQueue<>();
+
+	private final AtomicInteger size = new AtomicInteger();
+
+	private final int capacity;
+
+	/**
+	 * 正在等待的消费者线程, 未等待时为null
+	 */
+	private volatile Thread waiter;
+
+	BoundedConcurrentQueue(int capacity) {
+		this.capacity = capacity;
+	}
+
+	/**
+	 * 入队, 队列已满时立即返回false
+	 */
+	boolean offer(E e) {
+		if (size.incrementAndGet() > capacity) {
+			size.decrementAndGet();
+			return false;
+		}
+		queue.offer(e);
+		Thread w = waiter;
+		if (w != null) {
+			LockSupport.unpark(w);
+		}
+		return true;
+	}
+
+	/**
+	 * 出队, 队列为空时返回null
+	 */
+	E poll() {
+		E e = queue.poll();
+		if (e != null) {
+			size.decrementAndGet();
+		}
+		return e;
+	}
+
+	/**
+	 * 出队, 队列为空时最多等待timeoutNanos, 超时、被唤醒或中断时仍为空则返回null
+	 * 只允许一个消费者线程调用
+	 */
+	E poll(long timeoutNanos) {
+		E e = poll();
+		if (e != null || timeoutNanos <= 0) {
+			return e;
+		}
+		// 先登记再检查队列: 与offer的先入队再读waiter配合, 两边至少有一方能看到对方, 不会丢失唤醒
+		waiter = Thread.currentThread();
+		try {
+			e = poll();
+			if (e == null) {
+				LockSupport.parkNanos(this, timeoutNanos);
+				e = poll();
+			}
+		} finally {
+			waiter = null;
+		}
+		return e;
+	}
+
+	/**
+	 * 批量出队
+	 *
+	 * @return 实际出队数量
+	 */
+	int drainTo(List<E> target, int maxElements) {
+		int count = 0;
+		E e;
+		while (count < maxElements && (e = poll()) != null) {
+			target.add(e);
+			count++;
+		}
+		return count;
+	}
+
+	int size() {
+		return size.get();
+	}
+
+	boolean isEmpty() {
+		return queue.isEmpty();
+	}
+
+	int capacity() {
+		return capacity;
+	}
+
+}
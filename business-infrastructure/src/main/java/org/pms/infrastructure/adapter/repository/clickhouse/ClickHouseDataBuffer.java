@@ -5,30 +5,41 @@ import jakarta.annotation.PreDestroy;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.pms.infrastructure.mapper.po.DeviceDataPO;
+import org.pms.types.TooManyRequestsException;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * ClickHouse数据批量写入缓冲器
- * 
+ *
  * 为什么需要缓冲器?
  * - ClickHouse批量写入性能极高,但单条写入性能一般
  * - 通过缓冲器收集数据,达到一定数量或时间后批量写入
  * - 可以将写入性能提升100倍以上
- * 
+ *
  * 工作原理:
- * 1. 数据先放入内存缓冲队列
- * 2. 当缓冲区达到batch-size或超过flush-interval时间,触发批量写入
- * 3. 使用定时任务定期刷新缓冲区
- * 
+ * 1. 数据按device_sn哈希分片放入内存缓冲队列(无锁队列,add只做一次CAS入队)
+ * 2. 每个分片对应一个专用写入线程,各自攒批,满足以下任一条件即批量写入:
+ *    - 行数达到batch-size
+ *    - 估算字节数达到batch-bytes
+ *    - 批次中最早的数据等待超过flush-interval(最大滞留时间)
+ * 3. 队列满时按overflow-policy处理: 阻塞等待、丢弃最旧、溢写到本地或拒绝请求
+ *
+ * 为什么按device_sn分片?
+ * - 同一设备的数据总是落到同一个批次,写入ClickHouse的part按设备聚集,排序键更有序,合并压力更小
+ * - 吞吐不再受单线程batch-size/flush-interval的限制,可以随writer-threads线性扩展
+ *
  * 注意事项:
  * - 数据在缓冲区期间可能丢失(如果服务器宕机)
- * - 如果对数据一致性要求极高,可以考虑先写MySQL再异步写ClickHouse
- * 
+ * - 缓冲区已满或批量写入失败时,数据溢写到本地(ClickHouseSpillStore),ClickHouse恢复后回放
+ * - add()不会在调用线程上写ClickHouse,上报线程不会因为ClickHouse慢而排队
+ *
  * @author zeal
  * @since 2024-11-24
  */
@@ -36,9 +47,17 @@ import java.util.concurrent.*;
 @Component
 public class ClickHouseDataBuffer {
 
+    /**
+     * BLOCK策略下每次等待空位的休眠时间
+     */
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
     @Resource
     private ClickHouseDataReportRepository clickHouseRepository;
 
+    @Resource
+    private ClickHouseSpillStore spillStore;
+
     /**
      * 批量写入大小(从配置文件读取)
      * 达到这个数量就触发写入
@@ -48,184 +67,257 @@ public class ClickHouseDataBuffer {
     private int batchSize;
 
     /**
-     * 刷新间隔(毫秒)
-     * 即使没达到batch-size,也会定时刷新
+     * 单批次估算字节数上限
+     * 避免宽行数据攒出过大的INSERT请求
+     */
+    @Value("${clickhouse.batch-bytes:4194304}")
+    private long batchBytes;
+
+    /**
+     * 写入线程数(分片数)
+     */
+    @Value("${clickhouse.writer-threads:4}")
+    private int writerThreads;
+
+    /**
+     * 刷新间隔(毫秒),即批次的最大滞留时间
+     * 即使没达到batch-size和batch-bytes,批次中最早的数据等待超过这个时间也会写入
      * 建议值: 3000-10000
      */
     @Value("${clickhouse.flush-interval:5000}")
     private long flushInterval;
 
     /**
-     * 缓冲区容量
-     * 超过这个容量会阻塞,防止内存溢出
+     * 缓冲区总容量,平均分配给各个分片
+     * 超过分片容量按overflow-policy处理,防止内存溢出
      */
     @Value("${clickhouse.buffer-capacity:10000}")
     private int bufferCapacity;
 
     /**
-     * 阻塞队列,用于存储待写入的数据
-     * 
-     * BlockingQueue特点:
-     * - 线程安全,多线程环境下可以安全使用
-     * - 当队列满时,put()会阻塞,直到有空间
-     * - 当队列空时,take()会阻塞,直到有数据
+     * 缓冲区满时的处理策略
+     */
+    @Value("${clickhouse.overflow-policy:SPILL}")
+    private OverflowPolicy overflowPolicy;
+
+    /**
+     * BLOCK策略下最长等待时间(毫秒),超时后溢写到本地
+     */
+    @Value("${clickhouse.block-timeout:1000}")
+    private long blockTimeout;
+
+    /**
+     * 分片队列,每个分片是一个无锁有界队列,由一个写入线程独占消费
      */
-    private BlockingQueue<DeviceDataPO> buffer;
+    private BoundedConcurrentQueue<DeviceDataPO>[] shards;
 
     /**
-     * 定时任务调度器
-     * 用于定期刷新缓冲区
+     * 专用写入线程,与分片一一对应
      */
-    private ScheduledExecutorService scheduler;
+    private Thread[] writers;
+
+    private volatile boolean running;
 
     /**
-     * 刷新任务的Future对象
-     * 用于取消定时任务
+     * 监控计数: 入队、溢写、丢弃、拒绝
      */
-    private ScheduledFuture<?> flushTask;
+    private final LongAdder acceptedCount = new LongAdder();
+    private final LongAdder spilledCount = new LongAdder();
+    private final LongAdder droppedCount = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
 
     /**
      * 初始化方法
      * @PostConstruct注解表示在Bean创建后自动执行
      */
     @PostConstruct
+    @SuppressWarnings("unchecked")
     public void init() {
-        // 创建阻塞队列
-        buffer = new LinkedBlockingQueue<>(bufferCapacity);
-
-        // 创建单线程的定时任务调度器
-        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
-            Thread thread = new Thread(r, "ClickHouse-Flush-Thread");
-            thread.setDaemon(true);  // 设置为守护线程,JVM退出时自动结束
-            return thread;
-        });
-
-        // 启动定时刷新任务
-        // scheduleAtFixedRate: 固定频率执行
-        // initialDelay: 初始延迟(第一次执行前等待的时间)
-        // period: 执行间隔
-        flushTask = scheduler.scheduleAtFixedRate(
-                this::flush,           // 要执行的任务
-                flushInterval,         // 初始延迟
-                flushInterval,         // 执行间隔
-                TimeUnit.MILLISECONDS  // 时间单位
-        );
+        int shardCapacity = Math.max(1, (bufferCapacity + writerThreads - 1) / writerThreads);
+        shards = new BoundedConcurrentQueue[writerThreads];
+        writers = new Thread[writerThreads];
+
+        running = true;
+        for (int i = 0; i < writerThreads; i++) {
+            BoundedConcurrentQueue<DeviceDataPO> shard = new BoundedConcurrentQueue<>(shardCapacity);
+            shards[i] = shard;
+            writers[i] = new Thread(() -> runWriter(shard), "ClickHouse-Writer-" + i);
+            writers[i].setDaemon(true);
+            writers[i].start();
+        }
 
-        log.info("ClickHouse数据缓冲器启动成功: batchSize={}, flushInterval={}ms, bufferCapacity={}",
-                batchSize, flushInterval, bufferCapacity);
+        log.info("ClickHouse数据缓冲器启动成功: writerThreads={}, batchSize={}, batchBytes={}, flushInterval={}ms, "
+                        + "bufferCapacity={}, overflowPolicy={}",
+                writerThreads, batchSize, batchBytes, flushInterval, bufferCapacity, overflowPolicy);
     }
 
     /**
      * 销毁方法
-     * @PreDestroy注解表示在Bean销毁前自动执行
+     * 停止写入线程,写入线程退出前会把队列中剩余数据写完(失败则溢写到本地)
      */
     @PreDestroy
     public void destroy() {
         log.info("ClickHouse数据缓冲器正在关闭...");
-
-        // 取消定时任务
-        if (flushTask != null) {
-            flushTask.cancel(false);
+        running = false;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        for (Thread writer : writers) {
+            LockSupport.unpark(writer);
         }
-
-        // 关闭调度器
-        if (scheduler != null) {
-            scheduler.shutdown();
-            try {
-                // 等待最多10秒让任务完成
-                if (!scheduler.awaitTermination(10, TimeUnit.SECONDS)) {
-                    scheduler.shutdownNow();
-                }
-            } catch (InterruptedException e) {
-                scheduler.shutdownNow();
-                Thread.currentThread().interrupt();
+        try {
+            for (Thread writer : writers) {
+                writer.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
 
-        // 刷新剩余数据
-        flush();
-
+        // 写入线程未能按时退出时,剩余数据直接溢写,避免丢失
+        List<DeviceDataPO> remaining = new ArrayList<>();
+        for (BoundedConcurrentQueue<DeviceDataPO> shard : shards) {
+            shard.drainTo(remaining, Integer.MAX_VALUE);
+        }
+        if (!remaining.isEmpty()) {
+            spillStore.append(remaining);
+        }
         log.info("ClickHouse数据缓冲器已关闭");
     }
 
+    /**
+     * 准入检查
+     * REJECT策略下,在数据写入MySQL之前调用,缓冲区余量不足时直接拒绝整批请求,
+     * 避免MySQL已落库而ClickHouse无处可写
+     *
+     * @param rows 即将写入的行数
+     */
+    public void checkAdmission(int rows) {
+        if (overflowPolicy != OverflowPolicy.REJECT) {
+            return;
+        }
+        if (getBufferSize() + rows > bufferCapacity) {
+            rejectedCount.add(rows);
+            throw new TooManyRequestsException("ClickHouse写入缓冲区已满,请稍后重试");
+        }
+    }
+
     /**
      * 添加数据到缓冲区
-     * 
+     *
      * 这个方法会被多个线程并发调用(每次设备上报数据都会调用)
-     * 所以必须是线程安全的
-     * 
+     * 正常情况下只是一次无锁入队,不会在调用线程上等待ClickHouse
+     *
      * @param data 监控数据
      */
     public void add(DeviceDataPO data) {
         if (data == null) {
             return;
         }
+        BoundedConcurrentQueue<DeviceDataPO> shard = shardOf(data);
+        if (shard.offer(data)) {
+            acceptedCount.increment();
+            return;
+        }
 
-        try {
-            // offer方法尝试添加数据,如果队列满了会立即返回false
-            // 这里使用带超时的offer,等待最多1秒
-            boolean success = buffer.offer(data, 1, TimeUnit.SECONDS);
-
-            if (!success) {
-                // 如果添加失败(队列满了),记录警告日志
-                log.warn("ClickHouse缓冲区已满,数据添加失败: deviceSN={}", data.getDeviceSN());
-                // 可以考虑直接写入,或者丢弃数据
-                // 这里选择强制刷新缓冲区,然后重试
-                flush();
-                buffer.offer(data, 1, TimeUnit.SECONDS);
+        // 队列满了说明ClickHouse写入跟不上,按策略处理
+        switch (overflowPolicy) {
+            case BLOCK -> {
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(blockTimeout);
+                while (System.nanoTime() < deadline) {
+                    LockSupport.parkNanos(BLOCK_PARK_NANOS);
+                    if (shard.offer(data)) {
+                        acceptedCount.increment();
+                        return;
+                    }
+                }
+                spill(data);
             }
-
-            // 如果缓冲区达到批量大小,立即刷新
-            if (buffer.size() >= batchSize) {
-                flush();
+            case DROP_OLDEST -> {
+                if (shard.poll() != null) {
+                    droppedCount.increment();
+                }
+                if (shard.offer(data)) {
+                    acceptedCount.increment();
+                } else {
+                    spill(data);
+                }
             }
-        } catch (InterruptedException e) {
-            log.error("添加数据到ClickHouse缓冲区被中断", e);
-            Thread.currentThread().interrupt();
+            // REJECT已在准入检查时拒绝,并发竞争导致的少量溢出同样溢写到本地
+            default -> spill(data);
         }
     }
 
     /**
-     * 刷新缓冲区,批量写入ClickHouse
-     * 
-     * 这个方法会被定时任务调用,也会在缓冲区满时手动调用
-     * 使用synchronized确保同一时间只有一个线程在刷新
+     * 写入线程主循环
+     * 攒批: 行数达到batch-size或估算字节数达到batch-bytes立即写入;
+     * 否则批次中最早的数据等待超过flush-interval时写入
+     * 队列为空时挂起等待,最长等到批次的滞留截止时间(空批次时为一个flush-interval),有数据入队或关闭时被唤醒
      */
-    public synchronized void flush() {
-        // 如果缓冲区为空,直接返回
-        if (buffer.isEmpty()) {
-            return;
+    private void runWriter(BoundedConcurrentQueue<DeviceDataPO> shard) {
+        List<DeviceDataPO> batch = new ArrayList<>(batchSize);
+        long bytes = 0;
+        long deadline = 0;
+        while (running || !shard.isEmpty()) {
+            long timeout = batch.isEmpty() ? TimeUnit.MILLISECONDS.toNanos(flushInterval) : deadline - System.nanoTime();
+            DeviceDataPO data = running ? shard.poll(timeout) : shard.poll();
+            if (data != null) {
+                if (batch.isEmpty()) {
+                    deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushInterval);
+                }
+                batch.add(data);
+                bytes += estimateSize(data);
+                if (batch.size() >= batchSize || bytes >= batchBytes) {
+                    write(batch);
+                    bytes = 0;
+                }
+                continue;
+            }
+            if (!batch.isEmpty() && System.nanoTime() >= deadline) {
+                write(batch);
+                bytes = 0;
+            }
         }
-
-        // 创建临时列表存储要写入的数据
-        List<DeviceDataPO> batch = new ArrayList<>();
-
-        // drainTo方法会将队列中的数据转移到batch列表
-        // 最多转移batchSize条数据
-        // 这个操作是原子的,线程安全
-        int count = buffer.drainTo(batch, batchSize);
-
-        if (count == 0) {
-            return;
+        if (!batch.isEmpty()) {
+            write(batch);
         }
+    }
 
+    /**
+     * 批量写入ClickHouse,写入失败的数据溢写到本地,ClickHouse恢复后由回放线程补写
+     */
+    private void write(List<DeviceDataPO> batch) {
         try {
-            // 批量写入ClickHouse
             clickHouseRepository.batchInsertMonitorData(batch);
-            log.debug("ClickHouse缓冲区刷新成功,写入数量: {}", count);
+            log.debug("ClickHouse缓冲区刷新成功,写入数量: {}", batch.size());
         } catch (Exception e) {
-            log.error("ClickHouse缓冲区刷新失败,数据量: {}", count, e);
+            log.error("ClickHouse缓冲区刷新失败,数据溢写到本地,数据量: {}", batch.size(), e);
+            spillStore.append(new ArrayList<>(batch));
+            spilledCount.add(batch.size());
+        } finally {
+            batch.clear();
+        }
+    }
 
-            // 写入失败的处理策略:
-            // 1. 重新放回队列(可能导致数据重复)
-            // 2. 写入失败日志文件(可以后续手动恢复)
-            // 3. 直接丢弃(如果对数据完整性要求不高)
-            // 这里选择策略2: 记录错误日志
-            log.error("失败的数据: {}", batch);
+    private BoundedConcurrentQueue<DeviceDataPO> shardOf(DeviceDataPO data) {
+        String deviceSN = data.getDeviceSN();
+        return shards[deviceSN == null ? 0 : Math.floorMod(deviceSN.hashCode(), shards.length)];
+    }
 
-            // 也可以选择重新放回队列
-            // buffer.addAll(batch);
-        }
+    /**
+     * 估算单行写入ClickHouse时的字节数: 定长列按固定开销计算,字符串列按长度累加
+     */
+    private static long estimateSize(DeviceDataPO data) {
+        return 64L + length(data.getTenantId()) + length(data.getProtocol()) + length(data.getPipelineSN())
+                + length(data.getAbnormalFlag()) + length(data.getDeviceType()) + length(data.getDeviceSN())
+                + length(data.getAssocAssetId()) + length(data.getIMSI()) + length(data.getIMEI());
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+
+    private void spill(DeviceDataPO data) {
+        log.warn("ClickHouse缓冲区已满,数据溢写到本地: deviceSN={}", data.getDeviceSN());
+        spillStore.append(data);
+        spilledCount.increment();
     }
 
     /**
@@ -233,7 +325,11 @@ public class ClickHouseDataBuffer {
      * 用于监控
      */
     public int getBufferSize() {
-        return buffer.size();
+        int size = 0;
+        for (BoundedConcurrentQueue<DeviceDataPO> shard : shards) {
+            size += shard.size();
+        }
+        return size;
     }
 
     /**
@@ -247,7 +343,22 @@ public class ClickHouseDataBuffer {
      * 获取缓冲区使用率
      */
     public double getBufferUsageRate() {
-        return (double) buffer.size() / bufferCapacity;
+        return (double) getBufferSize() / bufferCapacity;
+    }
+
+    public long getAcceptedCount() {
+        return acceptedCount.sum();
+    }
+
+    public long getSpilledCount() {
+        return spilledCount.sum();
     }
-}
 
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+}
@@ -1,22 +1,28 @@
 package org.pms.infrastructure.adapter.repository.clickhouse;
 
 import lombok.extern.slf4j.Slf4j;
+import org.pms.api.dto.req.DeviceDataQueryCondition;
+import org.pms.infrastructure.adapter.repository.cache.AbnormalDataQueryCache;
+import org.pms.infrastructure.mapper.po.DeviceDataChartPO;
 import org.pms.infrastructure.mapper.po.DeviceDataPO;
+import org.pms.infrastructure.mapper.po.DeviceDataStatisticsPO;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.jdbc.core.BatchPreparedStatementSetter;
-import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Repository;
 
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.StringJoiner;
+import java.util.function.Consumer;
 
 /**
  * ClickHouse监控数据Repository
@@ -35,6 +41,51 @@ import java.util.Map;
 @Repository
 public class ClickHouseDataReportRepository {
 	
+	/**
+	 * 异常数据列表最多返回的条数
+	 */
+	private static final int ABNORMAL_LIST_LIMIT = 10000;
+	
+	/**
+	 * 统计查询: 原始数据段
+	 */
+	private static final String STATISTICS_RAW_SEGMENT = """
+			SELECT device_sn, count() as seg_cnt, countIf(abnormal_flag > 0) as seg_abnormal_cnt,
+			    sum(toInt64(temperature)) as seg_sum_temperature, min(temperature) as seg_min_temperature, max(temperature) as seg_max_temperature,
+			    sum(toInt64(voltage)) as seg_sum_voltage, min(voltage) as seg_min_voltage, max(voltage) as seg_max_voltage,
+			    sum(toInt64(pressure)) as seg_sum_pressure, min(pressure) as seg_min_pressure, max(pressure) as seg_max_pressure
+			FROM pressuremonitorsys.t_monitor_data_report
+			WHERE %s AND create_time >= ? AND create_time < ?
+			GROUP BY device_sn""";
+	
+	/**
+	 * 统计查询: 汇总表段
+	 */
+	private static final String STATISTICS_ROLLUP_SEGMENT = """
+			SELECT device_sn, sum(cnt) as seg_cnt, sum(abnormal_cnt) as seg_abnormal_cnt,
+			    sum(sum_temperature) as seg_sum_temperature, min(min_temperature) as seg_min_temperature, max(max_temperature) as seg_max_temperature,
+			    sum(sum_voltage) as seg_sum_voltage, min(min_voltage) as seg_min_voltage, max(max_voltage) as seg_max_voltage,
+			    sum(sum_pressure) as seg_sum_pressure, min(min_pressure) as seg_min_pressure, max(max_pressure) as seg_max_pressure
+			FROM %s
+			WHERE %s AND bucket >= ? AND bucket < ?
+			GROUP BY device_sn""";
+	
+	/**
+	 * 统计查询: 合并各段的统计列, 平均值由总和除以总数得到
+	 */
+	private static final String STATISTICS_COLUMNS = """
+			sum(seg_cnt) as total_count,
+			    sum(seg_sum_temperature) / sum(seg_cnt) as avg_temperature,
+			    max(seg_max_temperature) as max_temperature,
+			    min(seg_min_temperature) as min_temperature,
+			    sum(seg_sum_voltage) / sum(seg_cnt) as avg_voltage,
+			    max(seg_max_voltage) as max_voltage,
+			    min(seg_min_voltage) as min_voltage,
+			    sum(seg_sum_pressure) / sum(seg_cnt) as avg_pressure,
+			    max(seg_max_pressure) as max_pressure,
+			    min(seg_min_pressure) as min_pressure,
+			    sum(seg_abnormal_cnt) as abnormal_count""";
+	
 	/**
 	 * ClickHouse专用的JdbcTemplate
 	 *
@@ -44,6 +95,30 @@ public class ClickHouseDataReportRepository {
 	@Qualifier("clickHouseJdbcTemplate")
 	private JdbcTemplate clickHouseJdbcTemplate;
 	
+	/**
+	 * RowBinary写入器, 批量写入走HTTP原生格式
+	 */
+	@Autowired
+	private ClickHouseRowBinaryWriter rowBinaryWriter;
+	
+	/**
+	 * 汇总表初始化, 用于判断统计查询能否使用汇总表
+	 */
+	@Autowired
+	private ClickHouseRollupInitializer rollupInitializer;
+	
+	/**
+	 * 异常数据列表缓存
+	 */
+	@Autowired
+	private AbnormalDataQueryCache abnormalDataQueryCache;
+	
+	/**
+	 * ClickHouse服务端时区, 汇总表的天/小时边界按此时区计算
+	 */
+	@Value("${clickhouse.timezone:Asia/Shanghai}")
+	private String clickHouseTimezone;
+	
 	/**
 	 * 批量插入监控数据到ClickHouse
 	 * <p>
@@ -58,65 +133,9 @@ public class ClickHouseDataReportRepository {
 			return;
 		}
 		
-		// SQL插入语句
-		// 注意:ClickHouse不需要指定id(会自动生成),但为了和MySQL保持一致,这里还是插入
-		// 新增了process_state, is_removed等字段
-		String sql = """
-				INSERT INTO pressuremonitorsys.t_monitor_data_report
-				(id, up_packet_sn, up_data_sn, topic, tenant_id, service_id, protocol,
-				 pipeline_id, pipeline_sn, temperature, voltage, pressure, abnormal_flag,
-				 message_type, device_type, device_id, device_sn, assoc_asset_id,
-				 imsi, imei, create_time, process_state, is_removed)
-				VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
-				""";
-		
 		try {
-			// 使用JdbcTemplate的batchUpdate方法批量插入
-			// BatchPreparedStatementSetter是一个回调接口,用于设置每条记录的参数
-			clickHouseJdbcTemplate.batchUpdate(sql, new BatchPreparedStatementSetter() {
-				
-				/**
-				 * 设置每条记录的参数
-				 * @param ps PreparedStatement对象
-				 * @param i 当前记录的索引(从0开始)
-				 */
-				@Override
-				public void setValues(PreparedStatement ps, int i) throws SQLException {
-					DeviceDataPO data = dataList.get(i);
-					
-					// 按照SQL中的?顺序设置参数
-					ps.setLong(1, data.getId());
-					ps.setString(5, data.getTenantId());
-					ps.setString(7, data.getProtocol());
-					ps.setLong(8, data.getPipelineId());
-					ps.setString(9, data.getPipelineSN());
-					ps.setInt(10, data.getTemperature());
-					ps.setInt(11, data.getVoltage());
-					ps.setInt(12, data.getPressure());
-					ps.setString(13, data.getAbnormalFlag());
-					ps.setString(15, data.getDeviceType());
-					ps.setLong(16, data.getDeviceId());
-					ps.setString(17, data.getDeviceSN());
-					ps.setString(18, data.getAssocAssetId());
-					ps.setString(19, data.getIMSI());
-					ps.setString(20, data.getIMEI());
-					// Date转Timestamp(ClickHouse的DateTime类型)
-					ps.setTimestamp(21, new Timestamp(data.getCreateTime().getTime()));
-					
-					// 新增字段: 处理状态和删除标志
-					// Boolean转UInt8: true=1, false=0
-					ps.setInt(22, (data.getProcessState() != null && data.getProcessState()) ? 1 : 0);
-					ps.setInt(23, (data.getRemoved() != null && data.getRemoved()) ? 1 : 0);
-				}
-				
-				/**
-				 * 返回批量插入的记录数
-				 */
-				@Override
-				public int getBatchSize() {
-					return dataList.size();
-				}
-			});
+			// RowBinary原生格式写入, 避免JDBC逐参数装箱和驱动侧转换
+			rowBinaryWriter.write(dataList);
 			
 			log.info("ClickHouse批量写入成功,数量: {}", dataList.size());
 		} catch (Exception e) {
@@ -150,10 +169,8 @@ public class ClickHouseDataReportRepository {
 				""";
 		
 		try {
-			// BeanPropertyRowMapper会自动将查询结果映射到DataReportPO对象
-			// 它会根据列名和属性名自动匹配(支持下划线转驼峰)
-			return clickHouseJdbcTemplate.query(sql,
-					new BeanPropertyRowMapper<>(DeviceDataPO.class),
+			// 按列序号映射, 列名只在第一行解析一次
+			return clickHouseJdbcTemplate.query(sql, ClickHouseRowMappers.DEVICE_DATA.mapper(),
 					deviceSN, startTime, endTime);
 		} catch (Exception e) {
 			log.error("ClickHouse查询失败: deviceSN={}, startTime={}, endTime={}",
@@ -199,9 +216,7 @@ public class ClickHouseDataReportRepository {
 			params[deviceSNList.size()] = startTime;
 			params[deviceSNList.size() + 1] = endTime;
 			
-			return clickHouseJdbcTemplate.query(sql,
-					new BeanPropertyRowMapper<>(DeviceDataPO.class),
-					params);
+			return clickHouseJdbcTemplate.query(sql, ClickHouseRowMappers.DEVICE_DATA.mapper(), params);
 		} catch (Exception e) {
 			log.error("ClickHouse多设备查询失败: deviceSNList={}, startTime={}, endTime={}",
 					deviceSNList, startTime, endTime, e);
@@ -213,47 +228,159 @@ public class ClickHouseDataReportRepository {
 	 * 获取设备的统计数据
 	 * <p>
 	 * 使用场景:统计某个设备在某个时间段的平均温度、最大压力等
-	 * ClickHouse的聚合查询性能极高,即使是亿级数据也能秒级返回
+	 * 时间范围按ClickHouseRollupPlanner拆成若干段, 每段查能覆盖它的最粗的汇总表, 各段的汇总值再合并;
+	 * 只有两端不足一分钟的部分扫描原始数据, 查询代价与时间范围基本无关
+	 * 汇总表中平均值以总和保存, 合并后再除以总数
 	 *
 	 * @param deviceSN  设备序列号
 	 * @param startTime 开始时间
-	 * @param endTime   结束时间
+	 * @param endTime   结束时间(含)
 	 * @return 统计数据Map
 	 */
 	public Map<String, Object> getDeviceStatistics(String deviceSN, Date startTime, Date endTime) {
-		// ClickHouse的聚合函数:
-		// - count(): 计数
-		// - avg(): 平均值
-		// - max(): 最大值
-		// - min(): 最小值
-		// - countIf(): 条件计数
+		List<Object> params = new ArrayList<>();
+		String segments = statisticsSegments("device_sn = ?", List.of(deviceSN), startTime, endTime, params);
+		String sql = "SELECT " + STATISTICS_COLUMNS + " FROM (\n" + segments + "\n)";
+		
+		try {
+			// queryForMap返回单行结果的Map
+			// key是列名,value是列值
+			return clickHouseJdbcTemplate.queryForMap(sql, params.toArray());
+		} catch (Exception e) {
+			log.error("ClickHouse统计查询失败: deviceSN={}, startTime={}, endTime={}",
+					deviceSN, startTime, endTime, e);
+			throw new RuntimeException("ClickHouse统计查询失败", e);
+		}
+	}
+	
+	/**
+	 * 批量获取多个设备的统计数据
+	 * <p>
+	 * 使用场景:管道总览页面一次展示几百台设备的统计值, 逐台调用getDeviceStatistics需要几百次查询
+	 * 与getDeviceStatistics使用相同的汇总表拆分和统计列, 只是按device_sn分组, 一次查询返回所有设备
+	 * 结果逐行交给consumer处理, 不在这里汇集成列表; 时间范围内没有数据的设备不返回
+	 *
+	 * @param deviceSNList 设备序列号列表
+	 * @param startTime    开始时间
+	 * @param endTime      结束时间(含)
+	 * @param consumer     每个设备一行统计数据, 按device_sn排序
+	 */
+	public void getDeviceStatisticsBatch(List<String> deviceSNList, Date startTime, Date endTime,
+										 Consumer<DeviceDataStatisticsPO> consumer) {
+		if (deviceSNList == null || deviceSNList.isEmpty()) {
+			return;
+		}
+		
+		// 构建IN子句的占位符: (?, ?, ?)
+		String inClause = String.join(",", deviceSNList.stream()
+				.map(sn -> "?")
+				.toList());
+		List<Object> params = new ArrayList<>();
+		String segments = statisticsSegments("device_sn IN (" + inClause + ")", new ArrayList<>(deviceSNList),
+				startTime, endTime, params);
+		// 列顺序: device_sn, 之后与STATISTICS_COLUMNS一致(total_count, 温度/电压/压力各avg/max/min, abnormal_count)
+		String sql = "SELECT device_sn, " + STATISTICS_COLUMNS + " FROM (\n" + segments + "\n)"
+				+ " GROUP BY device_sn ORDER BY device_sn";
+		
+		try {
+			clickHouseJdbcTemplate.query(sql, (RowCallbackHandler) rs -> {
+				consumer.accept(DeviceDataStatisticsPO.builder()
+						.deviceSN(rs.getString(1))
+						.totalCount(rs.getLong(2))
+						.avgTemperature(rs.getDouble(3))
+						.maxTemperature(rs.getInt(4))
+						.minTemperature(rs.getInt(5))
+						.avgVoltage(rs.getDouble(6))
+						.maxVoltage(rs.getInt(7))
+						.minVoltage(rs.getInt(8))
+						.avgPressure(rs.getDouble(9))
+						.maxPressure(rs.getInt(10))
+						.minPressure(rs.getInt(11))
+						.abnormalCount(rs.getLong(12))
+						.build());
+			}, params.toArray());
+		} catch (Exception e) {
+			log.error("ClickHouse批量统计查询失败: deviceCount={}, startTime={}, endTime={}",
+					deviceSNList.size(), startTime, endTime, e);
+			throw new RuntimeException("ClickHouse批量统计查询失败", e);
+		}
+	}
+	
+	/**
+	 * 拼接统计查询的各段子查询, 每段按device_sn分组, 没有数据的段不返回行, 避免min/max被空段的默认值0干扰
+	 *
+	 * @param deviceFilter 设备过滤条件
+	 * @param deviceParams 设备过滤条件的参数
+	 * @param params       输出: 全部查询参数
+	 * @return UNION ALL连接的子查询
+	 */
+	private String statisticsSegments(String deviceFilter, List<Object> deviceParams, Date startTime, Date endTime,
+									  List<Object> params) {
+		StringJoiner segments = new StringJoiner("\nUNION ALL\n");
+		for (ClickHouseRollupPlanner.Segment segment : planSegments(startTime, endTime)) {
+			segments.add(segment.level().isRaw()
+					? STATISTICS_RAW_SEGMENT.formatted(deviceFilter)
+					: STATISTICS_ROLLUP_SEGMENT.formatted(segment.level().table, deviceFilter));
+			addSegmentParams(params, deviceParams, segment);
+		}
+		return segments.toString();
+	}
+	
+	/**
+	 * 按固定时间区间降采样, 用于绘制长时间范围的曲线
+	 * <p>
+	 * 使用场景: 查看设备一个月的压力曲线, 原始数据可能有几十万条, 全部返回既慢又没有必要
+	 * toStartOfInterval把每条数据归入所属区间, 每个区间只返回min/avg/max, 保留峰值的同时数据量与时间范围无关
+	 *
+	 * @param deviceSN        设备序列号
+	 * @param startTime       开始时间
+	 * @param endTime         结束时间
+	 * @param intervalSeconds 区间长度(秒)
+	 * @return 按时间升序的区间统计, 没有数据的区间不返回
+	 */
+	public List<DeviceDataChartPO> queryChart(String deviceSN, Date startTime, Date endTime, long intervalSeconds) {
 		String sql = """
 				SELECT
-				    count() as total_count,
+				    toStartOfInterval(create_time, INTERVAL ? SECOND) as time,
+				    count() as count,
+				    countIf(abnormal_flag > 0) as abnormal_count,
+				    min(pressure) as min_pressure,
+				    avg(pressure) as avg_pressure,
+				    max(pressure) as max_pressure,
+				    min(temperature) as min_temperature,
 				    avg(temperature) as avg_temperature,
 				    max(temperature) as max_temperature,
-				    min(temperature) as min_temperature,
-				    avg(voltage) as avg_voltage,
-				    max(voltage) as max_voltage,
 				    min(voltage) as min_voltage,
-				    avg(pressure) as avg_pressure,
-				    max(pressure) as max_pressure,
-				    min(pressure) as min_pressure,
-				    countIf(abnormal_flag > 0) as abnormal_count
-				FROM pressuremonitorsys.t_monitor_data_report
-				WHERE device_sn = ?
+				    avg(voltage) as avg_voltage,
+				    max(voltage) as max_voltage
+				FROM pressuremonitorsys.t_monitor_data_report d
+				%s
+				WHERE device_sn = ?%s
 				  AND create_time >= ?
 				  AND create_time <= ?
-				""";
+				GROUP BY time
+				ORDER BY time
+				""".formatted(ClickHouseStatusRepository.STATUS_VIEW_JOIN, ClickHouseStatusRepository.NOT_DELETED);
 		
 		try {
-			// queryForMap返回单行结果的Map
-			// key是列名,value是列值
-			return clickHouseJdbcTemplate.queryForMap(sql, deviceSN, startTime, endTime);
+			return clickHouseJdbcTemplate.query(sql, (rs, rowNum) -> DeviceDataChartPO.builder()
+					.time(rs.getTimestamp(1))
+					.count(rs.getLong(2))
+					.abnormalCount(rs.getLong(3))
+					.minPressure(rs.getInt(4))
+					.avgPressure(rs.getDouble(5))
+					.maxPressure(rs.getInt(6))
+					.minTemperature(rs.getInt(7))
+					.avgTemperature(rs.getDouble(8))
+					.maxTemperature(rs.getInt(9))
+					.minVoltage(rs.getInt(10))
+					.avgVoltage(rs.getDouble(11))
+					.maxVoltage(rs.getInt(12))
+					.build(), intervalSeconds, deviceSN, startTime, endTime);
 		} catch (Exception e) {
-			log.error("ClickHouse统计查询失败: deviceSN={}, startTime={}, endTime={}",
-					deviceSN, startTime, endTime, e);
-			throw new RuntimeException("ClickHouse统计查询失败", e);
+			log.error("ClickHouse曲线查询失败: deviceSN={}, startTime={}, endTime={}, interval={}s",
+					deviceSN, startTime, endTime, intervalSeconds, e);
+			throw new RuntimeException("ClickHouse曲线查询失败", e);
 		}
 	}
 	
@@ -261,35 +388,67 @@ public class ClickHouseDataReportRepository {
 	 * 按天统计异常数据趋势
 	 * <p>
 	 * 使用场景:生成异常数据趋势图表
+	 * 与getDeviceStatistics一样按时间范围组合汇总表; 各段都不会跨天, 按天分组后合并即可
 	 *
 	 * @param deviceSN  设备序列号
 	 * @param startTime 开始时间
-	 * @param endTime   结束时间
+	 * @param endTime   结束时间(含)
 	 * @return 每天的统计数据列表
 	 */
 	public List<Map<String, Object>> getAbnormalTrend(String deviceSN, Date startTime, Date endTime) {
 		// toDate()函数将DateTime转换为Date(只保留日期部分)
-		// 位运算: abnormal_flag & 1 表示取最低位(压力超上限)
+		// 位运算: bitAnd(abnormal_flag, 1) 表示取最低位(超压), 汇总表中已按位拆成各异常类型的计数
+		List<Object> params = new ArrayList<>();
+		StringJoiner segments = new StringJoiner("\nUNION ALL\n");
+		for (ClickHouseRollupPlanner.Segment segment : planSegments(startTime, endTime)) {
+			segments.add(segment.level().isRaw() ? """
+					SELECT toDate(create_time) as date,
+					    countIf(abnormal_flag > 0) as seg_abnormal_cnt,
+					    countIf(bitAnd(abnormal_flag, 1) > 0) as seg_over_pressure_cnt,
+					    countIf(bitAnd(abnormal_flag, 2) > 0) as seg_under_pressure_cnt,
+					    countIf(bitAnd(abnormal_flag, 4) > 0) as seg_over_temperature_cnt,
+					    countIf(bitAnd(abnormal_flag, 8) > 0) as seg_under_temperature_cnt,
+					    countIf(bitAnd(abnormal_flag, 16) > 0) as seg_over_voltage_cnt,
+					    countIf(bitAnd(abnormal_flag, 32) > 0) as seg_under_voltage_cnt
+					FROM pressuremonitorsys.t_monitor_data_report
+					WHERE device_sn = ? AND create_time >= ? AND create_time < ?
+					GROUP BY date
+					""" : """
+					SELECT toDate(bucket) as date,
+					    sum(abnormal_cnt) as seg_abnormal_cnt,
+					    sum(over_pressure_cnt) as seg_over_pressure_cnt,
+					    sum(under_pressure_cnt) as seg_under_pressure_cnt,
+					    sum(over_temperature_cnt) as seg_over_temperature_cnt,
+					    sum(under_temperature_cnt) as seg_under_temperature_cnt,
+					    sum(over_voltage_cnt) as seg_over_voltage_cnt,
+					    sum(under_voltage_cnt) as seg_under_voltage_cnt
+					FROM %s
+					WHERE device_sn = ? AND bucket >= ? AND bucket < ?
+					GROUP BY date
+					""".formatted(segment.level().table));
+			addSegmentParams(params, List.of(deviceSN), segment);
+		}
 		String sql = """
 				SELECT
-				    toDate(create_time) as date,
-				    count() as abnormal_count,
-				    countIf(abnormal_flag & 1 > 0) as pressure_high_count,
-				    countIf(abnormal_flag & 2 > 0) as pressure_low_count,
-				    countIf(abnormal_flag & 4 > 0) as temperature_high_count,
-				    countIf(abnormal_flag & 8 > 0) as temperature_low_count
-				FROM pressuremonitorsys.t_monitor_data_report
-				WHERE device_sn = ?
-				  AND abnormal_flag > 0
-				  AND create_time >= ?
-				  AND create_time <= ?
+				    date,
+				    sum(seg_abnormal_cnt) as abnormal_count,
+				    sum(seg_over_pressure_cnt) as pressure_high_count,
+				    sum(seg_under_pressure_cnt) as pressure_low_count,
+				    sum(seg_over_temperature_cnt) as temperature_high_count,
+				    sum(seg_under_temperature_cnt) as temperature_low_count,
+				    sum(seg_over_voltage_cnt) as voltage_high_count,
+				    sum(seg_under_voltage_cnt) as voltage_low_count
+				FROM (
+				%s
+				)
 				GROUP BY date
+				HAVING abnormal_count > 0
 				ORDER BY date
-				""";
+				""".formatted(segments);
 		
 		try {
 			// queryForList返回多行结果的List<Map>
-			return clickHouseJdbcTemplate.queryForList(sql, deviceSN, startTime, endTime);
+			return clickHouseJdbcTemplate.queryForList(sql, params.toArray());
 		} catch (Exception e) {
 			log.error("ClickHouse趋势查询失败: deviceSN={}, startTime={}, endTime={}",
 					deviceSN, startTime, endTime, e);
@@ -297,6 +456,27 @@ public class ClickHouseDataReportRepository {
 		}
 	}
 	
+	/**
+	 * 拆分统计查询的时间范围, 结束时间包含在内(DateTime精度为秒)
+	 */
+	private List<ClickHouseRollupPlanner.Segment> planSegments(Date startTime, Date endTime) {
+		Instant from = startTime.toInstant().truncatedTo(ChronoUnit.SECONDS);
+		Instant to = endTime.toInstant().truncatedTo(ChronoUnit.SECONDS).plusSeconds(1);
+		List<ClickHouseRollupPlanner.Segment> segments = ClickHouseRollupPlanner.plan(from, to,
+				ZoneId.of(clickHouseTimezone), rollupInitializer.getWatermarks());
+		if (segments.isEmpty()) {
+			// 开始时间晚于结束时间, 保留一段空范围, 使查询结构不变
+			segments.add(new ClickHouseRollupPlanner.Segment(ClickHouseRollupPlanner.RollupLevel.RAW, from, from));
+		}
+		return segments;
+	}
+	
+	private void addSegmentParams(List<Object> params, List<Object> deviceParams, ClickHouseRollupPlanner.Segment segment) {
+		params.addAll(deviceParams);
+		params.add(Timestamp.from(segment.from()));
+		params.add(Timestamp.from(segment.to()));
+	}
+	
 	/**
 	 * 查询所有设备的数据(支持条件过滤)
 	 * <p>
@@ -320,7 +500,7 @@ public class ClickHouseDataReportRepository {
 				""";
 		
 		try {
-			return clickHouseJdbcTemplate.query(sql, this::mapRowToDataReportPO, startTime, endTime);
+			return clickHouseJdbcTemplate.query(sql, ClickHouseRowMappers.DEVICE_DATA.mapper(), startTime, endTime);
 		} catch (Exception e) {
 			log.error("ClickHouse全量查询失败: startTime={}, endTime={}", startTime, endTime, e);
 			throw new RuntimeException("ClickHouse全量查询失败", e);
@@ -343,8 +523,11 @@ public class ClickHouseDataReportRepository {
 				SELECT
 				    id, up_packet_sn, up_data_sn, device_sn, device_id, pipeline_id,
 				    temperature, voltage, pressure, abnormal_flag, create_time,
-				    process_state, process_time, process_by, is_removed
-				FROM pressuremonitorsys.t_monitor_data_report
+				""").append(ClickHouseStatusRepository.STATUS_COLUMNS).append("""
+				
+				FROM pressuremonitorsys.t_monitor_data_report d
+				""").append(ClickHouseStatusRepository.STATUS_VIEW_JOIN).append("""
+				
 				WHERE abnormal_flag > 0
 				  AND create_time >= ?
 				  AND create_time <= ?
@@ -367,7 +550,7 @@ public class ClickHouseDataReportRepository {
 		sql.append(" ORDER BY create_time DESC LIMIT 10000");
 		
 		try {
-			return clickHouseJdbcTemplate.query(sql.toString(), this::mapRowToDataReportPO, params.toArray());
+			return clickHouseJdbcTemplate.query(sql.toString(), ClickHouseRowMappers.DEVICE_DATA.mapper(), params.toArray());
 		} catch (Exception e) {
 			log.error("ClickHouse异常数据查询失败: deviceSNList={}, startTime={}, endTime={}",
 					deviceSNList, startTime, endTime, e);
@@ -381,8 +564,8 @@ public class ClickHouseDataReportRepository {
 	 * 使用场景:前端异常报告列表,支持按处理状态筛选
 	 * <p>
 	 * ClickHouse性能分析:
-	 * 1. process_state字段有索引(TYPE set),查询性能极高
-	 * 2. 单表查询,无需JOIN,性能优于MySQL 10-100倍
+	 * 1. 处理/删除状态来自状态视图, 状态表只包含操作员处理过的数据, JOIN的右表很小
+	 * 2. 原始表按时间范围和设备SN过滤, 性能优于MySQL 10-100倍
 	 * 3. 即使数据量达到亿级,查询依然是毫秒级响应
 	 *
 	 * @param deviceSN     设备序列号(可选)
@@ -393,6 +576,13 @@ public class ClickHouseDataReportRepository {
 	 */
 	public List<DeviceDataPO> queryByConditions(String deviceSN, Boolean processState,
 												Date startTime, Date endTime) {
+		// 控制台轮询的列表, 经过短TTL缓存, 相同条件的并发查询只访问一次ClickHouse
+		return abnormalDataQueryCache.get("queryByConditions", deviceSN, processState, startTime, endTime,
+				ABNORMAL_LIST_LIMIT, (start, end) -> doQueryByConditions(deviceSN, processState, start, end));
+	}
+	
+	private List<DeviceDataPO> doQueryByConditions(String deviceSN, Boolean processState,
+												   Date startTime, Date endTime) {
 		// 动态构建SQL
 		// 注意: ClickHouse的WHERE条件顺序会影响性能
 		// 建议顺序: 1.时间范围 2.设备SN 3.其他条件
@@ -400,13 +590,15 @@ public class ClickHouseDataReportRepository {
 				SELECT
 				    id, up_packet_sn, up_data_sn, device_sn, device_id, pipeline_id,
 				    temperature, voltage, pressure, abnormal_flag, create_time,
-				    process_state, process_time, process_by, is_removed, delete_time, delete_by
-				FROM pressuremonitorsys.t_monitor_data_report
+				""").append(ClickHouseStatusRepository.STATUS_COLUMNS).append("""
+				
+				FROM pressuremonitorsys.t_monitor_data_report d
+				""").append(ClickHouseStatusRepository.STATUS_VIEW_JOIN).append("""
+				
 				WHERE abnormal_flag > 0
-				  AND is_removed = 0
 				  AND create_time >= ?
 				  AND create_time <= ?
-				""");
+				""").append(ClickHouseStatusRepository.NOT_DELETED);
 		
 		List<Object> params = new ArrayList<>();
 		params.add(startTime);
@@ -421,14 +613,13 @@ public class ClickHouseDataReportRepository {
 		// 添加处理状态过滤
 		// ClickHouse中: 0=未处理, 1=已处理
 		if (processState != null) {
-			sql.append(" AND process_state = ?");
-			params.add(processState ? 1 : 0);
+			sql.append(ClickHouseStatusRepository.processStateFilter(processState));
 		}
 		
-		sql.append(" ORDER BY create_time DESC LIMIT 10000");
+		sql.append(" ORDER BY create_time DESC LIMIT ").append(ABNORMAL_LIST_LIMIT);
 		
 		try {
-			return clickHouseJdbcTemplate.query(sql.toString(), this::mapRowToDataReportPO, params.toArray());
+			return clickHouseJdbcTemplate.query(sql.toString(), ClickHouseRowMappers.DEVICE_DATA.mapper(), params.toArray());
 		} catch (Exception e) {
 			log.error("ClickHouse条件查询失败: deviceSN={}, processState={}, startTime={}, endTime={}",
 					deviceSN, processState, startTime, endTime, e);
@@ -437,118 +628,93 @@ public class ClickHouseDataReportRepository {
 	}
 	
 	/**
-	 * 更新处理状态
+	 * 分页查询设备数据, 条件与MySQL的device_data_mapper.queryDeviceDataList一致
 	 * <p>
-	 * 注意: ClickHouse不支持高效的UPDATE操作
-	 * 这里使用ALTER TABLE UPDATE,性能较差,仅用于少量数据更新
-	 * <p>
-	 * 推荐方案: 在MySQL中更新,然后通过定时任务同步到ClickHouse
-	 * 或者使用ReplacingMergeTree + 插入新版本的方式
+	 * 使用场景: 历史数据列表, 由DeviceDataQueryRepository按时间范围路由过来
+	 * 分页方式同样支持偏移和游标两种, 多查一条用于判断是否还有下一页
 	 *
-	 * @param id        数据ID
-	 * @param processBy 处理人
+	 * @param condition 查询条件
+	 * @return 数据列表, 最多fetchSize条
 	 */
-	public void updateProcessState(Long id, String processBy) {
-		// ClickHouse的UPDATE语法(性能较差,不推荐频繁使用)
-		String sql = """
-				ALTER TABLE pressuremonitorsys.t_monitor_data_report
-				UPDATE
-				    process_state = 1,
-				    process_time = now(),
-				    process_by = ?
-				WHERE id = ?
-				""";
+	public List<DeviceDataPO> queryDeviceDataPage(DeviceDataQueryCondition condition) {
+		StringBuilder sql = new StringBuilder("""
+				SELECT
+				    id, device_sn, device_id, pipeline_id, pipeline_sn,
+				    temperature, voltage, pressure, abnormal_flag, create_time,
+				""").append(ClickHouseStatusRepository.STATUS_COLUMNS).append("""
+				
+				FROM pressuremonitorsys.t_monitor_data_report d
+				""").append(ClickHouseStatusRepository.STATUS_VIEW_JOIN);
+		List<Object> params = new ArrayList<>();
+		appendQueryCondition(sql, params, condition);
+		
+		// 游标分页按(create_time, id)定位
+		if (condition.isCursorMode()) {
+			sql.append(" AND (create_time < ? OR (create_time = ? AND id < ?))");
+			params.add(condition.getCursorCreateTime());
+			params.add(condition.getCursorCreateTime());
+			params.add(condition.getCursorId());
+		}
+		sql.append(" ORDER BY create_time DESC, id DESC LIMIT ?");
+		params.add(condition.getFetchSize());
+		if (!condition.isCursorMode()) {
+			sql.append(" OFFSET ?");
+			params.add(condition.getPageBegin());
+		}
 		
 		try {
-			clickHouseJdbcTemplate.update(sql, processBy, id);
-			log.info("ClickHouse更新处理状态成功: id={}, processBy={}", id, processBy);
+			return clickHouseJdbcTemplate.query(sql.toString(), ClickHouseRowMappers.DEVICE_DATA.mapper(), params.toArray());
 		} catch (Exception e) {
-			log.error("ClickHouse更新处理状态失败: id={}, processBy={}", id, processBy, e);
-			// 不抛出异常,允许失败(因为MySQL是主存储)
+			log.error("ClickHouse分页查询失败: condition={}", condition, e);
+			throw new RuntimeException("ClickHouse分页查询失败", e);
 		}
 	}
 	
 	/**
-	 * 标记为删除
+	 * 统计设备数据条数, 条件与queryDeviceDataPage一致
 	 * <p>
-	 * 同样使用ALTER TABLE UPDATE,性能较差
+	 * ClickHouse的count()只读取主键和条件列, 不需要像MySQL那样估算
 	 *
-	 * @param id       数据ID
-	 * @param deleteBy 删除人
+	 * @param condition 查询条件
+	 * @return 总数
 	 */
-	public void markAsDeleted(Long id, String deleteBy) {
-		String sql = """
-				ALTER TABLE pressuremonitorsys.t_monitor_data_report
-				UPDATE
-				    is_removed = 1,
-				    delete_time = now(),
-				    delete_by = ?
-				WHERE id = ?
-				""";
+	public Long countDeviceData(DeviceDataQueryCondition condition) {
+		StringBuilder sql = new StringBuilder("SELECT count() FROM pressuremonitorsys.t_monitor_data_report d ")
+				.append(ClickHouseStatusRepository.STATUS_VIEW_JOIN);
+		List<Object> params = new ArrayList<>();
+		appendQueryCondition(sql, params, condition);
 		
 		try {
-			clickHouseJdbcTemplate.update(sql, deleteBy, id);
-			log.info("ClickHouse标记删除成功: id={}, deleteBy={}", id, deleteBy);
+			return clickHouseJdbcTemplate.queryForObject(sql.toString(), Long.class, params.toArray());
 		} catch (Exception e) {
-			log.error("ClickHouse标记删除失败: id={}, deleteBy={}", id, deleteBy, e);
-			// 不抛出异常,允许失败
+			log.error("ClickHouse统计查询失败: condition={}", condition, e);
+			throw new RuntimeException("ClickHouse统计查询失败", e);
 		}
 	}
 	
 	/**
-	 * 将ResultSet映射为DataReportPO对象
+	 * 拼接分页查询的WHERE条件, 原始表别名为d并已JOIN状态视图
 	 * <p>
-	 * 这是一个RowMapper方法,用于手动映射查询结果
-	 * 当BeanPropertyRowMapper无法正确映射时使用
-	 *
-	 * @param rs     ResultSet对象
-	 * @param rowNum 行号
-	 * @return DataReportPO对象
+	 * 时间按天过滤, 与MySQL一致取[开始日期0点, 结束日期次日0点)
 	 */
-	private DeviceDataPO mapRowToDataReportPO(ResultSet rs, int rowNum) throws SQLException {
-		DeviceDataPO po = new DeviceDataPO();
-		
-		// 基本字段
-		po.setId(rs.getLong("id"));
-		po.setDeviceSN(rs.getString("device_sn"));
-		po.setDeviceId(rs.getLong("device_id"));
-		po.setPipelineId(rs.getLong("pipeline_id"));
-
-		// 监控数据字段
-		po.setTemperature(rs.getInt("temperature"));
-		po.setVoltage(rs.getInt("voltage"));
-		po.setPressure(rs.getInt("pressure"));
-		po.setAbnormalFlag(rs.getString("abnormal_flag"));
-		po.setCreateTime(rs.getTimestamp("create_time"));
-		
-		// 处理状态字段(新增)
-		// 注意: ClickHouse中是UInt8(0/1),需要转换为Boolean
-		try {
-			int processStateInt = rs.getInt("process_state");
-			po.setProcessState(processStateInt == 1);
-			
-			// Nullable字段需要特殊处理
-			Timestamp processTime = rs.getTimestamp("process_time");
-			if (processTime != null) {
-				po.setProcessTime(new Date(processTime.getTime()));
-			}
-			po.setProcessBy(rs.getString("process_by"));
-			
-			int isRemovedInt = rs.getInt("is_removed");
-			po.setRemoved(isRemovedInt == 1);
-			
-			Timestamp deleteTime = rs.getTimestamp("delete_time");
-			if (deleteTime != null) {
-				po.setDeleteTime(new Date(deleteTime.getTime()));
-			}
-			po.setDeleteBy(rs.getString("delete_by"));
-		} catch (SQLException e) {
-			// 如果这些字段不存在(旧版本表结构),忽略错误
-			log.debug("部分字段不存在,使用默认值: {}", e.getMessage());
+	private void appendQueryCondition(StringBuilder sql, List<Object> params, DeviceDataQueryCondition condition) {
+		sql.append(" WHERE 1 = 1").append(ClickHouseStatusRepository.NOT_DELETED);
+		if (condition.getStartTime() != null) {
+			sql.append(" AND create_time >= toStartOfDay(?)");
+			params.add(condition.getStartTime());
+		}
+		if (condition.getEndTime() != null) {
+			sql.append(" AND create_time < toStartOfDay(?) + INTERVAL 1 DAY");
+			params.add(condition.getEndTime());
+		}
+		if (condition.getDeviceSN() != null && !condition.getDeviceSN().isEmpty()) {
+			sql.append(" AND device_sn = ?");
+			params.add(condition.getDeviceSN());
+		}
+		// ClickHouse中: 0=未处理, 1=已处理
+		if (condition.getProcessState() != null) {
+			sql.append(ClickHouseStatusRepository.processStateFilter(condition.getProcessState()));
 		}
-		
-		return po;
 	}
 	
 }
-
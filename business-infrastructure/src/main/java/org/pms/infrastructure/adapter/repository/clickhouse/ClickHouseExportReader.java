@@ -0,0 +1,176 @@
+package org.pms.infrastructure.adapter.repository.clickhouse;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.pms.api.common.ExportFormat;
+import org.pms.api.dto.req.DeviceDataExportReq;
+import org.pms.application.query.IDeviceDataQueryService.ExportOutput;
+import org.pms.types.BizCode;
+import org.pms.types.BizException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * ClickHouse数据导出
+ * <p>
+ * 为什么不用JdbcTemplate?
+ * - JDBC查询要把每行转成对象, 再由调用方转成CSV, 结果集越大占用的内存越多, 所以原有查询都限制了10000条
+ * - ClickHouse的HTTP接口可以直接输出CSVWithNames/Parquet, 服务端生成文件内容, 这里只做字节转发
+ * <p>
+ * 工作原理:
+ * 1. 查询条件通过HTTP查询参数(param_xxx)传入, SQL中使用{xxx:Type}占位, 不拼接用户输入
+ * 2. ClickHouse边查询边输出, 响应流按固定大小的缓冲区复制到调用方的输出流, 堆内存占用与导出行数无关
+ * 3. 排序与表的排序键(device_sn, create_time)一致, ClickHouse按顺序读取即可输出, 不需要整体排序;
+ * 处理/删除状态用IN子查询合并, 不JOIN状态视图: JOIN之后无法按排序键顺序读取, 会变成整个结果集的服务端排序
+ * 4. 收到ClickHouse的200响应后才打开调用方的输出流, 查询失败时调用方还没有写出任何响应头
+ * <p>
+ * 注意: 开始输出后ClickHouse再报错(如超时), 错误信息会出现在输出内容末尾, 调用方只能通过连接中断感知
+ *
+ * @author alcsyooterranf
+ * @program PressureMonitorSys-business
+ * @create 2026/10/18
+ */
+@Slf4j
+@Component
+public class ClickHouseExportReader {
+
+	/**
+	 * 处理/删除状态合并v_abnormal_process_status, 与列表查询一致; 状态视图只包含操作员处理过的数据, IN集合很小
+	 * 合并后的处理状态在子查询中取别名is_processed, 外层再命名为process_state, 避免别名与列名相同造成循环引用
+	 */
+	private static final String EXPORT_SQL = """
+			SELECT
+			    id, device_sn, device_id, pipeline_id, pipeline_sn,
+			    temperature, voltage, pressure, abnormal_flag, create_time, is_processed AS process_state
+			FROM (
+			    SELECT
+			        id, device_sn, device_id, pipeline_id, pipeline_sn,
+			        temperature, voltage, pressure, abnormal_flag, create_time,
+			        greatest(process_state, id IN (
+			            SELECT data_id FROM pressuremonitorsys.v_abnormal_process_status WHERE st_processed = 1
+			        )) AS is_processed
+			    FROM pressuremonitorsys.t_monitor_data_report
+			    WHERE %s
+			      AND is_removed = 0
+			      AND id NOT IN (SELECT data_id FROM pressuremonitorsys.v_abnormal_process_status WHERE st_deleted = 1)
+			    ORDER BY device_sn, create_time
+			)
+			FORMAT %s""";
+
+	private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+	/**
+	 * ClickHouse HTTP接口地址, 未配置时从spring.datasource.clickhouse.jdbc-url推导(见ClickHouseHttpUrls)
+	 */
+	@Value("${clickhouse.http.url:}")
+	private String httpUrl;
+
+	@Value("${spring.datasource.clickhouse.jdbc-url:}")
+	private String jdbcUrl;
+
+	@Value("${clickhouse.http.username:${spring.datasource.clickhouse.username:default}}")
+	private String username;
+
+	@Value("${clickhouse.http.password:${spring.datasource.clickhouse.password:}}")
+	private String password;
+
+	@Value("${clickhouse.timezone:Asia/Shanghai}")
+	private String clickHouseTimezone;
+
+	/**
+	 * 等待ClickHouse开始输出的超时时间(毫秒)
+	 */
+	@Value("${clickhouse.export.timeout:60000}")
+	private long timeout;
+
+	/**
+	 * 单次导出的最长执行时间(秒), 由ClickHouse服务端控制
+	 */
+	@Value("${clickhouse.export.max-execution-time:3600}")
+	private long maxExecutionTime;
+
+	private HttpClient httpClient;
+
+	@PostConstruct
+	public void init() {
+		httpClient = HttpClient.newBuilder()
+				.version(HttpClient.Version.HTTP_1_1)
+				.connectTimeout(Duration.ofSeconds(5))
+				.build();
+		httpUrl = ClickHouseHttpUrls.resolve(httpUrl, jdbcUrl);
+	}
+
+	/**
+	 * 按条件导出设备数据, 直接写入输出流
+	 *
+	 * @param exportReq 导出条件, 开始时间和结束时间必填
+	 * @param format    导出格式
+	 * @param output    输出流, ClickHouse返回200后才打开, 不会被关闭
+	 * @return 导出的字节数
+	 * @throws BizException ClickHouse返回非200, 此时输出流尚未打开
+	 * @throws IOException  网络异常, 或输出过程中连接中断
+	 */
+	public long export(DeviceDataExportReq exportReq, ExportFormat format, ExportOutput output)
+			throws IOException, InterruptedException {
+		Map<String, String> params = new LinkedHashMap<>();
+		StringJoiner where = new StringJoiner(" AND ");
+		where.add("create_time >= {start:DateTime}");
+		params.put("start", formatDateTime(exportReq.getStartTime()));
+		where.add("create_time <= {end:DateTime}");
+		params.put("end", formatDateTime(exportReq.getEndTime()));
+		if (exportReq.getPipelineId() != null) {
+			where.add("pipeline_id = {pipelineId:UInt64}");
+			params.put("pipelineId", String.valueOf(exportReq.getPipelineId()));
+		}
+		if (exportReq.getDeviceSN() != null && !exportReq.getDeviceSN().isEmpty()) {
+			where.add("device_sn = {deviceSN:String}");
+			params.put("deviceSN", exportReq.getDeviceSN());
+		}
+		String sql = EXPORT_SQL.formatted(where, format == ExportFormat.PARQUET ? "Parquet" : "CSVWithNames");
+
+		StringBuilder uri = new StringBuilder(httpUrl).append("/?max_execution_time=").append(maxExecutionTime);
+		params.forEach((name, value) -> uri.append("&param_").append(name).append('=')
+				.append(URLEncoder.encode(value, StandardCharsets.UTF_8)));
+		HttpRequest request = HttpRequest.newBuilder(URI.create(uri.toString()))
+				.timeout(Duration.ofMillis(timeout))
+				.header("X-ClickHouse-User", username)
+				.header("X-ClickHouse-Key", password)
+				.POST(HttpRequest.BodyPublishers.ofString(sql))
+				.build();
+
+		HttpResponse<InputStream> response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+		try (InputStream in = response.body()) {
+			if (response.statusCode() != 200) {
+				String body = new String(in.readNBytes(4096), StandardCharsets.UTF_8);
+				log.error("ClickHouse导出失败: status={}, params={}, body={}", response.statusCode(), params, body);
+				throw new BizException(BizCode.UN_ERROR, "设备数据导出失败, 请稍后重试");
+			}
+			OutputStream out = output.open();
+			long bytes = in.transferTo(out);
+			log.info("ClickHouse导出完成: format={}, params={}, bytes={}", format, params, bytes);
+			return bytes;
+		}
+	}
+
+	private String formatDateTime(Date date) {
+		return DATE_TIME_FORMATTER.format(date.toInstant().atZone(ZoneId.of(clickHouseTimezone)));
+	}
+
+}
@@ -0,0 +1,71 @@
+package org.pms.infrastructure.adapter.repository.clickhouse;
+
+import java.net.URI;
+
+/**
+ * ClickHouse HTTP接口地址解析
+ * <p>
+ * RowBinary写入和导出直接调用HTTP接口, 地址默认从spring.datasource.clickhouse.jdbc-url推导,
+ * 与JdbcTemplate连接同一个ClickHouse; 只有HTTP接口与JDBC地址不同(如经过代理)时才需要配置clickhouse.http.url
+ * <p>
+ * 支持的JDBC地址: jdbc:clickhouse://host:port/db, jdbc:ch://host:port/db,
+ * jdbc:clickhouse:http://host:port/db, jdbc:clickhouse:https://host:port/db(jdbc:ch:同理)
+ *
+ * @author alcsyooterranf
+ * @program PressureMonitorSys-business
+ * @create 2026/10/18
+ */
+final class ClickHouseHttpUrls {
+
+	private static final int DEFAULT_HTTP_PORT = 8123;
+	private static final int DEFAULT_HTTPS_PORT = 8443;
+
+	private ClickHouseHttpUrls() {
+	}
+
+	/**
+	 * 解析HTTP接口地址, 无法确定时抛出异常, 由调用方在启动时失败
+	 *
+	 * @param httpUrl 显式配置的clickhouse.http.url, 可为空
+	 * @param jdbcUrl spring.datasource.clickhouse.jdbc-url, 可为空
+	 * @return 形如http://host:port的地址, 不带末尾斜杠
+	 */
+	static String resolve(String httpUrl, String jdbcUrl) {
+		if (httpUrl != null && !httpUrl.isBlank()) {
+			return stripTrailingSlash(httpUrl.trim());
+		}
+		if (jdbcUrl == null || jdbcUrl.isBlank()) {
+			throw new IllegalStateException(
+					"未配置ClickHouse HTTP地址: 请配置spring.datasource.clickhouse.jdbc-url或clickhouse.http.url");
+		}
+		String url = jdbcUrl.trim();
+		if (url.startsWith("jdbc:")) {
+			url = url.substring("jdbc:".length());
+		}
+		if (url.startsWith("clickhouse:")) {
+			url = url.substring("clickhouse:".length());
+		} else if (url.startsWith("ch:")) {
+			url = url.substring("ch:".length());
+		} else {
+			throw new IllegalStateException("无法识别的ClickHouse JDBC地址: " + jdbcUrl);
+		}
+		if (url.startsWith("//")) {
+			url = "http:" + url;
+		}
+		URI uri = URI.create(url);
+		String scheme = uri.getScheme();
+		if (!"http".equals(scheme) && !"https".equals(scheme)) {
+			throw new IllegalStateException("ClickHouse JDBC地址不是HTTP协议, 请配置clickhouse.http.url: " + jdbcUrl);
+		}
+		if (uri.getHost() == null) {
+			throw new IllegalStateException("ClickHouse JDBC地址缺少主机名: " + jdbcUrl);
+		}
+		int port = uri.getPort() > 0 ? uri.getPort() : ("https".equals(scheme) ? DEFAULT_HTTPS_PORT : DEFAULT_HTTP_PORT);
+		return scheme + "://" + uri.getHost() + ":" + port;
+	}
+
+	private static String stripTrailingSlash(String url) {
+		return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+	}
+
+}
@@ -0,0 +1,118 @@
+package org.pms.infrastructure.adapter.repository.clickhouse;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * ClickHouse汇总表初始化
+ * <p>
+ * 启动时执行db/clickhouse下的建表语句, 创建分钟/小时/天汇总表和对应的物化视图;
+ * 语句均为IF NOT EXISTS, 重复执行无副作用
+ * <p>
+ * 汇总表不可用(关闭或创建失败)时, 统计查询退回扫描原始数据, 不影响功能
+ * <p>
+ * 水位线: 物化视图只汇总创建之后写入的数据, 每张汇总表以对应物化视图的创建时间(system.tables.metadata_modification_time)
+ * 为水位线, 统计查询在水位线之前的部分扫描原始数据, 部署当天起的统计结果不会少算;
+ * 执行完SQL文件末尾的回填语句后配置clickhouse.rollup.backfilled=true, 汇总表覆盖全部历史数据
+ *
+ * @author alcsyooterranf
+ * @program PressureMonitorSys-business
+ * @create 2026/10/18
+ */
+@Slf4j
+@Component
+public class ClickHouseRollupInitializer {
+
+	private static final String ROLLUP_DDL = "db/clickhouse/CH20261018_01__device_data_rollup.sql";
+
+	@Autowired
+	@Qualifier("clickHouseJdbcTemplate")
+	private JdbcTemplate clickHouseJdbcTemplate;
+
+	/**
+	 * 统计查询是否使用汇总表
+	 */
+	@Value("${clickhouse.rollup.enabled:true}")
+	private boolean enabled;
+
+	/**
+	 * 启动时是否自动创建汇总表; 关闭时认为汇总表已由DBA创建
+	 */
+	@Value("${clickhouse.rollup.auto-create:true}")
+	private boolean autoCreate;
+
+	/**
+	 * 历史数据是否已回填到汇总表, 回填后水位线不再限制汇总表的使用范围
+	 */
+	@Value("${clickhouse.rollup.backfilled:false}")
+	private boolean backfilled;
+
+	private volatile Map<ClickHouseRollupPlanner.RollupLevel, Instant> watermarks = Collections.emptyMap();
+
+	@PostConstruct
+	public void init() {
+		if (!enabled) {
+			log.info("ClickHouse汇总表未启用, 统计查询扫描原始数据");
+			return;
+		}
+		try {
+			if (autoCreate) {
+				int executed = ClickHouseScripts.execute(clickHouseJdbcTemplate, ROLLUP_DDL);
+				log.info("ClickHouse汇总表初始化完成, 执行语句数: {}", executed);
+			}
+			watermarks = loadWatermarks();
+			log.info("ClickHouse汇总表水位线: {}, backfilled={}", watermarks, backfilled);
+		} catch (Exception e) {
+			// 不阻止启动, 统计查询退回扫描原始数据
+			log.error("ClickHouse汇总表初始化失败, 统计查询将扫描原始数据", e);
+		}
+	}
+
+	/**
+	 * 读取各物化视图的创建时间作为水位线, 物化视图不存在的汇总表不使用
+	 */
+	private Map<ClickHouseRollupPlanner.RollupLevel, Instant> loadWatermarks() {
+		Map<ClickHouseRollupPlanner.RollupLevel, Instant> result = new EnumMap<>(ClickHouseRollupPlanner.RollupLevel.class);
+		for (ClickHouseRollupPlanner.RollupLevel level : ClickHouseRollupPlanner.RollupLevel.values()) {
+			if (level.isRaw()) {
+				continue;
+			}
+			Long createSeconds = clickHouseJdbcTemplate.query("""
+							SELECT toUnixTimestamp(metadata_modification_time)
+							FROM system.tables
+							WHERE database = 'pressuremonitorsys' AND name = ?""",
+					rs -> rs.next() ? rs.getLong(1) : null, level.view);
+			if (createSeconds == null) {
+				log.warn("ClickHouse物化视图不存在, 不使用对应汇总表: {}", level.view);
+				continue;
+			}
+			result.put(level, backfilled ? Instant.EPOCH : Instant.ofEpochSecond(createSeconds));
+		}
+		return Collections.unmodifiableMap(result);
+	}
+
+	/**
+	 * 汇总表是否可用
+	 */
+	public boolean isAvailable() {
+		return !watermarks.isEmpty();
+	}
+
+	/**
+	 * 各汇总表的水位线, 汇总表包含水位线之后写入的全部数据; 汇总表不可用时为空
+	 */
+	Map<ClickHouseRollupPlanner.RollupLevel, Instant> getWatermarks() {
+		return watermarks;
+	}
+
+}
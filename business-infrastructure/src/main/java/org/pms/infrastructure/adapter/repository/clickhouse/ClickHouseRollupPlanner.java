@@ -0,0 +1,125 @@
+package org.pms.infrastructure.adapter.repository.clickhouse;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 汇总表查询规划
+ * <p>
+ * 把时间范围[from, to)拆成若干段, 每段使用能完整覆盖它的最粗的汇总表:
+ * 中间整天的部分查天表, 两端不足一天的整小时查小时表, 再往外不足一小时的整分钟查分钟表, 剩下不足一分钟的部分查原始表
+ * 例如 01-01 08:30:15 ~ 01-31 10:00:00 拆为:
+ * 原始表[08:30:15, 08:31), 分钟表[08:31, 09:00), 小时表[09:00, 次日00:00), 天表[01-02, 01-31), 小时表[01-31 00:00, 10:00)
+ * <p>
+ * 天/小时的边界按ClickHouse服务端时区计算, 与toStartOfDay的结果一致
+ * <p>
+ * 汇总表只包含物化视图创建之后写入的数据: 每张汇总表有一个水位线, 水位线之前的部分交给更细的汇总表,
+ * 最终落到原始表; 水位线所在的不完整区间同样按对齐规则交给更细的粒度
+ *
+ * @author alcsyooterranf
+ * @program PressureMonitorSys-business
+ * @create 2026/10/18
+ */
+final class ClickHouseRollupPlanner {
+
+	/**
+	 * 汇总粒度, 从粗到细
+	 */
+	enum RollupLevel {
+
+		DAY("pressuremonitorsys.t_monitor_data_rollup_1d", "mv_monitor_data_rollup_1d", ChronoUnit.DAYS),
+		HOUR("pressuremonitorsys.t_monitor_data_rollup_1h", "mv_monitor_data_rollup_1h", ChronoUnit.HOURS),
+		MINUTE("pressuremonitorsys.t_monitor_data_rollup_1m", "mv_monitor_data_rollup_1m", ChronoUnit.MINUTES),
+		RAW("pressuremonitorsys.t_monitor_data_report", null, null);
+
+		final String table;
+		/**
+		 * 写入汇总表的物化视图名(不含库名)
+		 */
+		final String view;
+		final ChronoUnit unit;
+
+		RollupLevel(String table, String view, ChronoUnit unit) {
+			this.table = table;
+			this.view = view;
+			this.unit = unit;
+		}
+
+		boolean isRaw() {
+			return unit == null;
+		}
+
+	}
+
+	/**
+	 * 一段查询范围[from, to)
+	 */
+	record Segment(RollupLevel level, Instant from, Instant to) {
+	}
+
+	private static final RollupLevel[] LEVELS = RollupLevel.values();
+
+	private ClickHouseRollupPlanner() {
+	}
+
+	/**
+	 * 拆分时间范围
+	 *
+	 * @param from       开始时间(含)
+	 * @param to         结束时间(不含)
+	 * @param zone       ClickHouse服务端时区
+	 * @param watermarks 各汇总表的水位线, 汇总表包含水位线之后写入的全部数据; 没有水位线的汇总表不使用,
+	 *                   为空时整段查原始表
+	 * @return 按时间升序的查询段
+	 */
+	static List<Segment> plan(Instant from, Instant to, ZoneId zone, Map<RollupLevel, Instant> watermarks) {
+		List<Segment> segments = new ArrayList<>();
+		if (!from.isBefore(to)) {
+			return segments;
+		}
+		plan(from, to, zone, watermarks, 0, segments);
+		return segments;
+	}
+
+	private static void plan(Instant from, Instant to, ZoneId zone, Map<RollupLevel, Instant> watermarks,
+							 int levelIndex, List<Segment> segments) {
+		if (!from.isBefore(to)) {
+			return;
+		}
+		RollupLevel level = LEVELS[levelIndex];
+		if (level.isRaw()) {
+			segments.add(new Segment(level, from, to));
+			return;
+		}
+		Instant watermark = watermarks.get(level);
+		if (watermark == null || !watermark.isBefore(to)) {
+			plan(from, to, zone, watermarks, levelIndex + 1, segments);
+			return;
+		}
+		// 水位线之前的数据不在汇总表中, 从水位线之后第一个完整区间开始使用
+		Instant alignedFrom = ceil(from.isBefore(watermark) ? watermark : from, zone, level.unit);
+		Instant alignedTo = floor(to, zone, level.unit);
+		if (!alignedFrom.isBefore(alignedTo)) {
+			plan(from, to, zone, watermarks, levelIndex + 1, segments);
+			return;
+		}
+		plan(from, alignedFrom, zone, watermarks, levelIndex + 1, segments);
+		segments.add(new Segment(level, alignedFrom, alignedTo));
+		plan(alignedTo, to, zone, watermarks, levelIndex + 1, segments);
+	}
+
+	private static Instant floor(Instant instant, ZoneId zone, ChronoUnit unit) {
+		return ZonedDateTime.ofInstant(instant, zone).truncatedTo(unit).toInstant();
+	}
+
+	private static Instant ceil(Instant instant, ZoneId zone, ChronoUnit unit) {
+		ZonedDateTime floor = ZonedDateTime.ofInstant(instant, zone).truncatedTo(unit);
+		return floor.toInstant().equals(instant) ? instant : floor.plus(1, unit).toInstant();
+	}
+
+}
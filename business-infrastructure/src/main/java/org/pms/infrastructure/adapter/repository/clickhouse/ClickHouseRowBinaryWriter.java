@@ -0,0 +1,355 @@
+package org.pms.infrastructure.adapter.repository.clickhouse;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import net.jpountz.lz4.LZ4FrameOutputStream;
+import org.pms.infrastructure.mapper.po.DeviceDataPO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * ClickHouse RowBinary写入器
+ * <p>
+ * 为什么不用JDBC batchUpdate?
+ * - JDBC每行要设置23个参数, 每个参数装箱后再由驱动转换, 写入线程的CPU主要消耗在这里
+ * - RowBinary是ClickHouse的原生行格式, 直接按列类型写字节, 服务端无需解析文本
+ * <p>
+ * 工作原理:
+ * 1. 每个写入线程持有一个可复用的直接内存缓冲区, 按RowBinary格式把一批数据写进去
+ * 2. 可选LZ4/GZIP压缩(clickhouse.http.compression), 压缩结果同样写入可复用缓冲区
+ * 3. 通过HTTP接口 POST "INSERT INTO ... FORMAT RowBinary", 请求体直接引用缓冲区, 不再拷贝
+ * <p>
+ * 列类型约定(与t_monitor_data_report建表语句一致):
+ * id/pipeline_id/device_id为UInt64, temperature/voltage/pressure为Int32,
+ * abnormal_flag/process_state/is_removed为UInt8, create_time为DateTime, 其余为String;
+ * up_packet_sn、up_data_sn、topic、service_id、message_type不在上报数据中, 不写入, 使用建表默认值
+ *
+ * @author alcsyooterranf
+ * @program PressureMonitorSys-business
+ * @create 2026/10/18
+ */
+@Slf4j
+@Component
+public class ClickHouseRowBinaryWriter {
+
+	private static final String INSERT_SQL = """
+			INSERT INTO pressuremonitorsys.t_monitor_data_report
+			(id, tenant_id, protocol, pipeline_id, pipeline_sn, temperature, voltage, pressure, abnormal_flag,
+			 device_type, device_id, device_sn, assoc_asset_id, imsi, imei, create_time, process_state, is_removed)
+			FORMAT RowBinary""";
+
+	private static final int INITIAL_BUFFER_SIZE = 1 << 20;
+
+	/**
+	 * 压缩方式
+	 */
+	public enum Compression {
+		NONE, LZ4, GZIP
+	}
+
+	/**
+	 * ClickHouse HTTP接口地址, 未配置时从spring.datasource.clickhouse.jdbc-url推导(见ClickHouseHttpUrls)
+	 */
+	@Value("${clickhouse.http.url:}")
+	private String httpUrl;
+
+	@Value("${spring.datasource.clickhouse.jdbc-url:}")
+	private String jdbcUrl;
+
+	@Value("${clickhouse.http.username:${spring.datasource.clickhouse.username:default}}")
+	private String username;
+
+	@Value("${clickhouse.http.password:${spring.datasource.clickhouse.password:}}")
+	private String password;
+
+	@Value("${clickhouse.http.compression:NONE}")
+	private Compression compression;
+
+	/**
+	 * 单次写入超时(毫秒)
+	 */
+	@Value("${clickhouse.http.timeout:30000}")
+	private long timeout;
+
+	private HttpClient httpClient;
+
+	private URI insertUri;
+
+	/**
+	 * 每个写入线程复用的序列化缓冲区和压缩缓冲区
+	 */
+	private final ThreadLocal<ByteBuffer> rowBuffers = ThreadLocal.withInitial(() -> allocate(INITIAL_BUFFER_SIZE));
+	private final ThreadLocal<ByteBuffer> compressBuffers = ThreadLocal.withInitial(() -> allocate(INITIAL_BUFFER_SIZE));
+
+	@PostConstruct
+	public void init() {
+		httpClient = HttpClient.newBuilder()
+				.version(HttpClient.Version.HTTP_1_1)
+				.connectTimeout(Duration.ofSeconds(5))
+				.build();
+		// 地址无法确定时启动失败, 不让每次写入都失败后悄悄溢写
+		httpUrl = ClickHouseHttpUrls.resolve(httpUrl, jdbcUrl);
+		insertUri = URI.create(httpUrl + "/?query=" + URLEncoder.encode(INSERT_SQL, StandardCharsets.UTF_8));
+		log.info("ClickHouse RowBinary写入器初始化完成: url={}, compression={}", httpUrl, compression);
+	}
+
+	/**
+	 * 批量写入
+	 *
+	 * @param dataList 监控数据
+	 * @throws IOException 网络异常或ClickHouse返回非200
+	 */
+	public void write(List<DeviceDataPO> dataList) throws IOException, InterruptedException {
+		ByteBuffer body = encode(dataList);
+		if (compression != Compression.NONE) {
+			body = compress(body);
+		}
+
+		HttpRequest.Builder builder = HttpRequest.newBuilder(insertUri)
+				.timeout(Duration.ofMillis(timeout))
+				.header("X-ClickHouse-User", username)
+				.header("X-ClickHouse-Key", password)
+				.POST(new ByteBufferBodyPublisher(body));
+		if (compression != Compression.NONE) {
+			builder.header("Content-Encoding", compression.name().toLowerCase());
+		}
+		HttpResponse<String> response = httpClient.send(builder.build(), HttpResponse.BodyHandlers.ofString());
+		if (response.statusCode() != 200) {
+			throw new IOException("ClickHouse写入失败, status=" + response.statusCode() + ", body=" + response.body());
+		}
+	}
+
+	/**
+	 * 按RowBinary格式序列化一批数据, 返回的缓冲区已flip, 可直接读取
+	 */
+	private ByteBuffer encode(List<DeviceDataPO> dataList) {
+		ByteBuffer buf = rowBuffers.get();
+		buf.clear();
+		for (DeviceDataPO data : dataList) {
+			buf = ensureCapacity(rowBuffers, buf, estimateRowSize(data));
+			buf.putLong(longValue(data.getId()));
+			putString(buf, data.getTenantId());
+			putString(buf, data.getProtocol());
+			buf.putLong(longValue(data.getPipelineId()));
+			putString(buf, data.getPipelineSN());
+			buf.putInt(intValue(data.getTemperature()));
+			buf.putInt(intValue(data.getVoltage()));
+			buf.putInt(intValue(data.getPressure()));
+			buf.put((byte) data.resolveAbnormalMask());
+			putString(buf, data.getDeviceType());
+			buf.putLong(longValue(data.getDeviceId()));
+			putString(buf, data.getDeviceSN());
+			putString(buf, data.getAssocAssetId());
+			putString(buf, data.getIMSI());
+			putString(buf, data.getIMEI());
+			// DateTime: 自1970-01-01以来的秒数, UInt32
+			buf.putInt(data.getCreateTime() == null ? 0 : (int) (data.getCreateTime().getTime() / 1000));
+			buf.put((byte) (Boolean.TRUE.equals(data.getProcessState()) ? 1 : 0));
+			buf.put((byte) (Boolean.TRUE.equals(data.getRemoved()) ? 1 : 0));
+		}
+		buf.flip();
+		return buf;
+	}
+
+	private ByteBuffer compress(ByteBuffer source) throws IOException {
+		ByteBuffer target = compressBuffers.get();
+		target.clear();
+		ByteBufferOutputStream out = new ByteBufferOutputStream(target);
+		try (OutputStream compressed = compression == Compression.LZ4
+				? new LZ4FrameOutputStream(out)
+				: new GZIPOutputStream(out, 64 * 1024)) {
+			byte[] chunk = new byte[64 * 1024];
+			while (source.hasRemaining()) {
+				int length = Math.min(chunk.length, source.remaining());
+				source.get(chunk, 0, length);
+				compressed.write(chunk, 0, length);
+			}
+		}
+		compressBuffers.set(out.buffer);
+		out.buffer.flip();
+		return out.buffer;
+	}
+
+	/**
+	 * String: LEB128变长长度 + UTF-8字节, 逐字符编码, 不创建中间byte[]
+	 */
+	private static void putString(ByteBuffer buf, String value) {
+		if (value == null || value.isEmpty()) {
+			buf.put((byte) 0);
+			return;
+		}
+		int utf8Length = utf8Length(value);
+		int length = utf8Length;
+		while ((length & ~0x7F) != 0) {
+			buf.put((byte) ((length & 0x7F) | 0x80));
+			length >>>= 7;
+		}
+		buf.put((byte) length);
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c < 0x80) {
+				buf.put((byte) c);
+			} else if (c < 0x800) {
+				buf.put((byte) (0xC0 | (c >> 6)));
+				buf.put((byte) (0x80 | (c & 0x3F)));
+			} else if (Character.isHighSurrogate(c) && i + 1 < value.length()) {
+				int codePoint = Character.toCodePoint(c, value.charAt(++i));
+				buf.put((byte) (0xF0 | (codePoint >> 18)));
+				buf.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+				buf.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+				buf.put((byte) (0x80 | (codePoint & 0x3F)));
+			} else {
+				buf.put((byte) (0xE0 | (c >> 12)));
+				buf.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+				buf.put((byte) (0x80 | (c & 0x3F)));
+			}
+		}
+	}
+
+	private static int utf8Length(String value) {
+		int length = 0;
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c < 0x80) {
+				length += 1;
+			} else if (c < 0x800) {
+				length += 2;
+			} else if (Character.isHighSurrogate(c) && i + 1 < value.length()) {
+				length += 4;
+				i++;
+			} else {
+				length += 3;
+			}
+		}
+		return length;
+	}
+
+	/**
+	 * 单行最大字节数: 定长列60字节, 字符串列按每字符最多3字节加5字节长度前缀估算
+	 */
+	private static int estimateRowSize(DeviceDataPO data) {
+		return 60 + maxStringSize(data.getTenantId()) + maxStringSize(data.getProtocol())
+				+ maxStringSize(data.getPipelineSN()) + maxStringSize(data.getDeviceType())
+				+ maxStringSize(data.getDeviceSN()) + maxStringSize(data.getAssocAssetId())
+				+ maxStringSize(data.getIMSI()) + maxStringSize(data.getIMEI());
+	}
+
+	private static int maxStringSize(String value) {
+		return 5 + (value == null ? 0 : value.length() * 3);
+	}
+
+	private static long longValue(Long value) {
+		return value == null ? 0L : value;
+	}
+
+	private static int intValue(Integer value) {
+		return value == null ? 0 : value;
+	}
+
+	private static ByteBuffer allocate(int capacity) {
+		return ByteBuffer.allocateDirect(capacity).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+	 * 剩余空间不足时按两倍扩容, 并替换线程持有的缓冲区
+	 */
+	private static ByteBuffer ensureCapacity(ThreadLocal<ByteBuffer> holder, ByteBuffer buf, int required) {
+		if (buf.remaining() >= required) {
+			return buf;
+		}
+		ByteBuffer grown = allocate(Math.max(buf.capacity() * 2, buf.position() + required));
+		buf.flip();
+		grown.put(buf);
+		holder.set(grown);
+		return grown;
+	}
+
+	/**
+	 * 写入可扩容直接内存缓冲区的输出流, 供压缩流使用
+	 */
+	private static final class ByteBufferOutputStream extends OutputStream {
+
+		private ByteBuffer buffer;
+
+		private ByteBufferOutputStream(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public void write(int b) {
+			ensure(1);
+			buffer.put((byte) b);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			ensure(len);
+			buffer.put(b, off, len);
+		}
+
+		private void ensure(int required) {
+			if (buffer.remaining() < required) {
+				ByteBuffer grown = allocate(Math.max(buffer.capacity() * 2, buffer.position() + required));
+				buffer.flip();
+				grown.put(buffer);
+				buffer = grown;
+			}
+		}
+
+	}
+
+	/**
+	 * 直接以缓冲区作为请求体, 避免拷贝成byte[]
+	 * 调用方在HttpClient.send返回前不会修改缓冲区
+	 */
+	private static final class ByteBufferBodyPublisher implements HttpRequest.BodyPublisher {
+
+		private final ByteBuffer body;
+
+		private ByteBufferBodyPublisher(ByteBuffer body) {
+			this.body = body;
+		}
+
+		@Override
+		public long contentLength() {
+			return body.remaining();
+		}
+
+		@Override
+		public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+			AtomicBoolean done = new AtomicBoolean(false);
+			subscriber.onSubscribe(new Flow.Subscription() {
+				@Override
+				public void request(long n) {
+					if (n > 0 && done.compareAndSet(false, true)) {
+						subscriber.onNext(body.duplicate());
+						subscriber.onComplete();
+					}
+				}
+
+				@Override
+				public void cancel() {
+					done.set(true);
+				}
+			});
+		}
+
+	}
+
+}
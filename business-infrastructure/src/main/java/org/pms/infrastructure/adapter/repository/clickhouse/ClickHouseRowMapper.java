@@ -0,0 +1,148 @@
+package org.pms.infrastructure.adapter.repository.clickhouse;
+
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * 按列序号映射的RowMapper
+ * <p>
+ * 为什么不用BeanPropertyRowMapper或按列名取值?
+ * - BeanPropertyRowMapper每次查询都要反射解析属性并逐列做名称匹配
+ * - rs.getXxx(列名)每行每列都要查找一次列序号, 大结果集的CPU主要消耗在这里
+ * <p>
+ * 工作原理:
+ * 1. 预先登记"列名 -> 赋值函数", 赋值函数按列序号取值
+ * 2. 每次查询的第一行读取结果集元数据, 按列名组合(结果集形状)查找映射计划; 同一形状只解析一次, 之后直接复用
+ * 3. 映射计划只包含结果集中存在的列, 逐行按序号调用赋值函数, 不再查找列名, 也不需要为缺失的列捕获异常
+ * <p>
+ * 登记顺序即赋值顺序, 多个列映射到同一属性时后登记的生效
+ *
+ * @author alcsyooterranf
+ * @program PressureMonitorSys-business
+ * @create 2026/10/18
+ */
+final class ClickHouseRowMapper<T> {
+
+	/**
+	 * 按列序号给对象的一个属性赋值
+	 */
+	@FunctionalInterface
+	interface ColumnSetter<T> {
+
+		void set(T target, ResultSet rs, int index) throws SQLException;
+
+	}
+
+	/**
+	 * 映射计划: 第i步把columns[i]列交给setters[i]
+	 */
+	private record Plan<T>(ColumnSetter<T>[] setters, int[] columns) {
+	}
+
+	private final Supplier<T> factory;
+
+	/**
+	 * 列名(小写) -> 赋值函数, 保持登记顺序
+	 */
+	private final Map<String, ColumnSetter<T>> setters;
+
+	/**
+	 * 结果集形状 -> 映射计划
+	 */
+	private final ConcurrentHashMap<String, Plan<T>> plans = new ConcurrentHashMap<>();
+
+	private ClickHouseRowMapper(Supplier<T> factory, Map<String, ColumnSetter<T>> setters) {
+		this.factory = factory;
+		this.setters = setters;
+	}
+
+	static <T> Builder<T> builder(Supplier<T> factory) {
+		return new Builder<>(factory);
+	}
+
+	/**
+	 * 为一次查询创建RowMapper, 不能跨查询复用
+	 */
+	RowMapper<T> mapper() {
+		return new RowMapper<>() {
+
+			private Plan<T> plan;
+
+			@Override
+			public T mapRow(ResultSet rs, int rowNum) throws SQLException {
+				if (plan == null) {
+					plan = resolve(rs.getMetaData());
+				}
+				T target = factory.get();
+				ColumnSetter<T>[] planSetters = plan.setters();
+				int[] columns = plan.columns();
+				for (int i = 0; i < columns.length; i++) {
+					planSetters[i].set(target, rs, columns[i]);
+				}
+				return target;
+			}
+
+		};
+	}
+
+	private Plan<T> resolve(ResultSetMetaData metaData) throws SQLException {
+		int columnCount = metaData.getColumnCount();
+		String[] labels = new String[columnCount];
+		for (int i = 0; i < columnCount; i++) {
+			// JOIN查询中未起别名的列可能带表别名前缀(d.id), 只取列名部分
+			String label = metaData.getColumnLabel(i + 1);
+			labels[i] = label.substring(label.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+		}
+		return plans.computeIfAbsent(String.join(",", labels), shape -> compile(labels));
+	}
+
+	@SuppressWarnings("unchecked")
+	private Plan<T> compile(String[] labels) {
+		Map<String, Integer> indexes = new LinkedHashMap<>();
+		for (int i = 0; i < labels.length; i++) {
+			// 同名列取第一个
+			indexes.putIfAbsent(labels[i], i + 1);
+		}
+		List<ColumnSetter<T>> planSetters = new ArrayList<>();
+		List<Integer> columns = new ArrayList<>();
+		setters.forEach((column, setter) -> {
+			Integer index = indexes.get(column);
+			if (index != null) {
+				planSetters.add(setter);
+				columns.add(index);
+			}
+		});
+		return new Plan<>(planSetters.toArray(new ColumnSetter[0]), columns.stream().mapToInt(Integer::intValue).toArray());
+	}
+
+	static final class Builder<T> {
+
+		private final Supplier<T> factory;
+		private final Map<String, ColumnSetter<T>> setters = new LinkedHashMap<>();
+
+		private Builder(Supplier<T> factory) {
+			this.factory = factory;
+		}
+
+		Builder<T> column(String column, ColumnSetter<T> setter) {
+			setters.put(column.toLowerCase(Locale.ROOT), setter);
+			return this;
+		}
+
+		ClickHouseRowMapper<T> build() {
+			return new ClickHouseRowMapper<>(factory, new LinkedHashMap<>(setters));
+		}
+
+	}
+
+}
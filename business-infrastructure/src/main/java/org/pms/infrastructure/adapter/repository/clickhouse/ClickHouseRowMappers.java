@@ -0,0 +1,83 @@
+package org.pms.infrastructure.adapter.repository.clickhouse;
+
+import org.pms.domain.devicedata.model.vo.AbnormalFlagVO;
+import org.pms.infrastructure.mapper.po.DeviceDataPO;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.function.Consumer;
+
+/**
+ * ClickHouse查询使用的RowMapper定义
+ *
+ * @author alcsyooterranf
+ * @program PressureMonitorSys-business
+ * @create 2026/10/18
+ */
+final class ClickHouseRowMappers {
+
+	/**
+	 * t_monitor_data_report及其派生视图 -> DeviceDataPO
+	 * <p>
+	 * 查询可以只选择部分列, 未选择的属性保持null;
+	 * abnormal_flag在ClickHouse中为位掩码, 同时转换为掩码和旧版code字符串;
+	 * 处理状态表的is_processed/is_deleted登记在process_state/is_removed之后, 同时存在时以状态表为准;
+	 * 状态视图的st_*列同理, 登记在原始表的处理时间/处理人/删除时间/删除人之后
+	 */
+	static final ClickHouseRowMapper<DeviceDataPO> DEVICE_DATA = ClickHouseRowMapper.builder(DeviceDataPO::new)
+			.column("id", (po, rs, i) -> po.setId(rs.getLong(i)))
+			.column("tenant_id", (po, rs, i) -> po.setTenantId(rs.getString(i)))
+			.column("protocol", (po, rs, i) -> po.setProtocol(rs.getString(i)))
+			.column("pipeline_id", (po, rs, i) -> po.setPipelineId(rs.getLong(i)))
+			.column("pipeline_sn", (po, rs, i) -> po.setPipelineSN(rs.getString(i)))
+			.column("temperature", (po, rs, i) -> po.setTemperature(rs.getInt(i)))
+			.column("voltage", (po, rs, i) -> po.setVoltage(rs.getInt(i)))
+			.column("pressure", (po, rs, i) -> po.setPressure(rs.getInt(i)))
+			.column("abnormal_flag", (po, rs, i) -> {
+				int abnormalMask = rs.getInt(i);
+				po.setAbnormalMask(abnormalMask);
+				po.setAbnormalFlag(AbnormalFlagVO.toCodeString(abnormalMask));
+			})
+			.column("device_type", (po, rs, i) -> po.setDeviceType(rs.getString(i)))
+			.column("device_id", (po, rs, i) -> po.setDeviceId(rs.getLong(i)))
+			.column("device_sn", (po, rs, i) -> po.setDeviceSN(rs.getString(i)))
+			.column("assoc_asset_id", (po, rs, i) -> po.setAssocAssetId(rs.getString(i)))
+			.column("imsi", (po, rs, i) -> po.setIMSI(rs.getString(i)))
+			.column("imei", (po, rs, i) -> po.setIMEI(rs.getString(i)))
+			.column("create_time", (po, rs, i) -> po.setCreateTime(toDate(rs, i)))
+			// ClickHouse中是UInt8(0/1), 转换为Boolean
+			.column("process_state", (po, rs, i) -> po.setProcessState(rs.getInt(i) == 1))
+			.column("is_processed", (po, rs, i) -> po.setProcessState(rs.getInt(i) == 1))
+			.column("process_time", (po, rs, i) -> po.setProcessTime(toDate(rs, i)))
+			.column("process_by", (po, rs, i) -> po.setProcessBy(rs.getString(i)))
+			.column("is_removed", (po, rs, i) -> po.setRemoved(rs.getInt(i) == 1))
+			.column("is_deleted", (po, rs, i) -> po.setRemoved(rs.getInt(i) == 1))
+			.column("delete_time", (po, rs, i) -> po.setDeleteTime(toDate(rs, i)))
+			.column("delete_by", (po, rs, i) -> po.setDeleteBy(rs.getString(i)))
+			// 状态视图的处理/删除信息, 为NULL(没有状态记录)时保留原始表的值
+			.column("st_process_time", (po, rs, i) -> setIfPresent(toDate(rs, i), po::setProcessTime))
+			.column("st_process_by", (po, rs, i) -> setIfPresent(rs.getString(i), po::setProcessBy))
+			.column("st_delete_time", (po, rs, i) -> setIfPresent(toDate(rs, i), po::setDeleteTime))
+			.column("st_delete_by", (po, rs, i) -> setIfPresent(rs.getString(i), po::setDeleteBy))
+			.build();
+
+	private ClickHouseRowMappers() {
+	}
+
+	private static <V> void setIfPresent(V value, Consumer<V> setter) {
+		if (value != null) {
+			setter.accept(value);
+		}
+	}
+
+	/**
+	 * Nullable的DateTime列, 为NULL时返回null
+	 */
+	private static Date toDate(ResultSet rs, int index) throws SQLException {
+		Timestamp timestamp = rs.getTimestamp(index);
+		return timestamp == null ? null : new Date(timestamp.getTime());
+	}
+
+}
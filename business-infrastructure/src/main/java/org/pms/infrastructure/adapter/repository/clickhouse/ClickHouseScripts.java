@@ -0,0 +1,54 @@
+package org.pms.infrastructure.adapter.repository.clickhouse;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 执行db/clickhouse下的建表脚本
+ * <p>
+ * 脚本按分号拆分为单条语句执行(ClickHouse JDBC不支持一次执行多条语句), 以--开头的注释行会被去掉
+ *
+ * @author alcsyooterranf
+ * @program PressureMonitorSys-business
+ * @create 2026/10/18
+ */
+final class ClickHouseScripts {
+
+	private ClickHouseScripts() {
+	}
+
+	/**
+	 * @param clickHouseJdbcTemplate ClickHouse连接
+	 * @param location               classpath下的脚本路径
+	 * @return 执行的语句数
+	 */
+	static int execute(JdbcTemplate clickHouseJdbcTemplate, String location) throws IOException {
+		try (InputStream in = new ClassPathResource(location).getInputStream()) {
+			String script = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+			int executed = 0;
+			for (String statement : script.split(";")) {
+				String sql = stripComments(statement);
+				if (!sql.isEmpty()) {
+					clickHouseJdbcTemplate.execute(sql);
+					executed++;
+				}
+			}
+			return executed;
+		}
+	}
+
+	private static String stripComments(String statement) {
+		StringBuilder sql = new StringBuilder();
+		for (String line : statement.split("\n")) {
+			if (!line.trim().startsWith("--")) {
+				sql.append(line).append('\n');
+			}
+		}
+		return sql.toString().trim();
+	}
+
+}
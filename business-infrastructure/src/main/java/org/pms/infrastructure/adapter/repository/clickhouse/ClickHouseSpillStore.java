@@ -0,0 +1,69 @@
+package org.pms.infrastructure.adapter.repository.clickhouse;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import org.pms.infrastructure.mapper.po.DeviceDataPO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * ClickHouse写前溢写存储(本地WAL), 存放监控数据
+ * <p>
+ * 为什么需要溢写?
+ * - ClickHouse不可用或缓冲队列已满时, 原来的做法是记录日志后丢弃, MySQL与ClickHouse数据不一致
+ * - 溢写到本地磁盘后由后台线程在ClickHouse恢复时回放, 保证双写不丢数据
+ * <p>
+ * 文件格式和回放流程见AbstractClickHouseSpillStore
+ *
+ * @author alcsyooterranf
+ * @program PressureMonitorSys-business
+ * @create 2026/10/18
+ */
+@Component
+public class ClickHouseSpillStore extends AbstractClickHouseSpillStore<DeviceDataPO> {
+
+	@Resource
+	private ClickHouseDataReportRepository clickHouseRepository;
+
+	/**
+	 * 溢写目录
+	 */
+	@Value("${clickhouse.spill.dir:./data/clickhouse-spill}")
+	private String spillDir;
+
+	/**
+	 * 单个段文件大小(字节)
+	 */
+	@Value("${clickhouse.spill.segment-size:67108864}")
+	private int segmentSize;
+
+	/**
+	 * 回放间隔(毫秒)
+	 */
+	@Value("${clickhouse.spill.replay-interval:10000}")
+	private long replayInterval;
+
+	/**
+	 * 回放时每批写入ClickHouse的条数
+	 */
+	@Value("${clickhouse.batch-size:1000}")
+	private int replayBatchSize;
+
+	public ClickHouseSpillStore() {
+		super(DeviceDataPO.class, "ClickHouse数据", "ClickHouse-Spill-Replayer");
+	}
+
+	@PostConstruct
+	public void init() throws IOException {
+		start(spillDir, segmentSize, replayInterval, replayBatchSize);
+	}
+
+	@Override
+	protected void replayBatch(List<DeviceDataPO> batch) {
+		clickHouseRepository.batchInsertMonitorData(batch);
+	}
+
+}
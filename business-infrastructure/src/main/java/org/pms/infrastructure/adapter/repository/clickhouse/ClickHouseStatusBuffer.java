@@ -0,0 +1,309 @@
+package org.pms.infrastructure.adapter.repository.clickhouse;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.pms.infrastructure.adapter.repository.cache.AbnormalDataQueryCache;
+import org.pms.infrastructure.mapper.po.AbnormalProcessStatusPO;
+import org.pms.types.BizCode;
+import org.pms.types.BizException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ClickHouse异常数据处理状态批量写入器
+ * <p>
+ * 为什么不直接UPDATE?
+ * - ClickHouse的ALTER TABLE UPDATE是mutation, 每次都要重写数据所在的整个part, 操作员每点一次就是一次重量级任务,
+ * 很快在system.mutations中堆积
+ * - 改为向ReplacingMergeTree状态表插入带版本号的状态行, 读取时通过v_abnormal_process_status取最新状态
+ * <p>
+ * 工作原理:
+ * 1. MySQL更新成功后, markAsProcessed/markAsDeleted只把状态行放入有界队列, 立即返回
+ * 2. 写入线程取到第一行后再等待flush-interval(或攒满batch-size), 一次批量INSERT
+ * 3. 写入失败按指数退避重试, 超过最大次数后溢写到本地(ClickHouseStatusSpillStore), ClickHouse恢复后回放
+ * 4. 队列已满时直接溢写; 溢写也失败时抛出异常, 操作员的请求失败并回滚MySQL, 不会只在一边生效
+ * 5. 写入成功后失效异常列表缓存, 下一次轮询即可看到新状态
+ * <p>
+ * 状态行是ClickHouse中唯一的处理/删除记录, 不能丢弃: 丢失一行, 这条数据在ClickHouse中就一直是未处理/未删除
+ * <p>
+ * 版本号为单调递增的毫秒时间戳, 同一毫秒内的多次操作依次加一, 保证后写入的状态行版本更大
+ *
+ * @author alcsyooterranf
+ * @program PressureMonitorSys-business
+ * @create 2026/10/18
+ */
+@Slf4j
+@Component
+public class ClickHouseStatusBuffer {
+
+	private static final String STATUS_DDL = "db/clickhouse/CH20261018_02__abnormal_process_status.sql";
+
+	@Autowired
+	@Qualifier("clickHouseJdbcTemplate")
+	private JdbcTemplate clickHouseJdbcTemplate;
+
+	@Resource
+	private ClickHouseStatusRepository clickHouseStatusRepository;
+
+	@Resource
+	private AbnormalDataQueryCache abnormalDataQueryCache;
+
+	@Resource
+	private ClickHouseStatusSpillStore statusSpillStore;
+
+	/**
+	 * 启动时是否自动创建状态表和状态视图
+	 * 默认关闭, 生产环境由DBA执行db/clickhouse下的脚本; 仅开发/测试环境打开
+	 */
+	@Value("${clickhouse.status.auto-create:false}")
+	private boolean autoCreate;
+
+	/**
+	 * 单批最大行数
+	 */
+	@Value("${clickhouse.status.batch-size:500}")
+	private int batchSize;
+
+	/**
+	 * 攒批等待时间(毫秒)
+	 */
+	@Value("${clickhouse.status.flush-interval:200}")
+	private long flushInterval;
+
+	@Value("${clickhouse.status.queue-capacity:10000}")
+	private int queueCapacity;
+
+	/**
+	 * 最大尝试次数(含首次)
+	 */
+	@Value("${clickhouse.status.max-attempts:5}")
+	private int maxAttempts;
+
+	/**
+	 * 首次重试间隔(毫秒), 之后每次翻倍
+	 */
+	@Value("${clickhouse.status.initial-backoff:500}")
+	private long initialBackoff;
+
+	/**
+	 * 最大重试间隔(毫秒)
+	 */
+	@Value("${clickhouse.status.max-backoff:10000}")
+	private long maxBackoff;
+
+	private BlockingQueue<AbnormalProcessStatusPO> queue;
+
+	private Thread writer;
+
+	private volatile boolean running = true;
+
+	private final AtomicLong versionClock = new AtomicLong();
+
+	private final LongAdder writtenCount = new LongAdder();
+	private final LongAdder spilledCount = new LongAdder();
+	private final LongAdder droppedCount = new LongAdder();
+
+	@PostConstruct
+	public void init() {
+		if (autoCreate) {
+			try {
+				int executed = ClickHouseScripts.execute(clickHouseJdbcTemplate, STATUS_DDL);
+				log.info("ClickHouse处理状态表初始化完成, 执行语句数: {}", executed);
+			} catch (Exception e) {
+				// 不阻止启动, 状态写入失败时按重试/溢写处理
+				log.error("ClickHouse处理状态表初始化失败", e);
+			}
+		}
+		queue = new ArrayBlockingQueue<>(queueCapacity);
+		writer = new Thread(this::runWriter, "ClickHouse-Status-Writer");
+		writer.setDaemon(true);
+		writer.start();
+		log.info("ClickHouse处理状态写入器启动成功: batchSize={}, flushInterval={}ms, queueCapacity={}",
+				batchSize, flushInterval, queueCapacity);
+	}
+
+	@PreDestroy
+	public void destroy() {
+		running = false;
+		writer.interrupt();
+		try {
+			writer.join(5000);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		// 剩余状态行最后写一次, 失败溢写到本地, 下次启动后回放
+		List<AbnormalProcessStatusPO> remaining = new ArrayList<>();
+		queue.drainTo(remaining);
+		if (!remaining.isEmpty()) {
+			try {
+				write(remaining);
+			} catch (Exception e) {
+				spill(remaining, e.getMessage());
+			}
+		}
+		log.info("ClickHouse处理状态写入器已关闭: written={}, spilled={}, dropped={}",
+				getWrittenCount(), getSpilledCount(), getDroppedCount());
+	}
+
+	/**
+	 * 标记异常数据为"已处理"
+	 *
+	 * @param dataId    数据ID
+	 * @param processBy 处理人
+	 */
+	public void markAsProcessed(Long dataId, String processBy) {
+		offer(AbnormalProcessStatusPO.builder()
+				.dataId(dataId)
+				.processed(true)
+				.processTime(new Date())
+				.processBy(processBy)
+				.deleted(false)
+				.version(nextVersion())
+				.build());
+	}
+
+	/**
+	 * 标记异常数据为"已删除"
+	 *
+	 * @param dataId   数据ID
+	 * @param deleteBy 删除人
+	 */
+	public void markAsDeleted(Long dataId, String deleteBy) {
+		offer(AbnormalProcessStatusPO.builder()
+				.dataId(dataId)
+				.processed(false)
+				.deleted(true)
+				.deleteTime(new Date())
+				.deleteBy(deleteBy)
+				.version(nextVersion())
+				.build());
+	}
+
+	/**
+	 * 放入队列, 队列已满时溢写; 溢写也失败时抛出异常, 由调用方回滚MySQL
+	 */
+	private void offer(AbnormalProcessStatusPO status) {
+		if (queue.offer(status)) {
+			return;
+		}
+		if (!spill(List.of(status), "状态队列已满")) {
+			throw new BizException(BizCode.UN_ERROR, "处理状态同步到ClickHouse失败, 请稍后重试");
+		}
+	}
+
+	private long nextVersion() {
+		return versionClock.updateAndGet(last -> Math.max(last + 1, System.currentTimeMillis()));
+	}
+
+	private void runWriter() {
+		List<AbnormalProcessStatusPO> batch = new ArrayList<>(batchSize);
+		while (running) {
+			try {
+				AbnormalProcessStatusPO first = queue.poll(1, TimeUnit.SECONDS);
+				if (first == null) {
+					continue;
+				}
+				batch.add(first);
+				long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushInterval);
+				while (batch.size() < batchSize) {
+					long remaining = deadline - System.nanoTime();
+					if (remaining <= 0) {
+						break;
+					}
+					AbnormalProcessStatusPO next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+					if (next == null) {
+						break;
+					}
+					batch.add(next);
+					queue.drainTo(batch, batchSize - batch.size());
+				}
+				writeWithRetry(batch);
+			} catch (InterruptedException e) {
+				// 关闭中, 已取出但未写入的状态行放回队列, 由destroy统一写入; 放不回的直接溢写
+				List<AbnormalProcessStatusPO> rejected = batch.stream().filter(status -> !queue.offer(status)).toList();
+				if (!rejected.isEmpty()) {
+					spill(rejected, "关闭中, 状态队列已满");
+				}
+				Thread.currentThread().interrupt();
+				break;
+			} finally {
+				batch.clear();
+			}
+		}
+	}
+
+	private void writeWithRetry(List<AbnormalProcessStatusPO> batch) throws InterruptedException {
+		for (int attempt = 1; ; attempt++) {
+			try {
+				write(batch);
+				return;
+			} catch (Exception e) {
+				if (attempt >= maxAttempts) {
+					spill(batch, e.getMessage());
+					return;
+				}
+				long delay = Math.min(maxBackoff, initialBackoff << Math.min(attempt - 1, 20));
+				log.warn("ClickHouse处理状态写入失败, {}ms后第{}次重试, rows={}, error={}",
+						delay, attempt + 1, batch.size(), e.getMessage());
+				TimeUnit.MILLISECONDS.sleep(delay);
+			}
+		}
+	}
+
+	private void write(List<AbnormalProcessStatusPO> batch) {
+		clickHouseStatusRepository.insertStatusBatch(batch);
+		writtenCount.add(batch.size());
+		for (AbnormalProcessStatusPO status : batch) {
+			abnormalDataQueryCache.invalidateByDataId(status.getDataId());
+		}
+	}
+
+	/**
+	 * 溢写到本地, 由ClickHouseStatusSpillStore回放
+	 *
+	 * @return true-已溢写, false-本地磁盘也不可用, 状态行丢失
+	 */
+	private boolean spill(List<AbnormalProcessStatusPO> rows, String reason) {
+		List<AbnormalProcessStatusPO> copy = new ArrayList<>(rows);
+		if (statusSpillStore.append(copy)) {
+			spilledCount.add(copy.size());
+			log.warn("ClickHouse处理状态写入失败, 已溢写到本地等待回放: rows={}, reason={}", copy.size(), reason);
+			return true;
+		}
+		droppedCount.add(copy.size());
+		log.error("ClickHouse处理状态溢写失败, 需要人工补写状态表: dataIds={}, reason={}",
+				copy.stream().map(AbnormalProcessStatusPO::getDataId).toList(), reason);
+		return false;
+	}
+
+	public int getPendingCount() {
+		return queue.size();
+	}
+
+	public long getWrittenCount() {
+		return writtenCount.sum();
+	}
+
+	public long getSpilledCount() {
+		return spilledCount.sum();
+	}
+
+	public long getDroppedCount() {
+		return droppedCount.sum();
+	}
+
+}
@@ -1,13 +1,18 @@
 package org.pms.infrastructure.adapter.repository.clickhouse;
 
 import lombok.extern.slf4j.Slf4j;
+import org.pms.infrastructure.adapter.repository.cache.AbnormalDataQueryCache;
+import org.pms.infrastructure.mapper.po.AbnormalProcessStatusPO;
+import org.pms.infrastructure.mapper.po.DeviceDataPO;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 
 import java.sql.Timestamp;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 
 /**
  * ClickHouse异常数据处理状态Repository
@@ -20,7 +25,8 @@ import java.util.Date;
  * 工作原理:
  * 1. 当用户"处理"一条异常数据时,插入一条状态记录(is_processed=1)
  * 2. 当用户"删除"一条异常数据时,插入一条状态记录(is_deleted=1)
- * 3. 查询时JOIN状态表,获取最新的处理状态
+ * 3. 查询时JOIN状态视图v_abnormal_process_status,获取最新的处理状态
+ * 状态行由ClickHouseStatusBuffer批量写入, 表结构见db/clickhouse/CH20261018_02__abnormal_process_status.sql
  * 
  * @author zeal
  * @since 2024-11-24
@@ -29,95 +35,136 @@ import java.util.Date;
 @Repository
 public class ClickHouseStatusRepository {
 
+    /**
+     * JOIN状态视图, 原始表别名为d
+     * 未JOIN到状态的数据, st_processed/st_deleted为0, st_*时间和操作人为NULL
+     */
+    static final String STATUS_VIEW_JOIN =
+            "LEFT JOIN pressuremonitorsys.v_abnormal_process_status s ON d.id = s.data_id";
+
+    /**
+     * JOIN状态表(FINAL), 列与状态视图一致
+     * FINAL之后每条数据最多一行处理记录和一行删除记录, 再按data_id合并
+     */
+    static final String STATUS_FINAL_JOIN = """
+            LEFT JOIN (
+                SELECT data_id,
+                       max(is_processed) AS st_processed,
+                       anyIf(process_time, is_processed = 1) AS st_process_time,
+                       anyIf(process_by, is_processed = 1) AS st_process_by,
+                       max(is_deleted) AS st_deleted,
+                       anyIf(delete_time, is_deleted = 1) AS st_delete_time,
+                       anyIf(delete_by, is_deleted = 1) AS st_delete_by
+                FROM pressuremonitorsys.t_abnormal_process_status FINAL
+                GROUP BY data_id
+            ) s ON d.id = s.data_id""";
+
+    /**
+     * 合并原始表和状态表后的处理/删除状态列, 与STATUS_VIEW_JOIN或STATUS_FINAL_JOIN一起使用
+     * is_processed/is_deleted和st_*列由ClickHouseRowMappers.DEVICE_DATA覆盖原始表的对应属性
+     */
+    static final String STATUS_COLUMNS = """
+            greatest(process_state, st_processed) AS is_processed, greatest(is_removed, st_deleted) AS is_deleted,
+            process_time, process_by, delete_time, delete_by,
+            st_process_time, st_process_by, st_delete_time, st_delete_by""";
+
+    /**
+     * 排除已删除数据(原始表旧版mutation写入的is_removed, 以及状态表中的删除记录)
+     */
+    static final String NOT_DELETED = " AND is_removed = 0 AND st_deleted = 0";
+
+    /**
+     * 异常数据列表最多返回的条数
+     */
+    private static final int ABNORMAL_LIST_LIMIT = 1000;
+
     @Autowired
     @Qualifier("clickHouseJdbcTemplate")
     private JdbcTemplate clickHouseJdbcTemplate;
 
     /**
-     * 标记异常数据为"已处理"
-     * 
-     * 注意:这里不是UPDATE,而是INSERT一条新记录
-     * ReplacingMergeTree引擎会在后台合并时保留version最大的记录
-     * 
-     * @param dataId 监控数据ID
-     * @param processBy 处理人
+     * 异常数据列表缓存, 处理/删除后失效
      */
-    public void markAsProcessed(Long dataId, String processBy) {
-        // 插入新版本的状态记录
-        // version使用当前时间戳,确保是最新的
-        String sql = """
-            INSERT INTO pressuremonitorsys.t_abnormal_process_status 
-            (data_id, is_processed, is_deleted, process_time, process_by, version) 
-            VALUES (?, 1, 0, ?, ?, ?)
-            """;
-
-        try {
-            long version = System.currentTimeMillis();
-            clickHouseJdbcTemplate.update(sql,
-                    dataId,
-                    new Timestamp(System.currentTimeMillis()),
-                    processBy,
-                    version);
-
-            log.info("ClickHouse标记已处理成功: dataId={}, processBy={}", dataId, processBy);
-        } catch (Exception e) {
-            log.error("ClickHouse标记已处理失败: dataId={}", dataId, e);
-            throw new RuntimeException("ClickHouse标记已处理失败", e);
-        }
-    }
+    @Autowired
+    private AbnormalDataQueryCache abnormalDataQueryCache;
 
     /**
-     * 标记异常数据为"已删除"
-     * 
-     * @param dataId 监控数据ID
-     * @param deleteBy 删除人
+     * 批量插入状态行
+     *
+     * 注意:这里不是UPDATE,而是INSERT新记录
+     * ReplacingMergeTree引擎会在后台合并时保留version最大的记录
+     * 由ClickHouseStatusBuffer攒批后调用, 一次请求写入整批
+     *
+     * @param statusList 状态行
      */
-    public void markAsDeleted(Long dataId, String deleteBy) {
-        // 插入新版本的状态记录
+    public void insertStatusBatch(List<AbnormalProcessStatusPO> statusList) {
         String sql = """
-            INSERT INTO pressuremonitorsys.t_abnormal_process_status 
-            (data_id, is_processed, is_deleted, delete_time, delete_by, version) 
-            VALUES (?, 0, 1, ?, ?, ?)
+            INSERT INTO pressuremonitorsys.t_abnormal_process_status
+            (data_id, is_processed, is_deleted, process_time, process_by, delete_time, delete_by, version)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?)
             """;
 
-        try {
-            long version = System.currentTimeMillis();
-            clickHouseJdbcTemplate.update(sql,
-                    dataId,
-                    new Timestamp(System.currentTimeMillis()),
-                    deleteBy,
-                    version);
-
-            log.info("ClickHouse标记已删除成功: dataId={}, deleteBy={}", dataId, deleteBy);
-        } catch (Exception e) {
-            log.error("ClickHouse标记已删除失败: dataId={}", dataId, e);
-            throw new RuntimeException("ClickHouse标记已删除失败", e);
-        }
+        clickHouseJdbcTemplate.batchUpdate(sql, statusList, statusList.size(), (ps, status) -> {
+            ps.setLong(1, status.getDataId());
+            ps.setInt(2, Boolean.TRUE.equals(status.getProcessed()) ? 1 : 0);
+            ps.setInt(3, Boolean.TRUE.equals(status.getDeleted()) ? 1 : 0);
+            ps.setTimestamp(4, toTimestamp(status.getProcessTime()));
+            ps.setString(5, status.getProcessBy());
+            ps.setTimestamp(6, toTimestamp(status.getDeleteTime()));
+            ps.setString(7, status.getDeleteBy());
+            ps.setLong(8, status.getVersion());
+        });
+        log.debug("ClickHouse状态行写入成功: rows={}", statusList.size());
+    }
+
+    private static Timestamp toTimestamp(Date date) {
+        return date == null ? null : new Timestamp(date.getTime());
     }
 
     /**
      * 查询异常数据及处理状态
      * 
-     * 使用物化视图查询,性能更好
-     * 如果没有创建物化视图,可以使用下面注释的SQL
+     * JOIN状态视图v_abnormal_process_status(argMax取最新状态),不依赖后台合并是否完成
      * 
      * @param deviceSN 设备序列号(可选)
      * @param processState 处理状态(可选,true=已处理,false=未处理,null=全部)
      * @param startTime 开始时间
      * @param endTime 结束时间
-     * @return 异常数据列表
+     * @return 异常数据列表, 处理状态(is_processed/is_deleted)映射到processState/removed
+     */
+    public List<DeviceDataPO> queryAbnormalDataWithStatus(
+            String deviceSN, Boolean processState, Date startTime, Date endTime) {
+        // 控制台轮询的列表, 经过短TTL缓存, 相同条件的并发查询只访问一次ClickHouse
+        return abnormalDataQueryCache.get("queryAbnormalDataWithStatus", deviceSN, processState, startTime, endTime,
+                ABNORMAL_LIST_LIMIT, (start, end) -> queryAbnormalData(STATUS_VIEW_JOIN, deviceSN, processState, start, end));
+    }
+
+    /**
+     * 与queryAbnormalDataWithStatus相同, 状态表使用FINAL读取
+     * 用于核对状态视图的结果; FINAL在查询时合并, 状态表较大时比视图慢
      */
-    public java.util.List<java.util.Map<String, Object>> queryAbnormalDataWithStatus(
+    public List<DeviceDataPO> queryAbnormalDataWithStatusByJoin(
             String deviceSN, Boolean processState, Date startTime, Date endTime) {
+        return abnormalDataQueryCache.get("queryAbnormalDataWithStatusByJoin", deviceSN, processState, startTime, endTime,
+                ABNORMAL_LIST_LIMIT, (start, end) -> queryAbnormalData(STATUS_FINAL_JOIN, deviceSN, processState, start, end));
+    }
 
-        // 使用物化视图查询(推荐)
+    private List<DeviceDataPO> queryAbnormalData(String statusJoin, String deviceSN, Boolean processState,
+                                                 Date startTime, Date endTime) {
         StringBuilder sql = new StringBuilder("""
-            SELECT * FROM pressuremonitorsys.mv_abnormal_data_with_status
-            WHERE is_deleted = 0
-            """);
+            SELECT
+                id, device_sn, device_id, pipeline_id, pipeline_sn,
+                temperature, voltage, pressure, abnormal_flag, create_time,
+            """).append(STATUS_COLUMNS).append("""
+
+            FROM pressuremonitorsys.t_monitor_data_report d
+            """).append(statusJoin).append("""
+
+            WHERE abnormal_flag > 0
+            """).append(NOT_DELETED);
 
         // 动态构建WHERE条件
-        java.util.List<Object> params = new java.util.ArrayList<>();
+        List<Object> params = new ArrayList<>();
 
         if (deviceSN != null && !deviceSN.isEmpty()) {
             sql.append(" AND device_sn = ?");
@@ -125,8 +172,7 @@ public class ClickHouseStatusRepository {
         }
 
         if (processState != null) {
-            sql.append(" AND is_processed = ?");
-            params.add(processState ? 1 : 0);
+            sql.append(processStateFilter(processState));
         }
 
         if (startTime != null) {
@@ -139,10 +185,10 @@ public class ClickHouseStatusRepository {
             params.add(endTime);
         }
 
-        sql.append(" ORDER BY create_time DESC LIMIT 1000");
+        sql.append(" ORDER BY create_time DESC LIMIT ").append(ABNORMAL_LIST_LIMIT);
 
         try {
-            return clickHouseJdbcTemplate.queryForList(sql.toString(), params.toArray());
+            return clickHouseJdbcTemplate.query(sql.toString(), ClickHouseRowMappers.DEVICE_DATA.mapper(), params.toArray());
         } catch (Exception e) {
             log.error("ClickHouse查询异常数据失败: deviceSN={}, processState={}", deviceSN, processState, e);
             throw new RuntimeException("ClickHouse查询异常数据失败", e);
@@ -150,61 +196,12 @@ public class ClickHouseStatusRepository {
     }
 
     /**
-     * 如果没有创建物化视图,可以使用这个方法
-     * 直接JOIN查询(性能稍差,但更灵活)
+     * 处理状态过滤条件
+     * 原始表的process_state(正常数据写入时即为已处理, 以及旧版mutation写入的状态)与状态表任一为已处理即视为已处理
      */
-    public java.util.List<java.util.Map<String, Object>> queryAbnormalDataWithStatusByJoin(
-            String deviceSN, Boolean processState, Date startTime, Date endTime) {
-
-        // 使用LEFT JOIN查询
-        // FINAL关键字确保获取ReplacingMergeTree的最新版本
-        StringBuilder sql = new StringBuilder("""
-            SELECT 
-                d.*,
-                COALESCE(s.is_processed, 0) as is_processed,
-                COALESCE(s.is_deleted, 0) as is_deleted,
-                s.process_time,
-                s.process_by,
-                s.delete_time,
-                s.delete_by
-            FROM pressuremonitorsys.t_monitor_data_report d
-            LEFT JOIN (
-                SELECT * FROM pressuremonitorsys.t_abnormal_process_status FINAL
-            ) s ON d.id = s.data_id
-            WHERE d.abnormal_flag > 0
-              AND COALESCE(s.is_deleted, 0) = 0
-            """);
-
-        java.util.List<Object> params = new java.util.ArrayList<>();
-
-        if (deviceSN != null && !deviceSN.isEmpty()) {
-            sql.append(" AND d.device_sn = ?");
-            params.add(deviceSN);
-        }
-
-        if (processState != null) {
-            sql.append(" AND COALESCE(s.is_processed, 0) = ?");
-            params.add(processState ? 1 : 0);
-        }
-
-        if (startTime != null) {
-            sql.append(" AND d.create_time >= ?");
-            params.add(startTime);
-        }
-
-        if (endTime != null) {
-            sql.append(" AND d.create_time <= ?");
-            params.add(endTime);
-        }
-
-        sql.append(" ORDER BY d.create_time DESC LIMIT 1000");
-
-        try {
-            return clickHouseJdbcTemplate.queryForList(sql.toString(), params.toArray());
-        } catch (Exception e) {
-            log.error("ClickHouse JOIN查询异常数据失败: deviceSN={}, processState={}", deviceSN, processState, e);
-            throw new RuntimeException("ClickHouse JOIN查询异常数据失败", e);
-        }
+    static String processStateFilter(boolean processState) {
+        return processState
+                ? " AND (process_state = 1 OR st_processed = 1)"
+                : " AND process_state = 0 AND st_processed = 0";
     }
 }
-
@@ -0,0 +1,74 @@
+package org.pms.infrastructure.adapter.repository.clickhouse;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import org.pms.infrastructure.adapter.repository.cache.AbnormalDataQueryCache;
+import org.pms.infrastructure.mapper.po.AbnormalProcessStatusPO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * ClickHouse写前溢写存储(本地WAL), 存放异常数据处理/删除状态行
+ * <p>
+ * 为什么状态行也需要溢写?
+ * - 处理/删除不再对原始表执行mutation, 状态行是ClickHouse中唯一的处理/删除记录,
+ * 丢失一行就会让这条数据在ClickHouse中一直显示为未处理/未删除
+ * - 状态队列已满或重试次数用尽时写入本地, ClickHouse恢复后回放
+ * <p>
+ * 状态行带版本号, 回放顺序与操作顺序不同也不影响结果: 状态表按版本号保留最新的一行
+ *
+ * @author alcsyooterranf
+ * @program PressureMonitorSys-business
+ * @create 2026/10/18
+ */
+@Component
+public class ClickHouseStatusSpillStore extends AbstractClickHouseSpillStore<AbnormalProcessStatusPO> {
+
+	@Resource
+	private ClickHouseStatusRepository clickHouseStatusRepository;
+
+	@Resource
+	private AbnormalDataQueryCache abnormalDataQueryCache;
+
+	/**
+	 * 溢写目录, 与监控数据的溢写目录分开
+	 */
+	@Value("${clickhouse.status.spill-dir:./data/clickhouse-status-spill}")
+	private String spillDir;
+
+	/**
+	 * 单个段文件大小(字节), 状态行很小, 默认比监控数据的段小
+	 */
+	@Value("${clickhouse.status.spill-segment-size:8388608}")
+	private int segmentSize;
+
+	/**
+	 * 回放间隔(毫秒)
+	 */
+	@Value("${clickhouse.spill.replay-interval:10000}")
+	private long replayInterval;
+
+	@Value("${clickhouse.status.batch-size:500}")
+	private int replayBatchSize;
+
+	public ClickHouseStatusSpillStore() {
+		super(AbnormalProcessStatusPO.class, "ClickHouse处理状态", "ClickHouse-Status-Spill-Replayer");
+	}
+
+	@PostConstruct
+	public void init() throws IOException {
+		start(spillDir, segmentSize, replayInterval, replayBatchSize);
+	}
+
+	@Override
+	protected void replayBatch(List<AbnormalProcessStatusPO> batch) {
+		clickHouseStatusRepository.insertStatusBatch(batch);
+		for (AbnormalProcessStatusPO status : batch) {
+			abnormalDataQueryCache.invalidateByDataId(status.getDataId());
+		}
+	}
+
+}
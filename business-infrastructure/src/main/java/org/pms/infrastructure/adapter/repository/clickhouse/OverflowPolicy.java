@@ -0,0 +1,33 @@
+package org.pms.infrastructure.adapter.repository.clickhouse;
+
+/**
+ * ClickHouse缓冲区溢出策略
+ * 通过clickhouse.overflow-policy配置
+ *
+ * @author alcsyooterranf
+ * @program PressureMonitorSys-business
+ * @create 2026/10/18
+ */
+public enum OverflowPolicy {
+
+	/**
+	 * 阻塞上报线程等待空位, 超过block-timeout后溢写到本地
+	 */
+	BLOCK,
+
+	/**
+	 * 丢弃队列中最旧的数据, 为新数据腾出空间(数据仍保留在MySQL中)
+	 */
+	DROP_OLDEST,
+
+	/**
+	 * 溢写到本地, ClickHouse恢复后回放(默认)
+	 */
+	SPILL,
+
+	/**
+	 * 缓冲区余量不足时拒绝上报请求, 返回HTTP 429让网关退避
+	 */
+	REJECT
+
+}
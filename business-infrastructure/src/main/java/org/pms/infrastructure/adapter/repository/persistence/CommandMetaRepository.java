@@ -4,8 +4,10 @@ import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.pms.domain.command.model.command.CreateCommandMetaCommand;
 import org.pms.domain.command.model.command.UpdateCommandMetaCommand;
+import org.pms.domain.command.model.entity.CommandMetaEntity;
 import org.pms.domain.command.model.valobj.StatusVO;
 import org.pms.domain.command.repository.ICommandMetaRepository;
+import org.pms.domain.command.service.CommandSchemaCache;
 import org.pms.infrastructure.adapter.converter.CommandMetaConverter;
 import org.pms.infrastructure.mapper.ICommandMetaMapper;
 import org.pms.infrastructure.mapper.po.CommandMetaPO;
@@ -35,6 +37,8 @@ public class CommandMetaRepository implements ICommandMetaRepository {
 	private ICommandMetaMapper commandMetaMapper;
 	@Resource
 	private TransactionTemplate transactionTemplate;
+	@Resource
+	private CommandSchemaCache commandSchemaCache;
 
 	@Override
 	public void createCommandMeta(CreateCommandMetaCommand command) {
@@ -88,6 +92,8 @@ public class CommandMetaRepository implements ICommandMetaRepository {
 				throw new BizException("ERR_BIZ_COMMAND_META_1004", "创建指令元数据异常: " + e.getMessage());
 			}
 		});
+		// 事务提交后再失效, 避免并发请求在提交前把旧schema重新加载进缓存
+		commandSchemaCache.invalidate(command.getPipelineId(), command.getServiceIdentifier());
 	}
 	
 	@Override
@@ -113,6 +119,8 @@ public class CommandMetaRepository implements ICommandMetaRepository {
 				throw new BizException(BizCode.COMMAND_META_UPDATE_EXCEPTION, "更新指令元数据异常: " + e.getMessage());
 			}
 		});
+		commandSchemaCache.invalidateByMetaId(command.getId());
+		commandSchemaCache.invalidate(command.getPipelineId(), command.getServiceIdentifier());
 	}
 	
 	
@@ -122,6 +130,7 @@ public class CommandMetaRepository implements ICommandMetaRepository {
 		if (updateCnt != 1) {
 			throw new BizException("ERR_BIZ_COMMAND_META_1007", "废弃指令元数据失败，ID不存在");
 		}
+		commandSchemaCache.invalidateByMetaId(id);
 		log.info("指令元数据已废弃: id={}", id);
 	}
 
@@ -151,4 +160,10 @@ public class CommandMetaRepository implements ICommandMetaRepository {
 		return commandMetaPO == null ? null : commandMetaPO.getPayloadSchema();
 	}
 	
+	@Override
+	public CommandMetaEntity queryCommandMetaByPipelineAndService(Long pipelineId, String serviceIdentifier) {
+		CommandMetaPO commandMetaPO = commandMetaMapper.selectByPipelineIdAndServiceIdentifier(pipelineId, serviceIdentifier);
+		return commandMetaPO == null ? null : commandMetaConverter.po2entity(commandMetaPO);
+	}
+	
 }
\ No newline at end of file
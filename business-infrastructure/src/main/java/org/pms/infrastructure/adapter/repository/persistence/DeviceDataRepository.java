@@ -3,21 +3,29 @@ package org.pms.infrastructure.adapter.repository.persistence;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.pms.domain.devicedata.model.entity.DeviceDataEntity;
-import org.pms.domain.devicedata.model.vo.AbnormalFlagVO;
+import org.pms.domain.devicedata.model.vo.DeviceDataSaveResultVO;
 import org.pms.domain.devicedata.repository.IDeviceDataRepository;
 import org.pms.infrastructure.adapter.converter.DeviceDataConverter;
+import org.pms.infrastructure.adapter.repository.cache.AbnormalDataQueryCache;
+import org.pms.infrastructure.adapter.repository.cache.DeviceThresholdCache;
 import org.pms.infrastructure.adapter.repository.clickhouse.ClickHouseDataBuffer;
+import org.pms.infrastructure.adapter.repository.clickhouse.ClickHouseStatusBuffer;
 import org.pms.infrastructure.mapper.IDeviceDataMapper;
-import org.pms.infrastructure.mapper.IDeviceMapper;
 import org.pms.infrastructure.mapper.po.DeviceDataPO;
 import org.pms.infrastructure.mapper.po.DevicePO;
 import org.pms.types.BizCode;
 import org.pms.types.BizException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.ObjectUtils;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * 数据上报仓储实现类
@@ -33,12 +41,19 @@ import java.util.List;
 @Repository
 public class DeviceDataRepository implements IDeviceDataRepository {
 	
+	/**
+	 * 单条多行INSERT语句包含的最大行数, 避免语句超过max_allowed_packet
+	 */
+	private static final int BATCH_INSERT_CHUNK_SIZE = 500;
+	
 	@Resource
 	private DeviceDataConverter deviceDataConverter;
 	@Resource
 	private IDeviceDataMapper deviceDataMapper;
 	@Resource
-	private IDeviceMapper deviceMapper;
+	private DeviceThresholdCache deviceThresholdCache;
+	@Resource
+	private AbnormalDataQueryCache abnormalDataQueryCache;
 	
 	/**
 	 * ClickHouse数据缓冲区
@@ -50,21 +65,39 @@ public class DeviceDataRepository implements IDeviceDataRepository {
 	@Autowired(required = false)
 	private ClickHouseDataBuffer clickHouseDataBuffer;
 	
+	/**
+	 * ClickHouse处理状态写入器
+	 * 处理/删除在MySQL更新成功后, 以版本行的形式批量写入ClickHouse状态表, 不再执行ALTER TABLE UPDATE
+	 * 状态行既无法入队也无法溢写时抛出异常, 事务回滚, 避免MySQL和ClickHouse只有一边生效
+	 */
+	@Autowired(required = false)
+	private ClickHouseStatusBuffer clickHouseStatusBuffer;
+	
 	@Override
+	@Transactional(rollbackFor = Exception.class)
 	public int updateStatusById(Long id, String operatorName) {
 		int updateAbnormalReportCount = deviceDataMapper.updateStateById(operatorName, id);
 		if (1 != updateAbnormalReportCount) {
 			throw new BizException(BizCode.ABNORMAL_REPORT_ID_ERROR.getCode(), BizCode.ABNORMAL_REPORT_ID_ERROR.getMessage());
 		}
+		abnormalDataQueryCache.invalidateByDataId(id);
+		if (clickHouseStatusBuffer != null) {
+			clickHouseStatusBuffer.markAsProcessed(id, operatorName);
+		}
 		return updateAbnormalReportCount;
 	}
 	
 	@Override
+	@Transactional(rollbackFor = Exception.class)
 	public int deleteDeviceDataById(Long id, String operatorName) {
 		int deleteCnt = deviceDataMapper.deleteDataReportById(operatorName, id);
 		if (1 != deleteCnt) {
 			throw new BizException(BizCode.ABNORMAL_REPORT_ID_ERROR.getCode(), BizCode.ABNORMAL_REPORT_ID_ERROR.getMessage());
 		}
+		abnormalDataQueryCache.invalidateByDataId(id);
+		if (clickHouseStatusBuffer != null) {
+			clickHouseStatusBuffer.markAsDeleted(id, operatorName);
+		}
 		return deleteCnt;
 	}
 	
@@ -86,8 +119,8 @@ public class DeviceDataRepository implements IDeviceDataRepository {
 		// 1. 转换Entity为PO对象
 		DeviceDataPO deviceDataPO = deviceDataConverter.entity2po(deviceDataEntity);
 		
-		// 2. 查询设备信息(包含阈值配置)
-		DevicePO devicePO = deviceMapper.queryParameterLimitsBySN(deviceDataPO.getDeviceSN());
+		// 2. 查询设备信息(包含阈值配置), 优先读取本地缓存
+		DevicePO devicePO = deviceThresholdCache.get(deviceDataPO.getDeviceSN());
 		if (ObjectUtils.isEmpty(devicePO)) {
 			log.error("设备不存在: deviceSN={}", deviceDataPO.getDeviceSN());
 			throw new BizException(BizCode.DEVICE_SN_ERROR);
@@ -99,28 +132,113 @@ public class DeviceDataRepository implements IDeviceDataRepository {
 		deviceDataPO.setDeviceId(devicePO.getId());
 		
 		// 4. 回填异常标志到Entity（供Domain层使用）
-		List<AbnormalFlagVO> abnormalFlags = AbnormalFlagVO.fromCodes(deviceDataPO.getAbnormalCodes());
-		deviceDataEntity.setAbnormalFlags(abnormalFlags);
+		deviceDataEntity.setAbnormalMask(deviceDataPO.getAbnormalMask());
 		deviceDataEntity.setDeviceId(devicePO.getId());
 		deviceDataEntity.setProcessState(deviceDataPO.getProcessState());
 		
 		// 5. 保存到MySQL(同步)
-		// 这是主要的数据存储,必须保证成功
+		// 这是主要的数据存储,必须保证成功; ClickHouse缓冲区过载时先行拒绝, 避免只写入MySQL
+		checkClickHouseAdmission(1);
 		deviceDataMapper.insertDeviceData(deviceDataPO);
 		log.debug("MySQL保存成功: deviceSN={}, abnormalFlag={}", deviceDataPO.getDeviceSN(), deviceDataPO.getAbnormalFlag());
 		
-		// 6. 异步保存到ClickHouse(可选)
-		// 如果ClickHouse配置了,就异步写入
-		// 即使ClickHouse写入失败,也不影响MySQL数据
-//		if (clickHouseDataBuffer != null) {
-//			try {
-//				clickHouseDataBuffer.add(deviceDataPO);
-//				log.debug("ClickHouse缓冲区添加成功: deviceSN={}", deviceDataPO.getDeviceSN());
-//			} catch (Exception e) {
-//				// ClickHouse写入失败不影响主流程
-//				log.error("ClickHouse缓冲区添加失败: deviceSN={}", deviceDataPO.getDeviceSN(), e);
-//			}
-//		}
+		// 6. 异步保存到ClickHouse
+		// 只放入内存缓冲区, 由刷新线程批量写入; 写入失败会溢写到本地并在恢复后回放
+		addToClickHouseBuffer(deviceDataPO);
+	}
+	
+	/**
+	 * 批量插入监控数据
+	 * 流程与addDeviceData一致, 区别在于:
+	 * 1. 本批次涉及的设备阈值从缓存获取, 未命中的设备通过一次IN查询加载
+	 * 2. 数据按BATCH_INSERT_CHUNK_SIZE分段, 每段一条多行INSERT, 写入成功的记录再放入ClickHouse缓冲区
+	 * 3. 设备不存在或所在分段写入失败的记录单独标记为失败, 不影响其他记录
+	 *
+	 * @param deviceDataEntities 设备上报的数据列表
+	 * @return 与入参顺序一一对应的处理结果
+	 */
+	@Override
+	public List<DeviceDataSaveResultVO> batchAddDeviceData(List<DeviceDataEntity> deviceDataEntities) {
+		DeviceDataSaveResultVO[] results = new DeviceDataSaveResultVO[deviceDataEntities.size()];
+		
+		// 1. 转换Entity为PO对象, 并收集本批次的设备SN
+		List<DeviceDataPO> deviceDataPOS = new ArrayList<>(deviceDataEntities.size());
+		Set<String> deviceSNs = new LinkedHashSet<>();
+		for (DeviceDataEntity deviceDataEntity : deviceDataEntities) {
+			DeviceDataPO deviceDataPO = deviceDataConverter.entity2po(deviceDataEntity);
+			deviceDataPOS.add(deviceDataPO);
+			if (deviceDataPO.getDeviceSN() != null) {
+				deviceSNs.add(deviceDataPO.getDeviceSN());
+			}
+		}
+		
+		// 2. 获取本批次所有设备的阈值配置(缓存未命中的设备一次IN查询加载)
+		Map<String, DevicePO> deviceMap = deviceThresholdCache.getAll(deviceSNs);
+		
+		// 3. 计算异常标志并回填Entity, 设备不存在的记录直接标记失败
+		List<Integer> pendingIndexes = new ArrayList<>(deviceDataPOS.size());
+		for (int i = 0; i < deviceDataPOS.size(); i++) {
+			DeviceDataPO deviceDataPO = deviceDataPOS.get(i);
+			DevicePO devicePO = deviceMap.get(deviceDataPO.getDeviceSN());
+			if (devicePO == null) {
+				log.error("设备不存在: deviceSN={}", deviceDataPO.getDeviceSN());
+				results[i] = DeviceDataSaveResultVO.rejected(deviceDataPO.getDeviceSN(), BizCode.DEVICE_SN_ERROR.getMessage());
+				continue;
+			}
+			deviceDataPO.computeAbnormalFlag(devicePO);
+			deviceDataPO.setDeviceId(devicePO.getId());
+			
+			DeviceDataEntity deviceDataEntity = deviceDataEntities.get(i);
+			deviceDataEntity.setAbnormalMask(deviceDataPO.getAbnormalMask());
+			deviceDataEntity.setDeviceId(devicePO.getId());
+			deviceDataEntity.setProcessState(deviceDataPO.getProcessState());
+			pendingIndexes.add(i);
+		}
+		
+		// 4. 分段多行INSERT保存到MySQL, ClickHouse缓冲区过载时整批拒绝
+		checkClickHouseAdmission(pendingIndexes.size());
+		for (int from = 0; from < pendingIndexes.size(); from += BATCH_INSERT_CHUNK_SIZE) {
+			List<Integer> chunkIndexes = pendingIndexes.subList(from, Math.min(from + BATCH_INSERT_CHUNK_SIZE, pendingIndexes.size()));
+			List<DeviceDataPO> chunk = new ArrayList<>(chunkIndexes.size());
+			for (Integer index : chunkIndexes) {
+				chunk.add(deviceDataPOS.get(index));
+			}
+			try {
+				deviceDataMapper.batchInsertDeviceData(chunk);
+				for (Integer index : chunkIndexes) {
+					DeviceDataPO deviceDataPO = deviceDataPOS.get(index);
+					deviceDataEntities.get(index).setId(deviceDataPO.getId());
+					results[index] = DeviceDataSaveResultVO.accepted(deviceDataPO.getDeviceSN());
+					addToClickHouseBuffer(deviceDataPO);
+				}
+			} catch (Exception e) {
+				log.error("MySQL批量保存失败, 行数={}", chunk.size(), e);
+				for (Integer index : chunkIndexes) {
+					results[index] = DeviceDataSaveResultVO.rejected(deviceDataPOS.get(index).getDeviceSN(), "数据保存失败");
+				}
+			}
+		}
+		log.debug("MySQL批量保存完成: 总数={}, 写入={}", deviceDataEntities.size(), pendingIndexes.size());
+		
+		return Arrays.asList(results);
+	}
+	
+	private void checkClickHouseAdmission(int rows) {
+		if (clickHouseDataBuffer != null) {
+			clickHouseDataBuffer.checkAdmission(rows);
+		}
+	}
+	
+	private void addToClickHouseBuffer(DeviceDataPO deviceDataPO) {
+		if (clickHouseDataBuffer == null) {
+			return;
+		}
+		try {
+			clickHouseDataBuffer.add(deviceDataPO);
+		} catch (Exception e) {
+			// ClickHouse写入失败不影响主流程
+			log.error("ClickHouse缓冲区添加失败: deviceSN={}", deviceDataPO.getDeviceSN(), e);
+		}
 	}
 	
 }
@@ -6,6 +6,7 @@ import org.pms.domain.terminal.model.command.UpdateDeviceCommand;
 import org.pms.domain.terminal.model.entity.DeviceEntity;
 import org.pms.domain.terminal.repository.IDeviceRepository;
 import org.pms.infrastructure.adapter.converter.DeviceConverter;
+import org.pms.infrastructure.adapter.repository.cache.DeviceThresholdCache;
 import org.pms.infrastructure.mapper.IDeviceMapper;
 import org.pms.infrastructure.mapper.IPipelineMapper;
 import org.pms.infrastructure.mapper.po.DevicePO;
@@ -14,6 +15,7 @@ import org.pms.types.BizException;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -37,6 +39,8 @@ public class DeviceRepository implements IDeviceRepository {
 	private IPipelineMapper pipelineMapper;
 	@Resource
 	private TransactionTemplate transactionTemplate;
+	@Resource
+	private DeviceThresholdCache deviceThresholdCache;
 	
 	@Override
 	public void deleteDeviceById(Long id, String operatorName) {
@@ -44,6 +48,7 @@ public class DeviceRepository implements IDeviceRepository {
 		if (1 != deleteCnt) {
 			throw new BizException(BizCode.DEVICE_ID_ERROR.getCode(), BizCode.DEVICE_ID_ERROR.getMessage());
 		}
+		deviceThresholdCache.invalidateByDeviceId(id);
 	}
 	
 	@Override
@@ -65,6 +70,9 @@ public class DeviceRepository implements IDeviceRepository {
 			}
 			return 1;
 		});
+		// 阈值或设备SN可能已变更, 旧SN和新SN的缓存都需要失效
+		deviceThresholdCache.invalidateByDeviceId(command.getId());
+		deviceThresholdCache.invalidate(command.getDeviceSN());
 	}
 	
 	@Override
@@ -73,6 +81,7 @@ public class DeviceRepository implements IDeviceRepository {
 		if (1 != updateCnt) {
 			throw new BizException(BizCode.DEVICE_ID_ERROR.getCode(), BizCode.DEVICE_ID_ERROR.getMessage());
 		}
+		deviceThresholdCache.invalidateByDeviceId(id);
 	}
 	
 	@Override
@@ -83,12 +92,28 @@ public class DeviceRepository implements IDeviceRepository {
 			throw new BizException(BizCode.PIPELINE_ID_ERROR.getCode(), BizCode.PIPELINE_ID_ERROR.getMessage());
 		}
 		deviceMapper.insertDevice(devicePO);
+		// 新设备可能已作为"不存在"被缓存
+		deviceThresholdCache.invalidate(devicePO.getDeviceSN());
 	}
 	
 	@Override
 	public DeviceEntity queryParameterLimitsBySN(String deviceSN) {
-		DevicePO devicePO = deviceMapper.queryParameterLimitsBySN(deviceSN);
+		DevicePO devicePO = deviceThresholdCache.get(deviceSN);
 		return deviceConverter.po2entity(devicePO);
 	}
 	
+	@Override
+	public List<DeviceEntity> queryBindedDevicesByPipelineId(Long pipelineId) {
+		return deviceConverter.pos2entities(deviceMapper.queryByPipelineId(pipelineId));
+	}
+	
+	@Override
+	public List<DeviceEntity> queryBindedDevicesByIdList(List<Long> ids) {
+		// queryByIdList在ids为空时不加过滤条件, 这里必须提前返回
+		if (ids == null || ids.isEmpty()) {
+			return new ArrayList<>();
+		}
+		return deviceConverter.pos2entities(deviceMapper.queryByIdList(ids));
+	}
+	
 }
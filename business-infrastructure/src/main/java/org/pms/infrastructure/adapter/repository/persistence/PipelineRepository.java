@@ -6,6 +6,7 @@ import org.pms.domain.terminal.model.command.CreatePipelineCommand;
 import org.pms.domain.terminal.model.command.UpdatePipelineCommand;
 import org.pms.domain.terminal.repository.IPipelineRepository;
 import org.pms.infrastructure.adapter.converter.PipelineConverter;
+import org.pms.infrastructure.adapter.repository.cache.DeviceThresholdCache;
 import org.pms.infrastructure.mapper.IDeviceMapper;
 import org.pms.infrastructure.mapper.IPipelineMapper;
 import org.pms.infrastructure.mapper.po.PipelinePO;
@@ -38,6 +39,8 @@ public class PipelineRepository implements IPipelineRepository {
 	private IDeviceMapper deviceMapper;
 	@Resource
 	private TransactionTemplate transactionTemplate;
+	@Resource
+	private DeviceThresholdCache deviceThresholdCache;
 	
 	@Override
 	public void deletePipelineById(Long id, String operatorName) {
@@ -59,6 +62,7 @@ public class PipelineRepository implements IPipelineRepository {
 			}
 			return 1;
 		});
+		deviceThresholdCache.invalidateByPipelineId(id);
 	}
 	
 	@Override
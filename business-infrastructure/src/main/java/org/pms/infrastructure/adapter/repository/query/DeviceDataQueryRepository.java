@@ -1,17 +1,35 @@
 package org.pms.infrastructure.adapter.repository.query;
 
 import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.pms.api.common.QueryBackend;
 import org.pms.application.query.IDeviceDataQueryService;
+import org.pms.api.common.ExportFormat;
+import org.pms.api.dto.req.DeviceDataChartReq;
+import org.pms.api.dto.req.DeviceDataExportReq;
 import org.pms.api.dto.req.DeviceDataQueryCondition;
+import org.pms.api.dto.req.DeviceDataStatisticsReq;
+import org.pms.api.dto.resp.DeviceDataChartView;
 import org.pms.api.dto.resp.DeviceDataQueryView;
+import org.pms.api.dto.resp.DeviceDataStatisticsView;
 import org.pms.infrastructure.adapter.converter.DeviceDataConverter;
+import org.pms.infrastructure.adapter.repository.clickhouse.ClickHouseDataReportRepository;
+import org.pms.infrastructure.adapter.repository.clickhouse.ClickHouseExportReader;
 import org.pms.infrastructure.mapper.IDeviceDataMapper;
+import org.pms.infrastructure.mapper.IDeviceMapper;
 import org.pms.infrastructure.mapper.IPipelineMapper;
+import org.pms.infrastructure.mapper.po.DeviceDataChartPO;
 import org.pms.infrastructure.mapper.po.DeviceDataPO;
 import org.pms.infrastructure.mapper.po.PipelinePO;
 import org.pms.api.common.PageResponse;
+import org.pms.types.BizCode;
+import org.pms.types.BizException;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 
@@ -19,8 +37,19 @@ import java.util.Objects;
  * @author alcsyooterranf
  * @program PressureMonitorSys-business
  * @description 设备数据查询仓储实现类
+ * <p>
+ * 查询路由: MySQL只适合查近期和小范围数据, 跨月的历史查询会拖慢业务库, 这类查询改走ClickHouse
+ * 1. 游标翻页时沿用第一页的数据源(cursorBackend), 翻页过程中不会因为时间推移换数据源
+ * 2. 未指定开始时间 -> MySQL: 默认列表页要看到刚上报和刚处理/删除的数据,
+ * ClickHouse副本落后于MySQL(写入缓冲、溢写回放、状态写入都是异步的)
+ * 3. 开始时间早于热数据窗口(device-data.query.hot-days) -> ClickHouse
+ * 4. 时间跨度超过device-data.query.max-mysql-range-days -> ClickHouse
+ * 5. 其余 -> MySQL
+ * ClickHouse查询失败时, 跨度在MySQL允许范围内的查询回退到MySQL; 大跨度查询直接报错, 不把扫描压力转嫁给业务库
+ * 返回结果的backend字段标明实际使用的数据源, 翻页时作为cursorBackend回传
  * @create 2025/12/10
  */
+@Slf4j
 @Repository
 public class DeviceDataQueryRepository implements IDeviceDataQueryService {
 	
@@ -30,23 +59,138 @@ public class DeviceDataQueryRepository implements IDeviceDataQueryService {
 	private IDeviceDataMapper deviceDataMapper;
 	@Resource
 	private IPipelineMapper pipelineMapper;
+	@Resource
+	private IDeviceMapper deviceMapper;
+	@Resource
+	private ClickHouseDataReportRepository clickHouseDataReportRepository;
+	@Resource
+	private ClickHouseExportReader clickHouseExportReader;
+	
+	/**
+	 * 是否允许路由到ClickHouse, 关闭后全部查询MySQL
+	 */
+	@Value("${device-data.query.clickhouse-enabled:true}")
+	private boolean clickHouseEnabled;
+	
+	/**
+	 * 热数据窗口(天), 开始时间在窗口内的查询走MySQL
+	 */
+	@Value("${device-data.query.hot-days:7}")
+	private long hotDays;
+	
+	/**
+	 * MySQL允许的最大时间跨度(天)
+	 */
+	@Value("${device-data.query.max-mysql-range-days:7}")
+	private long maxMysqlRangeDays;
+	
+	/**
+	 * 曲线查询默认数据点数
+	 */
+	@Value("${device-data.chart.default-points:500}")
+	private int defaultChartPoints;
+	
+	/**
+	 * 曲线查询最大数据点数
+	 */
+	@Value("${device-data.chart.max-points:2000}")
+	private int maxChartPoints;
+	
+	/**
+	 * 批量统计单次最多设备数
+	 */
+	@Value("${device-data.statistics.max-devices:1000}")
+	private int maxStatisticsDevices;
 	
 	@Override
 	public PageResponse<DeviceDataQueryView> queryDeviceDataPage(DeviceDataQueryCondition queryCondition) {
-		// 分页查询
-		Long count = deviceDataMapper.queryDeviceDataCount(queryCondition);
-		List<DeviceDataPO> deviceDataPOS = deviceDataMapper.queryDeviceDataList(queryCondition);
+		QueryBackend backend = route(queryCondition);
+		if (backend == QueryBackend.CLICKHOUSE) {
+			try {
+				return queryDeviceDataPage(queryCondition, QueryBackend.CLICKHOUSE);
+			} catch (RuntimeException e) {
+				if (exceedsMysqlRange(queryCondition)) {
+					log.error("ClickHouse查询失败, 时间跨度超出MySQL允许范围, 不回退: condition={}", queryCondition, e);
+					throw new BizException(BizCode.UN_ERROR, "历史数据查询暂不可用, 请缩小时间范围后重试");
+				}
+				log.warn("ClickHouse查询失败, 回退到MySQL: condition={}, error={}", queryCondition, e.getMessage());
+			}
+		}
+		return queryDeviceDataPage(queryCondition, QueryBackend.MYSQL);
+	}
+	
+	/**
+	 * 选择数据源
+	 */
+	private QueryBackend route(DeviceDataQueryCondition queryCondition) {
+		if (!clickHouseEnabled) {
+			return QueryBackend.MYSQL;
+		}
+		if (queryCondition.isCursorMode() && queryCondition.getCursorBackend() != null) {
+			return queryCondition.getCursorBackend();
+		}
+		if (queryCondition.getStartTime() == null) {
+			return QueryBackend.MYSQL;
+		}
+		long startMillis = queryCondition.getStartTime().getTime();
+		if (System.currentTimeMillis() - startMillis > Duration.ofDays(hotDays).toMillis()) {
+			return QueryBackend.CLICKHOUSE;
+		}
+		return exceedsMysqlRange(queryCondition) ? QueryBackend.CLICKHOUSE : QueryBackend.MYSQL;
+	}
+	
+	/**
+	 * 时间跨度是否超过MySQL允许的最大跨度, 未指定开始时间时按MySQL处理(默认列表页)
+	 */
+	private boolean exceedsMysqlRange(DeviceDataQueryCondition queryCondition) {
+		if (queryCondition.getStartTime() == null) {
+			return false;
+		}
+		long endMillis = queryCondition.getEndTime() == null
+				? System.currentTimeMillis() : queryCondition.getEndTime().getTime();
+		return endMillis - queryCondition.getStartTime().getTime() > Duration.ofDays(maxMysqlRangeDays).toMillis();
+	}
+	
+	private PageResponse<DeviceDataQueryView> queryDeviceDataPage(DeviceDataQueryCondition queryCondition,
+																  QueryBackend backend) {
+		Long count;
+		List<DeviceDataPO> deviceDataPOS;
+		if (backend == QueryBackend.CLICKHOUSE) {
+			// ClickHouse的count()很快, APPROX直接精确统计
+			count = PageQuerySupport.count(queryCondition,
+					() -> clickHouseDataReportRepository.countDeviceData(queryCondition),
+					() -> clickHouseDataReportRepository.countDeviceData(queryCondition));
+			deviceDataPOS = clickHouseDataReportRepository.queryDeviceDataPage(queryCondition);
+		} else {
+			// 分页查询, 数据量大, 支持估算总数
+			count = PageQuerySupport.count(queryCondition,
+					() -> deviceDataMapper.queryDeviceDataCount(queryCondition),
+					() -> PageQuerySupport.estimateRows(deviceDataMapper.explainDeviceDataQuery(queryCondition)));
+			deviceDataPOS = deviceDataMapper.queryDeviceDataList(queryCondition);
+		}
+		boolean hasMore = PageQuerySupport.trimToPageSize(deviceDataPOS, queryCondition);
 		
 		// 空值提前返回
 		if (Objects.equals(0L, count) || deviceDataPOS.isEmpty()) {
-			return PageResponse.<DeviceDataQueryView>builder().count(count).build();
+			return PageResponse.<DeviceDataQueryView>builder().count(count).hasMore(false).backend(backend).build();
 		}
+		DeviceDataPO last = deviceDataPOS.get(deviceDataPOS.size() - 1);
 		
 		// 对象转换
 		List<DeviceDataQueryView> deviceDataQueryViews = deviceDataConverter.pos2views(deviceDataPOS);
+		fillLocation(deviceDataQueryViews);
 		
+		return PageResponse.<DeviceDataQueryView>builder().count(count).data(deviceDataQueryViews)
+				.hasMore(hasMore).nextCursorCreateTime(last.getCreateTime()).nextCursorId(last.getId())
+				.backend(backend).build();
+	}
+	
+	/**
+	 * 补充前端返回对象的管道位置
+	 */
+	private void fillLocation(List<DeviceDataQueryView> deviceDataQueryViews) {
 		// 查询管道表
-		List<Long> pipelineIds = deviceDataQueryViews.stream().map(DeviceDataQueryView::getPipelineId).toList();
+		List<Long> pipelineIds = deviceDataQueryViews.stream().map(DeviceDataQueryView::getPipelineId).distinct().toList();
 		List<PipelinePO> pipelinePOS = pipelineMapper.queryByIdList(pipelineIds);
 		
 		// 补充前端返回对象的字段
@@ -54,8 +198,84 @@ public class DeviceDataQueryRepository implements IDeviceDataQueryService {
 			PipelinePO pipelinePO = pipelinePOS.stream().filter(item -> item.getId().equals(device.getPipelineId())).findFirst().orElseGet(PipelinePO::new);
 			device.setLocation(pipelinePO.getLocation());
 		});
+	}
+	
+	@Override
+	public List<DeviceDataQueryView> queryAbnormalDataList(DeviceDataQueryCondition queryCondition) {
+		if (queryCondition.getStartTime() == null || queryCondition.getEndTime() == null) {
+			throw new BizException(BizCode.PARAMETER_IS_NULL);
+		}
+		// 控制台轮询的异常列表, ClickHouse侧带短TTL缓存, 处理/删除后失效
+		List<DeviceDataPO> deviceDataPOS = clickHouseDataReportRepository.queryByConditions(queryCondition.getDeviceSN(),
+				queryCondition.getProcessState(), queryCondition.getStartTime(), queryCondition.getEndTime());
+		if (deviceDataPOS.isEmpty()) {
+			return new ArrayList<>();
+		}
+		List<DeviceDataQueryView> deviceDataQueryViews = deviceDataConverter.pos2views(deviceDataPOS);
+		fillLocation(deviceDataQueryViews);
+		return deviceDataQueryViews;
+	}
+	
+	@Override
+	public DeviceDataChartView queryDeviceDataChart(DeviceDataChartReq chartReq) {
+		if (chartReq.getDeviceSN() == null || chartReq.getDeviceSN().isEmpty()
+				|| chartReq.getStartTime() == null || chartReq.getEndTime() == null) {
+			throw new BizException(BizCode.PARAMETER_IS_NULL);
+		}
+		long rangeMillis = chartReq.getEndTime().getTime() - chartReq.getStartTime().getTime();
+		if (rangeMillis <= 0) {
+			throw new BizException(BizCode.ILLEGAL_PARAMETER);
+		}
+		
+		// 区间长度 = 时间范围 / 数据点数, 向上取整到秒
+		int points = chartReq.getPoints() == null || chartReq.getPoints() <= 0
+				? defaultChartPoints : Math.min(chartReq.getPoints(), maxChartPoints);
+		long intervalSeconds = Math.max(1, (rangeMillis / 1000 + points - 1) / points);
 		
-		return PageResponse.<DeviceDataQueryView>builder().count(count).data(deviceDataQueryViews).build();
+		List<DeviceDataChartPO> chartPOS = clickHouseDataReportRepository.queryChart(chartReq.getDeviceSN(),
+				chartReq.getStartTime(), chartReq.getEndTime(), intervalSeconds);
+		return DeviceDataChartView.builder()
+				.deviceSN(chartReq.getDeviceSN())
+				.intervalSeconds(intervalSeconds)
+				.points(deviceDataConverter.chartPOs2views(chartPOS))
+				.build();
+	}
+	
+	@Override
+	public List<DeviceDataStatisticsView> queryDeviceDataStatistics(DeviceDataStatisticsReq statisticsReq) {
+		if (statisticsReq.getStartTime() == null || statisticsReq.getEndTime() == null) {
+			throw new BizException(BizCode.PARAMETER_IS_NULL);
+		}
+		List<String> deviceSNList = statisticsReq.getDeviceSNList();
+		if (deviceSNList == null || deviceSNList.isEmpty()) {
+			if (statisticsReq.getPipelineId() == null) {
+				throw new BizException(BizCode.PARAMETER_IS_NULL);
+			}
+			deviceSNList = deviceMapper.queryDeviceSNByPipelineId(statisticsReq.getPipelineId());
+		}
+		if (deviceSNList.size() > maxStatisticsDevices) {
+			throw new BizException(BizCode.ILLEGAL_PARAMETER);
+		}
+		
+		List<DeviceDataStatisticsView> statisticsViews = new ArrayList<>(deviceSNList.size());
+		clickHouseDataReportRepository.getDeviceStatisticsBatch(deviceSNList,
+				statisticsReq.getStartTime(), statisticsReq.getEndTime(),
+				statisticsPO -> statisticsViews.add(deviceDataConverter.statisticsPO2view(statisticsPO)));
+		return statisticsViews;
+	}
+	
+	@Override
+	public void exportDeviceData(DeviceDataExportReq exportReq, ExportOutput output) throws IOException {
+		if (exportReq.getStartTime() == null || exportReq.getEndTime() == null) {
+			throw new BizException(BizCode.PARAMETER_IS_NULL);
+		}
+		ExportFormat format = exportReq.getFormat() == null ? ExportFormat.CSV : exportReq.getFormat();
+		try {
+			clickHouseExportReader.export(exportReq, format, output);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("设备数据导出被中断", e);
+		}
 	}
 	
 }
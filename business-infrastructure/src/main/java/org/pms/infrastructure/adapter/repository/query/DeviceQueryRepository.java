@@ -35,13 +35,17 @@ public class DeviceQueryRepository implements IDeviceQueryService {
 	@Override
 	public PageResponse<DeviceQueryView> queryDevicePage(DeviceQueryCondition queryCondition) {
 		// 分页查询
-		Long count = deviceMapper.queryDeviceCount(queryCondition);
+		Long count = PageQuerySupport.count(queryCondition,
+				() -> deviceMapper.queryDeviceCount(queryCondition),
+				() -> deviceMapper.queryDeviceCount(queryCondition));
 		List<DevicePO> devicePOS = deviceMapper.queryDeviceList(queryCondition);
+		boolean hasMore = PageQuerySupport.trimToPageSize(devicePOS, queryCondition);
 		
 		// 空值提前返回
 		if (Objects.equals(0L, count) || devicePOS.isEmpty()) {
-			return PageResponse.<DeviceQueryView>builder().count(count).build();
+			return PageResponse.<DeviceQueryView>builder().count(count).hasMore(false).build();
 		}
+		DevicePO last = devicePOS.get(devicePOS.size() - 1);
 		
 		// 对象转换
 		List<DeviceQueryView> deviceQueryViews = deviceConverter.pos2views(devicePOS);
@@ -57,7 +61,8 @@ public class DeviceQueryRepository implements IDeviceQueryService {
 			device.setPipelineName(pipelinePO.getPipelineName());
 		});
 		
-		return PageResponse.<DeviceQueryView>builder().count(count).data(deviceQueryViews).build();
+		return PageResponse.<DeviceQueryView>builder().count(count).data(deviceQueryViews)
+				.hasMore(hasMore).nextCursorCreateTime(last.getCreateTime()).nextCursorId(last.getId()).build();
 	}
 	
 	@Override
@@ -0,0 +1,69 @@
+package org.pms.infrastructure.adapter.repository.query;
+
+import org.pms.api.common.CountMode;
+import org.pms.api.common.PageRequest;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * @author alcsyooterranf
+ * @program PressureMonitorSys-business
+ * @description 分页查询辅助方法: 按countMode统计总数, 根据多查的一条记录判断是否还有下一页
+ * @create 2026/10/18
+ */
+final class PageQuerySupport {
+	
+	private PageQuerySupport() {
+	}
+	
+	/**
+	 * 按countMode统计总数
+	 *
+	 * @param pageRequest   分页条件
+	 * @param exactCounter  精确统计(count(*))
+	 * @param approxCounter 估算, 没有估算方式的表传exactCounter
+	 * @return 总数, NONE时为null
+	 */
+	static Long count(PageRequest pageRequest, Supplier<Long> exactCounter, Supplier<Long> approxCounter) {
+		CountMode countMode = pageRequest.getCountMode() == null ? CountMode.EXACT : pageRequest.getCountMode();
+		return switch (countMode) {
+			case EXACT -> exactCounter.get();
+			case NONE -> null;
+			case APPROX -> approxCounter.get();
+		};
+	}
+	
+	/**
+	 * 列表查询按fetchSize多查了一条, 去掉多出的记录
+	 *
+	 * @return 是否还有下一页
+	 */
+	static <T> boolean trimToPageSize(List<T> records, PageRequest pageRequest) {
+		int pageSize = pageRequest.getPageSize();
+		if (records.size() > pageSize) {
+			records.subList(pageSize, records.size()).clear();
+			return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * 从MySQL执行计划中取预估扫描行数
+	 *
+	 * @param explainRows EXPLAIN的结果
+	 * @return 预估行数, 取各行rows的最大值
+	 */
+	static Long estimateRows(List<Map<String, Object>> explainRows) {
+		long estimate = 0;
+		for (Map<String, Object> row : explainRows) {
+			Object rows = row.get("rows");
+			if (rows instanceof Number number) {
+				estimate = Math.max(estimate, number.longValue());
+			}
+		}
+		return estimate;
+	}
+	
+}
@@ -30,18 +30,23 @@ public class PipelineQueryRepository implements IPipelineQueryService {
 	
 	@Override
 	public PageResponse<PipelineQueryView> queryPipelineViewPage(PipelineQueryCondition queryCondition) {
-		Long count = pipelineMapper.queryPipelineCount(queryCondition);
+		Long count = PageQuerySupport.count(queryCondition,
+				() -> pipelineMapper.queryPipelineCount(queryCondition),
+				() -> pipelineMapper.queryPipelineCount(queryCondition));
 		List<PipelinePO> pipelinePOS = pipelineMapper.queryPipelineList(queryCondition);
+		boolean hasMore = PageQuerySupport.trimToPageSize(pipelinePOS, queryCondition);
 		
 		// 空值提前返回
 		if (Objects.equals(count, 0L) || pipelinePOS.isEmpty()) {
-			return PageResponse.<PipelineQueryView>builder().count(count).build();
+			return PageResponse.<PipelineQueryView>builder().count(count).hasMore(false).build();
 		}
+		PipelinePO last = pipelinePOS.get(pipelinePOS.size() - 1);
 		
 		// 对象转换
 		List<PipelineQueryView> pipelineQueryViews = pipelineConverter.pos2views(pipelinePOS);
 		
-		return PageResponse.<PipelineQueryView>builder().count(count).data(pipelineQueryViews).build();
+		return PageResponse.<PipelineQueryView>builder().count(count).data(pipelineQueryViews)
+				.hasMore(hasMore).nextCursorCreateTime(last.getCreateTime()).nextCursorId(last.getId()).build();
 	}
 	
 	@Override
@@ -34,18 +34,23 @@ public class RbacQueryRepository implements IRbacQueryService {
 	@Override
 	public PageResponse<UserInfoQueryView> queryUserInfoPage(RbacQueryCondition queryCondition) {
 		// 分页查询
-		Long count = userMapper.queryUserInfoCount(queryCondition);
+		Long count = PageQuerySupport.count(queryCondition,
+				() -> userMapper.queryUserInfoCount(queryCondition),
+				() -> userMapper.queryUserInfoCount(queryCondition));
 		List<UserInfo> userInfos = userMapper.queryUserInfoList(queryCondition);
+		boolean hasMore = PageQuerySupport.trimToPageSize(userInfos, queryCondition);
 		
 		// 空值提前返回
 		if (Objects.equals(0L, count) || userInfos.isEmpty()) {
-			return PageResponse.<UserInfoQueryView>builder().count(count).build();
+			return PageResponse.<UserInfoQueryView>builder().count(count).hasMore(false).build();
 		}
+		UserInfo last = userInfos.get(userInfos.size() - 1);
 		
 		// 对象转换
 		List<UserInfoQueryView> convert = authConverter.userInfos2views(userInfos);
 		
-		return PageResponse.<UserInfoQueryView>builder().count(count).data(convert).build();
+		return PageResponse.<UserInfoQueryView>builder().count(count).data(convert)
+				.hasMore(hasMore).nextCursorCreateTime(last.getCreateTime()).nextCursorId(last.getId()).build();
 	}
 	
 	@Override
@@ -3,6 +3,8 @@ package org.pms.infrastructure.mapper;
 import org.apache.ibatis.annotations.Mapper;
 import org.pms.infrastructure.mapper.po.CommandExecutionPO;
 
+import java.util.List;
+
 /**
  * @author alcsyooterranf
  * @program PressureMonitorSys-business
@@ -20,6 +22,14 @@ public interface ICommandExecutionMapper {
 	 */
 	int insert(CommandExecutionPO commandExecutionPO);
 	
+	/**
+	 * 批量插入指令执行记录, 一条多行INSERT
+	 *
+	 * @param commandExecutionPOS 指令执行PO列表
+	 * @return 影响行数
+	 */
+	int batchInsert(List<CommandExecutionPO> commandExecutionPOS);
+	
 	/**
 	 * 根据aepTaskId和deviceId查询
 	 *
@@ -29,6 +39,14 @@ public interface ICommandExecutionMapper {
 	 */
 	CommandExecutionPO selectByAepTaskIdAndDeviceId(Long aepTaskId, Long deviceId);
 	
+	/**
+	 * 根据(aepTaskId, deviceId)批量查询
+	 *
+	 * @param commandExecutionPOS 只需要aepTaskId和deviceId, 不能为空
+	 * @return 指令执行PO列表
+	 */
+	List<CommandExecutionPO> selectByAepTaskIdAndDeviceIdList(List<CommandExecutionPO> commandExecutionPOS);
+	
 	/**
 	 * 更新状态
 	 *
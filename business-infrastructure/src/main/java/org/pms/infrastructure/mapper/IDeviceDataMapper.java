@@ -5,6 +5,7 @@ import org.pms.api.dto.req.DeviceDataQueryCondition;
 import org.pms.infrastructure.mapper.po.DeviceDataPO;
 
 import java.util.List;
+import java.util.Map;
 
 @Mapper
 public interface IDeviceDataMapper {
@@ -16,6 +17,14 @@ public interface IDeviceDataMapper {
 	 */
 	void insertDeviceData(DeviceDataPO deviceDataPO);
 	
+	/**
+	 * 批量插入设备数据(多行INSERT)
+	 *
+	 * @param deviceDataPOS 设备数据列表
+	 * @return 插入的行数
+	 */
+	int batchInsertDeviceData(List<DeviceDataPO> deviceDataPOS);
+	
 	/**
 	 * 删除设备数据
 	 *
@@ -41,6 +50,14 @@ public interface IDeviceDataMapper {
 	 */
 	List<DeviceDataPO> queryDeviceDataList(DeviceDataQueryCondition deviceDataQueryCondition);
 	
+	/**
+	 * 查询设备分页数据的执行计划, 用于估算总数(countMode=APPROX)
+	 *
+	 * @param deviceDataQueryCondition 查询条件
+	 * @return EXPLAIN结果
+	 */
+	List<Map<String, Object>> explainDeviceDataQuery(DeviceDataQueryCondition deviceDataQueryCondition);
+	
 	/**
 	 * 更新设备数据状态
 	 *
@@ -39,6 +39,12 @@ public interface IDeviceMapper {
 	
 	DevicePO queryParameterLimitsBySN(String deviceSN);
 	
+	List<DevicePO> queryParameterLimitsBySNList(List<String> deviceSNs);
+	
+	List<String> queryDeviceSNByPipelineId(Long pipelineId);
+	
+	List<DevicePO> queryByPipelineId(Long pipelineId);
+	
 	void insertDevice(DevicePO devicePO);
 	
 	DevicePO checkDeviceSNAndPipelineSN(Long deviceSN, Long pipelineSN);
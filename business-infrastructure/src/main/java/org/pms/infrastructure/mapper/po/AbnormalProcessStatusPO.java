@@ -0,0 +1,31 @@
+package org.pms.infrastructure.mapper.po;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+/**
+ * @author alcsyooterranf
+ * @program PressureMonitorSys-business
+ * @description ClickHouse异常数据处理状态行(t_abnormal_process_status), 处理和删除各写一行
+ * @create 2026/10/18
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AbnormalProcessStatusPO {
+
+    private Long dataId;
+    private Boolean processed;
+    private Date processTime;
+    private String processBy;
+    private Boolean deleted;
+    private Date deleteTime;
+    private String deleteBy;
+    private Long version;
+
+}
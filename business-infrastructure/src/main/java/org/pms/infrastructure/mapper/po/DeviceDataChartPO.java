@@ -0,0 +1,35 @@
+package org.pms.infrastructure.mapper.po;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+/**
+ * @author alcsyooterranf
+ * @program PressureMonitorSys-business
+ * @description ClickHouse按时间区间聚合的设备数据
+ * @create 2026/10/18
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeviceDataChartPO {
+
+    private Date time;
+    private Long count;
+    private Long abnormalCount;
+    private Integer minPressure;
+    private Double avgPressure;
+    private Integer maxPressure;
+    private Integer minTemperature;
+    private Double avgTemperature;
+    private Integer maxTemperature;
+    private Integer minVoltage;
+    private Double avgVoltage;
+    private Integer maxVoltage;
+
+}
@@ -4,11 +4,9 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.pms.domain.devicedata.model.vo.AbnormalFlagVO;
 
-import java.util.ArrayList;
 import java.util.Date;
-import java.util.List;
-import java.util.stream.Collectors;
 
 @Data
 @Builder
@@ -30,6 +28,11 @@ public class DeviceDataPO {
      * 兼容旧版本：如果只有一个异常，可以直接存储数字
      */
     private String abnormalFlag;
+
+    /**
+     * 异常标志掩码（异常code为n时置第n-1位），为空表示旧数据，需从abnormalFlag解析
+     */
+    private Integer abnormalMask;
 	
     private String deviceType;
     private Long deviceId;
@@ -48,74 +51,59 @@ public class DeviceDataPO {
     /**
      * 计算异常标志
      * 检查所有可能的异常状态，支持多个异常共存
+     * 只做整数比较和位运算, 旧版code字符串通过查表得到, 不产生对象分配
      *
      * @param devicePO 设备信息（包含阈值）
      */
     public void computeAbnormalFlag(DevicePO devicePO) {
-        List<Integer> abnormalCodes = new ArrayList<>();
+        int mask = 0;
 
         // 1. 检查压力异常
         if (this.pressure != null && devicePO.getPressureUpperBound() != null
                 && this.pressure > devicePO.getPressureUpperBound()) {
-            abnormalCodes.add(1); // 超压
+            mask |= AbnormalFlagVO.OVER_PRESSURE.getMask(); // 超压
         }
         if (this.pressure != null && devicePO.getPressureLowerBound() != null
                 && this.pressure < devicePO.getPressureLowerBound()) {
-            abnormalCodes.add(2); // 欠压
+            mask |= AbnormalFlagVO.UNDER_PRESSURE.getMask(); // 欠压
         }
 
         // 2. 检查温度异常
         if (this.temperature != null && devicePO.getTemperatureUpperBound() != null
                 && this.temperature > devicePO.getTemperatureUpperBound()) {
-            abnormalCodes.add(3); // 超温
+            mask |= AbnormalFlagVO.OVER_TEMPERATURE.getMask(); // 超温
         }
         if (this.temperature != null && devicePO.getTemperatureLowerBound() != null
                 && this.temperature < devicePO.getTemperatureLowerBound()) {
-            abnormalCodes.add(4); // 欠温
+            mask |= AbnormalFlagVO.UNDER_TEMPERATURE.getMask(); // 欠温
         }
 
         // 3. 检查电压异常
         if (this.voltage != null && devicePO.getVoltageUpperBound() != null
                 && this.voltage > devicePO.getVoltageUpperBound()) {
-            abnormalCodes.add(5); // 电压超压
+            mask |= AbnormalFlagVO.OVER_VOLTAGE.getMask(); // 电压超压
         }
         if (this.voltage != null && devicePO.getVoltageLowerBound() != null
                 && this.voltage < devicePO.getVoltageLowerBound()) {
-            abnormalCodes.add(6); // 电压欠压
+            mask |= AbnormalFlagVO.UNDER_VOLTAGE.getMask(); // 电压欠压
         }
 
-        // 4. 设置异常标志（逗号分隔的code字符串）
-        if (abnormalCodes.isEmpty()) {
-            this.abnormalFlag = "0"; // 正常
-        } else {
-            this.abnormalFlag = abnormalCodes.stream()
-                    .map(String::valueOf)
-                    .collect(Collectors.joining(","));
-        }
+        // 4. 设置异常标志: 掩码为标准表示, 同时写入旧版逗号分隔的code字符串（兼容abnormal_flag列）
+        this.abnormalMask = mask;
+        this.abnormalFlag = AbnormalFlagVO.toCodeString(mask);
 
-        // 5. 设置处理状态：abnormalFlag为"0"表示正常，无需处理
-        this.processState = "0".equals(this.abnormalFlag);
+        // 5. 设置处理状态：掩码为0表示正常，无需处理
+        this.processState = mask == 0;
     }
 
     /**
-     * 获取异常code列表
+     * 获取异常标志掩码
+     * 旧数据（abnormal_mask列为空, 或旧版本溢写的记录）从code字符串解析
      *
-     * @return 异常code列表
+     * @return 异常标志掩码
      */
-    public List<Integer> getAbnormalCodes() {
-        if (abnormalFlag == null || abnormalFlag.isEmpty() || "0".equals(abnormalFlag)) {
-            return List.of(0);
-        }
-
-        List<Integer> codes = new ArrayList<>();
-        for (String code : abnormalFlag.split(",")) {
-            try {
-                codes.add(Integer.parseInt(code.trim()));
-            } catch (NumberFormatException e) {
-                // 忽略无效的code
-            }
-        }
-        return codes.isEmpty() ? List.of(0) : codes;
+    public int resolveAbnormalMask() {
+        return abnormalMask != null ? abnormalMask : AbnormalFlagVO.parseCodeString(abnormalFlag);
     }
 
 }
@@ -8,12 +8,15 @@ import lombok.extern.slf4j.Slf4j;
 import org.pms.types.BizCode;
 import org.pms.types.Response;
 import org.pms.types.BizException;
+import org.pms.types.TooManyRequestsException;
 import org.springframework.context.support.DefaultMessageSourceResolvable;
 import org.springframework.dao.DataAccessException;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
 import org.springframework.validation.BindException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
 import java.util.Objects;
@@ -58,6 +61,23 @@ public class GlobalExceptionHandler {
 				.build();
 	}
 
+	/**
+	 * 处理过载异常, 返回HTTP 429, 调用方应退避后重试
+	 *
+	 * @param request 请求
+	 * @param e       异常
+	 * @return 异常信息
+	 */
+	@ExceptionHandler(value = TooManyRequestsException.class)
+	@ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+	public Response<String> tooManyRequestsExceptionHandler(HttpServletRequest request, TooManyRequestsException e) {
+		log.warn("异常代码: {}, 异常信息: {}, 请求: {}", e.getCode(), e.getMessage(), request.getRequestURI());
+		return Response.<String>builder()
+				.code(e.getCode())
+				.message(e.getMessage())
+				.build();
+	}
+
 	/**
 	 * 处理业务异常
 	 *
@@ -0,0 +1,235 @@
+-- 设备数据分钟/小时/天汇总表(ClickHouse)
+-- 物化视图在原始表t_monitor_data_report每次写入时同步汇总, 统计查询按时间范围选用最粗的汇总表, 不再扫描原始数据
+-- 执行方式: clickhouse.rollup.auto-create=true(默认)时应用启动时由ClickHouseRollupInitializer执行, 全部语句可重复执行
+-- 关闭自动执行时由DBA用clickhouse-client --multiquery执行, CH前缀的版本号只在db/clickhouse下排序, 与MySQL迁移脚本无关
+-- 汇总表只包含物化视图创建之后写入的数据, 应用以物化视图的创建时间为水位线, 水位线之前的统计扫描原始表
+-- 手动执行文件末尾的回填语句后, 配置clickhouse.rollup.backfilled=true, 统计查询全部使用汇总表
+-- 注意: 本文件按分号拆分语句执行, 注释中不要出现分号
+
+-- 分钟汇总
+CREATE TABLE IF NOT EXISTS pressuremonitorsys.t_monitor_data_rollup_1m
+(
+    device_sn             String,
+    bucket                DateTime,
+    cnt                   SimpleAggregateFunction(sum, UInt64),
+    abnormal_cnt          SimpleAggregateFunction(sum, UInt64),
+    over_pressure_cnt     SimpleAggregateFunction(sum, UInt64),
+    under_pressure_cnt    SimpleAggregateFunction(sum, UInt64),
+    over_temperature_cnt  SimpleAggregateFunction(sum, UInt64),
+    under_temperature_cnt SimpleAggregateFunction(sum, UInt64),
+    over_voltage_cnt      SimpleAggregateFunction(sum, UInt64),
+    under_voltage_cnt     SimpleAggregateFunction(sum, UInt64),
+    sum_temperature       SimpleAggregateFunction(sum, Int64),
+    min_temperature       SimpleAggregateFunction(min, Int32),
+    max_temperature       SimpleAggregateFunction(max, Int32),
+    sum_voltage           SimpleAggregateFunction(sum, Int64),
+    min_voltage           SimpleAggregateFunction(min, Int32),
+    max_voltage           SimpleAggregateFunction(max, Int32),
+    sum_pressure          SimpleAggregateFunction(sum, Int64),
+    min_pressure          SimpleAggregateFunction(min, Int32),
+    max_pressure          SimpleAggregateFunction(max, Int32)
+) ENGINE = AggregatingMergeTree
+PARTITION BY toYYYYMM(bucket)
+ORDER BY (device_sn, bucket);
+
+CREATE MATERIALIZED VIEW IF NOT EXISTS pressuremonitorsys.mv_monitor_data_rollup_1m
+TO pressuremonitorsys.t_monitor_data_rollup_1m
+AS
+SELECT device_sn,
+       toStartOfMinute(create_time)           AS bucket,
+       count()                                AS cnt,
+       countIf(abnormal_flag > 0)             AS abnormal_cnt,
+       countIf(bitAnd(abnormal_flag, 1) > 0)  AS over_pressure_cnt,
+       countIf(bitAnd(abnormal_flag, 2) > 0)  AS under_pressure_cnt,
+       countIf(bitAnd(abnormal_flag, 4) > 0)  AS over_temperature_cnt,
+       countIf(bitAnd(abnormal_flag, 8) > 0)  AS under_temperature_cnt,
+       countIf(bitAnd(abnormal_flag, 16) > 0) AS over_voltage_cnt,
+       countIf(bitAnd(abnormal_flag, 32) > 0) AS under_voltage_cnt,
+       sum(toInt64(temperature))              AS sum_temperature,
+       min(temperature)                       AS min_temperature,
+       max(temperature)                       AS max_temperature,
+       sum(toInt64(voltage))                  AS sum_voltage,
+       min(voltage)                           AS min_voltage,
+       max(voltage)                           AS max_voltage,
+       sum(toInt64(pressure))                 AS sum_pressure,
+       min(pressure)                          AS min_pressure,
+       max(pressure)                          AS max_pressure
+FROM pressuremonitorsys.t_monitor_data_report
+GROUP BY device_sn, bucket;
+
+-- 小时汇总
+CREATE TABLE IF NOT EXISTS pressuremonitorsys.t_monitor_data_rollup_1h
+(
+    device_sn             String,
+    bucket                DateTime,
+    cnt                   SimpleAggregateFunction(sum, UInt64),
+    abnormal_cnt          SimpleAggregateFunction(sum, UInt64),
+    over_pressure_cnt     SimpleAggregateFunction(sum, UInt64),
+    under_pressure_cnt    SimpleAggregateFunction(sum, UInt64),
+    over_temperature_cnt  SimpleAggregateFunction(sum, UInt64),
+    under_temperature_cnt SimpleAggregateFunction(sum, UInt64),
+    over_voltage_cnt      SimpleAggregateFunction(sum, UInt64),
+    under_voltage_cnt     SimpleAggregateFunction(sum, UInt64),
+    sum_temperature       SimpleAggregateFunction(sum, Int64),
+    min_temperature       SimpleAggregateFunction(min, Int32),
+    max_temperature       SimpleAggregateFunction(max, Int32),
+    sum_voltage           SimpleAggregateFunction(sum, Int64),
+    min_voltage           SimpleAggregateFunction(min, Int32),
+    max_voltage           SimpleAggregateFunction(max, Int32),
+    sum_pressure          SimpleAggregateFunction(sum, Int64),
+    min_pressure          SimpleAggregateFunction(min, Int32),
+    max_pressure          SimpleAggregateFunction(max, Int32)
+) ENGINE = AggregatingMergeTree
+PARTITION BY toYYYYMM(bucket)
+ORDER BY (device_sn, bucket);
+
+CREATE MATERIALIZED VIEW IF NOT EXISTS pressuremonitorsys.mv_monitor_data_rollup_1h
+TO pressuremonitorsys.t_monitor_data_rollup_1h
+AS
+SELECT device_sn,
+       toStartOfHour(create_time)             AS bucket,
+       count()                                AS cnt,
+       countIf(abnormal_flag > 0)             AS abnormal_cnt,
+       countIf(bitAnd(abnormal_flag, 1) > 0)  AS over_pressure_cnt,
+       countIf(bitAnd(abnormal_flag, 2) > 0)  AS under_pressure_cnt,
+       countIf(bitAnd(abnormal_flag, 4) > 0)  AS over_temperature_cnt,
+       countIf(bitAnd(abnormal_flag, 8) > 0)  AS under_temperature_cnt,
+       countIf(bitAnd(abnormal_flag, 16) > 0) AS over_voltage_cnt,
+       countIf(bitAnd(abnormal_flag, 32) > 0) AS under_voltage_cnt,
+       sum(toInt64(temperature))              AS sum_temperature,
+       min(temperature)                       AS min_temperature,
+       max(temperature)                       AS max_temperature,
+       sum(toInt64(voltage))                  AS sum_voltage,
+       min(voltage)                           AS min_voltage,
+       max(voltage)                           AS max_voltage,
+       sum(toInt64(pressure))                 AS sum_pressure,
+       min(pressure)                          AS min_pressure,
+       max(pressure)                          AS max_pressure
+FROM pressuremonitorsys.t_monitor_data_report
+GROUP BY device_sn, bucket;
+
+-- 天汇总
+CREATE TABLE IF NOT EXISTS pressuremonitorsys.t_monitor_data_rollup_1d
+(
+    device_sn             String,
+    bucket                DateTime,
+    cnt                   SimpleAggregateFunction(sum, UInt64),
+    abnormal_cnt          SimpleAggregateFunction(sum, UInt64),
+    over_pressure_cnt     SimpleAggregateFunction(sum, UInt64),
+    under_pressure_cnt    SimpleAggregateFunction(sum, UInt64),
+    over_temperature_cnt  SimpleAggregateFunction(sum, UInt64),
+    under_temperature_cnt SimpleAggregateFunction(sum, UInt64),
+    over_voltage_cnt      SimpleAggregateFunction(sum, UInt64),
+    under_voltage_cnt     SimpleAggregateFunction(sum, UInt64),
+    sum_temperature       SimpleAggregateFunction(sum, Int64),
+    min_temperature       SimpleAggregateFunction(min, Int32),
+    max_temperature       SimpleAggregateFunction(max, Int32),
+    sum_voltage           SimpleAggregateFunction(sum, Int64),
+    min_voltage           SimpleAggregateFunction(min, Int32),
+    max_voltage           SimpleAggregateFunction(max, Int32),
+    sum_pressure          SimpleAggregateFunction(sum, Int64),
+    min_pressure          SimpleAggregateFunction(min, Int32),
+    max_pressure          SimpleAggregateFunction(max, Int32)
+) ENGINE = AggregatingMergeTree
+PARTITION BY toYYYYMM(bucket)
+ORDER BY (device_sn, bucket);
+
+CREATE MATERIALIZED VIEW IF NOT EXISTS pressuremonitorsys.mv_monitor_data_rollup_1d
+TO pressuremonitorsys.t_monitor_data_rollup_1d
+AS
+SELECT device_sn,
+       toStartOfDay(create_time)              AS bucket,
+       count()                                AS cnt,
+       countIf(abnormal_flag > 0)             AS abnormal_cnt,
+       countIf(bitAnd(abnormal_flag, 1) > 0)  AS over_pressure_cnt,
+       countIf(bitAnd(abnormal_flag, 2) > 0)  AS under_pressure_cnt,
+       countIf(bitAnd(abnormal_flag, 4) > 0)  AS over_temperature_cnt,
+       countIf(bitAnd(abnormal_flag, 8) > 0)  AS under_temperature_cnt,
+       countIf(bitAnd(abnormal_flag, 16) > 0) AS over_voltage_cnt,
+       countIf(bitAnd(abnormal_flag, 32) > 0) AS under_voltage_cnt,
+       sum(toInt64(temperature))              AS sum_temperature,
+       min(temperature)                       AS min_temperature,
+       max(temperature)                       AS max_temperature,
+       sum(toInt64(voltage))                  AS sum_voltage,
+       min(voltage)                           AS min_voltage,
+       max(voltage)                           AS max_voltage,
+       sum(toInt64(pressure))                 AS sum_pressure,
+       min(pressure)                          AS min_pressure,
+       max(pressure)                          AS max_pressure
+FROM pressuremonitorsys.t_monitor_data_report
+GROUP BY device_sn, bucket;
+
+-- 回填历史数据(手动执行, 以物化视图创建时间为界, 避免与物化视图重复汇总)
+-- 按月分段执行, 每段只扫描原始表的一个分区并写入汇总表的一个分区: {from}/{to}依次取每个月的月初和下月初,
+-- 最后一段的{to}取物化视图创建时间(三张汇总表的物化视图创建时间不同, 分别取对应的时间)
+-- 某一段失败时, 除最后一段所在的月份(已有物化视图写入的数据)外, 可以DROP PARTITION后重跑该段
+-- 全部分段完成后配置clickhouse.rollup.backfilled=true
+-- INSERT INTO pressuremonitorsys.t_monitor_data_rollup_1m
+-- SELECT device_sn,
+--        toStartOfMinute(create_time)           AS bucket,
+--        count()                                AS cnt,
+--        countIf(abnormal_flag > 0)             AS abnormal_cnt,
+--        countIf(bitAnd(abnormal_flag, 1) > 0)  AS over_pressure_cnt,
+--        countIf(bitAnd(abnormal_flag, 2) > 0)  AS under_pressure_cnt,
+--        countIf(bitAnd(abnormal_flag, 4) > 0)  AS over_temperature_cnt,
+--        countIf(bitAnd(abnormal_flag, 8) > 0)  AS under_temperature_cnt,
+--        countIf(bitAnd(abnormal_flag, 16) > 0) AS over_voltage_cnt,
+--        countIf(bitAnd(abnormal_flag, 32) > 0) AS under_voltage_cnt,
+--        sum(toInt64(temperature))              AS sum_temperature,
+--        min(temperature)                       AS min_temperature,
+--        max(temperature)                       AS max_temperature,
+--        sum(toInt64(voltage))                  AS sum_voltage,
+--        min(voltage)                           AS min_voltage,
+--        max(voltage)                           AS max_voltage,
+--        sum(toInt64(pressure))                 AS sum_pressure,
+--        min(pressure)                          AS min_pressure,
+--        max(pressure)                          AS max_pressure
+-- FROM pressuremonitorsys.t_monitor_data_report
+-- WHERE create_time >= '{from}' AND create_time < '{to}'
+-- GROUP BY device_sn, bucket
+-- INSERT INTO pressuremonitorsys.t_monitor_data_rollup_1h
+-- SELECT device_sn,
+--        toStartOfHour(create_time)             AS bucket,
+--        count()                                AS cnt,
+--        countIf(abnormal_flag > 0)             AS abnormal_cnt,
+--        countIf(bitAnd(abnormal_flag, 1) > 0)  AS over_pressure_cnt,
+--        countIf(bitAnd(abnormal_flag, 2) > 0)  AS under_pressure_cnt,
+--        countIf(bitAnd(abnormal_flag, 4) > 0)  AS over_temperature_cnt,
+--        countIf(bitAnd(abnormal_flag, 8) > 0)  AS under_temperature_cnt,
+--        countIf(bitAnd(abnormal_flag, 16) > 0) AS over_voltage_cnt,
+--        countIf(bitAnd(abnormal_flag, 32) > 0) AS under_voltage_cnt,
+--        sum(toInt64(temperature))              AS sum_temperature,
+--        min(temperature)                       AS min_temperature,
+--        max(temperature)                       AS max_temperature,
+--        sum(toInt64(voltage))                  AS sum_voltage,
+--        min(voltage)                           AS min_voltage,
+--        max(voltage)                           AS max_voltage,
+--        sum(toInt64(pressure))                 AS sum_pressure,
+--        min(pressure)                          AS min_pressure,
+--        max(pressure)                          AS max_pressure
+-- FROM pressuremonitorsys.t_monitor_data_report
+-- WHERE create_time >= '{from}' AND create_time < '{to}'
+-- GROUP BY device_sn, bucket
+-- INSERT INTO pressuremonitorsys.t_monitor_data_rollup_1d
+-- SELECT device_sn,
+--        toStartOfDay(create_time)              AS bucket,
+--        count()                                AS cnt,
+--        countIf(abnormal_flag > 0)             AS abnormal_cnt,
+--        countIf(bitAnd(abnormal_flag, 1) > 0)  AS over_pressure_cnt,
+--        countIf(bitAnd(abnormal_flag, 2) > 0)  AS under_pressure_cnt,
+--        countIf(bitAnd(abnormal_flag, 4) > 0)  AS over_temperature_cnt,
+--        countIf(bitAnd(abnormal_flag, 8) > 0)  AS under_temperature_cnt,
+--        countIf(bitAnd(abnormal_flag, 16) > 0) AS over_voltage_cnt,
+--        countIf(bitAnd(abnormal_flag, 32) > 0) AS under_voltage_cnt,
+--        sum(toInt64(temperature))              AS sum_temperature,
+--        min(temperature)                       AS min_temperature,
+--        max(temperature)                       AS max_temperature,
+--        sum(toInt64(voltage))                  AS sum_voltage,
+--        min(voltage)                           AS min_voltage,
+--        max(voltage)                           AS max_voltage,
+--        sum(toInt64(pressure))                 AS sum_pressure,
+--        min(pressure)                          AS min_pressure,
+--        max(pressure)                          AS max_pressure
+-- FROM pressuremonitorsys.t_monitor_data_report
+-- WHERE create_time >= '{from}' AND create_time < '{to}'
+-- GROUP BY device_sn, bucket
@@ -0,0 +1,36 @@
+-- 异常数据处理状态表(ClickHouse)
+-- 处理/删除不再对原始表t_monitor_data_report执行ALTER TABLE UPDATE(每次都是重写整个part的mutation),
+-- 改为向状态表批量插入带版本号的状态行, 查询时通过v_abnormal_process_status取每条数据的最新状态
+-- 执行方式: 生产环境由DBA用clickhouse-client --multiquery执行, 全部语句可重复执行
+-- clickhouse.status.auto-create=true(默认false, 仅开发/测试环境)时由ClickHouseStatusBuffer在启动时执行
+-- CH前缀的版本号只在db/clickhouse下排序, 与MySQL迁移脚本(db/migration, V前缀)无关
+-- 注意: 本文件按分号拆分语句执行, 注释中不要出现分号
+
+-- 状态行: 处理和删除各自一行, 排序键包含is_deleted, 合并时只折叠同一种操作的重复行, 删除不会覆盖处理记录
+-- 已存在的旧版状态表(ORDER BY data_id)需要先重建, CREATE TABLE IF NOT EXISTS不会修改已有表
+CREATE TABLE IF NOT EXISTS pressuremonitorsys.t_abnormal_process_status
+(
+    data_id      UInt64,
+    is_processed UInt8 DEFAULT 0,
+    is_deleted   UInt8 DEFAULT 0,
+    process_time Nullable(DateTime),
+    process_by   Nullable(String),
+    delete_time  Nullable(DateTime),
+    delete_by    Nullable(String),
+    version      UInt64
+) ENGINE = ReplacingMergeTree(version)
+ORDER BY (data_id, is_deleted);
+
+-- 每条数据的最新状态, 不依赖后台合并是否完成
+-- 处理和删除都不可撤销, 状态取max, 处理人/删除人取对应操作版本号最大的一行
+-- 列名加st_前缀, 与原始表的process_state/is_removed等列区分, JOIN时无需限定表名
+CREATE VIEW IF NOT EXISTS pressuremonitorsys.v_abnormal_process_status AS
+SELECT data_id,
+       max(is_processed)                                 AS st_processed,
+       argMaxIf(process_time, version, is_processed = 1) AS st_process_time,
+       argMaxIf(process_by, version, is_processed = 1)   AS st_process_by,
+       max(is_deleted)                                   AS st_deleted,
+       argMaxIf(delete_time, version, is_deleted = 1)    AS st_delete_time,
+       argMaxIf(delete_by, version, is_deleted = 1)      AS st_delete_by
+FROM pressuremonitorsys.t_abnormal_process_status
+GROUP BY data_id;
@@ -0,0 +1,36 @@
+-- 设备上报数据增加异常标志掩码列
+-- 异常code为n时置第n-1位: 1超压 2欠压 4超温 8欠温 16电压超压 32电压欠压, 与ClickHouse中abnormal_flag的位约定一致
+-- 旧版abnormal_flag(逗号分隔的code字符串)继续写入, 读取时abnormal_mask为空则回退解析abnormal_flag
+-- 执行方式: 应用不执行MySQL迁移, 由DBA在发布前用mysql客户端按版本号顺序执行db/migration下的脚本
+-- (V前缀与Flyway默认约定一致, 以后接入Flyway可直接使用); ClickHouse脚本在db/clickhouse下, 使用CH前缀, 版本号互不相关
+-- 先部署新版本应用再回填也可以: 新写入的数据已带abnormal_mask, 未回填的数据读取时回退解析abnormal_flag
+
+ALTER TABLE pressuremonitorsys.t_device_data
+    ADD COLUMN abnormal_mask TINYINT UNSIGNED NULL COMMENT '异常标志掩码' AFTER abnormal_flag;
+
+-- 回填历史数据: 按id分段, 每段一条UPDATE、单独提交, 避免一条UPDATE扫描全表、长时间持有行锁并产生超大的undo和binlog
+-- DELIMITER为mysql客户端命令; 中断后重新执行即可, 已回填的行因abnormal_mask不为空被跳过
+-- 从库延迟敏感时可调小batch_size, 或在循环中加入DO SLEEP(0.1)
+DROP PROCEDURE IF EXISTS pressuremonitorsys.backfill_abnormal_mask;
+DELIMITER $$
+CREATE PROCEDURE pressuremonitorsys.backfill_abnormal_mask(IN batch_size INT)
+BEGIN
+    DECLARE cur_id BIGINT;
+    DECLARE max_id BIGINT;
+    SELECT MIN(id), MAX(id) INTO cur_id, max_id FROM pressuremonitorsys.t_device_data;
+    WHILE cur_id <= max_id DO
+        UPDATE pressuremonitorsys.t_device_data
+        SET abnormal_mask = (FIND_IN_SET('1', abnormal_flag) > 0)
+                          | (FIND_IN_SET('2', abnormal_flag) > 0) << 1
+                          | (FIND_IN_SET('3', abnormal_flag) > 0) << 2
+                          | (FIND_IN_SET('4', abnormal_flag) > 0) << 3
+                          | (FIND_IN_SET('5', abnormal_flag) > 0) << 4
+                          | (FIND_IN_SET('6', abnormal_flag) > 0) << 5
+        WHERE id >= cur_id AND id < cur_id + batch_size
+          AND abnormal_mask IS NULL;
+        SET cur_id = cur_id + batch_size;
+    END WHILE;
+END$$
+DELIMITER ;
+CALL pressuremonitorsys.backfill_abnormal_mask(10000);
+DROP PROCEDURE pressuremonitorsys.backfill_abnormal_mask;
@@ -0,0 +1,19 @@
+-- 列表/计数查询的时间范围条件改为对create_time的半开区间[startTime当天0点, endTime次日0点),
+-- 不再对列做date_format, 以下索引可用于范围扫描; InnoDB二级索引隐含主键id, 同时满足(create_time, id)游标分页排序
+-- 执行方式: 由DBA在发布前用mysql客户端执行, 见V20261018_01的说明
+-- 指定ALGORITHM=INPLACE, LOCK=NONE在线建索引, 建索引期间不阻塞读写; 无法在线执行时直接报错, 不会退化为锁表
+
+-- 设备上报数据: 按设备查询 / 全部设备按时间查询
+ALTER TABLE pressuremonitorsys.t_device_data
+    ADD INDEX idx_removed_sn_create_time (is_removed, device_sn, create_time),
+    ADD INDEX idx_removed_create_time (is_removed, create_time),
+    ALGORITHM = INPLACE, LOCK = NONE;
+
+-- 设备、管道: 列表按创建时间倒序
+ALTER TABLE pressuremonitorsys.t_device
+    ADD INDEX idx_removed_create_time (is_removed, create_time),
+    ALGORITHM = INPLACE, LOCK = NONE;
+
+ALTER TABLE pressuremonitorsys.t_pipeline
+    ADD INDEX idx_removed_create_time (is_removed, create_time),
+    ALGORITHM = INPLACE, LOCK = NONE;
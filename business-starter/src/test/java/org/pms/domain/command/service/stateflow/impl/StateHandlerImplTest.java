@@ -0,0 +1,233 @@
+package org.pms.domain.command.service.stateflow.impl;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.pms.domain.command.model.entity.CommandExecutionEntity;
+import org.pms.domain.command.model.valobj.CommandExecutionStatusVO;
+import org.pms.domain.command.repository.ICommandExecutionRepository;
+import org.pms.domain.command.service.stateflow.CommandExecutionStateCache;
+import org.pms.domain.command.service.stateflow.CommandTransitionCtx;
+import org.pms.domain.command.service.stateflow.state.CompletedState;
+import org.pms.domain.command.service.stateflow.state.DeliveredState;
+import org.pms.domain.command.service.stateflow.state.SavedState;
+import org.pms.domain.command.service.stateflow.state.SentState;
+import org.pms.domain.command.service.stateflow.state.TimeoutState;
+import org.pms.domain.command.service.stateflow.state.TtlTimeoutState;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author alcsyooterranf
+ * @program PressureMonitorSys-business
+ * @description 批量回调: 同一条执行记录的回调合并为一次CAS, 终态锁死、不允许回退, 缓存状态过期时按数据库状态重试
+ * @create 2026/10/18
+ */
+public class StateHandlerImplTest {
+
+	private static final long AEP_TASK_ID = 1001L;
+
+	private StateHandlerImpl stateHandler;
+
+	private ICommandExecutionRepository commandExecutionRepository;
+
+	private CommandExecutionStateCache commandExecutionStateCache;
+
+	@Before
+	public void setUp() {
+		commandExecutionRepository = mock(ICommandExecutionRepository.class);
+		commandExecutionStateCache = new CommandExecutionStateCache();
+		ReflectionTestUtils.setField(commandExecutionStateCache, "enabled", true);
+		ReflectionTestUtils.setField(commandExecutionStateCache, "maximumSize", 1000L);
+		ReflectionTestUtils.setField(commandExecutionStateCache, "inFlightExpireHours", 1L);
+		ReflectionTestUtils.setField(commandExecutionStateCache, "tombstoneMinutes", 1L);
+		commandExecutionStateCache.init();
+
+		stateHandler = new StateHandlerImpl();
+		ReflectionTestUtils.setField(stateHandler, "savedState", new SavedState());
+		ReflectionTestUtils.setField(stateHandler, "sentState", new SentState());
+		ReflectionTestUtils.setField(stateHandler, "deliveredState", new DeliveredState());
+		ReflectionTestUtils.setField(stateHandler, "completedState", new CompletedState());
+		ReflectionTestUtils.setField(stateHandler, "ttlTimeoutState", new TtlTimeoutState());
+		ReflectionTestUtils.setField(stateHandler, "timeoutState", new TimeoutState());
+		ReflectionTestUtils.setField(stateHandler, "commandExecutionRepository", commandExecutionRepository);
+		ReflectionTestUtils.setField(stateHandler, "commandExecutionStateCache", commandExecutionStateCache);
+		ReflectionTestUtils.setField(stateHandler, "callbackBatchSize", 500);
+		stateHandler.init();
+	}
+
+	@Test
+	public void testFoldAppliesCallbacksInArrivalOrder() {
+		CommandTransitionCtx transition = stateHandler.fold(CommandExecutionStatusVO.SAVED, List.of(
+				callback(1L, CommandExecutionStatusVO.SENT, "sent", "raw-1"),
+				callback(1L, CommandExecutionStatusVO.DELIVERED, "delivered", "raw-2"),
+				callback(1L, CommandExecutionStatusVO.SENT, "late", "raw-3")));
+
+		assertEquals(CommandExecutionStatusVO.SAVED, transition.getExpectedStatus());
+		assertEquals(CommandExecutionStatusVO.DELIVERED, transition.getTargetStatus());
+		// 结果取最后一次生效的迁移, 原始回调取最后到达的一条
+		assertEquals("delivered", transition.getResultDetail());
+		assertEquals("raw-3", transition.getLastRawCallback());
+	}
+
+	@Test
+	public void testFoldLocksFinalState() {
+		CommandTransitionCtx transition = stateHandler.fold(CommandExecutionStatusVO.SENT, List.of(
+				callback(1L, CommandExecutionStatusVO.COMPLETED, "done", "raw-1"),
+				callback(1L, CommandExecutionStatusVO.TIMEOUT, "timeout", "raw-2")));
+
+		assertEquals(CommandExecutionStatusVO.COMPLETED, transition.getTargetStatus());
+		assertEquals("done", transition.getResultDetail());
+
+		CommandTransitionCtx locked = stateHandler.fold(CommandExecutionStatusVO.COMPLETED, List.of(
+				callback(1L, CommandExecutionStatusVO.TIMEOUT, "timeout", "raw-3")));
+
+		assertEquals(CommandExecutionStatusVO.COMPLETED, locked.getExpectedStatus());
+		assertNull(locked.getTargetStatus());
+		assertNull(locked.getResultDetail());
+		assertEquals("raw-3", locked.getLastRawCallback());
+	}
+
+	@Test
+	public void testFoldIgnoresRegression() {
+		CommandTransitionCtx transition = stateHandler.fold(CommandExecutionStatusVO.DELIVERED, List.of(
+				callback(1L, CommandExecutionStatusVO.SENT, "sent", "raw-1"),
+				callback(1L, CommandExecutionStatusVO.SAVED, "saved", "raw-2")));
+
+		assertEquals(CommandExecutionStatusVO.DELIVERED, transition.getExpectedStatus());
+		assertNull(transition.getTargetStatus());
+		assertEquals("raw-2", transition.getLastRawCallback());
+	}
+
+	@Test
+	public void testBatchFoldsCallbacksOfOneExecutionIntoOneCas() {
+		when(commandExecutionRepository.selectByAepTaskIdAndDeviceIds(anyList())).thenReturn(List.of(
+				execution(1L, CommandExecutionStatusVO.SAVED),
+				execution(2L, CommandExecutionStatusVO.SENT)));
+		List<List<CommandTransitionCtx>> batches = answerBatches(new boolean[]{true, true});
+
+		stateHandler.onBatch(List.of(
+				callback(1L, CommandExecutionStatusVO.SENT, null, "raw-1"),
+				callback(2L, CommandExecutionStatusVO.DELIVERED, null, "raw-2"),
+				callback(1L, CommandExecutionStatusVO.DELIVERED, null, "raw-3")));
+
+		assertEquals(1, batches.size());
+		List<CommandTransitionCtx> transitions = batches.get(0);
+		assertEquals(2, transitions.size());
+		assertTransition(transitions.get(0), 1L, CommandExecutionStatusVO.SAVED, CommandExecutionStatusVO.DELIVERED);
+		assertTransition(transitions.get(1), 2L, CommandExecutionStatusVO.SENT, CommandExecutionStatusVO.DELIVERED);
+		assertEquals(CommandExecutionStatusVO.DELIVERED, commandExecutionStateCache.get(AEP_TASK_ID, 1L));
+		assertEquals(CommandExecutionStatusVO.DELIVERED, commandExecutionStateCache.get(AEP_TASK_ID, 2L));
+	}
+
+	@Test
+	public void testBatchSkipsCachedFinalStateWithoutDatabase() {
+		commandExecutionStateCache.put(AEP_TASK_ID, 1L, CommandExecutionStatusVO.COMPLETED);
+		when(commandExecutionRepository.selectByAepTaskIdAndDeviceIds(anyList())).thenReturn(List.of());
+		List<List<CommandTransitionCtx>> batches = answerBatches(new boolean[0]);
+
+		stateHandler.onBatch(List.of(callback(1L, CommandExecutionStatusVO.TIMEOUT, null, "raw-1")));
+
+		assertEquals(1, batches.size());
+		assertTrue(batches.get(0).isEmpty());
+		assertEquals(CommandExecutionStatusVO.COMPLETED, commandExecutionStateCache.get(AEP_TASK_ID, 1L));
+	}
+
+	@Test
+	public void testBatchRetriesStaleCacheFromDatabase() {
+		// 缓存为SENT, 其他节点已推进到DELIVERED, 以缓存为期望值的CAS未命中
+		commandExecutionStateCache.put(AEP_TASK_ID, 1L, CommandExecutionStatusVO.SENT);
+		when(commandExecutionRepository.selectByAepTaskIdAndDeviceIds(anyList()))
+				.thenReturn(List.of())
+				.thenReturn(List.of(execution(1L, CommandExecutionStatusVO.DELIVERED)));
+		List<List<CommandTransitionCtx>> batches = answerBatches(new boolean[]{false}, new boolean[]{true});
+
+		stateHandler.onBatch(List.of(callback(1L, CommandExecutionStatusVO.COMPLETED, "done", "raw-1")));
+
+		assertEquals(2, batches.size());
+		assertTransition(batches.get(0).get(0), 1L, CommandExecutionStatusVO.SENT, CommandExecutionStatusVO.COMPLETED);
+		assertTransition(batches.get(1).get(0), 1L, CommandExecutionStatusVO.DELIVERED, CommandExecutionStatusVO.COMPLETED);
+		verify(commandExecutionRepository, times(2)).selectByAepTaskIdAndDeviceIds(anyList());
+		assertEquals(CommandExecutionStatusVO.COMPLETED, commandExecutionStateCache.get(AEP_TASK_ID, 1L));
+	}
+
+	@Test
+	public void testBatchRetriesUnknownResultAsMiss() {
+		// 驱动未返回影响行数时仓储按未命中返回false(实际已生效): 失效缓存, 重读数据库后以数据库状态为期望值重新提交
+		commandExecutionStateCache.put(AEP_TASK_ID, 1L, CommandExecutionStatusVO.SENT);
+		when(commandExecutionRepository.selectByAepTaskIdAndDeviceIds(anyList()))
+				.thenReturn(List.of())
+				.thenReturn(List.of(execution(1L, CommandExecutionStatusVO.DELIVERED)));
+		List<List<CommandTransitionCtx>> batches = answerBatches(new boolean[]{false}, new boolean[]{false});
+
+		stateHandler.onBatch(List.of(callback(1L, CommandExecutionStatusVO.DELIVERED, null, "raw-1")));
+
+		assertEquals(2, batches.size());
+		CommandTransitionCtx retry = batches.get(1).get(0);
+		assertEquals(CommandExecutionStatusVO.DELIVERED, retry.getExpectedStatus());
+		assertEquals(CommandExecutionStatusVO.DELIVERED, retry.getTargetStatus());
+		// 两次结果都未确认, 缓存保持失效, 不会超前于数据库
+		assertNull(commandExecutionStateCache.get(AEP_TASK_ID, 1L));
+	}
+
+	@Test
+	public void testBatchDoesNotRetryDatabaseMiss() {
+		when(commandExecutionRepository.selectByAepTaskIdAndDeviceIds(anyList()))
+				.thenReturn(List.of(execution(1L, CommandExecutionStatusVO.SAVED)));
+		List<List<CommandTransitionCtx>> batches = answerBatches(new boolean[]{false});
+
+		stateHandler.onBatch(List.of(callback(1L, CommandExecutionStatusVO.SENT, null, "raw-1")));
+
+		assertEquals(1, batches.size());
+		assertNull(commandExecutionStateCache.get(AEP_TASK_ID, 1L));
+	}
+
+	/**
+	 * 依次返回给定的批量更新结果, 并记录每次提交的迁移
+	 */
+	private List<List<CommandTransitionCtx>> answerBatches(boolean[]... results) {
+		List<List<CommandTransitionCtx>> batches = new ArrayList<>();
+		when(commandExecutionRepository.batchApplyTransitions(anyList())).thenAnswer(invocation -> {
+			batches.add(new ArrayList<>(invocation.getArgument(0)));
+			return results[batches.size() - 1];
+		});
+		return batches;
+	}
+
+	private static void assertTransition(CommandTransitionCtx transition, Long deviceId,
+										 CommandExecutionStatusVO expected, CommandExecutionStatusVO target) {
+		assertEquals(deviceId, transition.getDeviceId());
+		assertEquals(expected, transition.getExpectedStatus());
+		assertEquals(target, transition.getTargetStatus());
+	}
+
+	private static CommandExecutionEntity callback(Long deviceId, CommandExecutionStatusVO status,
+												   String resultDetail, String rawCallback) {
+		return CommandExecutionEntity.builder()
+				.aepTaskId(AEP_TASK_ID)
+				.deviceId(deviceId)
+				.status(status)
+				.resultDetail(resultDetail)
+				.lastRawCallback(rawCallback)
+				.build();
+	}
+
+	private static CommandExecutionEntity execution(Long deviceId, CommandExecutionStatusVO status) {
+		return CommandExecutionEntity.builder()
+				.aepTaskId(AEP_TASK_ID)
+				.deviceId(deviceId)
+				.status(status)
+				.build();
+	}
+
+}
@@ -0,0 +1,140 @@
+package org.pms.domain.devicedata.model.vo;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author alcsyooterranf
+ * @program PressureMonitorSys-business
+ * @description 异常标志掩码与旧版code字符串互转, 位约定与ClickHouse的abnormal_flag(bitAnd 1/2/4/8/16/32)一致
+ * @create 2026/10/18
+ */
+public class AbnormalFlagVOTest {
+
+	/**
+	 * 单个异常: 异常标志, 旧版code字符串, ClickHouse中abnormal_flag对应的位(汇总表物化视图的bitAnd参数)
+	 */
+	private static final Object[][] SINGLE_CODES = {
+			{AbnormalFlagVO.OVER_PRESSURE, "1", 1},
+			{AbnormalFlagVO.UNDER_PRESSURE, "2", 2},
+			{AbnormalFlagVO.OVER_TEMPERATURE, "3", 4},
+			{AbnormalFlagVO.UNDER_TEMPERATURE, "4", 8},
+			{AbnormalFlagVO.OVER_VOLTAGE, "5", 16},
+			{AbnormalFlagVO.UNDER_VOLTAGE, "6", 32},
+	};
+
+	/**
+	 * 多个异常: 规范的code字符串(升序), 掩码
+	 */
+	private static final Object[][] COMBINATIONS = {
+			{"1,3", 0b000101},
+			{"5,6", 0b110000},
+			{"2,4,6", 0b101010},
+			{"1,2,3,4,5,6", 0b111111},
+	};
+
+	/**
+	 * 不规范的旧版字符串: 输入, 解析出的掩码; 无效的code视为正常
+	 */
+	private static final Object[][] MALFORMED = {
+			{"3,1", 0b000101},
+			{"1,1", 0b000001},
+			{"1,,3", 0b000101},
+			{",2,", 0b000010},
+			{" 1, 3 ", 0b000101},
+			{"0,2", 0b000010},
+			{"7", 0},
+			{"12", 0},
+			{"abc", 0},
+			{",", 0},
+			// 超出int范围的数字不能溢出后落回有效code(4294967297溢出后为1)
+			{"4294967297", 0},
+			{"4294967297,4", 0b001000},
+	};
+
+	@Test
+	public void testEverySingleCode() {
+		for (Object[] row : SINGLE_CODES) {
+			AbnormalFlagVO flag = (AbnormalFlagVO) row[0];
+			String code = (String) row[1];
+			int bit = (Integer) row[2];
+
+			assertEquals(flag.name(), bit, flag.getMask());
+			assertEquals(flag.name(), bit, AbnormalFlagVO.parseCodeString(code));
+			assertEquals(flag.name(), code, AbnormalFlagVO.toCodeString(bit));
+			assertEquals(flag.name(), List.of(flag), AbnormalFlagVO.fromMask(bit));
+			assertEquals(flag.name(), List.of(flag.getCode()), AbnormalFlagVO.toCodes(bit));
+			assertEquals(flag.name(), flag.getDesc(), AbnormalFlagVO.toDescString(bit));
+			assertEquals(flag.name(), flag, AbnormalFlagVO.getEnumByInteger(Integer.valueOf(code)));
+			assertTrue(flag.name(), flag.in(bit));
+			assertTrue(flag.name(), flag.isAbnormal());
+		}
+	}
+
+	@Test
+	public void testCombinations() {
+		for (Object[] row : COMBINATIONS) {
+			String codes = (String) row[0];
+			int mask = (Integer) row[1];
+
+			assertEquals(codes, mask, AbnormalFlagVO.parseCodeString(codes));
+			assertEquals(codes, codes, AbnormalFlagVO.toCodeString(mask));
+			assertEquals(codes, mask, AbnormalFlagVO.toMask(AbnormalFlagVO.fromMask(mask)));
+			assertEquals(codes, Integer.bitCount(mask), AbnormalFlagVO.fromMask(mask).size());
+		}
+		assertEquals("超压, 超温", AbnormalFlagVO.toDescString(0b101));
+	}
+
+	@Test
+	public void testEmptyAndNull() {
+		assertEquals(0, AbnormalFlagVO.parseCodeString(null));
+		assertEquals(0, AbnormalFlagVO.parseCodeString(""));
+		assertEquals(0, AbnormalFlagVO.parseCodeString("0"));
+		assertEquals("0", AbnormalFlagVO.toCodeString(0));
+		assertEquals(List.of(AbnormalFlagVO.NORMAL), AbnormalFlagVO.fromMask(0));
+		assertEquals(List.of(0), AbnormalFlagVO.toCodes(0));
+		assertEquals(AbnormalFlagVO.NORMAL.getDesc(), AbnormalFlagVO.toDescString(0));
+		assertTrue(AbnormalFlagVO.toEnumSet(0).isEmpty());
+		assertEquals(0, AbnormalFlagVO.toMask(null));
+		assertEquals(0, AbnormalFlagVO.toMask(List.of()));
+		assertEquals(0, AbnormalFlagVO.toMask(List.of(AbnormalFlagVO.NORMAL)));
+		assertEquals(0, AbnormalFlagVO.NORMAL.getMask());
+		assertFalse(AbnormalFlagVO.NORMAL.isAbnormal());
+	}
+
+	@Test
+	public void testMalformedLegacyString() {
+		for (Object[] row : MALFORMED) {
+			String codes = (String) row[0];
+			assertEquals(codes, (int) (Integer) row[1], AbnormalFlagVO.parseCodeString(codes));
+		}
+	}
+
+	@Test
+	public void testRoundTripAgainstClickHouseBits() {
+		int allBits = 0;
+		for (Object[] row : SINGLE_CODES) {
+			allBits |= (Integer) row[2];
+		}
+		assertEquals(allBits, AbnormalFlagVO.ALL_MASK);
+
+		for (int mask = 0; mask <= AbnormalFlagVO.ALL_MASK; mask++) {
+			String message = "mask=" + mask;
+			assertEquals(message, mask, AbnormalFlagVO.parseCodeString(AbnormalFlagVO.toCodeString(mask)));
+			assertEquals(message, mask, AbnormalFlagVO.toMask(AbnormalFlagVO.fromMask(mask)));
+			assertEquals(message, mask, AbnormalFlagVO.toMask(AbnormalFlagVO.toEnumSet(mask)));
+			for (Object[] row : SINGLE_CODES) {
+				// 与ClickHouse的countIf(bitAnd(abnormal_flag, bit) > 0)判定一致
+				AbnormalFlagVO flag = (AbnormalFlagVO) row[0];
+				int bit = (Integer) row[2];
+				assertEquals(message + ", " + flag, (mask & bit) != 0, flag.in(mask));
+			}
+		}
+	}
+
+}
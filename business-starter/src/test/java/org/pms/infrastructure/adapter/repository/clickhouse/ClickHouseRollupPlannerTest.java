@@ -0,0 +1,196 @@
+package org.pms.infrastructure.adapter.repository.clickhouse;
+
+import org.junit.Test;
+import org.pms.infrastructure.adapter.repository.clickhouse.ClickHouseRollupPlanner.RollupLevel;
+import org.pms.infrastructure.adapter.repository.clickhouse.ClickHouseRollupPlanner.Segment;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author alcsyooterranf
+ * @program PressureMonitorSys-business
+ * @description 汇总表查询规划: 各段首尾相接覆盖整个范围, 每段按所在时区对齐, 水位线之前只查原始表
+ * @create 2026/10/18
+ */
+public class ClickHouseRollupPlannerTest {
+
+	private static final ZoneId UTC = ZoneOffset.UTC;
+
+	@Test
+	public void testPlanWithoutRollupScansRawOnly() {
+		Instant from = utc("2026-01-01T08:30:15");
+		Instant to = utc("2026-01-31T10:00:00");
+		List<Segment> segments = ClickHouseRollupPlanner.plan(from, to, UTC, Map.of());
+
+		assertEquals(List.of(new Segment(RollupLevel.RAW, from, to)), segments);
+	}
+
+	@Test
+	public void testPlanEmptyRange() {
+		Instant at = utc("2026-01-01T08:30:15");
+		assertTrue(ClickHouseRollupPlanner.plan(at, at, UTC, allSince(Instant.EPOCH)).isEmpty());
+		assertTrue(ClickHouseRollupPlanner.plan(at, at.minusSeconds(1), UTC, allSince(Instant.EPOCH)).isEmpty());
+	}
+
+	@Test
+	public void testPlanUsesCoarsestLevelForEachPart() {
+		Instant from = utc("2026-01-01T08:30:15");
+		Instant to = utc("2026-01-31T10:00:00");
+		List<Segment> segments = ClickHouseRollupPlanner.plan(from, to, UTC, allSince(Instant.EPOCH));
+
+		assertEquals(List.of(
+				new Segment(RollupLevel.RAW, from, utc("2026-01-01T08:31:00")),
+				new Segment(RollupLevel.MINUTE, utc("2026-01-01T08:31:00"), utc("2026-01-01T09:00:00")),
+				new Segment(RollupLevel.HOUR, utc("2026-01-01T09:00:00"), utc("2026-01-02T00:00:00")),
+				new Segment(RollupLevel.DAY, utc("2026-01-02T00:00:00"), utc("2026-01-31T00:00:00")),
+				new Segment(RollupLevel.HOUR, utc("2026-01-31T00:00:00"), to)
+		), segments);
+		assertContiguous(segments, from, to);
+	}
+
+	@Test
+	public void testPlanWithinOneMinuteScansRaw() {
+		Instant from = utc("2026-01-01T08:30:15");
+		Instant to = utc("2026-01-01T08:30:45");
+		List<Segment> segments = ClickHouseRollupPlanner.plan(from, to, UTC, allSince(Instant.EPOCH));
+
+		assertEquals(List.of(new Segment(RollupLevel.RAW, from, to)), segments);
+	}
+
+	@Test
+	public void testPlanExactlyAlignedRangeUsesSingleSegment() {
+		Instant from = utc("2026-01-01T00:00:00");
+		Instant to = utc("2026-01-08T00:00:00");
+		List<Segment> segments = ClickHouseRollupPlanner.plan(from, to, UTC, allSince(Instant.EPOCH));
+
+		assertEquals(List.of(new Segment(RollupLevel.DAY, from, to)), segments);
+	}
+
+	@Test
+	public void testPlanReadsRawBeforeWatermark() {
+		// 物化视图在01-10 10:05:30创建, 所在的分钟/小时/天都不完整
+		Instant watermark = utc("2026-01-10T10:05:30");
+		Instant from = utc("2026-01-01T00:00:00");
+		Instant to = utc("2026-01-20T00:00:00");
+		List<Segment> segments = ClickHouseRollupPlanner.plan(from, to, UTC, allSince(watermark));
+
+		assertEquals(List.of(
+				new Segment(RollupLevel.RAW, from, utc("2026-01-10T10:06:00")),
+				new Segment(RollupLevel.MINUTE, utc("2026-01-10T10:06:00"), utc("2026-01-10T11:00:00")),
+				new Segment(RollupLevel.HOUR, utc("2026-01-10T11:00:00"), utc("2026-01-11T00:00:00")),
+				new Segment(RollupLevel.DAY, utc("2026-01-11T00:00:00"), to)
+		), segments);
+		assertContiguous(segments, from, to);
+	}
+
+	@Test
+	public void testPlanRangeBeforeWatermarkScansRaw() {
+		Instant from = utc("2026-01-01T00:00:00");
+		Instant to = utc("2026-01-05T00:00:00");
+		List<Segment> segments = ClickHouseRollupPlanner.plan(from, to, UTC, allSince(utc("2026-01-10T10:05:30")));
+
+		assertEquals(List.of(new Segment(RollupLevel.RAW, from, to)), segments);
+	}
+
+	@Test
+	public void testPlanUsesPerLevelWatermarks() {
+		// 天表的物化视图晚一天创建, 小时表覆盖两者之间的部分
+		Map<RollupLevel, Instant> watermarks = new EnumMap<>(RollupLevel.class);
+		watermarks.put(RollupLevel.DAY, utc("2026-01-03T12:00:00"));
+		watermarks.put(RollupLevel.HOUR, utc("2026-01-02T12:00:00"));
+		watermarks.put(RollupLevel.MINUTE, utc("2026-01-02T12:00:00"));
+		Instant from = utc("2026-01-01T00:00:00");
+		Instant to = utc("2026-01-06T00:00:00");
+		List<Segment> segments = ClickHouseRollupPlanner.plan(from, to, UTC, watermarks);
+
+		assertEquals(List.of(
+				new Segment(RollupLevel.RAW, from, utc("2026-01-02T12:00:00")),
+				new Segment(RollupLevel.HOUR, utc("2026-01-02T12:00:00"), utc("2026-01-04T00:00:00")),
+				new Segment(RollupLevel.DAY, utc("2026-01-04T00:00:00"), to)
+		), segments);
+		assertContiguous(segments, from, to);
+	}
+
+	@Test
+	public void testPlanSkipsLevelWithoutWatermark() {
+		Map<RollupLevel, Instant> watermarks = new EnumMap<>(RollupLevel.class);
+		watermarks.put(RollupLevel.HOUR, Instant.EPOCH);
+		Instant from = utc("2026-01-01T08:30:15");
+		Instant to = utc("2026-01-03T00:00:00");
+		List<Segment> segments = ClickHouseRollupPlanner.plan(from, to, UTC, watermarks);
+
+		assertEquals(List.of(
+				new Segment(RollupLevel.RAW, from, utc("2026-01-01T09:00:00")),
+				new Segment(RollupLevel.HOUR, utc("2026-01-01T09:00:00"), to)
+		), segments);
+	}
+
+	@Test
+	public void testPlanAlignsDaysAcrossDaylightSavingChange() {
+		// 柏林2026-03-29 02:00切换夏令时, 当天只有23小时
+		ZoneId berlin = ZoneId.of("Europe/Berlin");
+		Instant from = local("2026-03-28T12:00:00", berlin);
+		Instant to = local("2026-03-30T12:00:00", berlin);
+		List<Segment> segments = ClickHouseRollupPlanner.plan(from, to, berlin, allSince(Instant.EPOCH));
+
+		Segment day = new Segment(RollupLevel.DAY, local("2026-03-29T00:00:00", berlin), local("2026-03-30T00:00:00", berlin));
+		assertEquals(List.of(
+				new Segment(RollupLevel.HOUR, from, day.from()),
+				day,
+				new Segment(RollupLevel.HOUR, day.to(), to)
+		), segments);
+		assertEquals(Duration.ofHours(23), Duration.between(day.from(), day.to()));
+	}
+
+	@Test
+	public void testPlanAlignsHoursInHalfHourOffsetZone() {
+		// 加尔各答为UTC+05:30, 整点对应UTC的半点
+		ZoneId kolkata = ZoneId.of("Asia/Kolkata");
+		Instant from = utc("2026-01-01T00:00:00");
+		Instant to = utc("2026-01-01T02:15:00");
+		List<Segment> segments = ClickHouseRollupPlanner.plan(from, to, kolkata, allSince(Instant.EPOCH));
+
+		assertEquals(List.of(
+				new Segment(RollupLevel.MINUTE, from, utc("2026-01-01T00:30:00")),
+				new Segment(RollupLevel.HOUR, utc("2026-01-01T00:30:00"), utc("2026-01-01T01:30:00")),
+				new Segment(RollupLevel.MINUTE, utc("2026-01-01T01:30:00"), to)
+		), segments);
+	}
+
+	private static Map<RollupLevel, Instant> allSince(Instant watermark) {
+		Map<RollupLevel, Instant> watermarks = new EnumMap<>(RollupLevel.class);
+		watermarks.put(RollupLevel.DAY, watermark);
+		watermarks.put(RollupLevel.HOUR, watermark);
+		watermarks.put(RollupLevel.MINUTE, watermark);
+		return watermarks;
+	}
+
+	private static void assertContiguous(List<Segment> segments, Instant from, Instant to) {
+		Instant cursor = from;
+		for (Segment segment : segments) {
+			assertEquals(cursor, segment.from());
+			assertTrue(segment.from().isBefore(segment.to()));
+			cursor = segment.to();
+		}
+		assertEquals(to, cursor);
+	}
+
+	private static Instant utc(String dateTime) {
+		return local(dateTime, UTC);
+	}
+
+	private static Instant local(String dateTime, ZoneId zone) {
+		return LocalDateTime.parse(dateTime).atZone(zone).toInstant();
+	}
+
+}
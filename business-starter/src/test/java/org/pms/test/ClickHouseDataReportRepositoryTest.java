@@ -0,0 +1,134 @@
+package org.pms.test;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.pms.infrastructure.adapter.repository.clickhouse.ClickHouseDataReportRepository;
+import org.pms.infrastructure.adapter.repository.clickhouse.ClickHouseRollupInitializer;
+import org.pms.infrastructure.mapper.po.DeviceDataStatisticsPO;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author alcsyooterranf
+ * @program PressureMonitorSys-business
+ * @description 批量统计查询的按列序号取值必须与SQL的select列表一致
+ * @create 2026/10/18
+ */
+public class ClickHouseDataReportRepositoryTest {
+
+	private static final Pattern COLUMN_ALIAS = Pattern.compile("\\bas\\s+(\\w+)");
+
+	/**
+	 * 已知的一行统计结果, 按列名给值, 各列取值互不相同, 错位时一定能发现
+	 */
+	private static final Map<String, Object> KNOWN_ROW = Map.ofEntries(
+			Map.entry("device_sn", "SN001"),
+			Map.entry("total_count", 1000L),
+			Map.entry("avg_temperature", 25.5),
+			Map.entry("max_temperature", 41),
+			Map.entry("min_temperature", 11),
+			Map.entry("avg_voltage", 3.3),
+			Map.entry("max_voltage", 42),
+			Map.entry("min_voltage", 12),
+			Map.entry("avg_pressure", 101.5),
+			Map.entry("max_pressure", 43),
+			Map.entry("min_pressure", 13),
+			Map.entry("abnormal_count", 7L)
+	);
+
+	private ClickHouseDataReportRepository repository;
+
+	private JdbcTemplate clickHouseJdbcTemplate;
+
+	@Before
+	public void setUp() {
+		clickHouseJdbcTemplate = mock(JdbcTemplate.class);
+		ClickHouseRollupInitializer rollupInitializer = mock(ClickHouseRollupInitializer.class);
+		when(rollupInitializer.isAvailable()).thenReturn(false);
+
+		repository = new ClickHouseDataReportRepository();
+		ReflectionTestUtils.setField(repository, "clickHouseJdbcTemplate", clickHouseJdbcTemplate);
+		ReflectionTestUtils.setField(repository, "rollupInitializer", rollupInitializer);
+		ReflectionTestUtils.setField(repository, "clickHouseTimezone", "Asia/Shanghai");
+	}
+
+	@Test
+	public void testGetDeviceStatisticsBatchMapsColumnsByPosition() throws Exception {
+		ArgumentCaptor<String> sqlCaptor = ArgumentCaptor.forClass(String.class);
+		doAnswer(invocation -> {
+			// 按实际执行的SQL的select列表构造结果行, 第i列即第i个别名对应的值
+			List<String> columns = selectColumns(invocation.getArgument(0));
+			invocation.<RowCallbackHandler>getArgument(1).processRow(resultSet(columns));
+			return null;
+		}).when(clickHouseJdbcTemplate).query(sqlCaptor.capture(), any(RowCallbackHandler.class), any(Object[].class));
+
+		List<DeviceDataStatisticsPO> result = new ArrayList<>();
+		Date endTime = new Date();
+		Date startTime = new Date(endTime.getTime() - 3600_000L);
+		repository.getDeviceStatisticsBatch(List.of("SN001"), startTime, endTime, result::add);
+
+		verify(clickHouseJdbcTemplate).query(anyString(), any(RowCallbackHandler.class), any(Object[].class));
+		assertEquals(12, selectColumns(sqlCaptor.getValue()).size());
+		assertEquals(1, result.size());
+		DeviceDataStatisticsPO po = result.get(0);
+		assertEquals("SN001", po.getDeviceSN());
+		assertEquals(Long.valueOf(1000L), po.getTotalCount());
+		assertEquals(Long.valueOf(7L), po.getAbnormalCount());
+		assertEquals(25.5, po.getAvgTemperature(), 0);
+		assertEquals(Integer.valueOf(41), po.getMaxTemperature());
+		assertEquals(Integer.valueOf(11), po.getMinTemperature());
+		assertEquals(3.3, po.getAvgVoltage(), 0);
+		assertEquals(Integer.valueOf(42), po.getMaxVoltage());
+		assertEquals(Integer.valueOf(12), po.getMinVoltage());
+		assertEquals(101.5, po.getAvgPressure(), 0);
+		assertEquals(Integer.valueOf(43), po.getMaxPressure());
+		assertEquals(Integer.valueOf(13), po.getMinPressure());
+	}
+
+	/**
+	 * 解析外层select列表: 第一列device_sn, 之后为各列的别名
+	 */
+	private static List<String> selectColumns(String sql) {
+		String selectList = sql.substring(0, sql.indexOf(" FROM ("));
+		List<String> columns = new ArrayList<>();
+		columns.add("device_sn");
+		Matcher matcher = COLUMN_ALIAS.matcher(selectList);
+		while (matcher.find()) {
+			columns.add(matcher.group(1));
+		}
+		return columns;
+	}
+
+	private static ResultSet resultSet(List<String> columns) throws Exception {
+		ResultSet rs = mock(ResultSet.class);
+		when(rs.getString(anyInt())).thenAnswer(i -> String.valueOf(value(columns, i.getArgument(0))));
+		when(rs.getLong(anyInt())).thenAnswer(i -> ((Number) value(columns, i.getArgument(0))).longValue());
+		when(rs.getInt(anyInt())).thenAnswer(i -> ((Number) value(columns, i.getArgument(0))).intValue());
+		when(rs.getDouble(anyInt())).thenAnswer(i -> ((Number) value(columns, i.getArgument(0))).doubleValue());
+		return rs;
+	}
+
+	private static Object value(List<String> columns, int columnIndex) {
+		return KNOWN_ROW.get(columns.get(columnIndex - 1));
+	}
+
+}
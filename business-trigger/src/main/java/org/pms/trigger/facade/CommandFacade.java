@@ -5,6 +5,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.pms.api.dto.command.CommandRespDTO;
 import org.pms.api.facade.ICommandFacade;
 import org.pms.application.service.CommandRespHandler;
+import org.pms.domain.command.model.entity.CommandExecutionEntity;
 import org.pms.domain.command.model.valobj.CommandExecutionStatusVO;
 import org.pms.types.BizCode;
 import org.pms.types.Response;
@@ -13,6 +14,8 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 import java.util.Objects;
 
@@ -49,17 +52,24 @@ public class CommandFacade implements ICommandFacade {
 					.build();
 		}
 		try {
-			// 遍历处理每条指令响应
+			// 转换为回调上下文后批量处理, 状态非法的回调跳过
+			List<CommandExecutionEntity> callbacks = new ArrayList<>(commandList.size());
 			for (CommandRespDTO apiDto : commandList) {
-				CommandExecutionStatusVO commandStatus = CommandExecutionStatusVO.valueOf(apiDto.getCommandState());
-				commandRespHandler.handleCommandResponse(
-						apiDto.getTaskId(),
-						Long.parseLong(apiDto.getDeviceSN()),
-						commandStatus,
-						apiDto.getCommandResult(),
-						apiDto.toString()
-				);
+				CommandExecutionStatusVO commandStatus = CommandExecutionStatusVO.fromExternalResultCode(apiDto.getCommandState());
+				if (commandStatus == null) {
+					log.error("指令响应状态非法, 忽略, taskId={}, commandState={}", apiDto.getTaskId(), apiDto.getCommandState());
+					continue;
+				}
+				callbacks.add(CommandExecutionEntity.builder()
+						.aepTaskId(apiDto.getTaskId())
+						.deviceId(Long.parseLong(apiDto.getDeviceSN()))
+						.status(commandStatus)
+						.resultDetail(Objects.toString(apiDto.getCommandResult(), null))
+						.lastRawCallback(apiDto.toString())
+						.lastCallbackTime(apiDto.getTimestamp() == null ? null : new Date(apiDto.getTimestamp()))
+						.build());
 			}
+			commandRespHandler.handleCommandResponses(callbacks);
 			
 			log.info("批量指令响应保存完成");
 			return Response.<Boolean>builder()
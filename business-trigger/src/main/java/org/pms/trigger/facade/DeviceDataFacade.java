@@ -3,16 +3,22 @@ package org.pms.trigger.facade;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.pms.api.dto.devicedata.DeviceDataDTO;
+import org.pms.api.dto.devicedata.DeviceDataSaveResultDTO;
 import org.pms.api.facade.IDeviceDataFacade;
 import org.pms.application.converter.ApiToDomainConverter;
 import org.pms.application.service.DeviceDataHandler;
+import org.pms.domain.devicedata.model.entity.DeviceDataEntity;
+import org.pms.domain.devicedata.model.vo.DeviceDataSaveResultVO;
 import org.pms.types.BizCode;
 import org.pms.types.Response;
+import org.pms.types.TooManyRequestsException;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 
@@ -34,55 +40,74 @@ public class DeviceDataFacade implements IDeviceDataFacade {
 	
 	/**
 	 * 批量保存设备数据
+	 * <p>
+	 * 转换成功的记录整批交给Domain层落库, 转换失败或落库失败的记录在结果中逐条标记
 	 *
 	 * @param dataList 设备数据列表
-	 * @return RPC响应
+	 * @return RPC响应, data为与请求顺序一一对应的处理结果
 	 */
 	@Override
 	@PostMapping("/device/data/batch-save")
-	public Response<Boolean> batchHandleDeviceData(@RequestBody List<DeviceDataDTO> dataList) {
+	public Response<List<DeviceDataSaveResultDTO>> batchHandleDeviceData(@RequestBody List<DeviceDataDTO> dataList) {
 		log.info("接收到批量设备数据，数量: {}", dataList != null ? dataList.size() : 0);
 		
 		if (Objects.isNull(dataList) || dataList.isEmpty()) {
-			return Response.<Boolean>builder()
+			return Response.<List<DeviceDataSaveResultDTO>>builder()
 					.code(BizCode.PARAMETER_IS_NULL.getCode())
 					.message(BizCode.PARAMETER_IS_NULL.getMessage())
-					.data(false)
 					.build();
 		}
 		
-		try {
-			for (DeviceDataDTO apiDto : dataList) {
-				try {
-					// 1. 转换API DTO为Domain Entity
-					var deviceDataEntity = apiToDomainConverter.convertToDeviceDataEntity(apiDto);
-					if (deviceDataEntity == null) {
-						log.warn("设备数据转换失败，跳过, deviceId={}", apiDto.getDeviceId());
-						continue;
-					}
-					
-					// 2. 调用Domain层服务保存数据（包含异常检查和推送）
-					deviceDataHandler.saveDeviceData(deviceDataEntity);
-					
-				} catch (Exception e) {
-					log.error("保存设备数据失败，deviceId: {}, error: {}", apiDto.getDeviceId(), e.getMessage(), e);
+		DeviceDataSaveResultDTO[] results = new DeviceDataSaveResultDTO[dataList.size()];
+		List<DeviceDataEntity> deviceDataEntities = new ArrayList<>(dataList.size());
+		List<Integer> entityIndexes = new ArrayList<>(dataList.size());
+		
+		// 1. 转换API DTO为Domain Entity, 转换失败的记录直接标记失败
+		for (int i = 0; i < dataList.size(); i++) {
+			DeviceDataDTO apiDto = dataList.get(i);
+			DeviceDataEntity deviceDataEntity = null;
+			try {
+				deviceDataEntity = apiToDomainConverter.convertToDeviceDataEntity(apiDto);
+			} catch (Exception e) {
+				log.error("设备数据转换异常，deviceId: {}, error: {}", apiDto.getDeviceId(), e.getMessage(), e);
+			}
+			if (deviceDataEntity == null) {
+				log.warn("设备数据转换失败，跳过, deviceId={}", apiDto.getDeviceId());
+				results[i] = buildSaveResult(i, apiDto, false, "设备数据转换失败");
+				continue;
+			}
+			deviceDataEntities.add(deviceDataEntity);
+			entityIndexes.add(i);
+		}
+		
+		// 2. 调用Domain层服务批量保存数据（包含异常检查和推送）
+		if (!deviceDataEntities.isEmpty()) {
+			try {
+				List<DeviceDataSaveResultVO> saveResults = deviceDataHandler.batchSaveDeviceData(deviceDataEntities);
+				for (int i = 0; i < saveResults.size(); i++) {
+					int index = entityIndexes.get(i);
+					DeviceDataSaveResultVO saveResult = saveResults.get(i);
+					results[index] = buildSaveResult(index, dataList.get(index), saveResult.isSuccess(), saveResult.getMessage());
+				}
+			} catch (TooManyRequestsException e) {
+				// 过载时整批拒绝, 交给全局异常处理器返回429, 网关退避后整批重试
+				log.warn("服务过载, 拒绝批量设备数据, 数量: {}", dataList.size());
+				throw e;
+			} catch (Exception e) {
+				log.error("批量保存设备数据异常", e);
+				for (Integer index : entityIndexes) {
+					results[index] = buildSaveResult(index, dataList.get(index), false, "批量保存设备数据失败: " + e.getMessage());
 				}
 			}
-			
-			log.info("批量设备数据保存完成");
-			return Response.<Boolean>builder()
-					.code(BizCode.SUCCESS.getCode())
-					.message(BizCode.SUCCESS.getMessage())
-					.data(true)
-					.build();
-			
-		} catch (Exception e) {
-			log.error("批量保存设备数据异常", e);
-			return Response.<Boolean>builder()
-					.message("批量保存设备数据失败: " + e.getMessage())
-					.data(false)
-					.build();
 		}
+		
+		long rejected = Arrays.stream(results).filter(result -> !result.getSuccess()).count();
+		log.info("批量设备数据保存完成, 总数: {}, 失败: {}", dataList.size(), rejected);
+		return Response.<List<DeviceDataSaveResultDTO>>builder()
+				.code(BizCode.SUCCESS.getCode())
+				.message(BizCode.SUCCESS.getMessage())
+				.data(Arrays.asList(results))
+				.build();
 	}
 	
 	/**
@@ -123,6 +148,9 @@ public class DeviceDataFacade implements IDeviceDataFacade {
 					.data(true)
 					.build();
 			
+		} catch (TooManyRequestsException e) {
+			log.warn("服务过载, 拒绝设备数据, deviceId: {}", data.getDeviceId());
+			throw e;
 		} catch (Exception e) {
 			log.error("保存单条设备数据异常，deviceId: {}", data.getDeviceId(), e);
 			return Response.<Boolean>builder()
@@ -132,5 +160,13 @@ public class DeviceDataFacade implements IDeviceDataFacade {
 		}
 	}
 	
+	private DeviceDataSaveResultDTO buildSaveResult(int index, DeviceDataDTO apiDto, boolean success, String message) {
+		return DeviceDataSaveResultDTO.builder()
+				.index(index)
+				.deviceId(apiDto.getDeviceId())
+				.success(success)
+				.message(message)
+				.build();
+	}
+	
 }
-
@@ -6,13 +6,17 @@ import jakarta.validation.constraints.Min;
 import lombok.extern.slf4j.Slf4j;
 import org.pms.api.common.PageResponse;
 import org.pms.api.dto.req.*;
+import org.pms.api.dto.resp.CommandFanOutJobView;
 import org.pms.api.dto.resp.CommandMetaQueryView;
 import org.pms.application.converter.CommandDtoConverter;
 import org.pms.application.query.ICommandMetaQueryService;
 import org.pms.domain.command.model.command.CreateCommandMetaCommand;
 import org.pms.domain.command.model.command.CreateCommandTaskCommand;
+import org.pms.domain.command.model.command.FanOutCommandCommand;
 import org.pms.domain.command.model.command.SendCommandCommand;
 import org.pms.domain.command.model.command.UpdateCommandMetaCommand;
+import org.pms.domain.command.model.entity.CommandFanOutJobEntity;
+import org.pms.domain.command.service.ICommandFanOutService;
 import org.pms.domain.command.service.ICommandMetaService;
 import org.pms.domain.command.service.ICommandTaskService;
 import org.pms.types.BizCode;
@@ -20,6 +24,8 @@ import org.pms.types.Response;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 /**
  * 指令管理控制器
  * <p>
@@ -48,6 +54,8 @@ public class CommandController {
 	@Resource
 	private ICommandTaskService commandTaskService;
 	@Resource
+	private ICommandFanOutService commandFanOutService;
+	@Resource
 	private CommandDtoConverter commandDtoConverter;
 	
 	/**
@@ -213,4 +221,59 @@ public class CommandController {
 				.build();
 	}
 	
+	/**
+	 * 批量下发
+	 * 把指令任务下发到管道下所有已绑定的设备(或指定的设备列表), 立即返回作业ID, 在后台并发下发
+	 *
+	 * @param request 批量下发请求
+	 * @return 响应（包含作业ID和初始进度）
+	 */
+	@RequestMapping(value = "task/fan-out", method = RequestMethod.POST)
+	public Response<CommandFanOutJobView> fanOutCommand(@RequestBody @Valid CommandFanOutReq request) {
+		// 1. API DTO → Domain Command
+		FanOutCommandCommand command = commandDtoConverter.toFanOutCommand(request);
+
+		// 2. 提交批量下发作业
+		CommandFanOutJobEntity job = commandFanOutService.submit(command);
+
+		return Response.<CommandFanOutJobView>builder()
+				.code(BizCode.SUCCESS.getCode())
+				.message("批量下发作业已提交，正在后台执行")
+				.data(commandDtoConverter.toFanOutJobView(job))
+				.build();
+	}
+
+	/**
+	 * 查询批量下发作业进度
+	 *
+	 * @param jobId 作业ID
+	 * @return 响应（作业进度）
+	 */
+	@RequestMapping(value = "task/fan-out/query", method = RequestMethod.POST)
+	public Response<CommandFanOutJobView> queryFanOutJob(@RequestParam String jobId) {
+		CommandFanOutJobEntity job = commandFanOutService.queryJob(jobId);
+		return Response.<CommandFanOutJobView>builder()
+				.code(BizCode.SUCCESS.getCode())
+				.message(BizCode.SUCCESS.getMessage())
+				.data(commandDtoConverter.toFanOutJobView(job))
+				.build();
+	}
+
+	/**
+	 * 查询保留期内的所有批量下发作业
+	 *
+	 * @return 响应（作业进度列表, 按创建时间倒序）
+	 */
+	@RequestMapping(value = "task/fan-out/list", method = RequestMethod.POST)
+	public Response<List<CommandFanOutJobView>> queryFanOutJobs() {
+		List<CommandFanOutJobView> jobs = commandFanOutService.queryJobs().stream()
+				.map(commandDtoConverter::toFanOutJobView)
+				.toList();
+		return Response.<List<CommandFanOutJobView>>builder()
+				.code(BizCode.SUCCESS.getCode())
+				.message(BizCode.SUCCESS.getMessage())
+				.data(jobs)
+				.build();
+	}
+	
 }
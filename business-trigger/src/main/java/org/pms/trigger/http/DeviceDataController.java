@@ -2,21 +2,32 @@ package org.pms.trigger.http;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import jakarta.annotation.Resource;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.constraints.Min;
 import lombok.extern.slf4j.Slf4j;
 import org.pms.application.query.IDeviceDataQueryService;
+import org.pms.api.common.ExportFormat;
+import org.pms.api.dto.req.DeviceDataChartReq;
+import org.pms.api.dto.req.DeviceDataExportReq;
 import org.pms.api.dto.req.DeviceDataQueryCondition;
+import org.pms.api.dto.req.DeviceDataStatisticsReq;
+import org.pms.api.dto.resp.DeviceDataChartView;
 import org.pms.api.dto.resp.DeviceDataQueryView;
+import org.pms.api.dto.resp.DeviceDataStatisticsView;
 import org.pms.domain.devicedata.service.IDeviceDataService;
 import org.pms.domain.terminal.service.IDeviceService;
 import org.pms.domain.terminal.service.IPipelineService;
 import org.pms.api.common.PageResponse;
 import org.pms.types.BizCode;
 import org.pms.types.BizConstants;
+import org.pms.types.BizException;
 import org.pms.types.Response;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.util.List;
+
 @Slf4j
 @Validated
 @RestController
@@ -45,6 +56,57 @@ public class DeviceDataController {
 				.build();
 	}
 	
+	@RequestMapping(value = "abnormal", method = RequestMethod.POST)
+	public Response<List<DeviceDataQueryView>> queryAbnormalDataList(@RequestBody DeviceDataQueryCondition request) {
+		List<DeviceDataQueryView> deviceDataQueryViews = deviceDataQueryService.queryAbnormalDataList(request);
+		
+		return Response.<List<DeviceDataQueryView>>builder()
+				.code(BizCode.SUCCESS.getCode())
+				.message(BizCode.SUCCESS.getMessage())
+				.data(deviceDataQueryViews)
+				.build();
+	}
+	
+	@RequestMapping(value = "chart", method = RequestMethod.POST)
+	public Response<DeviceDataChartView> queryDeviceDataChart(@RequestBody DeviceDataChartReq request) {
+		DeviceDataChartView deviceDataChartView = deviceDataQueryService.queryDeviceDataChart(request);
+		
+		return Response.<DeviceDataChartView>builder()
+				.code(BizCode.SUCCESS.getCode())
+				.message(BizCode.SUCCESS.getMessage())
+				.data(deviceDataChartView)
+				.build();
+	}
+	
+	@RequestMapping(value = "statistics", method = RequestMethod.POST)
+	public Response<List<DeviceDataStatisticsView>> queryDeviceDataStatistics(@RequestBody DeviceDataStatisticsReq request) {
+		List<DeviceDataStatisticsView> statisticsViews = deviceDataQueryService.queryDeviceDataStatistics(request);
+		
+		return Response.<List<DeviceDataStatisticsView>>builder()
+				.code(BizCode.SUCCESS.getCode())
+				.message(BizCode.SUCCESS.getMessage())
+				.data(statisticsViews)
+				.build();
+	}
+	
+	/**
+	 * 导出设备数据, 响应体为CSV或Parquet文件, 分块传输, 不限制条数
+	 */
+	@RequestMapping(value = "export", method = RequestMethod.POST)
+	public void exportDeviceData(@RequestBody DeviceDataExportReq request, HttpServletResponse response) throws IOException {
+		// 参数校验放在设置响应头之前, 校验失败时仍由全局异常处理器返回JSON
+		if (request.getStartTime() == null || request.getEndTime() == null) {
+			throw new BizException(BizCode.PARAMETER_IS_NULL);
+		}
+		// ClickHouse确认查询成功后才设置导出文件的响应头, 查询失败时仍返回JSON
+		boolean parquet = request.getFormat() == ExportFormat.PARQUET;
+		deviceDataQueryService.exportDeviceData(request, () -> {
+			response.setContentType(parquet ? "application/vnd.apache.parquet" : "text/csv;charset=UTF-8");
+			response.setHeader("Content-Disposition", "attachment; filename=device_data." + (parquet ? "parquet" : "csv"));
+			return response.getOutputStream();
+		});
+	}
+	
 	@RequestMapping(value = "alter", method = RequestMethod.POST)
 	public Response<String> alterDeviceDataById(@RequestHeader(SECURITY_CONTEXT_HEADER) String securityContextEncoded,
 												@RequestParam @Min(1) Long id) throws JsonProcessingException {
@@ -0,0 +1,19 @@
+package org.pms.types;
+
+/**
+ * 过载异常
+ * 服务端处理能力不足时抛出, 由全局异常处理器转换为HTTP 429, 调用方应退避后重试
+ *
+ * @author alcsyooterranf
+ * @program PressureMonitorSys-business
+ * @create 2026/10/18
+ */
+public class TooManyRequestsException extends BizException {
+
+	public static final String CODE = "429";
+
+	public TooManyRequestsException(String message) {
+		super(CODE, message);
+	}
+
+}
@@ -0,0 +1,78 @@
+-- t_device_data 时间范围查询基准测试(MySQL 8.0)
+-- 对比 date_format(create_time) 条件与半开区间条件在5000万行数据上的执行计划和耗时
+-- 在独立的测试库中执行, 不要在生产库执行
+
+CREATE DATABASE IF NOT EXISTS pms_bench;
+USE pms_bench;
+
+CREATE TABLE IF NOT EXISTS t_device_data LIKE pressuremonitorsys.t_device_data;
+
+-- 1. 生成数据: 1万台设备, 约180天, 共5000万行; 每次插入100万行, 循环50次
+SET SESSION cte_max_recursion_depth = 1000000;
+DROP PROCEDURE IF EXISTS gen_device_data;
+DELIMITER $$
+CREATE PROCEDURE gen_device_data()
+BEGIN
+    DECLARE batch INT DEFAULT 0;
+    WHILE batch < 50 DO
+        INSERT INTO t_device_data (tenant_id, protocol, pipeline_id, pipeline_sn, temperature, voltage, pressure,
+                                   abnormal_flag, abnormal_mask, device_type, device_id, device_sn, assoc_asset_id,
+                                   imsi, imei, create_time, process_state, is_removed)
+        WITH RECURSIVE seq(n) AS (SELECT 0 UNION ALL SELECT n + 1 FROM seq WHERE n < 999999)
+        SELECT 'bench', 'LWM2M', n % 100, CONCAT('P', n % 100), 2000 + n % 500, 3600, 100 + n % 50,
+               IF(n % 97 = 0, '1', '0'), IF(n % 97 = 0, 1, 0), 'NB', n % 10000, CONCAT('SN', LPAD(n % 10000, 6, '0')),
+               '', '', '', NOW() - INTERVAL ((batch * 1000000 + n) * 0.311) SECOND, n % 97 <> 0, 0
+        FROM seq;
+        SET batch = batch + 1;
+    END WHILE;
+END$$
+DELIMITER ;
+CALL gen_device_data();
+ANALYZE TABLE t_device_data;
+
+-- 2. 修改前: 对列做date_format, 无法使用索引范围扫描
+EXPLAIN ANALYZE
+SELECT count(*) FROM t_device_data
+WHERE is_removed = 0 AND device_sn = 'SN000042'
+  AND date_format(create_time, '%y-%m-%d') >= date_format(NOW() - INTERVAL 7 DAY, '%y-%m-%d')
+  AND date_format(create_time, '%y-%m-%d') <= date_format(NOW(), '%y-%m-%d');
+
+EXPLAIN ANALYZE
+SELECT * FROM t_device_data
+WHERE is_removed = 0
+  AND date_format(create_time, '%y-%m-%d') >= date_format(NOW() - INTERVAL 7 DAY, '%y-%m-%d')
+  AND date_format(create_time, '%y-%m-%d') <= date_format(NOW(), '%y-%m-%d')
+ORDER BY create_time DESC, id DESC
+LIMIT 100000, 21;
+
+-- 3. 建立索引(与db/migration/V20261018_02一致)
+ALTER TABLE t_device_data
+    ADD INDEX idx_removed_sn_create_time (is_removed, device_sn, create_time),
+    ADD INDEX idx_removed_create_time (is_removed, create_time);
+
+-- 4. 修改后: 半开区间
+EXPLAIN ANALYZE
+SELECT count(*) FROM t_device_data
+WHERE is_removed = 0 AND device_sn = 'SN000042'
+  AND create_time >= DATE(NOW() - INTERVAL 7 DAY)
+  AND create_time < DATE(NOW()) + INTERVAL 1 DAY;
+
+EXPLAIN ANALYZE
+SELECT * FROM t_device_data
+WHERE is_removed = 0
+  AND create_time >= DATE(NOW() - INTERVAL 7 DAY)
+  AND create_time < DATE(NOW()) + INTERVAL 1 DAY
+ORDER BY create_time DESC, id DESC
+LIMIT 100000, 21;
+
+-- 5. 游标分页(见PageRequest.cursorCreateTime/cursorId), 翻页深度不影响耗时
+SET @cursor_time = (SELECT create_time FROM t_device_data WHERE is_removed = 0
+                    ORDER BY create_time DESC, id DESC LIMIT 100000, 1);
+SET @cursor_id = (SELECT id FROM t_device_data WHERE is_removed = 0 AND create_time = @cursor_time
+                  ORDER BY id DESC LIMIT 1);
+EXPLAIN ANALYZE
+SELECT * FROM t_device_data
+WHERE is_removed = 0
+  AND (create_time < @cursor_time OR (create_time = @cursor_time AND id < @cursor_id))
+ORDER BY create_time DESC, id DESC
+LIMIT 21;